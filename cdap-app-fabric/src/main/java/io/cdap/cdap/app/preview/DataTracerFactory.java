@@ -32,4 +32,22 @@ public interface DataTracerFactory {
    * @return the instance of the DataTracer
    */
   DataTracer getDataTracer(ApplicationId applicationId, String tracerName);
+
+  /**
+   * Flushes the data traced for the given application that are not yet published. It is called
+   * when the application finished running.
+   *
+   * @param applicationId the application to flush the traced data for
+   */
+  default void flush(ApplicationId applicationId) {
+    // no-op
+  }
+
+  /**
+   * Publishes all the traced data that are not yet published and releases the resources used by
+   * this factory. It is called when the preview runner shuts down.
+   */
+  default void close() {
+    // no-op
+  }
 }
@@ -34,6 +34,7 @@ public final class PreviewMessage {
    */
   public enum Type {
     DATA,
+    DATA_BATCH,
     STATUS,
     PROGRAM_RUN_ID
   }
@@ -43,6 +43,22 @@ public interface PreviewStore {
    */
   void put(ApplicationId applicationId, String tracerName, String propertyName, Object value);
 
+  /**
+   * Add the preview data of multiple properties traced by the same tracer.
+   *
+   * @param applicationId the id of the program which is logging the preview data
+   * @param tracerName the name of the logger used to put the preview data
+   * @param values the values to be added, keyed by the property name
+   */
+  default void putAll(ApplicationId applicationId, String tracerName,
+      Map<String, ? extends List<?>> values) {
+    for (Map.Entry<String, ? extends List<?>> entry : values.entrySet()) {
+      for (Object value : entry.getValue()) {
+        put(applicationId, tracerName, entry.getKey(), value);
+      }
+    }
+  }
+
   /**
    * Get the preview data associated with the given application id.
    *
@@ -18,7 +18,9 @@ package io.cdap.cdap.gateway.handlers.meta;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
 import com.google.inject.TypeLiteral;
+import io.cdap.cdap.api.common.HttpErrorStatusProvider;
 import io.cdap.cdap.common.internal.remote.MethodArgument;
 import io.cdap.cdap.proto.codec.EntityIdTypeAdapter;
 import io.cdap.cdap.proto.id.EntityId;
@@ -29,6 +31,7 @@ import io.cdap.cdap.proto.security.Permission;
 import io.cdap.cdap.proto.security.PermissionAdapterFactory;
 import io.cdap.cdap.proto.security.Principal;
 import io.cdap.cdap.proto.security.VisibilityRequest;
+import io.cdap.cdap.security.authorization.EnforcementResult;
 import io.cdap.cdap.security.spi.authentication.SecurityRequestContext;
 import io.cdap.cdap.security.spi.authorization.AccessEnforcer;
 import io.cdap.cdap.security.spi.authorization.AuditLogContext;
@@ -38,8 +41,11 @@ import io.cdap.http.HttpResponder;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import java.lang.reflect.Type;
+import java.net.HttpURLConnection;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
@@ -60,6 +66,8 @@ public class RemotePrivilegesHandler extends AbstractRemoteSystemOpsHandler {
   private static final Logger LOG = LoggerFactory.getLogger(RemotePrivilegesHandler.class);
   private static final Type SET_OF_PERMISSIONS = new TypeLiteral<Set<? extends Permission>>() {
   }.getType();
+  private static final Type LIST_OF_PRIVILEGES = new TypeToken<List<AuthorizationPrivilege>>() {
+  }.getType();
   private static final Gson GSON = new GsonBuilder()
       .registerTypeAdapter(EntityId.class, new EntityIdTypeAdapter())
       .registerTypeAdapterFactory(new PermissionAdapterFactory())
@@ -82,24 +90,35 @@ public class RemotePrivilegesHandler extends AbstractRemoteSystemOpsHandler {
         request.content().toString(StandardCharsets.UTF_8),
         AuthorizationPrivilege.class);
     LOG.debug("Enforcing for {}", authorizationPrivilege);
-    Set<Permission> permissions = authorizationPrivilege.getPermissions();
-    if (authorizationPrivilege.getChildEntityType() != null) {
-      //It's expected that we'll always have one, but let's handle generic case
-      for (Permission permission : permissions) {
-        accessEnforcer.enforceOnParent(authorizationPrivilege.getChildEntityType(),
-            authorizationPrivilege.getEntity(),
-            authorizationPrivilege.getPrincipal(), permission);
+    Queue<AuditLogContext> auditLogContextQueue = enforce(authorizationPrivilege);
+    responder.sendJson(HttpResponseStatus.OK, GSON.toJson(auditLogContextQueue));
+  }
+
+  /**
+   * Enforces a list of {@link AuthorizationPrivilege}. The response contains an {@link
+   * EnforcementResult} for each privilege in the request order, so that a failed enforcement does
+   * not fail the others.
+   */
+  @POST
+  @Path("/enforceBatch")
+  public void enforceBatch(FullHttpRequest request, HttpResponder responder) throws Exception {
+    List<AuthorizationPrivilege> authorizationPrivileges = GSON.fromJson(
+        request.content().toString(StandardCharsets.UTF_8), LIST_OF_PRIVILEGES);
+    LOG.debug("Enforcing for {}", authorizationPrivileges);
+    List<EnforcementResult> results = new ArrayList<>(authorizationPrivileges.size());
+    for (AuthorizationPrivilege authorizationPrivilege : authorizationPrivileges) {
+      try {
+        results.add(new EnforcementResult(HttpURLConnection.HTTP_OK, null,
+            enforce(authorizationPrivilege)));
+      } catch (Exception e) {
+        SecurityRequestContext.clearAuditLogQueue();
+        int statusCode = e instanceof HttpErrorStatusProvider
+            ? ((HttpErrorStatusProvider) e).getStatusCode()
+            : HttpURLConnection.HTTP_INTERNAL_ERROR;
+        results.add(new EnforcementResult(statusCode, e.getMessage(), null));
       }
-    } else {
-      accessEnforcer.enforce(authorizationPrivilege.getEntity(),
-          authorizationPrivilege.getPrincipal(),
-          permissions);
     }
-    Queue<AuditLogContext>  auditLogContextQueue = SecurityRequestContext.getAuditLogQueue();
-    //Clearing this so it doesn't get double write to messaging queue
-    //This should be written by the Client who is calling this service.
-    SecurityRequestContext.clearAuditLogQueue();
-    responder.sendJson(HttpResponseStatus.OK, GSON.toJson(auditLogContextQueue));
+    responder.sendJson(HttpResponseStatus.OK, GSON.toJson(results));
   }
 
   @POST
@@ -133,6 +152,28 @@ public class RemotePrivilegesHandler extends AbstractRemoteSystemOpsHandler {
     responder.sendJson(HttpResponseStatus.OK, GSON.toJson(entityToAuthResponseMapFull));
   }
 
+  private Queue<AuditLogContext> enforce(AuthorizationPrivilege authorizationPrivilege)
+      throws Exception {
+    Set<Permission> permissions = authorizationPrivilege.getPermissions();
+    if (authorizationPrivilege.getChildEntityType() != null) {
+      //It's expected that we'll always have one, but let's handle generic case
+      for (Permission permission : permissions) {
+        accessEnforcer.enforceOnParent(authorizationPrivilege.getChildEntityType(),
+            authorizationPrivilege.getEntity(),
+            authorizationPrivilege.getPrincipal(), permission);
+      }
+    } else {
+      accessEnforcer.enforce(authorizationPrivilege.getEntity(),
+          authorizationPrivilege.getPrincipal(),
+          permissions);
+    }
+    Queue<AuditLogContext>  auditLogContextQueue = SecurityRequestContext.getAuditLogQueue();
+    //Clearing this so it doesn't get double write to messaging queue
+    //This should be written by the Client who is calling this service.
+    SecurityRequestContext.clearAuditLogQueue();
+    return auditLogContextQueue;
+  }
+
   @POST
   @Path("/listPrivileges")
   public void listPrivileges(FullHttpRequest request, HttpResponder responder) throws Exception {
@@ -20,17 +20,14 @@ import com.google.gson.GsonBuilder;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.preview.DataTracer;
-import io.cdap.cdap.app.preview.PreviewDataPublisher;
-import io.cdap.cdap.app.preview.PreviewMessage;
 import io.cdap.cdap.app.store.preview.PreviewStore;
-import io.cdap.cdap.common.conf.CConfiguration;
-import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.internal.app.store.preview.PreviewJsonSerializer;
 import io.cdap.cdap.internal.io.SchemaTypeAdapter;
-import io.cdap.cdap.proto.id.ApplicationId;
 
 /**
- * Default implementation of {@link DataTracer}, the data are preserved using {@link PreviewStore}
+ * Default implementation of {@link DataTracer}, the data are preserved using {@link PreviewStore}.
+ * The traced values are serialized when traced and are published in batches through the
+ * {@link PreviewDataBuffer} of the tracer.
  */
 class DefaultDataTracer implements DataTracer {
 
@@ -39,28 +36,22 @@ class DefaultDataTracer implements DataTracer {
       .registerTypeAdapter(StructuredRecord.class, new PreviewJsonSerializer()).create();
 
   private final String tracerName;
-  private final ApplicationId applicationId;
-  private final PreviewDataPublisher previewDataPublisher;
-  private final CConfiguration cConf;
+  private final PreviewDataBuffer buffer;
   private final int maximumTracedRecords;
 
-  DefaultDataTracer(ApplicationId applicationId, String tracerName,
-      PreviewDataPublisher previewDataPublisher,
-      CConfiguration cConf) {
+  DefaultDataTracer(String tracerName, PreviewDataBuffer buffer, int maximumTracedRecords) {
     this.tracerName = tracerName;
-    this.applicationId = applicationId;
-    this.previewDataPublisher = previewDataPublisher;
-    this.cConf = cConf;
-    this.maximumTracedRecords = cConf.getInt(Constants.Preview.MAX_NUM_OF_RECORDS);
+    this.buffer = buffer;
+    this.maximumTracedRecords = maximumTracedRecords;
   }
 
   @Override
   public void info(String propertyName, Object propertyValue) {
-    PreviewDataPayload payload = new PreviewDataPayload(applicationId, tracerName, propertyName,
-        propertyValue);
-    PreviewMessage message = new PreviewMessage(PreviewMessage.Type.DATA, applicationId,
-        GSON.toJsonTree(payload));
-    previewDataPublisher.publish(applicationId, message);
+    // Avoid serializing values that won't be traced
+    if (buffer.isLimitReached(propertyName)) {
+      return;
+    }
+    buffer.add(propertyName, GSON.toJsonTree(propertyValue));
   }
 
   @Override
@@ -15,29 +15,119 @@
  */
 package io.cdap.cdap.internal.app.preview;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.inject.Inject;
 import io.cdap.cdap.api.preview.DataTracer;
 import io.cdap.cdap.app.preview.DataTracerFactory;
 import io.cdap.cdap.app.preview.PreviewDataPublisher;
 import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.utils.ImmutablePair;
 import io.cdap.cdap.proto.id.ApplicationId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.twill.common.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * Default implementation of {@link DataTracerFactory}
+ * Default implementation of {@link DataTracerFactory}. The tracers of the same application and
+ * tracer name share the same {@link PreviewDataBuffer}, which is flushed periodically in the
+ * background and when the application finished running. Buffers that stay idle are closed and
+ * removed, which also covers the buffers of tracers created after the application finished.
  */
 public class DefaultDataTracerFactory implements DataTracerFactory {
 
+  private static final Logger LOG = LoggerFactory.getLogger(DefaultDataTracerFactory.class);
+  // Number of flush intervals after which a buffer without any traced value is removed
+  private static final int IDLE_FLUSH_INTERVALS = 10;
+
   private final PreviewDataPublisher publisher;
-  private final CConfiguration cConf;
+  private final int maximumTracedRecords;
+  private final int batchSize;
+  private final long flushIntervalMillis;
+  private final ConcurrentMap<ImmutablePair<ApplicationId, String>, PreviewDataBuffer> buffers;
+  private ScheduledExecutorService flushExecutor;
 
   @Inject
   public DefaultDataTracerFactory(PreviewDataPublisher publisher, CConfiguration cConf) {
     this.publisher = publisher;
-    this.cConf = cConf;
+    this.maximumTracedRecords = cConf.getInt(Constants.Preview.MAX_NUM_OF_RECORDS);
+    this.batchSize = cConf.getInt(Constants.Preview.DATA_TRACER_BATCH_SIZE);
+    this.flushIntervalMillis = cConf.getLong(Constants.Preview.DATA_TRACER_FLUSH_INTERVAL_MS);
+    this.buffers = new ConcurrentHashMap<>();
   }
 
   @Override
   public DataTracer getDataTracer(ApplicationId applicationId, String tracerName) {
-    return new DefaultDataTracer(applicationId, tracerName, publisher, cConf);
+    startFlusher();
+    PreviewDataBuffer buffer = buffers.computeIfAbsent(ImmutablePair.of(applicationId, tracerName),
+        k -> new PreviewDataBuffer(applicationId, tracerName, publisher, batchSize,
+            flushIntervalMillis, maximumTracedRecords));
+    return new DefaultDataTracer(tracerName, buffer, maximumTracedRecords);
+  }
+
+  @Override
+  public void flush(ApplicationId applicationId) {
+    for (Map.Entry<ImmutablePair<ApplicationId, String>, PreviewDataBuffer> entry
+        : buffers.entrySet()) {
+      if (applicationId.equals(entry.getKey().getFirst())
+          && buffers.remove(entry.getKey(), entry.getValue())) {
+        entry.getValue().close();
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (flushExecutor != null) {
+        flushExecutor.shutdown();
+      }
+    }
+    for (Map.Entry<ImmutablePair<ApplicationId, String>, PreviewDataBuffer> entry
+        : buffers.entrySet()) {
+      if (buffers.remove(entry.getKey(), entry.getValue())) {
+        entry.getValue().close();
+      }
+    }
+  }
+
+  @VisibleForTesting
+  int getBufferCount() {
+    return buffers.size();
+  }
+
+  /**
+   * Starts the thread for publishing the buffered data periodically if it is not yet started.
+   */
+  private synchronized void startFlusher() {
+    if (flushExecutor != null) {
+      return;
+    }
+    flushExecutor = Executors.newSingleThreadScheduledExecutor(
+        Threads.createDaemonThreadFactory("preview-data-tracer-flusher"));
+    long delay = Math.max(1L, flushIntervalMillis);
+    long idleMillis = flushIntervalMillis * IDLE_FLUSH_INTERVALS;
+    flushExecutor.scheduleWithFixedDelay(() -> {
+      for (Map.Entry<ImmutablePair<ApplicationId, String>, PreviewDataBuffer> entry
+          : buffers.entrySet()) {
+        PreviewDataBuffer buffer = entry.getValue();
+        try {
+          if (buffer.isIdle(idleMillis) && buffers.remove(entry.getKey(), buffer)) {
+            buffer.close();
+          } else {
+            buffer.flushExpired();
+          }
+        } catch (Exception e) {
+          LOG.warn("Failed to publish preview data traced by {} for application {}",
+              entry.getKey().getSecond(), entry.getKey().getFirst(), e);
+        }
+      }
+    }, delay, delay, TimeUnit.MILLISECONDS);
   }
 }
@@ -16,8 +16,10 @@
 
 package io.cdap.cdap.internal.app.preview;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
+import io.cdap.cdap.api.metrics.MetricsCollectionService;
 import io.cdap.cdap.app.preview.PreviewConfigModule;
 import io.cdap.cdap.app.preview.PreviewRequest;
 import io.cdap.cdap.app.preview.PreviewRequestQueue;
@@ -31,11 +33,15 @@ import io.cdap.cdap.common.service.Retries;
 import io.cdap.cdap.common.service.RetryStrategies;
 import io.cdap.cdap.common.service.RetryStrategy;
 import io.cdap.cdap.proto.id.ApplicationId;
+import io.cdap.cdap.proto.security.Principal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.BlockingDeque;
-import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import net.jcip.annotations.ThreadSafe;
 import org.slf4j.Logger;
@@ -43,33 +49,52 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Thread-safe implementation of {@link PreviewRequestQueue} backed by {@link PreviewStore}.
+ *
+ * <p>Requests are queued per submitter, identified by the namespace and the principal of the
+ * request. The submitters are served in round-robin order and requests of the same submitter are
+ * served in submission order, so that a submitter with many previews doesn't hold back the
+ * previews of others.</p>
  */
 @ThreadSafe
 public class DefaultPreviewRequestQueue implements PreviewRequestQueue {
 
   private static final Logger LOG = LoggerFactory.getLogger(DefaultPreviewRequestQueue.class);
   private final PreviewStore previewStore;
-  private final BlockingDeque<PreviewRequest> requestQueue;
+  private final MetricsCollectionService metricsCollectionService;
   private final int capacity;
   private final long waitTimeOut;
   private final RetryStrategy retryStrategy;
 
+  // Requests of each submitter. All the queue states are guarded by this instance.
+  private final Map<String, Deque<PreviewRequest>> submitterQueues;
+  // Submitters that have requests, in the order of being served
+  private final Deque<String> submitters;
+  private int size;
+
   @Inject
   DefaultPreviewRequestQueue(@Named(PreviewConfigModule.PREVIEW_CCONF) CConfiguration cConf,
-      PreviewStore previewStore) {
+      PreviewStore previewStore, MetricsCollectionService metricsCollectionService) {
     this.previewStore = previewStore;
+    this.metricsCollectionService = metricsCollectionService;
     this.capacity = cConf.getInt(Constants.Preview.WAITING_QUEUE_CAPACITY, 50);
     this.waitTimeOut = cConf.getLong(Constants.Preview.WAITING_QUEUE_TIMEOUT_SECONDS, 60);
     this.retryStrategy = RetryStrategies.fromConfiguration(cConf, "system.preview.store.update.");
-    this.requestQueue = previewStore.getAllInWaitingState().stream()
+    this.submitterQueues = new HashMap<>();
+    this.submitters = new ArrayDeque<>();
+    previewStore.getAllInWaitingState().stream()
         .filter(r -> isValid(r, waitTimeOut))
-        .collect(Collectors.toCollection(() -> new LinkedBlockingDeque<>(capacity)));
+        .forEach(r -> {
+          if (!offer(r)) {
+            LOG.warn("Preview request waiting queue is full. Ignoring preview request {}.",
+                r.getProgram().getParent());
+          }
+        });
   }
 
   @Override
   public Optional<PreviewRequest> poll(@Nullable byte[] pollerInfo) {
     while (true) {
-      PreviewRequest previewRequest = requestQueue.poll();
+      PreviewRequest previewRequest = take();
       if (previewRequest == null) {
         return Optional.empty();
       }
@@ -95,6 +120,7 @@ public class DefaultPreviewRequestQueue implements PreviewRequestQueue {
               }
             }, retryStrategy, Retries.ALWAYS_TRUE);
         if (request != null) {
+          emitWaitTimeMetric(request);
           return Optional.of(request);
         }
       } catch (Exception e) {
@@ -109,31 +135,102 @@ public class DefaultPreviewRequestQueue implements PreviewRequestQueue {
     previewStore.add(previewRequest.getProgram().getParent(),
         previewRequest.getAppRequest(),
         previewRequest.getPrincipal());
-    if (!requestQueue.offer(previewRequest)) {
+    if (!offer(previewRequest)) {
       previewStore.remove(previewRequest.getProgram().getParent());
       throw new IllegalStateException(
-          String.format("Preview request waiting queue is full with %d requests.",
-              requestQueue.size()));
+          String.format("Preview request waiting queue is full with %d requests.", capacity));
     }
   }
 
   @Override
-  public PreviewRequestQueueState getState() {
-    return new PreviewRequestQueueState(requestQueue.size());
+  public synchronized PreviewRequestQueueState getState() {
+    return new PreviewRequestQueueState(size);
   }
 
   @Override
-  public int positionOf(ApplicationId applicationId) {
+  public synchronized int positionOf(ApplicationId applicationId) {
+    // Walks the requests in the order they will be served. In each round, each submitter is served
+    // with one request.
+    List<Deque<PreviewRequest>> queues = new ArrayList<>();
+    for (String submitter : submitters) {
+      queues.add(new ArrayDeque<>(submitterQueues.get(submitter)));
+    }
     int position = 0;
-    for (PreviewRequest request : requestQueue) {
-      if (request.getProgram().getParent().equals(applicationId)) {
-        return position;
+    while (!queues.isEmpty()) {
+      List<Deque<PreviewRequest>> nextRound = new ArrayList<>();
+      for (Deque<PreviewRequest> queue : queues) {
+        if (queue.poll().getProgram().getParent().equals(applicationId)) {
+          return position;
+        }
+        position++;
+        if (!queue.isEmpty()) {
+          nextRound.add(queue);
+        }
       }
-      position++;
+      queues = nextRound;
     }
     return -1;
   }
 
+  /**
+   * Adds the request to the queue of its submitter.
+   *
+   * @return {@code false} if the queue is full
+   */
+  private synchronized boolean offer(PreviewRequest request) {
+    if (size >= capacity) {
+      return false;
+    }
+    String submitter = getSubmitter(request);
+    Deque<PreviewRequest> queue = submitterQueues.computeIfAbsent(submitter,
+        k -> new ArrayDeque<>());
+    if (queue.isEmpty()) {
+      submitters.addLast(submitter);
+    }
+    queue.addLast(request);
+    size++;
+    return true;
+  }
+
+  /**
+   * Removes and returns the next request to serve, or {@code null} if the queue is empty.
+   */
+  @Nullable
+  private synchronized PreviewRequest take() {
+    String submitter = submitters.pollFirst();
+    if (submitter == null) {
+      return null;
+    }
+    Deque<PreviewRequest> queue = submitterQueues.get(submitter);
+    PreviewRequest request = queue.pollFirst();
+    if (queue.isEmpty()) {
+      submitterQueues.remove(submitter);
+    } else {
+      // The submitter goes to the end of the line for its next request
+      submitters.addLast(submitter);
+    }
+    size--;
+    return request;
+  }
+
+  private static String getSubmitter(PreviewRequest request) {
+    String namespace = request.getProgram().getNamespace();
+    Principal principal = request.getPrincipal();
+    return principal == null ? namespace : namespace + ":" + principal.getName();
+  }
+
+  /**
+   * Emits the time the request waited in the queue.
+   */
+  private void emitWaitTimeMetric(PreviewRequest request) {
+    ApplicationId applicationId = request.getProgram().getParent();
+    long waitTime = System.currentTimeMillis()
+        - RunIds.getTime(applicationId.getApplication(), TimeUnit.MILLISECONDS);
+    metricsCollectionService.getContext(
+            ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, applicationId.getNamespace()))
+        .event(Constants.Metrics.Preview.QUEUE_WAIT_TIME_MS, Math.max(0L, waitTime));
+  }
+
   /**
    * Check if the request is valid and not timed out yet.
    */
@@ -374,6 +374,8 @@ public class DefaultPreviewRunner extends AbstractIdleService implements Preview
   protected void shutDown() throws Exception {
     LOG.debug("Stopping preview runner service");
     programRuntimeService.stopAndWait();
+    // Stop the background flushing of traced data while the messaging service is still running
+    dataTracerFactory.close();
     applicationLifecycleService.stopAndWait();
     logAppenderInitializer.close();
     metricsCollectionService.stopAndWait();
@@ -411,6 +413,12 @@ public class DefaultPreviewRunner extends AbstractIdleService implements Preview
     } catch (IOException e) {
       LOG.warn("Error deleting file {} containing preview program id.", pid, e);
     }
+    // Publish the remaining traced data before the final status
+    try {
+      dataTracerFactory.flush(programId.getParent());
+    } catch (Exception e) {
+      LOG.warn("Failed to publish the remaining preview data for {}.", programId, e);
+    }
     setStatus(programId, previewStatus);
   }
 }
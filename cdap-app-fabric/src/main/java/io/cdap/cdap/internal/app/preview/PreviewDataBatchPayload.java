@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.preview;
+
+import io.cdap.cdap.proto.id.ApplicationId;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class representing a batch of preview data traced by the same tracer.
+ */
+public class PreviewDataBatchPayload {
+
+  private final ApplicationId applicationId;
+  private final String tracerName;
+  private final Map<String, List<Object>> properties;
+
+  public PreviewDataBatchPayload(ApplicationId applicationId, String tracerName,
+      Map<String, List<Object>> properties) {
+    this.applicationId = applicationId;
+    this.tracerName = tracerName;
+    this.properties = properties;
+  }
+
+  public ApplicationId getApplicationId() {
+    return applicationId;
+  }
+
+  public String getTracerName() {
+    return tracerName;
+  }
+
+  /**
+   * Returns the traced values, keyed by the property name.
+   */
+  public Map<String, List<Object>> getProperties() {
+    return properties;
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.preview;
+
+import com.google.gson.Gson;
+import io.cdap.cdap.app.preview.PreviewDataPublisher;
+import io.cdap.cdap.app.preview.PreviewMessage;
+import io.cdap.cdap.proto.id.ApplicationId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Buffers the data traced by one tracer of a preview run and publishes them in batches. The
+ * buffered data is published when the buffer is full or when the oldest buffered value has been
+ * buffered for longer than the flush interval. At most the maximum number of traced records are
+ * accepted for each property. Once closed, each value is published as soon as it is added.
+ */
+final class PreviewDataBuffer {
+
+  private static final Gson GSON = new Gson();
+
+  private final ApplicationId applicationId;
+  private final String tracerName;
+  private final PreviewDataPublisher publisher;
+  private final int batchSize;
+  private final long flushIntervalMillis;
+  private final int maximumTracedRecords;
+  // Number of values accepted for each property, including the published ones
+  private final Map<String, Integer> tracedCounts;
+  // Held while draining and publishing, so that values are published in the order they are drained
+  private final Object publishLock;
+  private Map<String, List<Object>> values;
+  private int size;
+  private long firstBufferedMillis;
+  private long lastAddedMillis;
+  private boolean closed;
+
+  PreviewDataBuffer(ApplicationId applicationId, String tracerName,
+      PreviewDataPublisher publisher, int batchSize, long flushIntervalMillis,
+      int maximumTracedRecords) {
+    this.applicationId = applicationId;
+    this.tracerName = tracerName;
+    this.publisher = publisher;
+    this.batchSize = batchSize;
+    this.flushIntervalMillis = flushIntervalMillis;
+    this.maximumTracedRecords = maximumTracedRecords;
+    this.tracedCounts = new HashMap<>();
+    this.publishLock = new Object();
+    this.values = new LinkedHashMap<>();
+    this.lastAddedMillis = System.currentTimeMillis();
+  }
+
+  /**
+   * Returns {@code true} if no more value will be accepted for the given property.
+   */
+  synchronized boolean isLimitReached(String propertyName) {
+    return tracedCounts.getOrDefault(propertyName, 0) >= maximumTracedRecords;
+  }
+
+  /**
+   * Returns {@code true} if the buffer is empty and no value was added for the given time.
+   */
+  synchronized boolean isIdle(long idleMillis) {
+    return size == 0 && System.currentTimeMillis() - lastAddedMillis >= idleMillis;
+  }
+
+  /**
+   * Adds a value to the buffer. The buffered values are published if the buffer is full,
+   * the flush interval has passed or the buffer is closed.
+   */
+  void add(String propertyName, Object value) {
+    long minBufferedMillis;
+    synchronized (this) {
+      int count = tracedCounts.getOrDefault(propertyName, 0);
+      if (count >= maximumTracedRecords) {
+        return;
+      }
+      tracedCounts.put(propertyName, count + 1);
+      lastAddedMillis = System.currentTimeMillis();
+      if (size == 0) {
+        firstBufferedMillis = lastAddedMillis;
+      }
+      values.computeIfAbsent(propertyName, k -> new ArrayList<>()).add(value);
+      size++;
+      if (!closed && size < batchSize
+          && lastAddedMillis - firstBufferedMillis < flushIntervalMillis) {
+        return;
+      }
+      minBufferedMillis = closed || size >= batchSize ? 0L : flushIntervalMillis;
+    }
+    publishBuffered(minBufferedMillis);
+  }
+
+  /**
+   * Publishes the buffered values if they have been buffered for longer than the flush interval.
+   */
+  void flushExpired() {
+    publishBuffered(flushIntervalMillis);
+  }
+
+  /**
+   * Publishes all the buffered values. When it returns, the values drained by any concurrent call
+   * are published as well.
+   */
+  void flush() {
+    publishBuffered(0L);
+  }
+
+  /**
+   * Publishes all the buffered values and publishes the values added later right away.
+   */
+  void close() {
+    synchronized (this) {
+      closed = true;
+    }
+    flush();
+  }
+
+  private void publishBuffered(long minBufferedMillis) {
+    synchronized (publishLock) {
+      PreviewDataBatchPayload payload;
+      synchronized (this) {
+        payload = drain(minBufferedMillis);
+      }
+      publish(payload);
+    }
+  }
+
+  /**
+   * Removes the buffered values and returns them if the oldest value has been buffered for at
+   * least the given time. Returns {@code null} otherwise.
+   */
+  @Nullable
+  private PreviewDataBatchPayload drain(long minBufferedMillis) {
+    if (size == 0 || System.currentTimeMillis() - firstBufferedMillis < minBufferedMillis) {
+      return null;
+    }
+    PreviewDataBatchPayload payload = new PreviewDataBatchPayload(applicationId, tracerName,
+        values);
+    values = new LinkedHashMap<>();
+    size = 0;
+    return payload;
+  }
+
+  private void publish(@Nullable PreviewDataBatchPayload payload) {
+    if (payload != null) {
+      publisher.publish(applicationId, new PreviewMessage(PreviewMessage.Type.DATA_BATCH,
+          applicationId, GSON.toJsonTree(payload)));
+    }
+  }
+}
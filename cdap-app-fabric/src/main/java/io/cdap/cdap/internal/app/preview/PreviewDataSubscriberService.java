@@ -136,6 +136,8 @@ public class PreviewDataSubscriberService extends
         switch (type) {
           case DATA:
             return new PreviewDataProcessor();
+          case DATA_BATCH:
+            return new PreviewDataBatchProcessor();
           case STATUS:
             return new PreviewStatusWriter();
           case PROGRAM_RUN_ID:
@@ -223,6 +225,35 @@ public class PreviewDataSubscriberService extends
     }
   }
 
+  /**
+   * The {@link PreviewMessageProcessor} for processing batches of preview data. All the data in a
+   * batch are written to the store at once.
+   */
+  private final class PreviewDataBatchProcessor implements PreviewMessageProcessor {
+
+    @Override
+    public void processMessage(PreviewMessage message) {
+      if (!(message.getEntityId() instanceof ApplicationId)) {
+        LOG.warn(
+            "Missing application id from the preview data information. Ignoring the message {}",
+            message);
+        return;
+      }
+
+      ApplicationId applicationId = (ApplicationId) message.getEntityId();
+      PreviewDataBatchPayload payload;
+      try {
+        payload = message.getPayload(GSON, PreviewDataBatchPayload.class);
+      } catch (Throwable t) {
+        LOG.warn(
+            "Error while deserializing the preview data message received from TMS. Ignoring : {}",
+            message, t);
+        return;
+      }
+      previewStore.putAll(applicationId, payload.getTracerName(), payload.getProperties());
+    }
+  }
+
   /**
    * The {@link PreviewMessageProcessor} for writing preview status to store.
    */
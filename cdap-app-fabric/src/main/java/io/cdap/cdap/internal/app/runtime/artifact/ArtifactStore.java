@@ -18,6 +18,8 @@ package io.cdap.cdap.internal.app.runtime.artifact;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -82,6 +84,8 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.Spliterators;
 import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -172,6 +176,10 @@ import org.apache.twill.filesystem.LocationFactory;
  * In order to prevent deadlock if the storage backend is SQL, if a transaction needs to use
  * multiple tables, the order to use the table will be: artifact_data -> app_data -> plugin_data ->
  * universal_plugin_data
+ *
+ * Plugin class lookups can optionally be cached in memory. Every artifact write or delete
+ * performed through this class increments a generation counter, and cached lookups made at an older
+ * generation are discarded.
  */
 public class ArtifactStore {
 
@@ -189,6 +197,11 @@ public class ArtifactStore {
   private final Impersonator impersonator;
   private final Set<String> requirementBlacklist;
   private final TransactionRunner transactionRunner;
+  // Cache of plugin class lookups, or null if caching is disabled
+  @Nullable
+  private final Cache<List<Object>, CachedPlugins> pluginCache;
+  // Generation of the artifacts, which is incremented on every artifact change
+  private final AtomicLong generation;
 
   @Inject
   ArtifactStore(CConfiguration cConf,
@@ -203,6 +216,15 @@ public class ArtifactStore {
         new HashSet<>(cConf.getTrimmedStringCollection(Constants.REQUIREMENTS_DATASET_TYPE_EXCLUDE))
             .stream().map(String::toLowerCase).collect(Collectors.toSet());
     this.transactionRunner = transactionRunner;
+    this.pluginCache = cConf.getBoolean(Constants.AppFabric.ARTIFACT_PLUGIN_CACHE_ENABLED)
+        ? CacheBuilder.newBuilder()
+        .maximumSize(cConf.getLong(Constants.AppFabric.ARTIFACT_PLUGIN_CACHE_MAX_SIZE))
+        .expireAfterWrite(
+            cConf.getLong(Constants.AppFabric.ARTIFACT_PLUGIN_CACHE_EXPIRATION_SECONDS),
+            TimeUnit.SECONDS)
+        .build()
+        : null;
+    this.generation = new AtomicLong();
   }
 
   /**
@@ -518,7 +540,13 @@ public class ArtifactStore {
       Id.Artifact parentArtifactId,
       @Nullable String type)
       throws ArtifactNotFoundException, IOException {
+    return getCachedPlugins(Arrays.asList("artifact", namespace, parentArtifactId, type),
+        () -> loadPluginClasses(namespace, parentArtifactId, type));
+  }
 
+  private SortedMap<ArtifactDescriptor, Set<PluginClass>> loadPluginClasses(NamespaceId namespace,
+      Id.Artifact parentArtifactId, @Nullable String type)
+      throws ArtifactNotFoundException, IOException {
     return TransactionRunners.run(transactionRunner, context -> {
       StructuredTable artifactDataTable = getTable(context,
           StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
@@ -613,67 +641,20 @@ public class ArtifactStore {
       ArtifactSortOrder order)
       throws IOException, ArtifactNotFoundException, PluginNotExistsException {
 
-    SortedMap<ArtifactDescriptor, PluginClass> result = TransactionRunners.run(transactionRunner,
-        context -> {
-          StructuredTable artifactDataTable = getTable(context,
-              StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
-          List<ArtifactDetail> parentArtifactDetails = getArtifacts(artifactDataTable,
-              parentArtifactRange,
-              Integer.MAX_VALUE, null);
-
-          if (parentArtifactDetails.isEmpty()) {
-            throw new ArtifactNotFoundException(parentArtifactRange.getNamespace(),
-                parentArtifactRange.getName());
-          }
-
-          SortedMap<ArtifactDescriptor, PluginClass> plugins = order == ArtifactSortOrder.DESC
-              ? new TreeMap<>(Collections.reverseOrder()) :
-              new TreeMap<>();
-
-          List<Id.Artifact> parentArtifacts = new ArrayList<>();
-          for (ArtifactDetail parentArtifactDetail : parentArtifactDetails) {
-            parentArtifacts.add(
-                Id.Artifact.from(Id.Namespace.from(parentArtifactRange.getNamespace()),
-                    parentArtifactDetail.getDescriptor().getArtifactId()));
-
-            Set<PluginClass> parentPlugins = parentArtifactDetail.getMeta().getClasses()
-                .getPlugins();
-            for (PluginClass pluginClass : parentPlugins) {
-              if (pluginClass.getName().equals(name) && pluginClass.getType().equals(type)
-                  && isAllowed(pluginClass)) {
-                plugins.put(parentArtifactDetail.getDescriptor(), pluginClass);
-                break;
-              }
-            }
-          }
-
-          // Add all plugins that extends from the given set of parents
-          StructuredTable pluginTable = getTable(context,
-              StoreDefinition.ArtifactStore.PLUGIN_DATA_TABLE);
-          PluginKeyPrefix pluginKey = new PluginKeyPrefix(parentArtifactRange.getNamespace(),
-              parentArtifactRange.getName(), type, name);
-          try (CloseableIterator<StructuredRow> iterator =
-              pluginTable.scan(Range.singleton(pluginKey.keys), Integer.MAX_VALUE)) {
-            addPluginsInRangeToMap(namespace, parentArtifacts, iterator, plugins, pluginRange,
-                limit);
-          }
-
-          // Add all universal plugins
-          StructuredTable uniPluginTable = getTable(context,
-              StoreDefinition.ArtifactStore.UNIV_PLUGIN_DATA_TABLE);
-          for (String ns : Arrays.asList(namespace.getNamespace(),
-              NamespaceId.SYSTEM.getNamespace())) {
-            UniversalPluginKeyPrefix universalPluginKey = new UniversalPluginKeyPrefix(ns, type,
-                name);
-            try (CloseableIterator<StructuredRow> iterator =
-                uniPluginTable.scan(Range.singleton(universalPluginKey.keys), Integer.MAX_VALUE)) {
-              addPluginsInRangeToMap(namespace, parentArtifacts, iterator, plugins, pluginRange,
-                  limit);
-            }
-          }
+    PluginCandidates candidates = getCachedPlugins(
+        Arrays.asList("range", namespace, parentArtifactRange, type, name),
+        () -> loadPluginCandidates(namespace, parentArtifactRange, type, name));
 
-          return Collections.unmodifiableSortedMap(plugins);
-        }, IOException.class, ArtifactNotFoundException.class);
+    SortedMap<ArtifactDescriptor, PluginClass> plugins = order == ArtifactSortOrder.DESC
+        ? new TreeMap<>(Collections.reverseOrder()) :
+        new TreeMap<>();
+    for (Map.Entry<ArtifactDescriptor, PluginClass> entry : candidates.parentPlugins) {
+      plugins.put(entry.getKey(), entry.getValue());
+    }
+    // Add all plugins that extends from the given set of parents and all universal plugins
+    addPluginsInRangeToMap(namespace, candidates.parentArtifacts, candidates.plugins, plugins,
+        pluginRange, limit);
+    SortedMap<ArtifactDescriptor, PluginClass> result = Collections.unmodifiableSortedMap(plugins);
 
     if (result.isEmpty()) {
       throw new PluginNotExistsException(new NamespaceId(parentArtifactRange.getNamespace()), type,
@@ -682,6 +663,91 @@ public class ArtifactStore {
     return result;
   }
 
+  /**
+   * Loads the parent artifacts in the given range and all plugins of the given type and name that
+   * can possibly extend them, before any filtering by plugin artifact, limit and order.
+   */
+  private PluginCandidates loadPluginCandidates(NamespaceId namespace,
+      ArtifactRange parentArtifactRange, String type, String name)
+      throws ArtifactNotFoundException, IOException {
+    return TransactionRunners.run(transactionRunner, context -> {
+      StructuredTable artifactDataTable = getTable(context,
+          StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
+      List<ArtifactDetail> parentArtifactDetails = getArtifacts(artifactDataTable,
+          parentArtifactRange,
+          Integer.MAX_VALUE, null);
+
+      if (parentArtifactDetails.isEmpty()) {
+        throw new ArtifactNotFoundException(parentArtifactRange.getNamespace(),
+            parentArtifactRange.getName());
+      }
+
+      List<Id.Artifact> parentArtifacts = new ArrayList<>();
+      List<Map.Entry<ArtifactDescriptor, PluginClass>> parentPlugins = new ArrayList<>();
+      for (ArtifactDetail parentArtifactDetail : parentArtifactDetails) {
+        parentArtifacts.add(
+            Id.Artifact.from(Id.Namespace.from(parentArtifactRange.getNamespace()),
+                parentArtifactDetail.getDescriptor().getArtifactId()));
+
+        Set<PluginClass> artifactPlugins = parentArtifactDetail.getMeta().getClasses()
+            .getPlugins();
+        for (PluginClass pluginClass : artifactPlugins) {
+          if (pluginClass.getName().equals(name) && pluginClass.getType().equals(type)
+              && isAllowed(pluginClass)) {
+            parentPlugins.add(
+                Maps.immutableEntry(parentArtifactDetail.getDescriptor(), pluginClass));
+            break;
+          }
+        }
+      }
+
+      List<PluginEntry> plugins = new ArrayList<>();
+      StructuredTable pluginTable = getTable(context,
+          StoreDefinition.ArtifactStore.PLUGIN_DATA_TABLE);
+      PluginKeyPrefix pluginKey = new PluginKeyPrefix(parentArtifactRange.getNamespace(),
+          parentArtifactRange.getName(), type, name);
+      try (CloseableIterator<StructuredRow> iterator =
+          pluginTable.scan(Range.singleton(pluginKey.keys), Integer.MAX_VALUE)) {
+        iterator.forEachRemaining(row -> plugins.add(readPluginEntry(row)));
+      }
+
+      StructuredTable uniPluginTable = getTable(context,
+          StoreDefinition.ArtifactStore.UNIV_PLUGIN_DATA_TABLE);
+      for (String ns : Arrays.asList(namespace.getNamespace(),
+          NamespaceId.SYSTEM.getNamespace())) {
+        UniversalPluginKeyPrefix universalPluginKey = new UniversalPluginKeyPrefix(ns, type,
+            name);
+        try (CloseableIterator<StructuredRow> iterator =
+            uniPluginTable.scan(Range.singleton(universalPluginKey.keys), Integer.MAX_VALUE)) {
+          iterator.forEachRemaining(row -> plugins.add(readPluginEntry(row)));
+        }
+      }
+      return new PluginCandidates(parentArtifacts, parentPlugins, plugins);
+    }, IOException.class, ArtifactNotFoundException.class);
+  }
+
+  /**
+   * Returns the plugin lookup result from the cache if it was cached at the current generation,
+   * otherwise loads it with the given loader.
+   */
+  @SuppressWarnings("unchecked")
+  private <T> T getCachedPlugins(List<Object> key, PluginLoader<T> loader)
+      throws ArtifactNotFoundException, IOException {
+    if (pluginCache == null) {
+      return loader.load();
+    }
+    // The generation must be read before loading, so that a change committed concurrently with the
+    // loading invalidates the result
+    long currentGeneration = generation.get();
+    CachedPlugins cached = pluginCache.getIfPresent(key);
+    if (cached != null && cached.generation == currentGeneration) {
+      return (T) cached.value;
+    }
+    T value = loader.load();
+    pluginCache.put(key, new CachedPlugins(currentGeneration, value));
+    return value;
+  }
+
   /**
    * Update artifact properties using an update function. Functions will receive an immutable map.
    *
@@ -797,6 +863,8 @@ public class ArtifactStore {
       // should throw WriteConflictException(artifactId) on transaction conflict
       throw TransactionRunners.propagate(e, ArtifactAlreadyExistsException.class,
           IOException.class);
+    } finally {
+      generation.incrementAndGet();
     }
   }
 
@@ -826,21 +894,25 @@ public class ArtifactStore {
    * @throws IOException if there was an IO error deleting the metadata or the actual artifact
    */
   public void delete(final Id.Artifact artifactId) throws ArtifactNotFoundException, IOException {
-
-    // delete everything in a transaction
-    TransactionRunners.run(transactionRunner, context -> {
-      // first look up details to get plugins and apps in the artifact
-      StructuredTable artifactDataTable = getTable(context,
-          StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
-      ArtifactCell artifactCell = new ArtifactCell(artifactId);
-      Optional<StructuredRow> optional = artifactDataTable.read(artifactCell.keys);
-      if (!optional.isPresent()) {
-        throw new ArtifactNotFoundException(artifactId.toEntityId());
-      }
-      deleteMeta(context, artifactId,
-          GSON.fromJson(optional.get().getString(StoreDefinition.ArtifactStore.ARTIFACT_DATA_FIELD),
-              ArtifactData.class));
-    }, IOException.class, ArtifactNotFoundException.class);
+    try {
+      // delete everything in a transaction
+      TransactionRunners.run(transactionRunner, context -> {
+        // first look up details to get plugins and apps in the artifact
+        StructuredTable artifactDataTable = getTable(context,
+            StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
+        ArtifactCell artifactCell = new ArtifactCell(artifactId);
+        Optional<StructuredRow> optional = artifactDataTable.read(artifactCell.keys);
+        if (!optional.isPresent()) {
+          throw new ArtifactNotFoundException(artifactId.toEntityId());
+        }
+        deleteMeta(context, artifactId,
+            GSON.fromJson(
+                optional.get().getString(StoreDefinition.ArtifactStore.ARTIFACT_DATA_FIELD),
+                ArtifactData.class));
+      }, IOException.class, ArtifactNotFoundException.class);
+    } finally {
+      generation.incrementAndGet();
+    }
   }
 
   /**
@@ -901,6 +973,7 @@ public class ArtifactStore {
         }
       }
     }, IOException.class);
+    generation.incrementAndGet();
   }
 
   private void deleteRangeFromTable(StructuredTable table, Range range) throws IOException {
@@ -1153,7 +1226,7 @@ public class ArtifactStore {
 
   private void addPluginsInRangeToMap(final NamespaceId namespace,
       List<Id.Artifact> parentArtifacts,
-      Iterator<StructuredRow> iterator,
+      List<PluginEntry> pluginEntries,
       SortedMap<ArtifactDescriptor, PluginClass> plugins,
       @Nullable Predicate<io.cdap.cdap.proto.id.ArtifactId> range,
       int limit) {
@@ -1164,19 +1237,17 @@ public class ArtifactStore {
         : input -> NamespaceId.SYSTEM.equals(input.getParent()) || input.getParent()
             .equals(namespace);
 
-    while (iterator.hasNext()) {
-      StructuredRow row = iterator.next();
-      ImmutablePair<ArtifactDescriptor, PluginData> pluginPair = getPlugin(row, range);
-      if (pluginPair == null) {
+    for (PluginEntry pluginEntry : pluginEntries) {
+      if (!range.test(pluginEntry.artifactId)) {
         continue;
       }
 
-      PluginData pluginData = pluginPair.getSecond();
+      PluginData pluginData = pluginEntry.pluginData;
       // filter out plugins that don't extend this version of the parent artifact
       for (Id.Artifact parentArtifactId : parentArtifacts) {
         if (pluginData.isUsableBy(parentArtifactId.toEntityId()) && isAllowed(
             pluginData.pluginClass)) {
-          plugins.put(pluginPair.getFirst(), pluginData.pluginClass);
+          plugins.put(pluginEntry.descriptor, pluginData.pluginClass);
           break;
         }
       }
@@ -1186,6 +1257,23 @@ public class ArtifactStore {
     }
   }
 
+  private PluginEntry readPluginEntry(StructuredRow row) {
+    Id.Namespace artifactNamespace =
+        Id.Namespace.from(row.getString(StoreDefinition.ArtifactStore.ARTIFACT_NAMESPACE_FIELD));
+    Id.Artifact artifactId =
+        Id.Artifact.from(artifactNamespace,
+            row.getString(StoreDefinition.ArtifactStore.ARTIFACT_NAME_FIELD),
+            row.getString(StoreDefinition.ArtifactStore.ARTIFACT_VER_FIELD));
+    PluginData pluginData = GSON.fromJson(
+        row.getString(StoreDefinition.ArtifactStore.PLUGIN_DATA_FIELD),
+        PluginData.class);
+    return new PluginEntry(artifactId.toEntityId(), new ArtifactDescriptor(
+        artifactId.getNamespace().getId(),
+        artifactId.toArtifactId(),
+        Locations.getLocationFromAbsolutePath(locationFactory,
+            pluginData.getArtifactLocationPath())), pluginData);
+  }
+
   @Nullable
   private ImmutablePair<ArtifactDescriptor, PluginData> getPlugin(StructuredRow row,
       Predicate<io.cdap.cdap.proto.id.ArtifactId> range) {
@@ -1395,6 +1483,65 @@ public class ArtifactStore {
     }
   }
 
+  /**
+   * Loads a plugin lookup result.
+   *
+   * @param <T> type of the result
+   */
+  private interface PluginLoader<T> {
+
+    T load() throws ArtifactNotFoundException, IOException;
+  }
+
+  /**
+   * A plugin lookup result in the cache with the artifact generation it was loaded at.
+   */
+  private static final class CachedPlugins {
+
+    private final long generation;
+    private final Object value;
+
+    private CachedPlugins(long generation, Object value) {
+      this.generation = generation;
+      this.value = value;
+    }
+  }
+
+  /**
+   * Parent artifacts and plugin candidates for a plugin lookup by type and name.
+   */
+  private static final class PluginCandidates {
+
+    private final List<Id.Artifact> parentArtifacts;
+    private final List<Map.Entry<ArtifactDescriptor, PluginClass>> parentPlugins;
+    private final List<PluginEntry> plugins;
+
+    private PluginCandidates(List<Id.Artifact> parentArtifacts,
+        List<Map.Entry<ArtifactDescriptor, PluginClass>> parentPlugins,
+        List<PluginEntry> plugins) {
+      this.parentArtifacts = Collections.unmodifiableList(parentArtifacts);
+      this.parentPlugins = Collections.unmodifiableList(parentPlugins);
+      this.plugins = Collections.unmodifiableList(plugins);
+    }
+  }
+
+  /**
+   * A decoded row of the plugin or universal plugin table.
+   */
+  private static final class PluginEntry {
+
+    private final io.cdap.cdap.proto.id.ArtifactId artifactId;
+    private final ArtifactDescriptor descriptor;
+    private final PluginData pluginData;
+
+    private PluginEntry(io.cdap.cdap.proto.id.ArtifactId artifactId,
+        ArtifactDescriptor descriptor, PluginData pluginData) {
+      this.artifactId = artifactId;
+      this.descriptor = descriptor;
+      this.pluginData = pluginData;
+    }
+  }
+
   // Data that will be stored for a plugin.
   private static class PluginData {
 
@@ -17,7 +17,6 @@
 package io.cdap.cdap.internal.app.runtime.artifact;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Throwables;
 import com.google.common.collect.Maps;
 import com.google.common.primitives.Primitives;
 import com.google.common.reflect.TypeToken;
@@ -51,6 +50,7 @@ import io.cdap.cdap.common.id.Id;
 import io.cdap.cdap.common.io.Locations;
 import io.cdap.cdap.common.lang.jar.BundleJarUtil;
 import io.cdap.cdap.common.lang.jar.ClassLoaderFolder;
+import io.cdap.cdap.common.lang.jar.ClassLoaderFolderCache;
 import io.cdap.cdap.common.utils.DirUtils;
 import io.cdap.cdap.internal.app.runtime.plugin.PluginClassLoader;
 import io.cdap.cdap.internal.app.runtime.plugin.PluginInstantiator;
@@ -63,7 +63,6 @@ import io.cdap.cdap.spi.metadata.MetadataMutation;
 import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
@@ -80,6 +79,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
@@ -90,11 +90,6 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import javax.annotation.Nullable;
 import org.apache.twill.filesystem.Location;
-import org.objectweb.asm.AnnotationVisitor;
-import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassVisitor;
-import org.objectweb.asm.Opcodes;
-import org.objectweb.asm.Type;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -149,7 +144,7 @@ final class DefaultArtifactInspector implements ArtifactInspector {
 
     Path stageDir = Files.createTempDirectory(tmpDir, artifactFile.getName());
     try (
-        ClassLoaderFolder clFolder = BundleJarUtil.prepareClassLoaderFolder(
+        ClassLoaderFolder clFolder = ClassLoaderFolderCache.get(cConf).prepareClassLoaderFolder(
             artifactLocation,
             () -> Files.createTempDirectory(stageDir, "unpacked-").toFile());
         CloseableClassLoader parentClassLoader = createParentClassLoader(parentDescriptor,
@@ -293,35 +288,25 @@ final class DefaultArtifactInspector implements ArtifactInspector {
       return;
     }
 
+    long startTime = System.nanoTime();
+    int scannedCount = 0;
+    int reflectedCount = 0;
     try {
-      for (Class<?> cls : getPluginClasses(exportPackages, pluginClassLoader)) {
-        Plugin pluginAnnotation = cls.getAnnotation(Plugin.class);
-        if (pluginAnnotation == null) {
+      // Extract plugin information from the class files, and only fall back to loading the class
+      // for those that cannot be resolved from the class files alone.
+      PluginClassScanner scanner = new PluginClassScanner(pluginClassLoader);
+      for (String className : getClassNames(exportPackages, pluginClassLoader)) {
+        PluginClassScanner.ScannedPlugin scannedPlugin = scanner.scan(className);
+        if (scannedPlugin == null) {
           continue;
         }
-        Map<String, PluginPropertyField> pluginProperties = Maps.newHashMap();
-        try {
-          String configField = getProperties(TypeToken.of(cls), pluginProperties);
-          String pluginName = getPluginName(cls);
-          PluginId pluginId = new PluginId(artifactId.getNamespace(), artifactId.getArtifact(),
-              artifactId.getVersion(), pluginName, pluginAnnotation.type());
-          MetadataMutation mutation = getMetadataMutation(pluginId, cls);
-          if (mutation != null) {
-            mutations.add(mutation);
-          }
-          PluginClass pluginClass = PluginClass.builder()
-              .setName(pluginName)
-              .setType(pluginAnnotation.type())
-              .setCategory(getPluginCategory(cls))
-              .setClassName(cls.getName())
-              .setConfigFieldName(configField)
-              .setProperties(pluginProperties)
-              .setRequirements(getArtifactRequirements(cls))
-              .setDescription(getPluginDescription(cls))
-              .build();
-          builder.addPlugin(pluginClass);
-        } catch (UnsupportedTypeException e) {
-          LOG.warn("Plugin configuration type not supported. Plugin ignored. {}", cls, e);
+        if (scannedPlugin.isResolved()) {
+          inspectScannedPlugin(builder, artifactId, scannedPlugin, mutations);
+          scannedCount++;
+        } else {
+          inspectPluginClass(builder, artifactId, pluginClassLoader.loadClass(className),
+              mutations);
+          reflectedCount++;
         }
       }
     } catch (Throwable t) {
@@ -331,6 +316,75 @@ final class DefaultArtifactInspector implements ArtifactInspector {
 
               + "Error class: %s, message: %s.", t.getClass(), t.getMessage()), t);
     }
+    LOG.debug("Inspected {} plugin classes in artifact {} in {} ms, with {} through reflection",
+        scannedCount + reflectedCount, artifactId,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), reflectedCount);
+  }
+
+  /**
+   * Adds the plugin extracted from class file by the {@link PluginClassScanner}.
+   */
+  private void inspectScannedPlugin(ArtifactClasses.Builder builder,
+      io.cdap.cdap.proto.id.ArtifactId artifactId, PluginClassScanner.ScannedPlugin scannedPlugin,
+      List<MetadataMutation> mutations) throws InvalidMetadataException {
+    PluginId pluginId = new PluginId(artifactId.getNamespace(), artifactId.getArtifact(),
+        artifactId.getVersion(), scannedPlugin.getName(), scannedPlugin.getType());
+    if (scannedPlugin.getMetadataTags() != null && scannedPlugin.getMetadataProperties() != null) {
+      MetadataMutation mutation = createMetadataMutation(pluginId, scannedPlugin.getMetadataTags(),
+          scannedPlugin.getMetadataProperties());
+      if (mutation != null) {
+        mutations.add(mutation);
+      }
+    }
+    builder.addPlugin(PluginClass.builder()
+        .setName(scannedPlugin.getName())
+        .setType(scannedPlugin.getType())
+        .setCategory(scannedPlugin.getCategory())
+        .setClassName(scannedPlugin.getClassName())
+        .setConfigFieldName(scannedPlugin.getConfigFieldName())
+        .setProperties(scannedPlugin.getProperties())
+        .setRequirements(new Requirements(
+            getAnnotationValues(scannedPlugin.getDatasetTypes().toArray(new String[0])),
+            getAnnotationValues(scannedPlugin.getCapabilities().toArray(new String[0]))))
+        .setDescription(scannedPlugin.getDescription())
+        .build());
+  }
+
+  /**
+   * Inspects the given plugin class through reflection and adds it to the builder if it is a
+   * plugin.
+   */
+  private void inspectPluginClass(ArtifactClasses.Builder builder,
+      io.cdap.cdap.proto.id.ArtifactId artifactId, Class<?> cls,
+      List<MetadataMutation> mutations) throws InvalidMetadataException {
+    Plugin pluginAnnotation = cls.getAnnotation(Plugin.class);
+    if (pluginAnnotation == null) {
+      return;
+    }
+    Map<String, PluginPropertyField> pluginProperties = Maps.newHashMap();
+    try {
+      String configField = getProperties(TypeToken.of(cls), pluginProperties);
+      String pluginName = getPluginName(cls);
+      PluginId pluginId = new PluginId(artifactId.getNamespace(), artifactId.getArtifact(),
+          artifactId.getVersion(), pluginName, pluginAnnotation.type());
+      MetadataMutation mutation = getMetadataMutation(pluginId, cls);
+      if (mutation != null) {
+        mutations.add(mutation);
+      }
+      PluginClass pluginClass = PluginClass.builder()
+          .setName(pluginName)
+          .setType(pluginAnnotation.type())
+          .setCategory(getPluginCategory(cls))
+          .setClassName(cls.getName())
+          .setConfigFieldName(configField)
+          .setProperties(pluginProperties)
+          .setRequirements(getArtifactRequirements(cls))
+          .setDescription(getPluginDescription(cls))
+          .build();
+      builder.addPlugin(pluginClass);
+    } catch (UnsupportedTypeException e) {
+      LOG.warn("Plugin configuration type not supported. Plugin ignored. {}", cls, e);
+    }
   }
 
   private void inspectAdditionalPlugins(ArtifactId artifactId, Set<PluginClass> additionalPlugins,
@@ -362,11 +416,11 @@ final class DefaultArtifactInspector implements ArtifactInspector {
   }
 
   /**
-   * Returns an {@link Iterable} of class name that are under the given list of package names that
-   * are loadable through the plugin ClassLoader.
+   * Returns the list of class names that are under the given list of package names in the top
+   * level jar of the plugin ClassLoader.
    */
-  private Iterable<Class<?>> getPluginClasses(Collection<String> packages,
-      PluginClassLoader pluginClassLoader) {
+  private List<String> getClassNames(Collection<String> packages,
+      PluginClassLoader pluginClassLoader) throws IOException {
     Predicate<String> nameCheckPredicate = getClassNameCheckPredicate(packages);
     try (JarFile jarFile = new JarFile(pluginClassLoader.getTopLevelJar())) {
       return jarFile
@@ -378,19 +432,7 @@ final class DefaultArtifactInspector implements ArtifactInspector {
               //nameCheckPredicate ensures filename ends with .class
               .substring(0, fileName.length() - ".class".length())
               .replace('/', '.'))
-          .filter(className -> isPlugin(className, pluginClassLoader))
-          .map(className -> {
-            try {
-              return pluginClassLoader.loadClass(className);
-            } catch (ClassNotFoundException | NoClassDefFoundError e) {
-              // Cannot happen, since the class name is from the list of the class files under the classloader.
-              throw Throwables.propagate(e);
-            }
-          })
           .collect(Collectors.toList());
-    } catch (IOException e) {
-      // Cannot happen
-      throw Throwables.propagate(e);
     }
   }
 
@@ -475,7 +517,16 @@ final class DefaultArtifactInspector implements ArtifactInspector {
     Map<String, String> properties = new HashMap<>();
     Arrays.asList(metadataProperties)
         .forEach(property -> properties.put(property.key(), property.value()));
+    return createMetadataMutation(pluginId, tags, properties);
+  }
 
+  /**
+   * Returns the metadata mutation for the given plugin metadata, return {@code null} if there is no
+   * metadata
+   */
+  @Nullable
+  private MetadataMutation createMetadataMutation(PluginId pluginId, Set<String> tags,
+      Map<String, String> properties) throws InvalidMetadataException {
     // if both tags and properties are empty, this means no actual metadata will need to be created
     if (tags.isEmpty() && properties.isEmpty()) {
       return null;
@@ -605,38 +656,4 @@ final class DefaultArtifactInspector implements ArtifactInspector {
     properties.put(name, curField);
     return properties.values();
   }
-
-  /**
-   * Detects if a class is annotated with {@link Plugin} without loading the class.
-   *
-   * @param className name of the class
-   * @param classLoader ClassLoader for loading the class file of the given class
-   * @return true if the given class is annotated with {@link Plugin}
-   */
-  private boolean isPlugin(String className, ClassLoader classLoader) {
-    try (InputStream is = classLoader.getResourceAsStream(className.replace('.', '/') + ".class")) {
-      if (is == null) {
-        return false;
-      }
-
-      // Use ASM to inspect the class bytecode to see if it is annotated with @Plugin
-      final boolean[] isPlugin = new boolean[1];
-      ClassReader cr = new ClassReader(is);
-      cr.accept(new ClassVisitor(Opcodes.ASM5) {
-        @Override
-        public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-          if (Plugin.class.getName().equals(Type.getType(desc).getClassName()) && visible) {
-            isPlugin[0] = true;
-          }
-          return super.visitAnnotation(desc, visible);
-        }
-      }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
-
-      return isPlugin[0];
-    } catch (IOException e) {
-      // If failed to open the class file, then it cannot be a plugin
-      LOG.warn("Failed to open class file for {}", className, e);
-      return false;
-    }
-  }
 }
@@ -75,10 +75,14 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import org.apache.commons.io.IOUtils;
 import org.apache.twill.common.Threads;
@@ -280,6 +284,19 @@ public class DefaultArtifactRepository implements ArtifactRepository {
       @Nullable Set<ArtifactRange> parentArtifacts,
       @Nullable Set<PluginClass> additionalPlugins,
       Map<String, String> properties) throws Exception {
+    return addArtifact(artifactId, artifactFile, parentArtifacts, additionalPlugins, properties,
+        null);
+  }
+
+  /**
+   * Adds an artifact. If a list of metadata mutations is provided, the artifact metadata is added
+   * to the list instead of being written, so that the caller can write them in batch.
+   */
+  private ArtifactDetail addArtifact(final Id.Artifact artifactId, final File artifactFile,
+      @Nullable Set<ArtifactRange> parentArtifacts,
+      @Nullable Set<PluginClass> additionalPlugins,
+      Map<String, String> properties,
+      @Nullable List<MetadataMutation> mutations) throws Exception {
     if (additionalPlugins != null) {
       validatePluginSet(additionalPlugins);
     }
@@ -309,6 +326,13 @@ public class DefaultArtifactRepository implements ArtifactRepository {
     ArtifactInfo artifactInfo = new ArtifactInfo(descriptor.getArtifactId(),
         artifactDetail.getMeta().getClasses(),
         artifactDetail.getMeta().getProperties());
+    if (mutations != null) {
+      mutations.add(new ArtifactSystemMetadataWriter(metadataServiceClient,
+          artifactId.toEntityId(), artifactInfo).getMetadataMutation());
+      mutations.addAll(artifactClassesWithMetadata.getMutations());
+      return artifactDetail;
+    }
+
     // add system metadata for artifacts
     writeSystemMetadata(artifactId.toEntityId(), artifactInfo);
 
@@ -354,6 +378,7 @@ public class DefaultArtifactRepository implements ArtifactRepository {
 
   @Override
   public void addSystemArtifacts() throws Exception {
+    long startTime = System.nanoTime();
     // scan the directory for artifact .jar files and config files for those artifacts
     Map<Id.Artifact, SystemArtifactInfo> systemArtifacts = new HashMap<>();
     for (File systemArtifactDir : systemArtifactDirs) {
@@ -390,15 +415,27 @@ public class DefaultArtifactRepository implements ArtifactRepository {
       }
     }
 
+    long scanEndTime = System.nanoTime();
+    LOG.debug("Found {} system artifacts in {} ms", systemArtifacts.size(),
+        TimeUnit.NANOSECONDS.toMillis(scanEndTime - startTime));
+    if (systemArtifacts.isEmpty()) {
+      return;
+    }
+
+    // Fetch all existing system artifacts with a single scan to find the ones that are unchanged
+    Map<Id.Artifact, ArtifactDetail> existingArtifacts = new HashMap<>();
+    for (ArtifactDetail detail : artifactStore.getArtifacts(NamespaceId.SYSTEM)) {
+      existingArtifacts.put(
+          Id.Artifact.from(Id.Namespace.SYSTEM, detail.getDescriptor().getArtifactId()), detail);
+    }
+
     // child -> parents
     Multimap<Id.Artifact, Id.Artifact> childToParents = HashMultimap.create();
     // parent -> children
     Multimap<Id.Artifact, Id.Artifact> parentToChildren = HashMultimap.create();
-    Set<Id.Artifact> remainingArtifacts = new HashSet<>();
     // build mapping from child to parents and from parents to children
     for (SystemArtifactInfo child : systemArtifacts.values()) {
       Id.Artifact childId = child.getArtifactId();
-      remainingArtifacts.add(childId);
 
       for (SystemArtifactInfo potentialParent : systemArtifacts.values()) {
         Id.Artifact potentialParentId = potentialParent.getArtifactId();
@@ -414,61 +451,92 @@ public class DefaultArtifactRepository implements ArtifactRepository {
       }
     }
 
-    if (!remainingArtifacts.isEmpty()) {
-      ExecutorService executorService =
-          Executors.newFixedThreadPool(
-              Math.min(maxArtifactLoadParallelism, remainingArtifacts.size()),
-              Threads.createDaemonThreadFactory("system-artifact-loader-%d"));
-      try {
-        // loop until there is no change
-        boolean artifactsAdded = true;
-        while (!remainingArtifacts.isEmpty() && artifactsAdded) {
-          artifactsAdded = loadSystemArtifacts(executorService, systemArtifacts, remainingArtifacts,
-              parentToChildren,
-              childToParents);
+    Set<Id.Artifact> remainingArtifacts = new HashSet<>(systemArtifacts.keySet());
+    List<MetadataMutation> mutations = Collections.synchronizedList(new ArrayList<>());
+    ExecutorService executorService =
+        Executors.newFixedThreadPool(
+            Math.min(maxArtifactLoadParallelism, remainingArtifacts.size()),
+            Threads.createDaemonThreadFactory("system-artifact-loader-%d"));
+    int added;
+    Throwable failure = null;
+    try {
+      added = loadSystemArtifacts(executorService, systemArtifacts, existingArtifacts,
+          remainingArtifacts, parentToChildren, childToParents, mutations);
+    } catch (Throwable t) {
+      failure = t;
+      throw t;
+    } finally {
+      executorService.shutdownNow();
+      // Metadata of all added artifacts is written in one batch, including when some failed to add.
+      synchronized (mutations) {
+        if (!mutations.isEmpty()) {
+          try {
+            metadataServiceClient.batch(new ArrayList<>(mutations));
+          } catch (RuntimeException e) {
+            // Don't hide the failure of adding artifacts
+            if (failure == null) {
+              throw e;
+            }
+            failure.addSuppressed(e);
+          }
         }
-      } finally {
-        executorService.shutdownNow();
       }
+    }
+    LOG.debug("Added {} system artifacts and skipped {} unchanged or invalid ones in {} ms", added,
+        systemArtifacts.size() - remainingArtifacts.size() - added,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - scanEndTime));
 
-      if (!remainingArtifacts.isEmpty()) {
-        LOG.warn("Unable to add system artifacts {} due to cyclic dependencies",
-            Joiner.on(",").join(remainingArtifacts));
-      }
+    if (!remainingArtifacts.isEmpty()) {
+      LOG.warn("Unable to add system artifacts {} due to cyclic dependencies",
+          Joiner.on(",").join(remainingArtifacts));
     }
   }
 
   /**
-   * Add as many system artifacts as possible in parallel. Returns true if at least one artifact was
-   * added and there were no errors.
+   * Adds system artifacts in parallel. An artifact is submitted as soon as all of its parents are
+   * added, instead of waiting for all artifacts at the same depth of the dependency graph to
+   * complete. Artifacts that cannot be added due to cyclic dependencies are left in the given
+   * remaining set.
+   *
+   * @return the number of artifacts added
    */
-  private boolean loadSystemArtifacts(ExecutorService executorService,
+  private int loadSystemArtifacts(ExecutorService executorService,
       Map<Id.Artifact, SystemArtifactInfo> systemArtifacts,
+      Map<Id.Artifact, ArtifactDetail> existingArtifacts,
       Set<Id.Artifact> remainingArtifacts,
       Multimap<Id.Artifact, Id.Artifact> parentToChildren,
-      Multimap<Id.Artifact, Id.Artifact> childToParents) throws Exception {
-
-    // add all artifacts that don't have any more parents
-    Set<Id.Artifact> addedArtifacts = new HashSet<>();
-    List<Future<Id.Artifact>> futures = new ArrayList<>();
-    for (Id.Artifact remainingArtifact : remainingArtifacts) {
-      if (!childToParents.containsKey(remainingArtifact)) {
-        futures.add(executorService.submit(() -> {
-          addSystemArtifact(systemArtifacts.get(remainingArtifact));
-          return remainingArtifact;
-        }));
+      Multimap<Id.Artifact, Id.Artifact> childToParents,
+      List<MetadataMutation> mutations) throws Exception {
+
+    CompletionService<Id.Artifact> completionService =
+        new ExecutorCompletionService<>(executorService);
+    Map<Id.Artifact, Boolean> results = new ConcurrentHashMap<>();
+    int running = 0;
+    // start with all artifacts that don't have any parents
+    for (Id.Artifact artifactId : systemArtifacts.keySet()) {
+      if (!childToParents.containsKey(artifactId)) {
+        submitSystemArtifact(completionService, systemArtifacts.get(artifactId),
+            existingArtifacts.get(artifactId), mutations, results);
+        running++;
       }
     }
 
     Exception failure = null;
-    for (Future<Id.Artifact> f : futures) {
+    while (running > 0) {
+      Future<Id.Artifact> future = completionService.take();
+      running--;
       try {
-        Id.Artifact addedArtifact = f.get();
-        addedArtifacts.add(addedArtifact);
+        Id.Artifact addedArtifact = future.get();
+        remainingArtifacts.remove(addedArtifact);
         for (Id.Artifact child : parentToChildren.get(addedArtifact)) {
           childToParents.remove(child, addedArtifact);
+          // stop scheduling new artifacts once there is a failure
+          if (failure == null && !childToParents.containsKey(child)) {
+            submitSystemArtifact(completionService, systemArtifacts.get(child),
+                existingArtifacts.get(child), mutations, results);
+            running++;
+          }
         }
-        remainingArtifacts.removeAll(addedArtifacts);
       } catch (ExecutionException e) {
         Throwable cause = e.getCause();
         if (failure != null) {
@@ -483,7 +551,17 @@ public class DefaultArtifactRepository implements ArtifactRepository {
     if (failure != null) {
       throw failure;
     }
-    return !futures.isEmpty();
+    return (int) results.values().stream().filter(Boolean::booleanValue).count();
+  }
+
+  private void submitSystemArtifact(CompletionService<Id.Artifact> completionService,
+      SystemArtifactInfo systemArtifactInfo, @Nullable ArtifactDetail existingArtifact,
+      List<MetadataMutation> mutations, Map<Id.Artifact, Boolean> results) {
+    completionService.submit(() -> {
+      Id.Artifact artifactId = systemArtifactInfo.getArtifactId();
+      results.put(artifactId, addSystemArtifact(systemArtifactInfo, existingArtifact, mutations));
+      return artifactId;
+    });
   }
 
   @Override
@@ -528,30 +606,40 @@ public class DefaultArtifactRepository implements ArtifactRepository {
     });
   }
 
-  private void addSystemArtifact(SystemArtifactInfo systemArtifactInfo) throws Exception {
+  /**
+   * Adds a system artifact if it doesn't exist or has changed.
+   *
+   * @param systemArtifactInfo the system artifact to add
+   * @param existingArtifact the existing artifact in the store or {@code null} if it doesn't exist
+   * @param mutations list for collecting the metadata mutations of the added artifact
+   * @return {@code true} if the artifact was added
+   */
+  private boolean addSystemArtifact(SystemArtifactInfo systemArtifactInfo,
+      @Nullable ArtifactDetail existingArtifact,
+      List<MetadataMutation> mutations) throws Exception {
     String fileName = systemArtifactInfo.getArtifactFile().getName();
     try {
       Id.Artifact artifactId = systemArtifactInfo.getArtifactId();
 
       // Check if it already exists
-      try {
-        ArtifactDetail currentArtifactDetail = artifactStore.getArtifact(artifactId);
-        if (!shouldUpdateSytemArtifact(currentArtifactDetail, systemArtifactInfo)) {
-          LOG.info(
-              "Artifact {} already exists and it did not change, will not try loading it again.",
-              artifactId);
-          return;
-        }
-      } catch (ArtifactNotFoundException e) {
-        // this is fine, means it doesn't exist yet and we should add it
+      if (existingArtifact != null
+          && !shouldUpdateSytemArtifact(existingArtifact, systemArtifactInfo)) {
+        LOG.info(
+            "Artifact {} already exists and it did not change, will not try loading it again.",
+            artifactId);
+        return false;
       }
 
+      long startTime = System.nanoTime();
       addArtifact(artifactId,
           systemArtifactInfo.getArtifactFile(),
           systemArtifactInfo.getConfig().getParents(),
           systemArtifactInfo.getConfig().getPlugins(),
-          systemArtifactInfo.getConfig().getProperties());
-      LOG.info("Added system artifact {}.", artifactId);
+          systemArtifactInfo.getConfig().getProperties(),
+          mutations);
+      LOG.info("Added system artifact {} in {} ms.", artifactId,
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+      return true;
     } catch (ArtifactAlreadyExistsException e) {
       // shouldn't happen... but if it does for some reason it's fine, it means it was added some other way already.
     } catch (ArtifactRangeNotFoundException e) {
@@ -563,6 +651,7 @@ public class DefaultArtifactRepository implements ArtifactRepository {
       LOG.warn("Could not add system artifact '{}' because of an authorization error.", fileName,
           e);
     }
+    return false;
   }
 
   private boolean shouldUpdateSytemArtifact(ArtifactDetail currentArtifactDetail,
@@ -587,6 +676,15 @@ public class DefaultArtifactRepository implements ArtifactRepository {
             additionalPlugins)) {
       return true;
     }
+    try {
+      // Different sizes mean different content, which saves reading both files
+      if (currentArtifactDetail.getDescriptor().getLocation().length()
+          != systemArtifactInfo.getArtifactFile().length()) {
+        return true;
+      }
+    } catch (IOException e) {
+      return true;
+    }
     try (
         InputStream stream1 = currentArtifactDetail.getDescriptor().getLocation().getInputStream();
         InputStream stream2 = new FileInputStream(systemArtifactInfo.getArtifactFile())
@@ -0,0 +1,547 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.runtime.artifact;
+
+import com.google.common.collect.ImmutableMap;
+import io.cdap.cdap.api.annotation.Category;
+import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
+import io.cdap.cdap.api.annotation.Metadata;
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.cdap.api.annotation.Requirements;
+import io.cdap.cdap.api.plugin.PluginConfig;
+import io.cdap.cdap.api.plugin.PluginPropertyField;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.signature.SignatureReader;
+import org.objectweb.asm.signature.SignatureVisitor;
+import org.objectweb.asm.tree.AnnotationNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.InnerClassNode;
+
+/**
+ * Extracts plugin information directly from class files, without defining the classes in the JVM.
+ * The information extracted is the same as the one obtained through reflection by the
+ * {@link DefaultArtifactInspector}. Whenever the scanner cannot be sure that it produces the same
+ * result, for example when generic type variables are involved, a class file cannot be found, or
+ * the plugin config is invalid, it returns an unresolved result so that the caller can fall back to
+ * reflection, which also produces the proper error.
+ *
+ * <p>Instances of this class cache parsed class files and are not thread safe.</p>
+ */
+final class PluginClassScanner {
+
+  private static final String PLUGIN_CONFIG = Type.getInternalName(PluginConfig.class);
+  private static final String PLUGIN_DESC = Type.getDescriptor(Plugin.class);
+  private static final String NAME_DESC = Type.getDescriptor(Name.class);
+  private static final String DESCRIPTION_DESC = Type.getDescriptor(Description.class);
+  private static final String CATEGORY_DESC = Type.getDescriptor(Category.class);
+  private static final String MACRO_DESC = Type.getDescriptor(Macro.class);
+  private static final String REQUIREMENTS_DESC = Type.getDescriptor(Requirements.class);
+  private static final String METADATA_DESC = Type.getDescriptor(Metadata.class);
+  private static final Map<String, String> UNWRAPPED_TYPES = ImmutableMap.<String, String>builder()
+      .put("java/lang/Boolean", "boolean")
+      .put("java/lang/Byte", "byte")
+      .put("java/lang/Character", "char")
+      .put("java/lang/Short", "short")
+      .put("java/lang/Integer", "int")
+      .put("java/lang/Long", "long")
+      .put("java/lang/Float", "float")
+      .put("java/lang/Double", "double")
+      .put("java/lang/Void", "void")
+      .build();
+  private static final int PARSING_OPTIONS =
+      ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+
+  private final ClassLoader classLoader;
+  private final Map<String, Optional<ClassNode>> classes;
+  private final Map<String, Boolean> resources;
+
+  PluginClassScanner(ClassLoader classLoader) {
+    this.classLoader = classLoader;
+    this.classes = new HashMap<>();
+    this.resources = new HashMap<>();
+  }
+
+  /**
+   * Scans the given class for plugin information.
+   *
+   * @param className the binary name of the class
+   * @return {@code null} if the class is not a plugin, otherwise a {@link ScannedPlugin}, which
+   *     needs to be inspected through reflection if it is not {@link ScannedPlugin#isResolved()
+   *     resolved}
+   */
+  @Nullable
+  ScannedPlugin scan(String className) {
+    ClassNode classNode;
+    try {
+      classNode = getClassNode(className.replace('.', '/'));
+    } catch (UnresolvedException e) {
+      // The class file cannot be parsed, e.g. compiled for a newer Java version.
+      return ScannedPlugin.UNRESOLVED;
+    }
+    if (classNode == null) {
+      // If failed to open the class file, then it cannot be a plugin
+      return null;
+    }
+    AnnotationNode pluginAnnotation = findAnnotation(classNode.visibleAnnotations, PLUGIN_DESC);
+    if (pluginAnnotation == null) {
+      return null;
+    }
+
+    try {
+      // Defining the class would fail if any of its super types is missing
+      checkSuperTypes(classNode);
+
+      Map<String, PluginPropertyField> properties = new HashMap<>();
+      String configFieldName = getProperties(classNode, properties);
+
+      String name = getString(findAnnotation(classNode.visibleAnnotations, NAME_DESC), "");
+      String category = getString(findAnnotation(classNode.visibleAnnotations, CATEGORY_DESC), "");
+      AnnotationNode requirements = findAnnotation(classNode.visibleAnnotations,
+          REQUIREMENTS_DESC);
+      AnnotationNode metadata = findAnnotation(classNode.visibleAnnotations, METADATA_DESC);
+
+      Map<String, String> metadataProperties = new HashMap<>();
+      for (AnnotationNode property : this.<AnnotationNode>getList(metadata, "properties")) {
+        metadataProperties.put(getString(property, "key", ""), getString(property, "value", ""));
+      }
+
+      return new ScannedPlugin(className,
+          getString(pluginAnnotation, "type", Plugin.DEFAULT_TYPE),
+          name.isEmpty() ? className : name,
+          category.isEmpty() ? null : category,
+          getString(findAnnotation(classNode.visibleAnnotations, DESCRIPTION_DESC), ""),
+          configFieldName, properties,
+          getList(requirements, "datasetTypes"), getList(requirements, "capabilities"),
+          metadata == null ? null : new HashSet<>(getList(metadata, "tags")),
+          metadata == null ? null : metadataProperties);
+    } catch (UnresolvedException e) {
+      return ScannedPlugin.UNRESOLVED;
+    }
+  }
+
+  /**
+   * Scans the plugin class hierarchy for the first field of {@link PluginConfig} type and collects
+   * its properties. This mirrors the reflection based inspection.
+   */
+  @Nullable
+  private String getProperties(ClassNode pluginClass,
+      Map<String, PluginPropertyField> result) throws UnresolvedException {
+    ClassNode classNode = pluginClass;
+    while (classNode != null) {
+      for (FieldNode field : classNode.fields) {
+        checkNoTypeVariable(field.signature);
+        Type fieldType = Type.getType(field.desc);
+        if (isPluginConfig(fieldType)) {
+          inspectConfigClass(getRequiredClassNode(fieldType.getInternalName()), result, true);
+          return field.name;
+        }
+      }
+      classNode = getSuperClassNode(classNode);
+    }
+    return null;
+  }
+
+  /**
+   * Collects the properties of the given config class and its parents up to {@link PluginConfig}.
+   */
+  private void inspectConfigClass(ClassNode configClass, Map<String, PluginPropertyField> result,
+      boolean inspectNested) throws UnresolvedException {
+    ClassNode classNode = configClass;
+    while (classNode != null && !PLUGIN_CONFIG.equals(classNode.name)) {
+      for (FieldNode field : classNode.fields) {
+        if ((field.access & (Opcodes.ACC_TRANSIENT | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC))
+            != 0) {
+          continue;
+        }
+        checkNoTypeVariable(field.signature);
+        for (PluginPropertyField property : createPluginProperties(field, inspectNested)) {
+          if (result.put(property.getName(), property) != null) {
+            // Let reflection raise the error about the duplicate property
+            throw new UnresolvedException();
+          }
+        }
+      }
+      classNode = getSuperClassNode(classNode);
+    }
+  }
+
+  private Iterable<PluginPropertyField> createPluginProperties(FieldNode field,
+      boolean inspectNested) throws UnresolvedException {
+    Type fieldType = Type.getType(field.desc);
+    String name = getString(findAnnotation(field.visibleAnnotations, NAME_DESC), field.name);
+    String description = getString(findAnnotation(field.visibleAnnotations, DESCRIPTION_DESC), "");
+    boolean macroSupported = findAnnotation(field.visibleAnnotations, MACRO_DESC) != null;
+
+    if (fieldType.getSort() != Type.OBJECT && fieldType.getSort() != Type.ARRAY) {
+      return Collections.singleton(new PluginPropertyField(name, description,
+          fieldType.getClassName(), true, macroSupported));
+    }
+
+    boolean required = true;
+    if (field.visibleAnnotations != null) {
+      for (AnnotationNode annotation : field.visibleAnnotations) {
+        Type annotationType = Type.getType(annotation.desc);
+        // Annotations that cannot be loaded are not visible through reflection
+        if (annotationType.getClassName().endsWith(".Nullable")
+            && hasClassFile(annotationType.getInternalName())) {
+          required = false;
+          break;
+        }
+      }
+    }
+
+    Map<String, PluginPropertyField> properties = new LinkedHashMap<>();
+    if (isPluginConfig(fieldType)) {
+      if (!inspectNested) {
+        throw new UnresolvedException();
+      }
+      inspectConfigClass(getRequiredClassNode(fieldType.getInternalName()), properties, false);
+    }
+    PluginPropertyField curField = new PluginPropertyField(name, description,
+        getTypeName(fieldType), required, macroSupported, false,
+        new HashSet<>(properties.keySet()));
+    properties.put(name, curField);
+    return properties.values();
+  }
+
+  /**
+   * Returns the type name the same as {@code Primitives.unwrap(type).getSimpleName().toLowerCase()}
+   * for a non-primitive type.
+   */
+  private String getTypeName(Type type) throws UnresolvedException {
+    if (type.getSort() == Type.ARRAY) {
+      StringBuilder builder = new StringBuilder(getElementTypeName(type.getElementType()));
+      for (int i = 0; i < type.getDimensions(); i++) {
+        builder.append("[]");
+      }
+      return builder.toString().toLowerCase();
+    }
+    String unwrapped = UNWRAPPED_TYPES.get(type.getInternalName());
+    return unwrapped == null ? getSimpleName(type.getInternalName()).toLowerCase() : unwrapped;
+  }
+
+  private String getElementTypeName(Type type) throws UnresolvedException {
+    return type.getSort() == Type.OBJECT
+        ? getSimpleName(type.getInternalName()) : type.getClassName();
+  }
+
+  /**
+   * Returns the same name as {@link Class#getSimpleName()} of the given class.
+   */
+  private String getSimpleName(String internalName) throws UnresolvedException {
+    if (isJavaClass(internalName)) {
+      String name = internalName.substring(internalName.lastIndexOf('/') + 1);
+      return name.substring(name.lastIndexOf('$') + 1);
+    }
+    ClassNode classNode = getRequiredClassNode(internalName);
+    for (InnerClassNode innerClass : classNode.innerClasses) {
+      if (internalName.equals(innerClass.name)) {
+        return innerClass.innerName == null ? "" : innerClass.innerName;
+      }
+    }
+    return internalName.substring(internalName.lastIndexOf('/') + 1);
+  }
+
+  /**
+   * Returns {@code true} if the given type is a subclass of {@link PluginConfig}.
+   */
+  private boolean isPluginConfig(Type type) throws UnresolvedException {
+    if (type.getSort() != Type.OBJECT) {
+      return false;
+    }
+    String internalName = type.getInternalName();
+    while (internalName != null && !isJavaClass(internalName)) {
+      if (PLUGIN_CONFIG.equals(internalName)) {
+        return true;
+      }
+      internalName = getRequiredClassNode(internalName).superName;
+    }
+    return false;
+  }
+
+  /**
+   * Checks all super classes and interfaces of the given class can be found.
+   */
+  private void checkSuperTypes(ClassNode classNode) throws UnresolvedException {
+    if (classNode.superName != null && !isJavaClass(classNode.superName)) {
+      checkSuperTypes(getRequiredClassNode(classNode.superName));
+    }
+    for (String interfaceName : classNode.interfaces) {
+      if (!isJavaClass(interfaceName)) {
+        checkSuperTypes(getRequiredClassNode(interfaceName));
+      }
+    }
+  }
+
+  @Nullable
+  private ClassNode getSuperClassNode(ClassNode classNode) throws UnresolvedException {
+    String superName = classNode.superName;
+    return superName == null || isJavaClass(superName) ? null : getRequiredClassNode(superName);
+  }
+
+  private ClassNode getRequiredClassNode(String internalName) throws UnresolvedException {
+    ClassNode classNode = getClassNode(internalName);
+    if (classNode == null) {
+      throw new UnresolvedException();
+    }
+    return classNode;
+  }
+
+  @Nullable
+  private ClassNode getClassNode(String internalName) throws UnresolvedException {
+    Optional<ClassNode> classNode = classes.get(internalName);
+    if (classNode == null) {
+      classNode = Optional.ofNullable(readClass(internalName));
+      classes.put(internalName, classNode);
+    }
+    return classNode.orElse(null);
+  }
+
+  @Nullable
+  private ClassNode readClass(String internalName) throws UnresolvedException {
+    try (InputStream is = classLoader.getResourceAsStream(internalName + ".class")) {
+      if (is == null) {
+        return null;
+      }
+      ClassNode classNode = new ClassNode(Opcodes.ASM7);
+      new ClassReader(is).accept(classNode, PARSING_OPTIONS);
+      return classNode;
+    } catch (IOException | RuntimeException e) {
+      // Class file that cannot be read or is not supported by ASM
+      throw new UnresolvedException();
+    }
+  }
+
+  private boolean hasClassFile(String internalName) {
+    return resources.computeIfAbsent(internalName,
+        name -> classLoader.getResource(name + ".class") != null);
+  }
+
+  /**
+   * Throws {@link UnresolvedException} if the given field signature uses a type variable, which
+   * needs to be resolved by reflection.
+   */
+  private void checkNoTypeVariable(@Nullable String signature) throws UnresolvedException {
+    if (signature == null) {
+      return;
+    }
+    boolean[] hasTypeVariable = new boolean[1];
+    new SignatureReader(signature).acceptType(new SignatureVisitor(Opcodes.ASM7) {
+      @Override
+      public void visitTypeVariable(String name) {
+        hasTypeVariable[0] = true;
+      }
+    });
+    if (hasTypeVariable[0]) {
+      throw new UnresolvedException();
+    }
+  }
+
+  private static boolean isJavaClass(String internalName) {
+    return internalName.startsWith("java/");
+  }
+
+  @Nullable
+  private static AnnotationNode findAnnotation(@Nullable List<AnnotationNode> annotations,
+      String desc) {
+    if (annotations == null) {
+      return null;
+    }
+    for (AnnotationNode annotation : annotations) {
+      if (desc.equals(annotation.desc)) {
+        return annotation;
+      }
+    }
+    return null;
+  }
+
+  private static String getString(@Nullable AnnotationNode annotation, String defaultValue) {
+    return getString(annotation, "value", defaultValue);
+  }
+
+  private static String getString(@Nullable AnnotationNode annotation, String name,
+      String defaultValue) {
+    Object value = getValue(annotation, name);
+    return value == null ? defaultValue : (String) value;
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> List<T> getList(@Nullable AnnotationNode annotation, String name) {
+    Object value = getValue(annotation, name);
+    return value == null ? Collections.emptyList() : (List<T>) value;
+  }
+
+  @Nullable
+  private static Object getValue(@Nullable AnnotationNode annotation, String name) {
+    if (annotation == null || annotation.values == null) {
+      return null;
+    }
+    // Values are stored as a list of alternating names and values
+    for (int i = 0; i < annotation.values.size(); i += 2) {
+      if (name.equals(annotation.values.get(i))) {
+        return annotation.values.get(i + 1);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Plugin information extracted from the class file.
+   */
+  static final class ScannedPlugin {
+
+    static final ScannedPlugin UNRESOLVED = new ScannedPlugin();
+
+    private final boolean resolved;
+    private final String className;
+    private final String type;
+    private final String name;
+    private final String category;
+    private final String description;
+    private final String configFieldName;
+    private final Map<String, PluginPropertyField> properties;
+    private final List<String> datasetTypes;
+    private final List<String> capabilities;
+    private final Set<String> metadataTags;
+    private final Map<String, String> metadataProperties;
+
+    private ScannedPlugin() {
+      this.resolved = false;
+      this.className = null;
+      this.type = null;
+      this.name = null;
+      this.category = null;
+      this.description = null;
+      this.configFieldName = null;
+      this.properties = null;
+      this.datasetTypes = null;
+      this.capabilities = null;
+      this.metadataTags = null;
+      this.metadataProperties = null;
+    }
+
+    private ScannedPlugin(String className, String type, String name, @Nullable String category,
+        String description, @Nullable String configFieldName,
+        Map<String, PluginPropertyField> properties, List<String> datasetTypes,
+        List<String> capabilities, @Nullable Set<String> metadataTags,
+        @Nullable Map<String, String> metadataProperties) {
+      this.resolved = true;
+      this.className = className;
+      this.type = type;
+      this.name = name;
+      this.category = category;
+      this.description = description;
+      this.configFieldName = configFieldName;
+      this.properties = properties;
+      this.datasetTypes = datasetTypes;
+      this.capabilities = capabilities;
+      this.metadataTags = metadataTags;
+      this.metadataProperties = metadataProperties;
+    }
+
+    /**
+     * Returns {@code true} if all plugin information was extracted from the class file. If
+     * {@code false}, the plugin has to be inspected through reflection and all other methods
+     * return {@code null}.
+     */
+    boolean isResolved() {
+      return resolved;
+    }
+
+    String getClassName() {
+      return className;
+    }
+
+    String getType() {
+      return type;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    @Nullable
+    String getCategory() {
+      return category;
+    }
+
+    String getDescription() {
+      return description;
+    }
+
+    @Nullable
+    String getConfigFieldName() {
+      return configFieldName;
+    }
+
+    Map<String, PluginPropertyField> getProperties() {
+      return properties;
+    }
+
+    List<String> getDatasetTypes() {
+      return datasetTypes;
+    }
+
+    List<String> getCapabilities() {
+      return capabilities;
+    }
+
+    /**
+     * Returns the tags of the {@link Metadata} annotation or {@code null} if the plugin is not
+     * annotated with it.
+     */
+    @Nullable
+    Set<String> getMetadataTags() {
+      return metadataTags;
+    }
+
+    /**
+     * Returns the properties of the {@link Metadata} annotation or {@code null} if the plugin is not
+     * annotated with it.
+     */
+    @Nullable
+    Map<String, String> getMetadataProperties() {
+      return metadataProperties;
+    }
+  }
+
+  /**
+   * Thrown internally when the scanner cannot produce the same result as reflection.
+   */
+  private static final class UnresolvedException extends Exception {
+
+    UnresolvedException() {
+      super(null, null, false, false);
+    }
+  }
+}
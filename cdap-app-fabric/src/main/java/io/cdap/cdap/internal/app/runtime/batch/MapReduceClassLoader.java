@@ -72,6 +72,10 @@ public class MapReduceClassLoader extends CombineClassLoader implements AutoClos
 
   private static final Logger LOG = LoggerFactory.getLogger(MapReduceClassLoader.class);
 
+  static {
+    ClassLoader.registerAsParallelCapable();
+  }
+
   private final Parameters parameters;
   // Supplier for MapReduceTaskContextProvider. Need to wrap it with a supplier to delay calling
   // MapReduceTaskContextProvider.start() since it shouldn't be called in constructor.
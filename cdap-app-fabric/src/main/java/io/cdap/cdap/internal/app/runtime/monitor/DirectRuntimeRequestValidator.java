@@ -27,6 +27,7 @@ import io.cdap.cdap.common.NotFoundException;
 import io.cdap.cdap.api.service.ServiceUnavailableException;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.internal.app.store.ActiveRunCache;
 import io.cdap.cdap.internal.app.store.AppMetadataStore;
 import io.cdap.cdap.internal.app.store.RunRecordDetail;
 import io.cdap.cdap.logging.gateway.handlers.ProgramRunRecordFetcher;
@@ -58,12 +59,22 @@ public final class DirectRuntimeRequestValidator implements RuntimeRequestValida
   private final LoadingCache<ProgramRunId, Optional<ProgramRunInfo>> programRunsCache;
   private final AccessEnforcer accessEnforcer;
   private final AuthenticationContext authenticationContext;
+  private final ActiveRunCache activeRunCache;
 
-  @Inject
   DirectRuntimeRequestValidator(CConfiguration cConf, TransactionRunner txRunner,
       ProgramRunRecordFetcher runRecordFetcher,
       AccessEnforcer accessEnforcer, AuthenticationContext authenticationContext) {
+    this(cConf, txRunner, runRecordFetcher, accessEnforcer, authenticationContext,
+        ActiveRunCache.disabled());
+  }
+
+  @Inject
+  DirectRuntimeRequestValidator(CConfiguration cConf, TransactionRunner txRunner,
+      ProgramRunRecordFetcher runRecordFetcher,
+      AccessEnforcer accessEnforcer, AuthenticationContext authenticationContext,
+      ActiveRunCache activeRunCache) {
     this.txRunner = txRunner;
+    this.activeRunCache = activeRunCache;
     this.runRecordFetcher = runRecordFetcher;
     this.accessEnforcer = accessEnforcer;
     this.authenticationContext = authenticationContext;
@@ -153,8 +164,9 @@ public final class DirectRuntimeRequestValidator implements RuntimeRequestValida
     }
 
     try {
+      ActiveRunCache.Changes changes = activeRunCache.newChanges();
       TransactionRunners.run(txRunner, context -> {
-        AppMetadataStore store = AppMetadataStore.create(context);
+        AppMetadataStore store = AppMetadataStore.create(context, changes);
         // Strip off user args and trim down system args as runtime only needs the run status for validation purpose.
         // User and system args could be large and store them in local store can lead to unnecessary storage
         // and processing overhead.
@@ -189,6 +201,7 @@ public final class DirectRuntimeRequestValidator implements RuntimeRequestValida
             break;
         }
       }, IOException.class);
+      activeRunCache.apply(changes);
     } catch (Exception e) {
       // Don't throw if failed to update to the store. It doesn't affect normal operation.
       LOG.warn("Failed to update runtime store for program run {} with {}", programRunId, runRecord,
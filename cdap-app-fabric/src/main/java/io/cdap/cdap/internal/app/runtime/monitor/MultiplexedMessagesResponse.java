@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.runtime.monitor;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The response of the {@link RuntimeServer} to a request that carries the messages of multiple
+ * topics. The messages of a topic are acknowledged if the topic is not in the failed topics.
+ */
+public class MultiplexedMessagesResponse {
+
+  private final ProgramRunInfo programRunInfo;
+  private final Map<String, String> failedTopics;
+
+  MultiplexedMessagesResponse(ProgramRunInfo programRunInfo, Map<String, String> failedTopics) {
+    this.programRunInfo = programRunInfo;
+    this.failedTopics = failedTopics;
+  }
+
+  public ProgramRunInfo getProgramRunInfo() {
+    return programRunInfo;
+  }
+
+  /**
+   * Returns the error messages of the topics whose messages could not be processed, keyed by
+   * topic name.
+   */
+  public Map<String, String> getFailedTopics() {
+    return failedTopics == null ? Collections.emptyMap() : failedTopics;
+  }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.cdap.internal.app.runtime.monitor;
+
+import java.io.IOException;
+
+/**
+ * Exception thrown when the {@link RuntimeServer} rejects a multiplexed request because it is
+ * larger than the server accepts.
+ */
+public class RequestTooLargeException extends IOException {
+
+  public RequestTooLargeException(String message) {
+    super(message);
+  }
+}
@@ -35,6 +35,7 @@ import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.ProgramRunId;
 import io.cdap.cdap.proto.id.TopicId;
 import io.cdap.common.http.HttpMethod;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -46,8 +47,10 @@ import java.net.URLConnection;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.LongConsumer;
 import java.util.zip.GZIPOutputStream;
@@ -108,14 +111,7 @@ public class RuntimeClient {
       throw new IllegalArgumentException("Only topic in the system namespace is supported");
     }
 
-    String path = String.format("%s/apps/%s/versions/%s/%s/%s/runs/%s/topics/%s",
-        programRunId.getNamespace(),
-        programRunId.getApplication(),
-        programRunId.getVersion(),
-        programRunId.getType().getCategoryName(),
-        programRunId.getProgram(),
-        programRunId.getRun(),
-        topicId.getTopic());
+    String path = String.format("%s/topics/%s", getRunPath(programRunId), topicId.getTopic());
 
     // Stream out the messages
     HttpURLConnection urlConn = remoteClient.openConnection(HttpMethod.POST, path);
@@ -140,6 +136,80 @@ public class RuntimeClient {
     }
   }
 
+  /**
+   * Sends messages of multiple TMS system topics from the given program run in one request. The
+   * messages of each topic are sent as one frame, which is compressed individually if compression
+   * is enabled. The server processes each frame independently.
+   *
+   * @param programRunId the program run id of the program run
+   * @param messages the messages to send for each topic. The namespace of the topics must be
+   *     {@link NamespaceId#SYSTEM}
+   * @return the error messages of the topics that the server failed to process, keyed by topic
+   *     name. Messages of all other topics are processed.
+   * @throws IOException if failed to send the messages
+   * @throws BadRequestException if the server denial the request due to bad request
+   * @throws GoneException if the run already finished
+   * @throws UnsupportedOperationException if the server does not support multiplexed requests
+   * @throws RequestTooLargeException if the request is larger than the server accepts
+   * @throws ServiceUnavailableException if the server is not available
+   */
+  public Map<String, String> sendMultiplexedMessages(ProgramRunId programRunId,
+      Map<TopicId, ? extends Collection<Message>> messages)
+      throws IOException, BadRequestException, GoneException, NotFoundException {
+
+    for (TopicId topicId : messages.keySet()) {
+      if (!NamespaceId.SYSTEM.equals(topicId.getNamespaceId())) {
+        throw new IllegalArgumentException("Only topic in the system namespace is supported");
+      }
+    }
+
+    HttpURLConnection urlConn = remoteClient.openConnection(HttpMethod.POST,
+        getRunPath(programRunId) + "/topics");
+    try {
+      urlConn.setChunkedStreamingMode(CHUNK_SIZE);
+      urlConn.setRequestProperty(HttpHeaders.CONTENT_TYPE, "avro/binary");
+
+      try (OutputStream os = urlConn.getOutputStream()) {
+        Encoder encoder = EncoderFactory.get().directBinaryEncoder(os, null);
+        encoder.writeArrayStart();
+        encoder.setItemCount(messages.size());
+        for (Map.Entry<TopicId, ? extends Collection<Message>> entry : messages.entrySet()) {
+          encoder.startItem();
+          encoder.writeString(entry.getKey().getTopic());
+          encoder.writeBoolean(compression);
+          encoder.writeBytes(encodeFrame(entry.getValue()));
+        }
+        encoder.writeArrayEnd();
+        encoder.flush();
+      }
+
+      int responseCode = urlConn.getResponseCode();
+      if (responseCode == HttpURLConnection.HTTP_NOT_FOUND
+          || responseCode == HttpURLConnection.HTTP_BAD_METHOD) {
+        throw new UnsupportedOperationException(
+            "Runtime server does not support multiplexed messages. Respond code: " + responseCode);
+      }
+      if (responseCode == HttpURLConnection.HTTP_ENTITY_TOO_LARGE) {
+        throw new RequestTooLargeException(
+            "Runtime server rejected multiplexed messages of program run " + programRunId
+                + " as too large. Respond code: " + responseCode);
+      }
+      throwIfError(programRunId, urlConn);
+      try (Reader reader = new InputStreamReader(urlConn.getInputStream(),
+          StandardCharsets.UTF_8)) {
+        MultiplexedMessagesResponse response = GSON.fromJson(reader,
+            MultiplexedMessagesResponse.class);
+        ProgramRunInfo programRunInfo = response.getProgramRunInfo();
+        if (programRunInfo.getProgramRunStatus() == ProgramRunStatus.STOPPING) {
+          stopFuture.complete(programRunInfo.getTerminateTimestamp());
+        }
+        return response.getFailedTopics();
+      }
+    } finally {
+      closeURLConnection(urlConn);
+    }
+  }
+
   /**
    * Sets the consumer to run on the program being requested to stop.
    *
@@ -163,13 +233,7 @@ public class RuntimeClient {
    * @throws ServiceUnavailableException if the service is not available
    */
   public void uploadSparkEventLogs(ProgramRunId programRunId, File eventFile) throws IOException {
-    String path = String.format("%s/apps/%s/versions/%s/%s/%s/runs/%s/spark-event-logs/%s",
-        programRunId.getNamespace(),
-        programRunId.getApplication(),
-        programRunId.getVersion(),
-        programRunId.getType().getCategoryName(),
-        programRunId.getProgram(),
-        programRunId.getRun(),
+    String path = String.format("%s/spark-event-logs/%s", getRunPath(programRunId),
         eventFile.getName());
 
     // Stream out the messages
@@ -191,6 +255,34 @@ public class RuntimeClient {
     }
   }
 
+  /**
+   * Returns the path of the given program run relative to the base path of the runtime service.
+   */
+  private String getRunPath(ProgramRunId programRunId) {
+    return String.format("%s/apps/%s/versions/%s/%s/%s/runs/%s",
+        programRunId.getNamespace(),
+        programRunId.getApplication(),
+        programRunId.getVersion(),
+        programRunId.getType().getCategoryName(),
+        programRunId.getProgram(),
+        programRunId.getRun());
+  }
+
+  /**
+   * Encodes the given messages as one frame of a multiplexed request, which has the same format as
+   * the body of a request to a single topic. The frame is compressed if {@link #compression} is
+   * {@code true}.
+   */
+  private byte[] encodeFrame(Collection<Message> messages) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (OutputStream os = compression ? new GZIPOutputStream(bos) : bos) {
+      Encoder encoder = EncoderFactory.get().directBinaryEncoder(os, null);
+      writeMessages(messages.iterator(), encoder);
+      encoder.flush();
+    }
+    return bos.toByteArray();
+  }
+
   /**
    * Opens a {@link OutputStream} to the given {@link URLConnection}. If {@link #compression} is
    * {@code true}, the output stream will be wrapped with a {@link GZIPOutputStream} with
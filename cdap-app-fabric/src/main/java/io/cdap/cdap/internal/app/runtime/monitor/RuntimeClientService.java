@@ -52,9 +52,11 @@ import io.cdap.cdap.proto.id.ProgramRunId;
 import io.cdap.cdap.proto.id.TopicId;
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -90,7 +92,11 @@ public class RuntimeClientService extends AbstractRetryableScheduledService {
   private final ProgramRunId programRunId;
   private final RuntimeClient runtimeClient;
   private final int fetchLimit;
+  private final long maxRequestBytes;
   private final AtomicReference<ProgramRunCompletionDetails> completionDetails;
+  private boolean multiplexed;
+  // index of the topic relayer to start from in the next multiplexed request
+  private int nextRelayerIndex;
 
   @Inject
   RuntimeClientService(CConfiguration cConf,
@@ -109,6 +115,8 @@ public class RuntimeClientService extends AbstractRetryableScheduledService {
     this.programRunId = programRunId;
     this.runtimeClient = runtimeClient;
     this.fetchLimit = cConf.getInt(Constants.RuntimeMonitor.BATCH_SIZE);
+    this.multiplexed = cConf.getBoolean(Constants.RuntimeMonitor.MULTIPLEX_ENABLED);
+    this.maxRequestBytes = cConf.getLong(Constants.RuntimeMonitor.MULTIPLEX_MAX_REQUEST_BYTES);
     this.completionDetails = new AtomicReference<>(null);
     this.topicRelayers = RuntimeMonitors.createTopicNameList(cConf)
         .stream()
@@ -119,10 +127,7 @@ public class RuntimeClientService extends AbstractRetryableScheduledService {
 
   @Override
   protected long runTask() throws Exception {
-    long nextPollDelay = pollTimeMillis;
-    for (TopicRelayer topicRelayer : topicRelayers) {
-      nextPollDelay = Math.min(nextPollDelay, topicRelayer.publishMessages());
-    }
+    long nextPollDelay = multiplexed ? relayMultiplexedMessages() : relayMessages();
 
     // If we got the program finished state, determine when to shut down.
     if (getProgramCompletionDetails() != null) {
@@ -148,6 +153,108 @@ public class RuntimeClientService extends AbstractRetryableScheduledService {
     return nextPollDelay;
   }
 
+  /**
+   * Relays messages of each topic with one request per topic.
+   *
+   * @return delay in milliseconds till the next poll
+   */
+  private long relayMessages() throws Exception {
+    long nextPollDelay = pollTimeMillis;
+    for (TopicRelayer topicRelayer : topicRelayers) {
+      nextPollDelay = Math.min(nextPollDelay, topicRelayer.publishMessages());
+    }
+    return nextPollDelay;
+  }
+
+  /**
+   * Relays messages of all topics that are due for a poll with one request. The offset of a topic is
+   * only moved when the server acknowledged its messages. Once the request reaches
+   * {@link #maxRequestBytes}, the remaining topics are relayed in the next request, which is sent
+   * without delay.
+   *
+   * @return delay in milliseconds till the next poll
+   */
+  private long relayMultiplexedMessages() throws Exception {
+    long nextPollDelay = pollTimeMillis;
+    Map<TopicRelayer, RelayBatch> batches = new LinkedHashMap<>();
+    long requestBytes = 0L;
+    int numRelayers = topicRelayers.size();
+    int startIndex = nextRelayerIndex;
+    for (int i = 0; i < numRelayers; i++) {
+      TopicRelayer topicRelayer = topicRelayers.get((startIndex + i) % numRelayers);
+      if (requestBytes >= maxRequestBytes) {
+        nextRelayerIndex = (startIndex + i) % numRelayers;
+        nextPollDelay = 0L;
+        break;
+      }
+      RelayBatch batch = topicRelayer.fetchBatch();
+      if (batch == null) {
+        nextPollDelay = Math.min(nextPollDelay, topicRelayer.getPublishDelay());
+        continue;
+      }
+      batches.put(topicRelayer, batch);
+      requestBytes += batch.getSize();
+    }
+
+    Map<TopicId, List<Message>> frames = new LinkedHashMap<>();
+    for (Map.Entry<TopicRelayer, RelayBatch> entry : batches.entrySet()) {
+      // A batch without fetched messages has nothing to relay. A batch with fetched messages but
+      // nothing to relay is still sent, which serves as a heartbeat.
+      if (entry.getValue().getFetchedCount() > 0) {
+        frames.put(entry.getKey().getTopicId(), entry.getValue().getMessages());
+      }
+    }
+
+    Map<String, String> failedTopics = Collections.emptyMap();
+    if (!frames.isEmpty()) {
+      try {
+        failedTopics = runtimeClient.sendMultiplexedMessages(programRunId, frames);
+      } catch (UnsupportedOperationException e) {
+        LOG.info("Relaying messages with one request per topic for program run {}: {}",
+            programRunId, e.getMessage());
+        multiplexed = false;
+        commitEmptyBatches(batches);
+        return 0L;
+      } catch (RequestTooLargeException e) {
+        // The batches with messages are not committed, hence relay the same messages with one
+        // request per topic, which the server decodes as they are received
+        LOG.debug("Relaying messages with one request per topic for this poll: {}",
+            e.getMessage());
+        commitEmptyBatches(batches);
+        return relayMessages();
+      } catch (Exception e) {
+        commitEmptyBatches(batches);
+        throw e;
+      }
+    }
+
+    for (Map.Entry<TopicRelayer, RelayBatch> entry : batches.entrySet()) {
+      TopicRelayer topicRelayer = entry.getKey();
+      RelayBatch batch = entry.getValue();
+      String error = failedTopics.get(topicRelayer.getTopicId().getTopic());
+      if (error != null && !batch.getMessages().isEmpty()) {
+        // Don't move the offset, so that the same messages will be fetched and relayed again
+        OUTAGE_LOG.warn("Failed to relay messages of topic {}. Will be retried. Error: {}",
+            topicRelayer.getTopicId(), error);
+        continue;
+      }
+      nextPollDelay = Math.min(nextPollDelay, topicRelayer.commitBatch(batch));
+    }
+    return nextPollDelay;
+  }
+
+  /**
+   * Commits the batches without messages to relay, which have nothing to retry. The messages of a
+   * batch can be held by the relayer rather than relayed, hence they must not be fetched again.
+   */
+  private void commitEmptyBatches(Map<TopicRelayer, RelayBatch> batches) {
+    for (Map.Entry<TopicRelayer, RelayBatch> entry : batches.entrySet()) {
+      if (entry.getValue().getMessages().isEmpty()) {
+        entry.getKey().commitBatch(entry.getValue());
+      }
+    }
+  }
+
   @Override
   protected boolean shouldRetry(Exception e) {
     OUTAGE_LOG.warn("Failed to send runtime status. Will be retried.", e);
@@ -318,21 +425,91 @@ public class RuntimeClientService extends AbstractRetryableScheduledService {
           });
 
           // Update the lastMessageId if sendMessages succeeded
-          lastMessageId = messageId[0] == null ? lastMessageId : messageId[0];
-          totalPublished += messageCount.get();
-          progressLog.trace("Processed in total {} messages on topic {}",
-              totalPublished, topicId);
+          updateOffset(messageId[0], messageCount.get());
         }
+        return scheduleNextPublish(messageCount.get());
+      }
+    }
+
+    /**
+     * Fetches messages from the {@link MessagingContext} to be relayed in a multiplexed request. The
+     * offset is not moved until {@link #commitBatch(RelayBatch)} is called.
+     *
+     * @return the batch of fetched messages, or {@code null} if it is not yet time to poll
+     */
+    @Nullable
+    RelayBatch fetchBatch() throws TopicNotFoundException, IOException {
+      if (getPublishDelay() > 0) {
+        return null;
+      }
 
-        // If we fetched all messages, then delay the next poll by pollTimeMillis.
-        // Otherwise, try to poll again immediately.
-        nextPublishTimeMillis = System.currentTimeMillis();
-        if (messageCount.get() >= fetchLimit) {
-          return 0L;
+      try (CloseableIterator<Message> iterator = messagingContext.getMessageFetcher()
+          .fetch(topicId.getNamespace(),
+              topicId.getTopic(),
+              fetchLimit,
+              lastMessageId)) {
+        Iterator<Message> messageIterator = iterator;
+        if (messageAggregator != null) {
+          messageIterator = messageAggregator.aggregate(iterator);
+        }
+        List<Message> messages = new ArrayList<>();
+        messageIterator.forEachRemaining(messages::add);
+        if (messages.isEmpty()) {
+          return new RelayBatch(0, null, messages);
         }
-        nextPublishTimeMillis += pollTimeMillis;
-        return pollTimeMillis;
+        String messageId = messages.get(messages.size() - 1).getId();
+        return new RelayBatch(messages.size(), messageId, prepareRelay(messages));
+      }
+    }
+
+    /**
+     * Moves the offset past the messages of the given batch, after they were relayed.
+     *
+     * @return delay in milliseconds till the next poll
+     */
+    long commitBatch(RelayBatch batch) {
+      if (batch.getFetchedCount() > 0) {
+        updateOffset(batch.getLastMessageId(), batch.getFetchedCount());
+      }
+      return scheduleNextPublish(batch.getFetchedCount());
+    }
+
+    /**
+     * Returns the delay in milliseconds till the next poll of this topic.
+     */
+    long getPublishDelay() {
+      return Math.max(0L, nextPublishTimeMillis - System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the messages to relay in a multiplexed request for the given fetched messages. By
+     * default, all fetched messages are relayed.
+     */
+    protected List<Message> prepareRelay(List<Message> messages) {
+      return messages;
+    }
+
+    private void updateOffset(@Nullable String messageId, int messageCount) {
+      lastMessageId = messageId == null ? lastMessageId : messageId;
+      totalPublished += messageCount;
+      progressLog.trace("Processed in total {} messages on topic {}",
+          totalPublished, topicId);
+    }
+
+    /**
+     * Schedules the next poll based on the number of messages fetched in the last poll.
+     *
+     * @return delay in milliseconds till the next poll
+     */
+    private long scheduleNextPublish(int messageCount) {
+      // If we fetched all messages, then delay the next poll by pollTimeMillis.
+      // Otherwise, try to poll again immediately.
+      nextPublishTimeMillis = System.currentTimeMillis();
+      if (messageCount >= fetchLimit) {
+        return 0L;
       }
+      nextPublishTimeMillis += pollTimeMillis;
+      return pollTimeMillis;
     }
 
     /**
@@ -391,6 +568,50 @@ public class RuntimeClientService extends AbstractRetryableScheduledService {
     }
   }
 
+  /**
+   * Messages fetched from one topic to be relayed in a multiplexed request.
+   */
+  private static final class RelayBatch {
+
+    private final int fetchedCount;
+    private final String lastMessageId;
+    private final List<Message> messages;
+    private final long size;
+
+    RelayBatch(int fetchedCount, @Nullable String lastMessageId, List<Message> messages) {
+      this.fetchedCount = fetchedCount;
+      this.lastMessageId = lastMessageId;
+      this.messages = messages;
+      this.size = messages.stream().mapToLong(message -> message.getPayload().length).sum();
+    }
+
+    /**
+     * Returns the number of messages fetched, which is what the offset moves by.
+     */
+    int getFetchedCount() {
+      return fetchedCount;
+    }
+
+    @Nullable
+    String getLastMessageId() {
+      return lastMessageId;
+    }
+
+    /**
+     * Returns the messages to relay.
+     */
+    List<Message> getMessages() {
+      return messages;
+    }
+
+    /**
+     * Returns the total size of the payloads to relay in bytes.
+     */
+    long getSize() {
+      return size;
+    }
+  }
+
   /**
    * A {@link TopicRelayer} specifically for handling program state events. We
    * need special handling for program state to delay the relaying of terminal
@@ -420,24 +641,9 @@ public class RuntimeClientService extends AbstractRetryableScheduledService {
               false)
           .collect(Collectors.toList());
 
-      if (completionDetails.get() == null) {
-        ProgramRunCompletionDetails finishInfo = findProgramFinishInfo(message);
-        if (finishInfo != null) {
-          detectedProgramFinish = true;
-          LOG.trace("Detected program {} finish time {} in topic {}",
-              programRunId, finishInfo.getEndTimestamp(),
-              topicId.getTopic());
-        }
-        completionDetails.compareAndSet(null, finishInfo);
-      }
-      if (detectedProgramFinish) {
-        // Buffer the program state messages and don't publish them until the end
-        // Otherwise, once we publish, the deprovisioner will kick in and delete the cluster
-        // which could result in losing the last set of messages for some topics.
+      if (holdFinalMessages(message)) {
         // Since we already consumed the incoming Iterator, the next fetch offset is being updated.
         // This is to avoid fetching duplicate messages.
-        lastProgramStateMessages.addAll(message);
-
         // Send an empty iterator to serve as the heartbeat.
         try {
           super.processMessages(Collections.emptyIterator());
@@ -451,6 +657,38 @@ public class RuntimeClientService extends AbstractRetryableScheduledService {
       }
     }
 
+    @Override
+    protected List<Message> prepareRelay(List<Message> messages) {
+      // Relay an empty frame as the heartbeat if the messages are held
+      return holdFinalMessages(messages) ? Collections.emptyList() : messages;
+    }
+
+    /**
+     * Watches for the program completion in the given messages. Once the program finish is
+     * detected, the program state messages are buffered and not published until the end.
+     * Otherwise, once we publish, the deprovisioner will kick in and delete the cluster which
+     * could result in losing the last set of messages for some topics.
+     *
+     * @return {@code true} if the messages are buffered
+     */
+    private boolean holdFinalMessages(List<Message> messages) {
+      if (completionDetails.get() == null) {
+        ProgramRunCompletionDetails finishInfo = findProgramFinishInfo(messages);
+        if (finishInfo != null) {
+          detectedProgramFinish = true;
+          LOG.trace("Detected program {} finish time {} in topic {}",
+              programRunId, finishInfo.getEndTimestamp(),
+              topicId.getTopic());
+        }
+        completionDetails.compareAndSet(null, finishInfo);
+      }
+      if (detectedProgramFinish) {
+        lastProgramStateMessages.addAll(messages);
+        return true;
+      }
+      return false;
+    }
+
     @Override
     public void close() throws IOException {
       super.close();
@@ -46,17 +46,22 @@ import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.zip.GZIPInputStream;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
@@ -77,6 +82,7 @@ import org.slf4j.LoggerFactory;
 public class RuntimeHandler extends AbstractHttpHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(RuntimeHandler.class);
+  private static final Gson GSON = new Gson();
 
   private final MessagingContext messagingContext;
   private final RuntimeRequestValidator requestValidator;
@@ -85,6 +91,7 @@ public class RuntimeHandler extends AbstractHttpHandler {
   private final boolean eventLogsEnabled;
   private final Location eventLogsBaseLocation;
   private final Set<String> allowedTopics;
+  private final long maxMultiplexedRequestBytes;
 
   @Inject
   RuntimeHandler(CConfiguration cConf, MessagingService messagingService,
@@ -98,6 +105,8 @@ public class RuntimeHandler extends AbstractHttpHandler {
     this.eventLogsBaseLocation = locationFactory.create(
         cConf.get(Constants.AppFabric.SPARK_EVENT_LOGS_DIR));
     this.allowedTopics = new HashSet<>(RuntimeMonitors.createTopicNameList(cConf));
+    this.maxMultiplexedRequestBytes =
+        cConf.getLong(Constants.RuntimeMonitor.MULTIPLEX_SERVER_MAX_REQUEST_BYTES);
   }
 
   @Override
@@ -154,18 +163,55 @@ public class RuntimeHandler extends AbstractHttpHandler {
     }
 
     TopicId topicId = NamespaceId.SYSTEM.topic(topic);
-    if (topic.startsWith(logsTopicPrefix)) {
-      return new MessageBodyConsumer(topicId, logProcessor::process, programRunInfo);
+    return new MessageBodyConsumer(topicId, getPayloadProcessor(topicId), programRunInfo);
+  }
+
+  /**
+   * Handles call for writing to multiple TMS topics from the program runtime for a given program
+   * run. The POST body is an avro array of frames. Each frame has the topic name, whether the frame
+   * is compressed, and the frame data, which is an avro array of bytes, the same as the body of
+   * {@link #writeMessages}. Frames are processed independently, and the response tells which
+   * topics failed, so that the runtime only relays the messages of those topics again. Requests
+   * larger than {@link Constants.RuntimeMonitor#MULTIPLEX_SERVER_MAX_REQUEST_BYTES} are rejected
+   * with status 413.
+   */
+  @Path("/topics")
+  @POST
+  public BodyConsumer writeMultiplexedMessages(HttpRequest request, HttpResponder responder,
+      @PathParam("namespace") String namespace,
+      @PathParam("app") String app,
+      @PathParam("version") String version,
+      @PathParam("program-type") String programType,
+      @PathParam("program") String program,
+      @PathParam("run") String run) throws Exception {
+
+    if (!"avro/binary".equals(request.headers().get(HttpHeaderNames.CONTENT_TYPE))) {
+      throw new BadRequestException("Only avro/binary content type is supported.");
     }
 
-    return new MessageBodyConsumer(topicId, payloads -> {
+    ApplicationId appId = new NamespaceId(namespace).app(app, version);
+    ProgramRunId programRunId = new ProgramRunId(appId,
+        ProgramType.valueOfCategoryName(programType, BadRequestException::new),
+        program, run);
+    ProgramRunInfo programRunInfo = requestValidator.getProgramRunStatus(programRunId, request);
+    return new MultiplexedMessagesBodyConsumer(programRunId, programRunInfo);
+  }
+
+  /**
+   * Returns the {@link PayloadProcessor} for writing payloads to the given topic.
+   */
+  private PayloadProcessor getPayloadProcessor(TopicId topicId) {
+    if (topicId.getTopic().startsWith(logsTopicPrefix)) {
+      return logProcessor::process;
+    }
+    return payloads -> {
       try {
         messagingContext.getDirectMessagePublisher().publish(topicId.getNamespace(),
             topicId.getTopic(), payloads);
       } catch (TopicNotFoundException e) {
         throw new BadRequestException(e);
       }
-    }, programRunInfo);
+    };
   }
 
   /**
@@ -358,6 +404,119 @@ public class RuntimeHandler extends AbstractHttpHandler {
     }
   }
 
+  /**
+   * A {@link BodyConsumer} to consume a request with frames of messages for multiple topics. The
+   * request is decoded once it is fully received, hence it is only buffered up to
+   * {@link #maxMultiplexedRequestBytes}. The rest of a larger request is discarded, and the request
+   * is rejected once it is fully received, so that the runtime reliably gets the response and can
+   * relay the messages with one request per topic instead.
+   */
+  private final class MultiplexedMessagesBodyConsumer extends BodyConsumer {
+
+    private final ProgramRunId programRunId;
+    private final ProgramRunInfo programRunInfo;
+    private final CompositeByteBuf buffer;
+    private long requestBytes;
+
+    MultiplexedMessagesBodyConsumer(ProgramRunId programRunId, ProgramRunInfo programRunInfo) {
+      this.programRunId = programRunId;
+      this.programRunInfo = programRunInfo;
+      this.buffer = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void chunk(ByteBuf request, HttpResponder responder) {
+      requestBytes += request.readableBytes();
+      if (requestBytes > maxMultiplexedRequestBytes) {
+        if (buffer.numComponents() > 0) {
+          LOG.debug("Discarding multiplexed messages of program run {} larger than {} bytes",
+              programRunId, maxMultiplexedRequestBytes);
+          buffer.removeComponents(0, buffer.numComponents());
+        }
+        return;
+      }
+      buffer.addComponent(true, request.retain());
+    }
+
+    @Override
+    public void finished(HttpResponder responder) {
+      if (requestBytes > maxMultiplexedRequestBytes) {
+        buffer.release();
+        responder.sendString(HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE,
+            String.format("Request of %d bytes is larger than the maximum of %d bytes",
+                requestBytes, maxMultiplexedRequestBytes));
+        return;
+      }
+
+      Map<String, String> failedTopics = new HashMap<>();
+      try (InputStream is = new ByteBufInputStream(buffer)) {
+        Decoder decoder = DecoderFactory.get().directBinaryDecoder(is, null);
+        ByteBuffer frame = null;
+        for (long items = decoder.readArrayStart(); items > 0; items = decoder.arrayNext()) {
+          for (long i = 0; i < items; i++) {
+            String topic = decoder.readString();
+            boolean compressed = decoder.readBoolean();
+            frame = decoder.readBytes(frame);
+            try {
+              processFrame(topic, compressed, frame);
+            } catch (Exception e) {
+              LOG.debug("Failed to process messages of topic {} for program run {}", topic,
+                  programRunId, e);
+              failedTopics.put(topic, String.valueOf(e.getMessage()));
+            }
+          }
+        }
+      } catch (IOException e) {
+        responder.sendString(HttpResponseStatus.BAD_REQUEST,
+            "Failed to decode request due to exception " + e.getMessage());
+        return;
+      } finally {
+        buffer.release();
+      }
+      responder.sendJson(HttpResponseStatus.OK,
+          GSON.toJson(new MultiplexedMessagesResponse(programRunInfo, failedTopics)));
+    }
+
+    @Override
+    public void handleError(Throwable cause) {
+      LOG.error("Exception raised when processing multiplexed messages for program run {}",
+          programRunId, cause);
+      if (buffer.refCnt() > 0) {
+        buffer.release();
+      }
+    }
+
+    private void processFrame(String topic, boolean compressed, ByteBuffer frame)
+        throws IOException, BadRequestException, AccessException {
+      if (!allowedTopics.contains(topic)) {
+        throw new UnauthorizedException("Access denied for topic " + topic);
+      }
+
+      InputStream is = new ByteArrayInputStream(frame.array(),
+          frame.arrayOffset() + frame.position(), frame.remaining());
+      if (compressed) {
+        is = new GZIPInputStream(is);
+      }
+      List<byte[]> payloads = new ArrayList<>();
+      try {
+        Decoder decoder = DecoderFactory.get().directBinaryDecoder(is, null);
+        ByteBuffer payload = null;
+        for (long items = decoder.readArrayStart(); items > 0; items = decoder.arrayNext()) {
+          for (long i = 0; i < items; i++) {
+            payload = decoder.readBytes(payload);
+            payloads.add(Bytes.toBytes(payload));
+          }
+        }
+      } finally {
+        Closeables.closeQuietly(is);
+      }
+
+      if (!payloads.isEmpty()) {
+        getPayloadProcessor(NamespaceId.SYSTEM.topic(topic)).process(payloads.iterator());
+      }
+    }
+  }
+
   /**
    * An {@link InputStream} that delegates all operations to another {@link InputStream}.
    */
@@ -29,6 +29,7 @@ import io.cdap.cdap.internal.app.ApplicationSpecificationAdapter;
 import io.cdap.cdap.internal.app.program.ProgramStatePublisher;
 import io.cdap.cdap.internal.app.runtime.ProgramOptionConstants;
 import io.cdap.cdap.internal.app.services.AbstractNotificationSubscriberService;
+import io.cdap.cdap.internal.app.store.ActiveRunCache;
 import io.cdap.cdap.internal.app.store.AppMetadataStore;
 import io.cdap.cdap.messaging.spi.MessagingService;
 import io.cdap.cdap.proto.Notification;
@@ -42,6 +43,8 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
@@ -62,15 +65,20 @@ public class RuntimeProgramStatusSubscriberService extends AbstractNotificationS
   private static final Gson GSON = ApplicationSpecificationAdapter.addTypeAdapters(
       new GsonBuilder()).create();
 
+  private final ActiveRunCache activeRunCache;
+  // Run record changes of processed batches, to be applied to the cache after commit
+  private final Queue<ActiveRunCache.Changes> activeRunChanges = new ConcurrentLinkedQueue<>();
+
   @Inject
   RuntimeProgramStatusSubscriberService(CConfiguration cConf, MessagingService messagingService,
       MetricsCollectionService metricsCollectionService,
-      TransactionRunner transactionRunner) {
+      TransactionRunner transactionRunner, ActiveRunCache activeRunCache) {
     super("runtime.program.status", cConf,
         cConf.get(Constants.AppFabric.PROGRAM_STATUS_RECORD_EVENT_TOPIC),
         cConf.getInt(Constants.AppFabric.STATUS_EVENT_FETCH_SIZE),
         cConf.getLong(Constants.AppFabric.STATUS_EVENT_POLL_DELAY_MILLIS),
         messagingService, metricsCollectionService, transactionRunner);
+    this.activeRunCache = activeRunCache;
   }
 
   @Nullable
@@ -90,14 +98,25 @@ public class RuntimeProgramStatusSubscriberService extends AbstractNotificationS
   @Override
   protected void processMessages(StructuredTableContext context,
       Iterator<ImmutablePair<String, Notification>> messages) throws Exception {
+    ActiveRunCache.Changes changes = activeRunCache.newChanges();
+    AppMetadataStore store = AppMetadataStore.create(context, changes);
     while (messages.hasNext()) {
       ImmutablePair<String, Notification> pair = messages.next();
       Notification notification = pair.getSecond();
       if (notification.getNotificationType() != Notification.Type.PROGRAM_STATUS) {
         continue;
       }
-      processNotification(pair.getFirst().getBytes(StandardCharsets.UTF_8), notification,
-          getAppMetadataStore(context));
+      processNotification(pair.getFirst().getBytes(StandardCharsets.UTF_8), notification, store);
+    }
+    activeRunChanges.add(changes);
+  }
+
+  @Override
+  protected void postProcess() {
+    ActiveRunCache.Changes changes = activeRunChanges.poll();
+    while (changes != null) {
+      activeRunCache.apply(changes);
+      changes = activeRunChanges.poll();
     }
   }
 
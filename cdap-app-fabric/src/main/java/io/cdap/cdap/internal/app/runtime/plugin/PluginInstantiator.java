@@ -48,8 +48,8 @@ import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.io.Locations;
 import io.cdap.cdap.common.lang.CombineClassLoader;
 import io.cdap.cdap.common.lang.InstantiatorFactory;
-import io.cdap.cdap.common.lang.jar.BundleJarUtil;
 import io.cdap.cdap.common.lang.jar.ClassLoaderFolder;
+import io.cdap.cdap.common.lang.jar.ClassLoaderFolderCache;
 import io.cdap.cdap.common.utils.DirUtils;
 import io.cdap.cdap.internal.app.runtime.artifact.Artifacts;
 import io.cdap.cdap.internal.lang.FieldVisitor;
@@ -74,7 +74,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -111,6 +114,10 @@ public class PluginInstantiator implements Closeable {
   private final InstantiatorFactory instantiatorFactory;
   private final File tmpDir;
   private final File pluginDir;
+  private final ClassLoaderFolderCache classLoaderFolderCache;
+  private final Queue<ClassLoaderFolder> classLoaderFolders;
+  // Locations the artifacts in the plugin directory were copied from
+  private final Map<ArtifactId, Location> artifactSources;
   private final ClassLoader parentClassLoader;
   private final boolean ownedParentClassLoader;
   private final Gson gson;
@@ -127,6 +134,9 @@ public class PluginInstantiator implements Closeable {
 
     this.pluginDir = pluginDir;
     this.tmpDir = DirUtils.createTempDir(tmpDir);
+    this.classLoaderFolderCache = ClassLoaderFolderCache.get(cConf);
+    this.classLoaderFolders = new ConcurrentLinkedQueue<>();
+    this.artifactSources = new ConcurrentHashMap<>();
     this.classLoaders = CacheBuilder.newBuilder()
         .removalListener(new ClassLoaderRemovalListener())
         .build(new ClassLoaderCacheLoader());
@@ -153,6 +163,7 @@ public class PluginInstantiator implements Closeable {
       } else {
         Locations.linkOrCopy(artifactLocation, destFile);
       }
+      artifactSources.put(destArtifact, artifactLocation);
     }
   }
 
@@ -519,6 +530,12 @@ public class PluginInstantiator implements Closeable {
     if (ownedParentClassLoader) {
       Closeables.closeQuietly((Closeable) parentClassLoader);
     }
+    // Release the expanded plugin jar directories shared with other instantiators
+    ClassLoaderFolder classLoaderFolder = classLoaderFolders.poll();
+    while (classLoaderFolder != null) {
+      Closeables.closeQuietly(classLoaderFolder);
+      classLoaderFolder = classLoaderFolders.poll();
+    }
     try {
       DirUtils.deleteDirectoryContents(tmpDir);
     } catch (IOException e) {
@@ -573,8 +590,12 @@ public class PluginInstantiator implements Closeable {
     @Override
     public PluginClassLoader load(ClassLoaderKey key) throws Exception {
       File artifact = new File(pluginDir, Artifacts.getFileName(key.artifact));
-      ClassLoaderFolder classLoaderFolder = BundleJarUtil.prepareClassLoaderFolder(
-          Locations.toLocation(artifact), () -> DirUtils.createTempDir(tmpDir));
+      // Look up by the source of the copy, so that instantiators with different plugin directories
+      // share the expanded directory without expanding their copies again
+      ClassLoaderFolder classLoaderFolder = classLoaderFolderCache.prepareClassLoaderFolder(
+          Locations.toLocation(artifact), artifactSources.get(key.artifact),
+          () -> DirUtils.createTempDir(tmpDir));
+      classLoaderFolders.add(classLoaderFolder);
 
       Iterator<ArtifactId> parentIter = key.parents.iterator();
       if (!parentIter.hasNext()) {
@@ -27,6 +27,7 @@ import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.internal.app.runtime.SystemArguments;
 import io.cdap.cdap.internal.app.runtime.schedule.queue.JobQueueTable;
 import io.cdap.cdap.internal.app.runtime.schedule.store.ProgramScheduleStoreDataset;
+import io.cdap.cdap.internal.app.runtime.schedule.store.ScheduleTriggerIndex;
 import io.cdap.cdap.internal.app.runtime.schedule.store.Schedulers;
 import io.cdap.cdap.internal.app.store.profile.ProfileStore;
 import io.cdap.cdap.messaging.spi.MessagingService;
@@ -40,6 +41,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,11 +61,13 @@ public class LocalScheduleManager extends ScheduleManager {
    * @param messagingService MessagingService
    * @param cConf CConfiguration
    * @param timeSchedulerService TimeSchedulerService
+   * @param triggerIndex ScheduleTriggerIndex
    */
   @Inject
   public LocalScheduleManager(TransactionRunner transactionRunner, MessagingService messagingService,
-      CConfiguration cConf, TimeSchedulerService timeSchedulerService) {
-    super(transactionRunner, messagingService, cConf);
+      CConfiguration cConf, TimeSchedulerService timeSchedulerService,
+      ScheduleTriggerIndex triggerIndex) {
+    super(transactionRunner, messagingService, cConf, triggerIndex);
     this.timeSchedulerService = timeSchedulerService;
   }
 
@@ -78,9 +82,11 @@ public class LocalScheduleManager extends ScheduleManager {
       }
     }
 
+    AtomicReference<ScheduleTriggerIndex.Changes> changes = new AtomicReference<>();
     try {
       TransactionRunners.run(transactionRunner, context -> {
-        ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context);
+        changes.set(triggerIndex.newChanges());
+        ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context, changes.get());
         ProfileStore profileStore = ProfileStore.get(context);
         long updatedTime = store.addSchedules(schedules);
         for (ProgramSchedule schedule : schedules) {
@@ -122,6 +128,7 @@ public class LocalScheduleManager extends ScheduleManager {
         }
         return null;
       }, Exception.class);
+      triggerIndex.apply(changes.get());
     } catch (NotFoundException | ProfileConflictException | AlreadyExistsException e) {
       throw e;
     } catch (Exception e) {
@@ -132,8 +139,10 @@ public class LocalScheduleManager extends ScheduleManager {
   @Override
   public void deleteSchedule(ScheduleId scheduleId)
       throws NotFoundException, BadRequestException, IOException, ConflictException {
+    AtomicReference<ScheduleTriggerIndex.Changes> changes = new AtomicReference<>();
     TransactionRunners.run(transactionRunner, context -> {
-      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context);
+      changes.set(triggerIndex.newChanges());
+      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context, changes.get());
       ProfileStore profileStore = ProfileStore.get(context);
       JobQueueTable queue = JobQueueTable.getJobQueue(context, cConf);
       long deleteTime = System.currentTimeMillis();
@@ -159,5 +168,6 @@ public class LocalScheduleManager extends ScheduleManager {
       toNotify.forEach(adminEventPublisher::publishScheduleDeletion);
       return null;
     }, NotFoundException.class);
+    triggerIndex.apply(changes.get());
   }
 }
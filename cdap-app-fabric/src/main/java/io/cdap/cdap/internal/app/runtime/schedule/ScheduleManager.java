@@ -21,6 +21,7 @@ import io.cdap.cdap.common.ConflictException;
 import io.cdap.cdap.common.NotFoundException;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.internal.app.runtime.schedule.store.ProgramScheduleStoreDataset;
+import io.cdap.cdap.internal.app.runtime.schedule.store.ScheduleTriggerIndex;
 import io.cdap.cdap.internal.app.runtime.schedule.store.Schedulers;
 import io.cdap.cdap.internal.app.runtime.schedule.trigger.ProgramStatusTrigger;
 import io.cdap.cdap.internal.profile.AdminEventPublisher;
@@ -33,6 +34,7 @@ import io.cdap.cdap.spi.data.transaction.TransactionRunner;
 import io.cdap.cdap.spi.data.transaction.TransactionRunners;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Abstract class to manager program schedules.
@@ -42,6 +44,7 @@ public abstract class ScheduleManager {
   protected final CConfiguration cConf;
   protected final TransactionRunner transactionRunner;
   protected final AdminEventPublisher adminEventPublisher;
+  protected final ScheduleTriggerIndex triggerIndex;
 
   /**
    * Parameterized constructor for ScheduleManager.
@@ -52,10 +55,24 @@ public abstract class ScheduleManager {
    */
   public ScheduleManager(TransactionRunner transactionRunner,
       MessagingService messagingService, CConfiguration cConf) {
+    this(transactionRunner, messagingService, cConf, ScheduleTriggerIndex.disabled());
+  }
+
+  /**
+   * Parameterized constructor for ScheduleManager.
+   *
+   * @param transactionRunner TransactionRunner
+   * @param messagingService MessagingService
+   * @param cConf CConfiguration
+   * @param triggerIndex ScheduleTriggerIndex to apply schedule changes to
+   */
+  public ScheduleManager(TransactionRunner transactionRunner,
+      MessagingService messagingService, CConfiguration cConf, ScheduleTriggerIndex triggerIndex) {
     this.cConf = cConf;
     this.transactionRunner = transactionRunner;
     MultiThreadMessagingContext messagingContext = new MultiThreadMessagingContext(messagingService);
     this.adminEventPublisher = new AdminEventPublisher(cConf, messagingContext);
+    this.triggerIndex = triggerIndex;
   }
 
   /**
@@ -121,11 +138,14 @@ public abstract class ScheduleManager {
    * @param programId the program id for which to delete the schedules.
    */
   public void modifySchedulesTriggeredByDeletedProgram(ProgramId programId) {
+    AtomicReference<ScheduleTriggerIndex.Changes> changes = new AtomicReference<>();
     TransactionRunners.run(transactionRunner, context -> {
-      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context);
+      changes.set(triggerIndex.newChanges());
+      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context, changes.get());
       List<ProgramSchedule> deletedSchedules = store.modifySchedulesTriggeredByDeletedProgram(programId);
       deletedSchedules.forEach(adminEventPublisher::publishScheduleDeletion);
     }, RuntimeException.class);
+    triggerIndex.apply(changes.get());
   }
 
   /**
@@ -111,10 +111,14 @@ public class ProgramScheduleStoreDataset {
 
   private final StructuredTable scheduleStore;
   private final StructuredTable triggerStore;
+  @Nullable
+  private final ScheduleTriggerIndex.Changes indexChanges;
 
-  ProgramScheduleStoreDataset(StructuredTable scheduleStore, StructuredTable triggerStore) {
+  ProgramScheduleStoreDataset(StructuredTable scheduleStore, StructuredTable triggerStore,
+      @Nullable ScheduleTriggerIndex.Changes indexChanges) {
     this.scheduleStore = scheduleStore;
     this.triggerStore = triggerStore;
+    this.indexChanges = indexChanges;
   }
 
   /**
@@ -162,6 +166,10 @@ public class ProgramScheduleStoreDataset {
           Fields.stringField(StoreDefinition.ProgramScheduleStore.TRIGGER_KEY, triggerKey));
       triggerStore.upsert(triggerFields);
     }
+    if (indexChanges != null && indexChanges.isEnabled()) {
+      indexChanges.recordWrite(
+          new ProgramScheduleRecord(schedule, new ProgramScheduleMeta(status, currentTime)));
+    }
   }
 
   /**
@@ -188,7 +196,7 @@ public class ProgramScheduleStoreDataset {
       throws NotFoundException, IOException {
     long currentTime = System.currentTimeMillis();
     // ensure it exists
-    readExistingScheduleRow(scheduleId);
+    StructuredRow row = readExistingScheduleRow(scheduleId);
     // record current time
     Collection<Field<?>> scheduleFields = getScheduleKeys(scheduleId);
     scheduleFields.add(
@@ -196,6 +204,12 @@ public class ProgramScheduleStoreDataset {
     scheduleFields.add(
         Fields.stringField(StoreDefinition.ProgramScheduleStore.STATUS, newStatus.toString()));
     scheduleStore.upsert(scheduleFields);
+    if (indexChanges != null && indexChanges.isEnabled()) {
+      ProgramSchedule schedule = GSON.fromJson(
+          row.getString(StoreDefinition.ProgramScheduleStore.SCHEDULE), ProgramSchedule.class);
+      indexChanges.recordWrite(
+          new ProgramScheduleRecord(schedule, new ProgramScheduleMeta(newStatus, currentTime)));
+    }
   }
 
   /**
@@ -234,10 +248,16 @@ public class ProgramScheduleStoreDataset {
    */
   private void markScheduleAsDeleted(StructuredRow row, long deleteTime) throws IOException {
     markScheduleAsDeleted(getScheduleKeys(row), deleteTime);
+    if (indexChanges != null && indexChanges.isEnabled()) {
+      indexChanges.recordDelete(rowToScheduleId(row), deleteTime);
+    }
   }
 
   private void markScheduleAsDeleted(ScheduleId scheduleId, long deleteTime) throws IOException {
     markScheduleAsDeleted(getScheduleKeys(scheduleId), deleteTime);
+    if (indexChanges != null && indexChanges.isEnabled()) {
+      indexChanges.recordDelete(scheduleId, deleteTime);
+    }
   }
 
   private void markScheduleAsDeleted(Collection<Field<?>> deleteFields, long deleteTime)
@@ -468,6 +488,15 @@ public class ProgramScheduleStoreDataset {
         schedule -> programId.isSameProgramExceptVersion(schedule.getProgramId()));
   }
 
+  /**
+   * Retrieve all schedule records.
+   *
+   * @return a list of all schedule records; never null
+   */
+  public List<ProgramScheduleRecord> listScheduleRecords() throws IOException {
+    return listScheduleRecords(Range.all(), schedule -> true);
+  }
+
   /**
    * Retrieve all schedule records for a given application.
    *
@@ -571,9 +600,13 @@ public class ProgramScheduleStoreDataset {
       Collection<Field<?>> prefixKeys,
       Predicate<ProgramSchedule> filter)
       throws IOException {
+    return listScheduleRecords(Range.singleton(prefixKeys), filter);
+  }
+
+  private List<ProgramScheduleRecord> listScheduleRecords(Range range,
+      Predicate<ProgramSchedule> filter) throws IOException {
     List<ProgramScheduleRecord> result = new ArrayList<>();
-    try (CloseableIterator<StructuredRow> iterator =
-        scheduleStore.scan(Range.singleton(prefixKeys), Integer.MAX_VALUE)) {
+    try (CloseableIterator<StructuredRow> iterator = scheduleStore.scan(range, Integer.MAX_VALUE)) {
       while (iterator.hasNext()) {
         StructuredRow row = iterator.next();
         String serializedSchedule = row.getString(StoreDefinition.ProgramScheduleStore.SCHEDULE);
@@ -681,7 +714,7 @@ public class ProgramScheduleStoreDataset {
    * For now, we do not support composite trigger, but in the future this is where the triggers need
    * to be extracted from composite triggers. Hence the return type of this method is a list.
    */
-  private static Set<String> extractTriggerKeys(ProgramSchedule schedule) {
+  static Set<String> extractTriggerKeys(ProgramSchedule schedule) {
     return ((SatisfiableTrigger) schedule.getTrigger()).getTriggerKeys();
   }
 
@@ -0,0 +1,320 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.runtime.schedule.store;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.cdap.cdap.api.metrics.MetricsCollectionService;
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.metrics.NoOpMetricsCollectionService;
+import io.cdap.cdap.internal.app.runtime.schedule.ProgramScheduleRecord;
+import io.cdap.cdap.proto.id.NamespaceId;
+import io.cdap.cdap.proto.id.ScheduleId;
+import io.cdap.cdap.spi.data.transaction.TransactionRunner;
+import io.cdap.cdap.spi.data.transaction.TransactionRunners;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-process inverted index from trigger key to the {@link ProgramScheduleRecord} of the
+ * schedules triggered by it. The index is loaded from the {@link ProgramScheduleStoreDataset} on
+ * first access, and is then maintained by applying the {@link Changes} collected by schedule store
+ * writers after their transactions are committed. Changes older than the indexed (or recently
+ * deleted) schedule are ignored, so that late applied changes cannot bring back stale schedules.
+ *
+ * <p>The index is only correct if all schedule writers run in the same process, hence it is
+ * disabled by default. A full reload happens periodically to bound the staleness caused by writes
+ * that bypass the index.</p>
+ */
+@Singleton
+public class ScheduleTriggerIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ScheduleTriggerIndex.class);
+  private static final int MAX_DELETED_SCHEDULES = 10000;
+
+  private final boolean enabled;
+  private final long refreshIntervalMillis;
+  private final TransactionRunner transactionRunner;
+  private final MetricsContext metricsContext;
+  private volatile ConcurrentMap<String, Map<ScheduleId, ProgramScheduleRecord>> triggerIndex;
+  private volatile ConcurrentMap<ScheduleId, ProgramScheduleRecord> schedules;
+  // Delete time of recently deleted schedules, to avoid stale updates from bringing back a schedule
+  private final Cache<ScheduleId, Long> deletedSchedules;
+  private volatile long loadTime;
+  private volatile boolean loaded;
+
+  @Inject
+  ScheduleTriggerIndex(CConfiguration cConf, TransactionRunner transactionRunner,
+      MetricsCollectionService metricsCollectionService) {
+    this(cConf.getBoolean(Constants.Scheduler.TRIGGER_INDEX_ENABLED),
+        TimeUnit.SECONDS.toMillis(
+            cConf.getLong(Constants.Scheduler.TRIGGER_INDEX_REFRESH_INTERVAL_SECONDS)),
+        transactionRunner, metricsCollectionService);
+  }
+
+  @VisibleForTesting
+  ScheduleTriggerIndex(boolean enabled, long refreshIntervalMillis,
+      @Nullable TransactionRunner transactionRunner,
+      MetricsCollectionService metricsCollectionService) {
+    this.enabled = enabled && transactionRunner != null;
+    this.refreshIntervalMillis = refreshIntervalMillis;
+    this.transactionRunner = transactionRunner;
+    this.metricsContext = metricsCollectionService.getContext(ImmutableMap.of(
+        Constants.Metrics.Tag.NAMESPACE, NamespaceId.SYSTEM.getNamespace(),
+        Constants.Metrics.Tag.COMPONENT, "scheduler"));
+    this.triggerIndex = new ConcurrentHashMap<>();
+    this.schedules = new ConcurrentHashMap<>();
+    this.deletedSchedules = CacheBuilder.newBuilder().maximumSize(MAX_DELETED_SCHEDULES).build();
+  }
+
+  /**
+   * Creates a disabled {@link ScheduleTriggerIndex}.
+   */
+  public static ScheduleTriggerIndex disabled() {
+    return new ScheduleTriggerIndex(false, 0L, null, new NoOpMetricsCollectionService());
+  }
+
+  /**
+   * Returns {@code true} if the index is enabled. When disabled, callers should query the
+   * {@link ProgramScheduleStoreDataset} directly.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Loads the index from the store if it is enabled and not yet loaded.
+   */
+  public void load() {
+    if (enabled) {
+      getTriggerIndex();
+    }
+  }
+
+  /**
+   * Finds all schedules that have a trigger with the given trigger key. This is the in-memory
+   * equivalent of {@link ProgramScheduleStoreDataset#findSchedules(String)}.
+   *
+   * @param triggerKey the trigger key to look up
+   * @return a collection of all schedules that are triggered by this key; never null
+   */
+  public Collection<ProgramScheduleRecord> findSchedules(String triggerKey) {
+    Map<ScheduleId, ProgramScheduleRecord> records = getTriggerIndex().get(triggerKey);
+    emitMetrics();
+    return records == null ? Collections.emptyList() : new ArrayList<>(records.values());
+  }
+
+  /**
+   * Applies changes collected from a committed transaction to the index.
+   */
+  public void apply(Changes changes) {
+    if (!enabled || changes.isEmpty()) {
+      return;
+    }
+    synchronized (this) {
+      if (!loaded) {
+        // Nothing to update. Latest schedules will be loaded on next access.
+        return;
+      }
+      for (Map.Entry<ScheduleId, Change> entry : changes.changes.entrySet()) {
+        Change change = entry.getValue();
+        if (change.record == null) {
+          remove(entry.getKey(), change.updateTime);
+        } else {
+          update(change.record);
+        }
+      }
+    }
+    emitMetrics();
+  }
+
+  /**
+   * Invalidates the index such that it will be reloaded on next access.
+   */
+  public synchronized void invalidate() {
+    loaded = false;
+  }
+
+  /**
+   * Creates a new {@link Changes} for collecting schedule changes in a transaction.
+   */
+  public Changes newChanges() {
+    return new Changes(enabled);
+  }
+
+  private void update(ProgramScheduleRecord record) {
+    ScheduleId scheduleId = record.getSchedule().getScheduleId();
+    long updateTime = record.getMeta().getLastUpdated();
+    Long deleteTime = deletedSchedules.getIfPresent(scheduleId);
+    if (deleteTime != null && updateTime < deleteTime) {
+      return;
+    }
+    ProgramScheduleRecord existing = schedules.get(scheduleId);
+    if (existing != null && updateTime < existing.getMeta().getLastUpdated()) {
+      LOG.trace("Ignoring stale schedule update {} for indexed {}", record, existing);
+      return;
+    }
+    deletedSchedules.invalidate(scheduleId);
+    schedules.put(scheduleId, record);
+    // Index the new trigger keys before removing the old ones, so that concurrent lookups always
+    // find the schedule under the keys it has both before and after the update.
+    Set<String> triggerKeys = ProgramScheduleStoreDataset.extractTriggerKeys(record.getSchedule());
+    for (String triggerKey : triggerKeys) {
+      triggerIndex.computeIfAbsent(triggerKey, k -> new ConcurrentHashMap<>())
+          .put(scheduleId, record);
+    }
+    if (existing != null) {
+      removeTriggerKeys(scheduleId,
+          Sets.difference(ProgramScheduleStoreDataset.extractTriggerKeys(existing.getSchedule()),
+              triggerKeys));
+    }
+  }
+
+  private void remove(ScheduleId scheduleId, long deleteTime) {
+    ProgramScheduleRecord existing = schedules.get(scheduleId);
+    if (existing != null && deleteTime < existing.getMeta().getLastUpdated()) {
+      return;
+    }
+    deletedSchedules.put(scheduleId, deleteTime);
+    if (existing != null) {
+      schedules.remove(scheduleId);
+      removeTriggerKeys(scheduleId,
+          ProgramScheduleStoreDataset.extractTriggerKeys(existing.getSchedule()));
+    }
+  }
+
+  private void removeTriggerKeys(ScheduleId scheduleId, Set<String> triggerKeys) {
+    for (String triggerKey : triggerKeys) {
+      triggerIndex.computeIfPresent(triggerKey, (k, records) -> {
+        records.remove(scheduleId);
+        return records.isEmpty() ? null : records;
+      });
+    }
+  }
+
+  /**
+   * Returns the trigger index, loading it from the store if it is not loaded or is due for
+   * refresh. Loading happens while holding the lock, so that changes committed concurrently are
+   * applied on top of the loaded schedules.
+   */
+  private Map<String, Map<ScheduleId, ProgramScheduleRecord>> getTriggerIndex() {
+    if (!enabled) {
+      throw new IllegalStateException("Schedule trigger index is not enabled");
+    }
+    if (isFresh()) {
+      return triggerIndex;
+    }
+    synchronized (this) {
+      if (isFresh()) {
+        return triggerIndex;
+      }
+      long startTime = System.currentTimeMillis();
+      List<ProgramScheduleRecord> records = TransactionRunners.run(transactionRunner,
+          context -> {
+            return Schedulers.getScheduleStore(context).listScheduleRecords();
+          });
+      triggerIndex = new ConcurrentHashMap<>();
+      schedules = new ConcurrentHashMap<>();
+      deletedSchedules.invalidateAll();
+      for (ProgramScheduleRecord record : records) {
+        update(record);
+      }
+      loadTime = System.currentTimeMillis();
+      loaded = true;
+      LOG.debug("Loaded {} schedules with {} trigger keys in {} ms", schedules.size(),
+          triggerIndex.size(), loadTime - startTime);
+      return triggerIndex;
+    }
+  }
+
+  private boolean isFresh() {
+    return loaded && System.currentTimeMillis() - loadTime < refreshIntervalMillis;
+  }
+
+  private void emitMetrics() {
+    metricsContext.gauge(Constants.Metrics.ScheduledJob.TRIGGER_INDEX_SIZE, schedules.size());
+    metricsContext.gauge(Constants.Metrics.ScheduledJob.TRIGGER_INDEX_STALENESS_MS,
+        loaded ? System.currentTimeMillis() - loadTime : 0L);
+  }
+
+  /**
+   * Collects schedule changes made through a {@link ProgramScheduleStoreDataset} within a
+   * transaction. The changes should be applied to the index via {@link #apply(Changes)} only after
+   * the transaction is committed.
+   */
+  public static final class Changes {
+
+    private final boolean enabled;
+    private final Map<ScheduleId, Change> changes = new LinkedHashMap<>();
+
+    private Changes(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    /**
+     * Returns {@code true} if changes need to be recorded.
+     */
+    boolean isEnabled() {
+      return enabled;
+    }
+
+    synchronized void recordWrite(ProgramScheduleRecord record) {
+      changes.put(record.getSchedule().getScheduleId(),
+          new Change(record, record.getMeta().getLastUpdated()));
+    }
+
+    synchronized void recordDelete(ScheduleId scheduleId, long deleteTime) {
+      changes.put(scheduleId, new Change(null, deleteTime));
+    }
+
+    synchronized boolean isEmpty() {
+      return changes.isEmpty();
+    }
+  }
+
+  /**
+   * A single schedule change. A {@code null} record represents a deletion.
+   */
+  private static final class Change {
+
+    private final ProgramScheduleRecord record;
+    private final long updateTime;
+
+    private Change(@Nullable ProgramScheduleRecord record, long updateTime) {
+      this.record = record;
+      this.updateTime = updateTime;
+    }
+  }
+}
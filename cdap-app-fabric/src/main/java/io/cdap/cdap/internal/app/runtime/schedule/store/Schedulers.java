@@ -37,6 +37,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 import org.quartz.CronExpression;
 
 /**
@@ -78,10 +79,21 @@ public class Schedulers {
   }
 
   public static ProgramScheduleStoreDataset getScheduleStore(StructuredTableContext context) {
+    return getScheduleStore(context, null);
+  }
+
+  /**
+   * Returns a {@link ProgramScheduleStoreDataset} that records schedule changes into the given
+   * {@link ScheduleTriggerIndex.Changes}, to be applied to the {@link ScheduleTriggerIndex} after
+   * the transaction is committed.
+   */
+  public static ProgramScheduleStoreDataset getScheduleStore(StructuredTableContext context,
+      @Nullable ScheduleTriggerIndex.Changes indexChanges) {
     try {
       return new ProgramScheduleStoreDataset(
           context.getTable(StoreDefinition.ProgramScheduleStore.PROGRAM_SCHEDULE_TABLE),
-          context.getTable(StoreDefinition.ProgramScheduleStore.PROGRAM_TRIGGER_TABLE)
+          context.getTable(StoreDefinition.ProgramScheduleStore.PROGRAM_TRIGGER_TABLE),
+          indexChanges
       );
     } catch (TableNotFoundException e) {
       throw Throwables.propagate(e);
@@ -23,13 +23,16 @@ import io.cdap.cdap.app.program.ProgramDescriptor;
 import io.cdap.cdap.app.runtime.ProgramOptions;
 import io.cdap.cdap.common.app.RunIds;
 import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.internal.app.store.ActiveRunCache;
 import io.cdap.cdap.internal.app.store.AppMetadataStore;
 import io.cdap.cdap.proto.ProgramRunStatus;
 import io.cdap.cdap.proto.id.ProgramRunId;
 import io.cdap.cdap.spi.data.transaction.TransactionRunner;
 import io.cdap.cdap.spi.data.transaction.TransactionRunners;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,18 +46,23 @@ public class FlowControlService extends AbstractIdleService {
 
   private final MetricsCollectionService metricsCollectionService;
   private final TransactionRunner transactionRunner;
+  private final ActiveRunCache activeRunCache;
 
   /**
    * Monitors the program flow control.
    *
    * @param metricsCollectionService collect metrics
+   * @param transactionRunner runner for executing transactions against the store
+   * @param activeRunCache cache of active run records for serving the counters
    */
   @Inject
   public FlowControlService(
       MetricsCollectionService metricsCollectionService,
-      TransactionRunner transactionRunner) {
+      TransactionRunner transactionRunner,
+      ActiveRunCache activeRunCache) {
     this.metricsCollectionService = metricsCollectionService;
     this.transactionRunner = transactionRunner;
+    this.activeRunCache = activeRunCache;
   }
 
   @Override
@@ -79,16 +87,25 @@ public class FlowControlService extends AbstractIdleService {
       throw new Exception("None time-based UUIDs are not supported");
     }
 
-    Counter counter = TransactionRunners.run(transactionRunner, context -> {
-      AppMetadataStore store = AppMetadataStore.create(context);
-      store.recordProgramPending(programRunId,
-          programOptions.getArguments().asMap(),
-          programOptions.getUserArguments().asMap(),
-          programDescriptor.getArtifactId().toApiArtifactId());
-      int launchingCount = store.getFlowControlLaunchingCount();
-      int runningCount = store.getFlowControlRunningCount();
-      return new Counter(launchingCount, runningCount);
-    });
+    Counter counter;
+    if (activeRunCache.isEnabled()) {
+      AtomicReference<ActiveRunCache.Changes> changes = new AtomicReference<>();
+      TransactionRunners.run(transactionRunner, context -> {
+        changes.set(activeRunCache.newChanges());
+        recordPending(AppMetadataStore.create(context, changes.get()), programRunId,
+            programOptions, programDescriptor);
+      });
+      activeRunCache.apply(changes.get());
+      counter = getCounter();
+    } else {
+      counter = TransactionRunners.run(transactionRunner, context -> {
+        AppMetadataStore store = AppMetadataStore.create(context);
+        recordPending(store, programRunId, programOptions, programDescriptor);
+        int launchingCount = store.getFlowControlLaunchingCount();
+        int runningCount = store.getFlowControlRunningCount();
+        return new Counter(launchingCount, runningCount);
+      });
+    }
     LOG.info("Added request with runId {}.", programRunId);
     emitMetrics(Constants.Metrics.FlowControl.LAUNCHING_COUNT, counter.getLaunchingCount());
 
@@ -105,12 +122,24 @@ public class FlowControlService extends AbstractIdleService {
    * @return Counter with total number of launching and running program runs.
    */
   public Counter getCounter() {
+    if (activeRunCache.isEnabled()) {
+      return new Counter(activeRunCache.getFlowControlLaunchingCount(),
+          activeRunCache.getFlowControlRunningCount());
+    }
     return TransactionRunners.run(transactionRunner, context -> {
       AppMetadataStore store = AppMetadataStore.create(context);
       return new Counter(store.getFlowControlLaunchingCount(), store.getFlowControlRunningCount());
     });
   }
 
+  private void recordPending(AppMetadataStore store, ProgramRunId programRunId,
+      ProgramOptions programOptions, ProgramDescriptor programDescriptor) throws IOException {
+    store.recordProgramPending(programRunId,
+        programOptions.getArguments().asMap(),
+        programOptions.getUserArguments().asMap(),
+        programDescriptor.getArtifactId().toApiArtifactId());
+  }
+
   public void emitFlowControlMetrics() {
     Counter counter = getCounter();
     emitMetrics(Constants.Metrics.FlowControl.LAUNCHING_COUNT, counter.getLaunchingCount());
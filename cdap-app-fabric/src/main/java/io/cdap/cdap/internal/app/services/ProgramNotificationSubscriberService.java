@@ -24,6 +24,7 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.reflect.TypeToken;
 import com.google.inject.Inject;
+import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.metrics.MetricsCollectionService;
 import io.cdap.cdap.api.metrics.MetricsContext;
 import io.cdap.cdap.api.schedule.SchedulableProgramType;
@@ -51,6 +52,7 @@ import io.cdap.cdap.internal.app.runtime.ProgramOptionConstants;
 import io.cdap.cdap.internal.app.runtime.ProgramRunners;
 import io.cdap.cdap.internal.app.runtime.SimpleProgramOptions;
 import io.cdap.cdap.internal.app.runtime.SystemArguments;
+import io.cdap.cdap.internal.app.store.ActiveRunCache;
 import io.cdap.cdap.internal.app.store.AppMetadataStore;
 import io.cdap.cdap.internal.app.store.RunRecordDetail;
 import io.cdap.cdap.internal.app.store.RunRecordDetailWithExistingStatus;
@@ -89,6 +91,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.IntStream;
 import javax.annotation.Nullable;
@@ -116,6 +119,7 @@ public class ProgramNotificationSubscriberService extends AbstractIdleService {
   private final TransactionRunner transactionRunner;
   private final Store store;
   private final FlowControlService flowControlService;
+  private final ActiveRunCache activeRunCache;
   private Service delegate;
   private Set<ProgramCompletionNotifier> programCompletionNotifiers;
 
@@ -131,7 +135,8 @@ public class ProgramNotificationSubscriberService extends AbstractIdleService {
       ProgramStateWriter programStateWriter,
       TransactionRunner transactionRunner,
       Store store,
-      FlowControlService flowControlService) {
+      FlowControlService flowControlService,
+      ActiveRunCache activeRunCache) {
 
     this.messagingService = messagingService;
     this.cConf = cConf;
@@ -144,6 +149,7 @@ public class ProgramNotificationSubscriberService extends AbstractIdleService {
     this.transactionRunner = transactionRunner;
     this.store = store;
     this.flowControlService = flowControlService;
+    this.activeRunCache = activeRunCache;
     this.programCompletionNotifiers = Collections.emptySet();
   }
 
@@ -239,6 +245,7 @@ public class ProgramNotificationSubscriberService extends AbstractIdleService {
         programStateWriter,
         transactionRunner,
         flowControlService,
+        activeRunCache,
         name,
         topicName,
         programCompletionNotifiers);
@@ -281,7 +288,9 @@ class ProgramNotificationSingleTopicSubscriberService
   private final MetricsCollectionService metricsCollectionService;
   private Set<ProgramCompletionNotifier> programCompletionNotifiers;
   private final FlowControlService flowControlService;
+  private final ActiveRunCache activeRunCache;
   private final boolean checkTxSeparation;
+  private final int processingLanes;
 
   ProgramNotificationSingleTopicSubscriberService(
       MessagingService messagingService,
@@ -294,6 +303,7 @@ class ProgramNotificationSingleTopicSubscriberService
       ProgramStateWriter programStateWriter,
       TransactionRunner transactionRunner,
       FlowControlService flowControlService,
+      ActiveRunCache activeRunCache,
       String name,
       String topicName,
       Set<ProgramCompletionNotifier> programCompletionNotifiers) {
@@ -314,10 +324,11 @@ class ProgramNotificationSingleTopicSubscriberService
     this.runtimeService = runtimeService;
     this.provisioningService = provisioningService;
     this.programStateWriter = programStateWriter;
-    this.tasks = new LinkedList<>();
+    this.tasks = new ConcurrentLinkedQueue<>();
     this.metricsCollectionService = metricsCollectionService;
     this.programCompletionNotifiers = programCompletionNotifiers;
     this.flowControlService = flowControlService;
+    this.activeRunCache = activeRunCache;
 
     // If number of partitions equals 1, DB deadlock cannot happen as a result of concurrent
     // modifications to
@@ -325,6 +336,7 @@ class ProgramNotificationSingleTopicSubscriberService
     this.checkTxSeparation =
         cConf.getInt(Constants.AppFabric.PROGRAM_STATUS_EVENT_NUM_PARTITIONS) > 1
             && cConf.getBoolean(Constants.AppFabric.PROGRAM_STATUS_EVENT_TX_SEPARATION);
+    this.processingLanes = cConf.getInt(Constants.AppFabric.STATUS_EVENT_PROCESSING_LANES);
   }
 
   @Override
@@ -364,12 +376,25 @@ class ProgramNotificationSingleTopicSubscriberService
     return false;
   }
 
+  @Override
+  protected int getProcessingLanes() {
+    return processingLanes;
+  }
+
+  @Nullable
+  @Override
+  protected Object getPartitionKey(ImmutablePair<String, Notification> message) {
+    // Notifications of the same program run must be processed in order
+    return message.getSecond().getProperties().get(ProgramOptionConstants.PROGRAM_RUN_ID);
+  }
+
   @Override
   protected void processMessages(
       StructuredTableContext structuredTableContext,
       Iterator<ImmutablePair<String, Notification>> messages)
       throws Exception {
     ProgramHeartbeatTable heartbeatDataset = new ProgramHeartbeatTable(structuredTableContext);
+    ActiveRunCache.Changes activeRunChanges = activeRunCache.newChanges();
     List<Runnable> tasks = new LinkedList<>();
     while (messages.hasNext()) {
       ImmutablePair<String, Notification> messagePair = messages.next();
@@ -378,9 +403,12 @@ class ProgramNotificationSingleTopicSubscriberService
               heartbeatDataset,
               messagePair.getFirst().getBytes(StandardCharsets.UTF_8),
               messagePair.getSecond(),
-              structuredTableContext);
+              structuredTableContext,
+              activeRunChanges);
       tasks.addAll(runnables);
     }
+    // Update the active run cache before running other tasks, as they may depend on it
+    tasks.add(0, () -> activeRunCache.apply(activeRunChanges));
 
     // Only add post processing tasks if all messages are processed. If there is exception in the
     // processNotifiation,
@@ -405,6 +433,7 @@ class ProgramNotificationSingleTopicSubscriberService
    * @param messageIdBytes the raw message id in the TMS for the notification
    * @param notification the {@link Notification} to process
    * @param context context to get the table for operations
+   * @param activeRunChanges the {@link ActiveRunCache.Changes} for collecting run record changes
    * @return a {@link List} of {@link Runnable} tasks to run after the transactional processing of
    *     the whole messages batch is completed
    * @throws Exception if failed to process the given notification
@@ -413,9 +442,10 @@ class ProgramNotificationSingleTopicSubscriberService
       ProgramHeartbeatTable programHeartbeatTable,
       byte[] messageIdBytes,
       Notification notification,
-      StructuredTableContext context)
+      StructuredTableContext context,
+      ActiveRunCache.Changes activeRunChanges)
       throws Exception {
-    AppMetadataStore appMetadataStore = AppMetadataStore.create(context);
+    AppMetadataStore appMetadataStore = AppMetadataStore.create(context, activeRunChanges);
     Map<String, String> properties = notification.getProperties();
     // Required parameters
     String programRun = properties.get(ProgramOptionConstants.PROGRAM_RUN_ID);
@@ -516,6 +546,15 @@ class ProgramNotificationSingleTopicSubscriberService
                 runRecordDetail.getStatus());
             return;
           }
+          if (runRecordDetail != null && runRecordDetail.getSourceId() != null
+              && Bytes.compareTo(messageIdBytes, runRecordDetail.getSourceId()) <= 0) {
+            // The run record is already updated by this or a later message. This happens when
+            // messages processed by lanes are replayed after a restart. Don't launch the program
+            // again.
+            LOG.debug("Ignoring replayed program STARTING notification for program run {}.",
+                programRunId);
+            return;
+          }
         } catch (IllegalStateException ex) {
           LOG.error(
               "Request to transition program run {} from non-existent state to program STARTING"
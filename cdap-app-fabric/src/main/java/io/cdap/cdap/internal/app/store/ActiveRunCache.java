@@ -0,0 +1,292 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.store;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.proto.id.NamespaceId;
+import io.cdap.cdap.proto.id.ProgramRunId;
+import io.cdap.cdap.spi.data.transaction.TransactionRunner;
+import io.cdap.cdap.spi.data.transaction.TransactionRunners;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-process, write-through cache of active run records. The cache is loaded from the
+ * {@link AppMetadataStore} on first access and is then maintained by applying the
+ * {@link Changes} collected by {@link AppMetadataStore} writers after their transactions are
+ * committed. Updates carrying a source id older than the cached one are ignored, so that late
+ * applied changes cannot override newer run record states.
+ *
+ * <p>The cache is only correct if all run record writers run in the same process, hence it is
+ * disabled by default. A full reload happens periodically to bound the staleness caused by writes
+ * that bypass the cache.</p>
+ */
+@Singleton
+public class ActiveRunCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ActiveRunCache.class);
+  private static final int MAX_TERMINATED_RUNS = 10000;
+
+  private final boolean enabled;
+  private final long refreshIntervalMillis;
+  private final TransactionRunner transactionRunner;
+  private volatile ConcurrentMap<ProgramRunId, RunRecordDetail> activeRuns;
+  // Source id of recently terminated runs, to avoid stale updates from bringing back the run
+  private final Cache<ProgramRunId, Optional<byte[]>> terminatedRuns;
+  private volatile long loadTime;
+  private volatile boolean loaded;
+
+  @Inject
+  ActiveRunCache(CConfiguration cConf, TransactionRunner transactionRunner) {
+    this(cConf.getBoolean(Constants.AppFabric.ACTIVE_RUN_CACHE_ENABLED),
+        TimeUnit.SECONDS.toMillis(
+            cConf.getLong(Constants.AppFabric.ACTIVE_RUN_CACHE_REFRESH_INTERVAL_SECONDS)),
+        transactionRunner);
+  }
+
+  @VisibleForTesting
+  ActiveRunCache(boolean enabled, long refreshIntervalMillis,
+      @Nullable TransactionRunner transactionRunner) {
+    this.enabled = enabled && transactionRunner != null;
+    this.refreshIntervalMillis = refreshIntervalMillis;
+    this.transactionRunner = transactionRunner;
+    this.activeRuns = new ConcurrentHashMap<>();
+    this.terminatedRuns = CacheBuilder.newBuilder().maximumSize(MAX_TERMINATED_RUNS).build();
+  }
+
+  /**
+   * Creates a disabled {@link ActiveRunCache}.
+   */
+  public static ActiveRunCache disabled() {
+    return new ActiveRunCache(false, 0L, null);
+  }
+
+  /**
+   * Returns {@code true} if the cache is enabled. When disabled, callers should query the
+   * {@link AppMetadataStore} directly.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns all active runs that match the given filter.
+   */
+  public Map<ProgramRunId, RunRecordDetail> getActiveRuns(Predicate<RunRecordDetail> filter) {
+    Map<ProgramRunId, RunRecordDetail> result = new LinkedHashMap<>();
+    for (RunRecordDetail record : getActiveRuns().values()) {
+      if (filter.test(record)) {
+        result.put(record.getProgramRunId(), record);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Counts active runs in all non-system namespaces.
+   *
+   * @param limit count at most that many runs, stop if there are more
+   */
+  public int countActiveRuns(@Nullable Integer limit) {
+    int max = limit == null ? Integer.MAX_VALUE : limit;
+    int count = 0;
+    for (ProgramRunId programRunId : getActiveRuns().keySet()) {
+      if (count >= max) {
+        break;
+      }
+      if (!NamespaceId.SYSTEM.getNamespace().equals(programRunId.getNamespace())) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns the number of active runs in flow-control launching state.
+   */
+  public int getFlowControlLaunchingCount() {
+    return countFlowControlStatus(AppMetadataStore.TYPE_FLOW_CONTROL_LAUNCHING);
+  }
+
+  /**
+   * Returns the number of active runs in flow-control running state.
+   */
+  public int getFlowControlRunningCount() {
+    return countFlowControlStatus(AppMetadataStore.TYPE_FLOW_CONTROL_RUNNING);
+  }
+
+  /**
+   * Applies changes collected from a committed transaction to the cache.
+   */
+  public void apply(Changes changes) {
+    if (!enabled || changes.isEmpty()) {
+      return;
+    }
+    synchronized (this) {
+      if (!loaded) {
+        // Nothing to update. Latest states will be loaded on next access.
+        return;
+      }
+      if (changes.invalidated) {
+        invalidate();
+        return;
+      }
+      for (Map.Entry<ProgramRunId, Optional<RunRecordDetail>> entry : changes.runs.entrySet()) {
+        RunRecordDetail record = entry.getValue().orElse(null);
+        if (record == null) {
+          activeRuns.remove(entry.getKey());
+        } else {
+          update(record);
+        }
+      }
+    }
+  }
+
+  /**
+   * Invalidates the cache such that it will be reloaded on next access.
+   */
+  public synchronized void invalidate() {
+    loaded = false;
+  }
+
+  /**
+   * Creates a new {@link Changes} for collecting run record changes in a transaction.
+   */
+  public Changes newChanges() {
+    return new Changes();
+  }
+
+  private void update(RunRecordDetail record) {
+    ProgramRunId programRunId = record.getProgramRunId();
+    Optional<byte[]> terminatedSourceId = terminatedRuns.getIfPresent(programRunId);
+    if (terminatedSourceId != null && isOlder(record.getSourceId(), terminatedSourceId.orElse(null))) {
+      return;
+    }
+    RunRecordDetail existing = activeRuns.get(programRunId);
+    if (existing != null && isOlder(record.getSourceId(), existing.getSourceId())) {
+      LOG.trace("Ignoring stale run record update {} for cached {}", record, existing);
+      return;
+    }
+    if (record.getStatus().isEndState()) {
+      activeRuns.remove(programRunId);
+      terminatedRuns.put(programRunId, Optional.ofNullable(record.getSourceId()));
+    } else {
+      activeRuns.put(programRunId, record);
+    }
+  }
+
+  private int countFlowControlStatus(String flowControlStatus) {
+    int count = 0;
+    for (RunRecordDetail record : getActiveRuns().values()) {
+      if (flowControlStatus.equals(record.getFlowControlStatus())) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns the cached active runs, loading them from the store if the cache is not loaded or is
+   * due for refresh. Loading happens while holding the lock, so that changes committed
+   * concurrently are applied on top of the loaded states.
+   */
+  private Map<ProgramRunId, RunRecordDetail> getActiveRuns() {
+    if (!enabled) {
+      throw new IllegalStateException("Active run cache is not enabled");
+    }
+    if (isFresh()) {
+      return activeRuns;
+    }
+    synchronized (this) {
+      if (isFresh()) {
+        return activeRuns;
+      }
+      long startTime = System.currentTimeMillis();
+      Map<ProgramRunId, RunRecordDetail> runs = TransactionRunners.run(transactionRunner,
+          context -> {
+            return AppMetadataStore.create(context).getActiveRuns(record -> true);
+          });
+      activeRuns = new ConcurrentHashMap<>(runs);
+      terminatedRuns.invalidateAll();
+      loadTime = System.currentTimeMillis();
+      loaded = true;
+      LOG.debug("Loaded {} active runs in {} ms", activeRuns.size(), loadTime - startTime);
+      return activeRuns;
+    }
+  }
+
+  private boolean isFresh() {
+    return loaded && System.currentTimeMillis() - loadTime < refreshIntervalMillis;
+  }
+
+  /**
+   * Returns {@code true} if the source id is older than the other one. A {@code null} source id
+   * is older than any non-null source id.
+   */
+  private static boolean isOlder(@Nullable byte[] sourceId, @Nullable byte[] otherSourceId) {
+    if (otherSourceId == null) {
+      return false;
+    }
+    return sourceId == null || Bytes.compareTo(sourceId, otherSourceId) < 0;
+  }
+
+  /**
+   * Collects run record changes made through an {@link AppMetadataStore} within a transaction.
+   * The changes should be applied to the cache via {@link #apply(Changes)} only after the
+   * transaction is committed.
+   */
+  public static final class Changes {
+
+    private final Map<ProgramRunId, Optional<RunRecordDetail>> runs = new HashMap<>();
+    private boolean invalidated;
+
+    private Changes() {
+    }
+
+    synchronized void recordWrite(RunRecordDetail record) {
+      runs.put(record.getProgramRunId(), Optional.of(record));
+    }
+
+    synchronized void recordDelete(RunRecordDetail record) {
+      runs.put(record.getProgramRunId(), Optional.empty());
+    }
+
+    synchronized void invalidateAll() {
+      invalidated = true;
+    }
+
+    synchronized boolean isEmpty() {
+      return runs.isEmpty() && !invalidated;
+    }
+  }
+}
@@ -25,8 +25,6 @@ import com.google.common.collect.Sets;
 import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.stream.JsonReader;
-import com.google.gson.stream.JsonToken;
 import io.cdap.cdap.api.app.ApplicationSpecification;
 import io.cdap.cdap.api.artifact.ArtifactId;
 import io.cdap.cdap.api.common.Bytes;
@@ -70,7 +68,6 @@ import io.cdap.cdap.spi.data.table.field.Fields;
 import io.cdap.cdap.spi.data.table.field.Range;
 import io.cdap.cdap.store.StoreDefinition;
 import java.io.IOException;
-import java.io.StringReader;
 import java.lang.reflect.Type;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -151,8 +148,8 @@ public class AppMetadataStore {
       .put(ProgramRunStatus.REJECTED, TYPE_RUN_RECORD_COMPLETED)
       .build();
 
-  private static final String TYPE_FLOW_CONTROL_LAUNCHING = "launching";
-  private static final String TYPE_FLOW_CONTROL_RUNNING = "running";
+  static final String TYPE_FLOW_CONTROL_LAUNCHING = "launching";
+  static final String TYPE_FLOW_CONTROL_RUNNING = "running";
   private static final String TYPE_FLOW_CONTROL_NONE = "";
 
   // Program types controlled by flow-control mechanism.
@@ -162,6 +159,9 @@ public class AppMetadataStore {
       ProgramType.WORKER);
 
   private final StructuredTableContext context;
+  @Nullable
+  private final ActiveRunCache.Changes activeRunChanges;
+  private final boolean compactAppSpec;
   private StructuredTable applicationSpecificationTable;
   private StructuredTable applicationEditTable;
   private StructuredTable workflowNodeStateTable;
@@ -174,11 +174,32 @@ public class AppMetadataStore {
    * Static method for creating an instance of {@link AppMetadataStore}.
    */
   public static AppMetadataStore create(StructuredTableContext context) {
-    return new AppMetadataStore(context);
+    return new AppMetadataStore(context, null, false);
+  }
+
+  /**
+   * Static method for creating an instance of {@link AppMetadataStore} that writes application
+   * specifications in the compact format of {@link ApplicationMetaCodec} if
+   * {@code compactAppSpec} is {@code true}, and in JSON otherwise.
+   */
+  public static AppMetadataStore create(StructuredTableContext context, boolean compactAppSpec) {
+    return new AppMetadataStore(context, null, compactAppSpec);
+  }
+
+  /**
+   * Static method for creating an instance of {@link AppMetadataStore} that records run record
+   * changes to the given {@link ActiveRunCache.Changes}.
+   */
+  public static AppMetadataStore create(StructuredTableContext context,
+      ActiveRunCache.Changes activeRunChanges) {
+    return new AppMetadataStore(context, activeRunChanges, false);
   }
 
-  private AppMetadataStore(StructuredTableContext context) {
+  private AppMetadataStore(StructuredTableContext context,
+      @Nullable ActiveRunCache.Changes activeRunChanges, boolean compactAppSpec) {
     this.context = context;
+    this.activeRunChanges = activeRunChanges;
+    this.compactAppSpec = compactAppSpec;
   }
 
   private StructuredTable getApplicationSpecificationTable() {
@@ -562,21 +583,7 @@ public class AppMetadataStore {
           // Otherwise skip current application
           continue;
         }
-        Set<ProgramId> currentProgramsSet = new HashSet<>();
-        try (JsonReader reader = new JsonReader(new StringReader(appMeta))) {
-          reader.beginObject();
-          while (reader.peek() != JsonToken.END_OBJECT) {
-            String name = reader.nextName();
-            if (name.equals("spec")) {
-              currentProgramsSet.addAll(
-                  ApplicationSpecificationAdapter.getProgramIds(appId, reader));
-            } else {
-              reader.skipValue();
-            }
-          }
-          reader.endObject();
-        }
-        latestProgramIdsMap.put(appRef, currentProgramsSet);
+        latestProgramIdsMap.put(appRef, ApplicationMetaCodec.getProgramIds(appId, appMeta));
         latestAppVersions.put(appRef, appId.getVersion());
       }
     }
@@ -727,9 +734,7 @@ public class AppMetadataStore {
       ApplicationSpecification spec, @Nullable ChangeDetail change,
       @Nullable SourceControlMeta sourceControlMeta, boolean markAsLatest) throws IOException {
     writeApplicationSerialized(namespaceId, appId, versionId,
-        GSON.toJson(
-            new ApplicationMeta(appId, spec, null, null)),
-        change, sourceControlMeta, markAsLatest);
+        encodeApplication(appId, spec), change, sourceControlMeta, markAsLatest);
     updateApplicationEdit(namespaceId, appId);
   }
 
@@ -804,10 +809,20 @@ public class AppMetadataStore {
     if (LOG.isTraceEnabled()) {
       LOG.trace("Application {} exists in mds with specification {}", appId, GSON.toJson(existing));
     }
-    // creation time cannot be null  - will be written to app-spec but won't be added to table
-    ApplicationMeta updated = new ApplicationMeta(existing.getId(), spec, null);
     updateApplicationSerialized(appId.getNamespace(), appId.getApplication(), appId.getVersion(),
-        GSON.toJson(updated));
+        encodeApplication(existing.getId(), spec));
+  }
+
+  /**
+   * Serializes the application specification for the application data field. Both formats are
+   * decoded by {@link ApplicationMetaCodec#decode}.
+   */
+  private String encodeApplication(String id, ApplicationSpecification spec) {
+    if (compactAppSpec) {
+      return ApplicationMetaCodec.encode(id, spec);
+    }
+    // creation time cannot be null  - will be written to app-spec but won't be added to table
+    return GSON.toJson(new ApplicationMeta(id, spec, null, null));
   }
 
   /**
@@ -2143,6 +2158,9 @@ public class AppMetadataStore {
         programRunId,
         record.getStartTs());
     getRunRecordsTable().delete(key);
+    if (activeRunChanges != null) {
+      activeRunChanges.recordDelete(record);
+    }
   }
 
   private Map<ProgramRunId, RunRecordDetail> getUnfinishedRuns(Set<ProgramRunId> programRunIds)
@@ -2379,6 +2397,9 @@ public class AppMetadataStore {
 
   public void deleteProgramHistory(String namespaceId, String appId, String versionId)
       throws IOException {
+    if (activeRunChanges != null) {
+      activeRunChanges.invalidateAll();
+    }
     ApplicationId applicationId = new ApplicationId(namespaceId, appId, versionId);
     getRunRecordsTable()
         .deleteAll(
@@ -2394,6 +2415,9 @@ public class AppMetadataStore {
 
   public void deleteProgramHistory(ApplicationReference applicationReference)
     throws IOException {
+    if (activeRunChanges != null) {
+      activeRunChanges.invalidateAll();
+    }
     getRunRecordsTable()
       .deleteAll(
         Range.singleton(getRunRecordApplicationRefPrefix(TYPE_RUN_RECORD_ACTIVE, applicationReference)));
@@ -2407,6 +2431,9 @@ public class AppMetadataStore {
   }
 
   public void deleteProgramHistory(NamespaceId namespaceId) throws IOException {
+    if (activeRunChanges != null) {
+      activeRunChanges.invalidateAll();
+    }
     getRunRecordsTable().deleteAll(
         Range.singleton(getRunRecordNamespacePrefix(TYPE_RUN_RECORD_ACTIVE, namespaceId)));
     getRunRecordsTable().deleteAll(Range.singleton(
@@ -2808,15 +2835,10 @@ public class AppMetadataStore {
     String changeSummary = row.getString(StoreDefinition.AppMetadataStore.CHANGE_SUMMARY_FIELD);
     Long creationTimeMillis = row.getLong(StoreDefinition.AppMetadataStore.CREATION_TIME_FIELD);
     Boolean latest = row.getBoolean(StoreDefinition.AppMetadataStore.LATEST_FIELD);
-    ApplicationMeta meta = GSON.fromJson(
-        row.getString(StoreDefinition.AppMetadataStore.APPLICATION_DATA_FIELD),
-        ApplicationMeta.class);
     SourceControlMeta sourceControl = GSON.fromJson(
         row.getString(StoreDefinition.AppMetadataStore.SOURCE_CONTROL_META),
         SourceControlMeta.class);
 
-    ApplicationSpecification spec = meta.getSpec();
-    String id = meta.getId();
     ChangeDetail changeDetail;
     if (creationTimeMillis == null) {
       changeDetail = null;
@@ -2824,7 +2846,9 @@ public class AppMetadataStore {
       changeDetail = new ChangeDetail(changeSummary, null, author, creationTimeMillis, latest);
     }
 
-    return new ApplicationMeta(id, spec, changeDetail, sourceControl);
+    return ApplicationMetaCodec.decode(
+        row.getString(StoreDefinition.AppMetadataStore.APPLICATION_DATA_FIELD), changeDetail,
+        sourceControl);
   }
 
   private void writeToStructuredTableWithPrimaryKeys(
@@ -3050,6 +3074,9 @@ public class AppMetadataStore {
     key.add(Fields.stringField(StoreDefinition.AppMetadataStore.FLOW_CONTROL_STATUS, meta.getFlowControlStatus()));
     writeToStructuredTableWithPrimaryKeys(
         key, meta, getRunRecordsTable(), StoreDefinition.AppMetadataStore.RUN_RECORD_DATA);
+    if (activeRunChanges != null) {
+      activeRunChanges.recordWrite(meta);
+    }
   }
 
   /**
@@ -3108,9 +3135,7 @@ public class AppMetadataStore {
       if (meta != null) {
         return meta;
       }
-      ApplicationMeta tempMeta = GSON.fromJson(rawAppMeta, ApplicationMeta.class);
-      appMeta = meta = new ApplicationMeta(tempMeta.getId(), tempMeta.getSpec(), changeDetail,
-          sourceControlMeta);
+      appMeta = meta = ApplicationMetaCodec.decode(rawAppMeta, changeDetail, sourceControlMeta);
       return meta;
     }
 
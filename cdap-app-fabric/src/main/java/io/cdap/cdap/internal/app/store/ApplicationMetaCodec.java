@@ -0,0 +1,544 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.store;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.reflect.TypeParameter;
+import com.google.common.reflect.TypeToken;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import io.cdap.cdap.api.app.ApplicationSpecification;
+import io.cdap.cdap.api.app.ProgramType;
+import io.cdap.cdap.api.artifact.ArtifactId;
+import io.cdap.cdap.api.mapreduce.MapReduceSpecification;
+import io.cdap.cdap.api.plugin.Plugin;
+import io.cdap.cdap.api.service.ServiceSpecification;
+import io.cdap.cdap.api.spark.SparkSpecification;
+import io.cdap.cdap.api.worker.WorkerSpecification;
+import io.cdap.cdap.api.workflow.WorkflowSpecification;
+import io.cdap.cdap.internal.app.ApplicationSpecificationAdapter;
+import io.cdap.cdap.internal.dataset.DatasetCreationSpec;
+import io.cdap.cdap.internal.schedule.ScheduleCreationSpec;
+import io.cdap.cdap.proto.artifact.ChangeDetail;
+import io.cdap.cdap.proto.id.ApplicationId;
+import io.cdap.cdap.proto.id.ProgramId;
+import io.cdap.cdap.proto.sourcecontrol.SourceControlMeta;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import javax.annotation.Nullable;
+
+/**
+ * Encodes and decodes the {@link ApplicationMeta} stored in the application data field of the
+ * {@link AppMetadataStore}.
+ *
+ * <p>Application metadata is encoded in a versioned, compact binary record, which is stored as
+ * a Base64 string prefixed with {@link #BINARY_PREFIX}. The record contains a small header with the
+ * application id and the scalar fields of the {@link ApplicationSpecification}, followed by a
+ * directory of sections. Each section holds one of the larger specification fields (e.g. the
+ * programs, datasets, plugins and configuration) as deflate-compressed JSON, together with the
+ * keys of the field when it is a map. Decoding only parses the header; a section is decompressed
+ * and deserialized the first time it is accessed on the returned {@link ApplicationSpecification}.
+ * Listing of programs only uses the section keys and never decompresses any section.</p>
+ *
+ * <p>Records without the prefix are decoded from the JSON format used by previous versions, so
+ * that existing application metadata stays readable without migration.</p>
+ */
+final class ApplicationMetaCodec {
+
+  static final String BINARY_PREFIX = "bin:";
+
+  private static final Gson GSON = ApplicationSpecificationAdapter.addTypeAdapters(
+      new GsonBuilder()).create();
+  private static final JsonParser JSON_PARSER = new JsonParser();
+  private static final byte FORMAT_VERSION = 1;
+  private static final int NO_KEYS = -1;
+
+  private static final String CONFIGURATION = "configuration";
+  private static final String DATASET_MODULES = "datasetModules";
+  private static final String DATASET_INSTANCES = "datasetInstances";
+  private static final String MAPREDUCES = "mapReduces";
+  private static final String SPARKS = "sparks";
+  private static final String WORKFLOWS = "workflows";
+  private static final String SERVICES = "services";
+  private static final String PROGRAM_SCHEDULES = "programSchedules";
+  private static final String WORKERS = "workers";
+  private static final String PLUGINS = "plugins";
+
+  // Specification fields that are stored in the header instead of in sections
+  private static final Set<String> HEADER_FIELDS = ImmutableSet.of(
+      "name", "appVersion", "appCDAPVersion", "description", "artifactId");
+
+  private ApplicationMetaCodec() {
+    // no-op
+  }
+
+  /**
+   * Encodes the given application id and specification into the binary format.
+   */
+  static String encode(String id, ApplicationSpecification spec) {
+    JsonObject json = GSON.toJsonTree(spec, ApplicationSpecification.class).getAsJsonObject();
+
+    ByteArrayOutputStream sectionData = new ByteArrayOutputStream();
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(bos)) {
+      output.writeByte(FORMAT_VERSION);
+      writeString(output, id);
+      writeString(output, spec.getName());
+      writeString(output, spec.getAppVersion());
+      writeString(output, spec.getAppCDAPVersion());
+      writeString(output, spec.getDescription());
+      writeString(output, GSON.toJson(spec.getArtifactId()));
+
+      List<Map.Entry<String, JsonElement>> sections = new ArrayList<>();
+      for (Map.Entry<String, JsonElement> entry : json.entrySet()) {
+        if (!HEADER_FIELDS.contains(entry.getKey())) {
+          sections.add(entry);
+        }
+      }
+
+      // Writes the section directory, followed by the compressed sections
+      output.writeInt(sections.size());
+      for (Map.Entry<String, JsonElement> section : sections) {
+        writeString(output, section.getKey());
+        JsonElement value = section.getValue();
+        if (value.isJsonObject()) {
+          Set<Map.Entry<String, JsonElement>> entries = value.getAsJsonObject().entrySet();
+          output.writeInt(entries.size());
+          for (Map.Entry<String, JsonElement> entry : entries) {
+            writeString(output, entry.getKey());
+          }
+        } else {
+          output.writeInt(NO_KEYS);
+        }
+        int size = sectionData.size();
+        compress(GSON.toJson(value), sectionData);
+        output.writeInt(sectionData.size() - size);
+      }
+      sectionData.writeTo(output);
+    } catch (IOException e) {
+      // Shouldn't happen since it is writing to memory
+      throw new UncheckedIOException(e);
+    }
+    return BINARY_PREFIX + Base64.getEncoder().encodeToString(bos.toByteArray());
+  }
+
+  /**
+   * Decodes the application data into an {@link ApplicationMeta}. Sections of the binary format
+   * are decoded lazily.
+   */
+  static ApplicationMeta decode(String data, @Nullable ChangeDetail change,
+      @Nullable SourceControlMeta sourceControlMeta) {
+    if (!isBinary(data)) {
+      ApplicationMeta meta = GSON.fromJson(data, ApplicationMeta.class);
+      return new ApplicationMeta(meta.getId(), meta.getSpec(), change, sourceControlMeta);
+    }
+    Record record = Record.parse(data);
+    return new ApplicationMeta(record.id, new LazyApplicationSpecification(record), change,
+        sourceControlMeta);
+  }
+
+  /**
+   * Returns the ids of all programs in the encoded application without decoding the
+   * specification.
+   *
+   * @throws IllegalArgumentException if the application name in the data does not match with
+   *     the application id
+   */
+  static Set<ProgramId> getProgramIds(ApplicationId appId, String data) throws IOException {
+    if (!isBinary(data)) {
+      Set<ProgramId> result = new HashSet<>();
+      try (JsonReader reader = new JsonReader(new StringReader(data))) {
+        reader.beginObject();
+        while (reader.hasNext()) {
+          if (reader.nextName().equals("spec")) {
+            result.addAll(ApplicationSpecificationAdapter.getProgramIds(appId, reader));
+          } else {
+            reader.skipValue();
+          }
+        }
+        reader.endObject();
+      }
+      return result;
+    }
+
+    Record record = Record.parse(data);
+    if (!appId.getApplication().equals(record.name)) {
+      throw new IllegalArgumentException(
+          String.format("Application name in the specification is '%s' and it doesn't "
+              + "match with the provided application id '%s'", record.name,
+              appId.getApplication()));
+    }
+    Set<ProgramId> result = new HashSet<>();
+    for (io.cdap.cdap.proto.ProgramType type : io.cdap.cdap.proto.ProgramType.values()) {
+      if (type.getApiProgramType() == null) {
+        continue;
+      }
+      for (String program : record.getKeys(getSectionName(type.getApiProgramType()))) {
+        result.add(appId.program(type, program));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns {@code true} if the given data is in the binary format.
+   */
+  static boolean isBinary(String data) {
+    return data.startsWith(BINARY_PREFIX);
+  }
+
+  @Nullable
+  private static String getSectionName(ProgramType programType) {
+    switch (programType) {
+      case MAPREDUCE:
+        return MAPREDUCES;
+      case SPARK:
+        return SPARKS;
+      case WORKFLOW:
+        return WORKFLOWS;
+      case SERVICE:
+        return SERVICES;
+      case WORKER:
+        return WORKERS;
+      default:
+        return null;
+    }
+  }
+
+  private static void compress(String json, ByteArrayOutputStream output) throws IOException {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try (DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(output, deflater) {
+      @Override
+      public void close() throws IOException {
+        // Only finish the compression, the underlying stream is shared by all sections
+        finish();
+      }
+    }) {
+      deflaterOutput.write(json.getBytes(StandardCharsets.UTF_8));
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static void writeString(DataOutputStream output, @Nullable String str)
+      throws IOException {
+    if (str == null) {
+      output.writeInt(-1);
+      return;
+    }
+    byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  @Nullable
+  private static String readString(DataInputStream input) throws IOException {
+    int len = input.readInt();
+    if (len < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[len];
+    input.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * The parsed header and section directory of a binary record.
+   */
+  private static final class Record {
+
+    private final byte[] data;
+    private final String id;
+    private final String name;
+    private final String appVersion;
+    @Nullable
+    private final String appCDAPVersion;
+    private final String description;
+    private final String artifactId;
+    private final Map<String, Section> sections;
+
+    private Record(byte[] data, String id, String name, String appVersion,
+        @Nullable String appCDAPVersion, String description, String artifactId,
+        Map<String, Section> sections) {
+      this.data = data;
+      this.id = id;
+      this.name = name;
+      this.appVersion = appVersion;
+      this.appCDAPVersion = appCDAPVersion;
+      this.description = description;
+      this.artifactId = artifactId;
+      this.sections = sections;
+    }
+
+    static Record parse(String encoded) {
+      byte[] data = Base64.getDecoder().decode(encoded.substring(BINARY_PREFIX.length()));
+      try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(data))) {
+        byte version = input.readByte();
+        if (version != FORMAT_VERSION) {
+          throw new IllegalArgumentException(
+              "Unsupported application metadata format version " + version);
+        }
+        String id = readString(input);
+        String name = readString(input);
+        String appVersion = readString(input);
+        String appCDAPVersion = readString(input);
+        String description = readString(input);
+        String artifactId = readString(input);
+
+        int sectionCount = input.readInt();
+        List<String> names = new ArrayList<>(sectionCount);
+        List<List<String>> keys = new ArrayList<>(sectionCount);
+        List<Integer> lengths = new ArrayList<>(sectionCount);
+        for (int i = 0; i < sectionCount; i++) {
+          names.add(readString(input));
+          int keyCount = input.readInt();
+          List<String> sectionKeys = null;
+          if (keyCount != NO_KEYS) {
+            sectionKeys = new ArrayList<>(keyCount);
+            for (int j = 0; j < keyCount; j++) {
+              sectionKeys.add(readString(input));
+            }
+          }
+          keys.add(sectionKeys);
+          lengths.add(input.readInt());
+        }
+
+        // The compressed sections starts right after the directory
+        int offset = data.length - input.available();
+        Map<String, Section> sections = new LinkedHashMap<>();
+        for (int i = 0; i < sectionCount; i++) {
+          sections.put(names.get(i), new Section(offset, lengths.get(i), keys.get(i)));
+          offset += lengths.get(i);
+        }
+        return new Record(data, id, name, appVersion, appCDAPVersion, description, artifactId,
+            sections);
+      } catch (IOException e) {
+        throw new IllegalArgumentException("Failed to decode application metadata", e);
+      }
+    }
+
+    /**
+     * Returns the keys of the given map section, or an empty list if there is no such section.
+     */
+    List<String> getKeys(@Nullable String sectionName) {
+      Section section = sectionName == null ? null : sections.get(sectionName);
+      if (section == null || section.keys == null) {
+        return Collections.emptyList();
+      }
+      return section.keys;
+    }
+
+    /**
+     * Decompresses and parses the given section, or returns {@code null} if there is no such
+     * section.
+     */
+    @Nullable
+    JsonElement readSection(String sectionName) {
+      Section section = sections.get(sectionName);
+      if (section == null) {
+        return null;
+      }
+      Inflater inflater = new Inflater();
+      try (Reader reader = new InputStreamReader(new InflaterInputStream(
+          new ByteArrayInputStream(data, section.offset, section.length), inflater),
+          StandardCharsets.UTF_8)) {
+        return JSON_PARSER.parse(reader);
+      } catch (IOException e) {
+        throw new IllegalArgumentException(
+            "Failed to decode section " + sectionName + " of application " + name, e);
+      } finally {
+        inflater.end();
+      }
+    }
+  }
+
+  /**
+   * Location of a section in the record.
+   */
+  private static final class Section {
+
+    private final int offset;
+    private final int length;
+    @Nullable
+    private final List<String> keys;
+
+    private Section(int offset, int length, @Nullable List<String> keys) {
+      this.offset = offset;
+      this.length = length;
+      this.keys = keys;
+    }
+  }
+
+  /**
+   * An {@link ApplicationSpecification} backed by a binary {@link Record}, which only decodes a
+   * section on the first access to it.
+   */
+  private static final class LazyApplicationSpecification implements ApplicationSpecification {
+
+    private final Record record;
+    private final Supplier<ArtifactId> artifactId;
+    private final Supplier<String> configuration;
+    private final Supplier<Map<String, String>> datasetModules;
+    private final Supplier<Map<String, DatasetCreationSpec>> datasetInstances;
+    private final Supplier<Map<String, MapReduceSpecification>> mapReduces;
+    private final Supplier<Map<String, SparkSpecification>> sparks;
+    private final Supplier<Map<String, WorkflowSpecification>> workflows;
+    private final Supplier<Map<String, ServiceSpecification>> services;
+    private final Supplier<Map<String, ScheduleCreationSpec>> programSchedules;
+    private final Supplier<Map<String, WorkerSpecification>> workers;
+    private final Supplier<Map<String, Plugin>> plugins;
+
+    private LazyApplicationSpecification(Record record) {
+      this.record = record;
+      this.artifactId = Suppliers.memoize(() -> GSON.fromJson(record.artifactId, ArtifactId.class));
+      this.configuration = Suppliers.memoize(() -> {
+        JsonElement json = record.readSection(CONFIGURATION);
+        return json == null || json.isJsonNull() ? null : json.getAsString();
+      });
+      this.datasetModules = mapSection(DATASET_MODULES, String.class);
+      this.datasetInstances = mapSection(DATASET_INSTANCES, DatasetCreationSpec.class);
+      this.mapReduces = mapSection(MAPREDUCES, MapReduceSpecification.class);
+      this.sparks = mapSection(SPARKS, SparkSpecification.class);
+      this.workflows = mapSection(WORKFLOWS, WorkflowSpecification.class);
+      this.services = mapSection(SERVICES, ServiceSpecification.class);
+      this.programSchedules = mapSection(PROGRAM_SCHEDULES, ScheduleCreationSpec.class);
+      this.workers = mapSection(WORKERS, WorkerSpecification.class);
+      this.plugins = mapSection(PLUGINS, Plugin.class);
+    }
+
+    private <V> Supplier<Map<String, V>> mapSection(String sectionName, Class<V> valueType) {
+      Type type = new TypeToken<Map<String, V>>() { }
+          .where(new TypeParameter<V>() { }, valueType).getType();
+      return Suppliers.memoize(() -> {
+        JsonElement json = record.readSection(sectionName);
+        Map<String, V> map = json == null ? null : GSON.fromJson(json, type);
+        return map == null ? ImmutableMap.of() : ImmutableMap.copyOf(map);
+      });
+    }
+
+    @Override
+    public String getName() {
+      return record.name;
+    }
+
+    @Override
+    public String getAppVersion() {
+      return record.appVersion;
+    }
+
+    @Nullable
+    @Override
+    public String getAppCDAPVersion() {
+      return record.appCDAPVersion;
+    }
+
+    @Nullable
+    @Override
+    public String getConfiguration() {
+      return configuration.get();
+    }
+
+    @Override
+    public String getDescription() {
+      return record.description;
+    }
+
+    @Override
+    public ArtifactId getArtifactId() {
+      return artifactId.get();
+    }
+
+    @Override
+    public Map<String, String> getDatasetModules() {
+      return datasetModules.get();
+    }
+
+    @Override
+    public Map<String, DatasetCreationSpec> getDatasets() {
+      return datasetInstances.get();
+    }
+
+    @Override
+    public Map<String, MapReduceSpecification> getMapReduce() {
+      return mapReduces.get();
+    }
+
+    @Override
+    public Map<String, SparkSpecification> getSpark() {
+      return sparks.get();
+    }
+
+    @Override
+    public Map<String, WorkflowSpecification> getWorkflows() {
+      return workflows.get();
+    }
+
+    @Override
+    public Map<String, ServiceSpecification> getServices() {
+      return services.get();
+    }
+
+    @Override
+    public Map<String, WorkerSpecification> getWorkers() {
+      return workers.get();
+    }
+
+    @Override
+    public Map<String, ScheduleCreationSpec> getProgramSchedules() {
+      return programSchedules.get();
+    }
+
+    @Override
+    public Map<String, Plugin> getPlugins() {
+      return plugins.get();
+    }
+
+    @Override
+    public Set<String> getProgramsByType(ProgramType programType) {
+      // Program names are available from the section directory without decoding the section
+      return ImmutableSet.copyOf(record.getKeys(getSectionName(programType)));
+    }
+  }
+}
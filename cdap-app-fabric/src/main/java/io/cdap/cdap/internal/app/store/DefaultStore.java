@@ -43,6 +43,8 @@ import io.cdap.cdap.common.BadRequestException;
 import io.cdap.cdap.common.ConflictException;
 import io.cdap.cdap.common.NotFoundException;
 import io.cdap.cdap.common.ProgramNotFoundException;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.data2.dataset2.DatasetFramework;
 import io.cdap.cdap.internal.app.ForwardingApplicationSpecification;
 import io.cdap.cdap.internal.app.store.state.AppStateKey;
@@ -114,17 +116,36 @@ public class DefaultStore implements Store {
   private static final int MAX_REORDER_BATCH = 1000;
 
   private final TransactionRunner transactionRunner;
+  private final ActiveRunCache activeRunCache;
   private final int maxReorderBatch;
+  private final boolean compactAppSpec;
 
-  @Inject
   public DefaultStore(TransactionRunner transactionRunner) {
-    this(transactionRunner, MAX_REORDER_BATCH);
+    this(transactionRunner, ActiveRunCache.disabled());
+  }
+
+  public DefaultStore(TransactionRunner transactionRunner, ActiveRunCache activeRunCache) {
+    this(transactionRunner, activeRunCache, MAX_REORDER_BATCH, false);
+  }
+
+  @Inject
+  public DefaultStore(CConfiguration cConf, TransactionRunner transactionRunner,
+      ActiveRunCache activeRunCache) {
+    this(transactionRunner, activeRunCache, MAX_REORDER_BATCH,
+        cConf.getBoolean(Constants.AppFabric.APP_SPEC_COMPACT_FORMAT_ENABLED));
   }
 
   @VisibleForTesting
   DefaultStore(TransactionRunner transactionRunner, int maxReorderBatch) {
+    this(transactionRunner, ActiveRunCache.disabled(), maxReorderBatch, false);
+  }
+
+  private DefaultStore(TransactionRunner transactionRunner, ActiveRunCache activeRunCache,
+      int maxReorderBatch, boolean compactAppSpec) {
     this.transactionRunner = transactionRunner;
+    this.activeRunCache = activeRunCache;
     this.maxReorderBatch = maxReorderBatch;
+    this.compactAppSpec = compactAppSpec;
   }
 
   /**
@@ -141,7 +162,21 @@ public class DefaultStore implements Store {
   }
 
   private AppMetadataStore getAppMetadataStore(StructuredTableContext context) {
-    return AppMetadataStore.create(context);
+    return AppMetadataStore.create(context, compactAppSpec);
+  }
+
+  /**
+   * Executes the given {@link RunRecordWriter} in a transaction and applies the run record changes
+   * to the {@link ActiveRunCache} after the transaction is committed.
+   */
+  private void writeRunRecords(RunRecordWriter writer) {
+    AtomicReference<ActiveRunCache.Changes> changes = new AtomicReference<>();
+    TransactionRunners.run(transactionRunner, context -> {
+      // Use a new Changes for every attempt, as the transaction can be retried
+      changes.set(activeRunCache.newChanges());
+      writer.write(context, AppMetadataStore.create(context, changes.get()));
+    });
+    activeRunCache.apply(changes.get());
   }
 
   private WorkflowTable getWorkflowTable(StructuredTableContext context)
@@ -182,40 +217,38 @@ public class DefaultStore implements Store {
   @Override
   public void setProvisioning(ProgramRunId id, Map<String, String> runtimeArgs,
       Map<String, String> systemArgs, byte[] sourceId, ArtifactId artifactId) {
-    TransactionRunners.run(transactionRunner, context -> {
-      getAppMetadataStore(context).recordProgramProvisioning(id, runtimeArgs, systemArgs, sourceId,
-          artifactId);
+    writeRunRecords((context, store) -> {
+      store.recordProgramProvisioning(id, runtimeArgs, systemArgs, sourceId, artifactId);
     });
   }
 
   @Override
   public void setProvisioned(ProgramRunId id, int numNodes, byte[] sourceId) {
-    TransactionRunners.run(transactionRunner, context -> {
-      getAppMetadataStore(context).recordProgramProvisioned(id, numNodes, sourceId);
+    writeRunRecords((context, store) -> {
+      store.recordProgramProvisioned(id, numNodes, sourceId);
     });
   }
 
   @Override
   public void setStart(ProgramRunId id, @Nullable String twillRunId, Map<String, String> systemArgs,
       byte[] sourceId) {
-    TransactionRunners.run(transactionRunner, context -> {
-      getAppMetadataStore(context).recordProgramStart(id, twillRunId, systemArgs, sourceId);
+    writeRunRecords((context, store) -> {
+      store.recordProgramStart(id, twillRunId, systemArgs, sourceId);
     });
   }
 
   @Override
   public void setRunning(ProgramRunId id, long runTime, String twillRunId, byte[] sourceId) {
-    TransactionRunners.run(transactionRunner, context -> {
-      getAppMetadataStore(context).recordProgramRunning(id, runTime, twillRunId, sourceId);
+    writeRunRecords((context, store) -> {
+      store.recordProgramRunning(id, runTime, twillRunId, sourceId);
     });
   }
 
   @Override
   public void setStopping(ProgramRunId id, byte[] sourceId, long stoppingTsSecs,
       long terminateTsSecs) {
-    TransactionRunners.run(transactionRunner, context -> {
-      getAppMetadataStore(context).recordProgramStopping(id, sourceId, stoppingTsSecs,
-          terminateTsSecs);
+    writeRunRecords((context, store) -> {
+      store.recordProgramStopping(id, sourceId, stoppingTsSecs, terminateTsSecs);
     });
   }
 
@@ -228,8 +261,7 @@ public class DefaultStore implements Store {
   public void setStop(ProgramRunId id, long endTime, ProgramRunStatus runStatus,
       BasicThrowable failureCause, byte[] sourceId) {
     Preconditions.checkArgument(runStatus != null, "Run state of program run should be defined");
-    TransactionRunners.run(transactionRunner, context -> {
-      AppMetadataStore metaStore = getAppMetadataStore(context);
+    writeRunRecords((context, metaStore) -> {
       metaStore.recordProgramStop(id, endTime, runStatus, failureCause, sourceId);
 
       // This block has been added so that completed workflow runs can be logged to the workflow dataset
@@ -307,15 +339,15 @@ public class DefaultStore implements Store {
 
   @Override
   public void setSuspend(ProgramRunId id, byte[] sourceId, long suspendTime) {
-    TransactionRunners.run(transactionRunner, context -> {
-      getAppMetadataStore(context).recordProgramSuspend(id, sourceId, suspendTime);
+    writeRunRecords((context, store) -> {
+      store.recordProgramSuspend(id, sourceId, suspendTime);
     });
   }
 
   @Override
   public void setResume(ProgramRunId id, byte[] sourceId, long resumeTime) {
-    TransactionRunners.run(transactionRunner, context -> {
-      getAppMetadataStore(context).recordProgramResumed(id, sourceId, resumeTime);
+    writeRunRecords((context, store) -> {
+      store.recordProgramResumed(id, sourceId, resumeTime);
     });
   }
 
@@ -486,6 +518,9 @@ public class DefaultStore implements Store {
 
   @Override
   public int countActiveRuns(@Nullable Integer limit) {
+    if (activeRunCache.isEnabled()) {
+      return activeRunCache.countActiveRuns(limit);
+    }
     return TransactionRunners.run(transactionRunner,
         context -> (int) getAppMetadataStore(context).countActiveRuns(limit));
   }
@@ -512,6 +547,11 @@ public class DefaultStore implements Store {
   @Override
   public Map<ProgramRunId, RunRecordDetail> getAllActiveRuns(
       ApplicationReference applicationReference) {
+    if (activeRunCache.isEnabled()) {
+      return activeRunCache.getActiveRuns(
+          r -> r.getProgramRunId().getParent().getParent().getAppReference()
+              .equals(applicationReference));
+    }
     return TransactionRunners.run(transactionRunner, context -> {
       return getAppMetadataStore(context).getActiveRuns(applicationReference);
     });
@@ -519,6 +559,10 @@ public class DefaultStore implements Store {
 
   @Override
   public Map<ProgramRunId, RunRecordDetail> getActiveRuns(NamespaceId namespaceId) {
+    if (activeRunCache.isEnabled()) {
+      return activeRunCache.getActiveRuns(
+          r -> r.getProgramRunId().getNamespaceId().equals(namespaceId));
+    }
     return TransactionRunners.run(transactionRunner, context -> {
       return getAppMetadataStore(context).getActiveRuns(namespaceId);
     });
@@ -527,6 +571,10 @@ public class DefaultStore implements Store {
   @Override
   public Map<ProgramRunId, RunRecordDetail> getActiveRuns(Set<NamespaceId> namespaces,
       Predicate<RunRecordDetail> filter) {
+    if (activeRunCache.isEnabled()) {
+      return activeRunCache.getActiveRuns(
+          r -> namespaces.contains(r.getProgramRunId().getNamespaceId()) && filter.test(r));
+    }
     return TransactionRunners.run(transactionRunner, context -> {
       return getAppMetadataStore(context).getActiveRuns(namespaces, filter);
     });
@@ -534,6 +582,10 @@ public class DefaultStore implements Store {
 
   @Override
   public Map<ProgramRunId, RunRecordDetail> getActiveRuns(ApplicationId applicationId) {
+    if (activeRunCache.isEnabled()) {
+      return activeRunCache.getActiveRuns(
+          r -> r.getProgramRunId().getParent().getParent().equals(applicationId));
+    }
     return TransactionRunners.run(transactionRunner, context -> {
       return getAppMetadataStore(context).getActiveRuns(applicationId);
     });
@@ -541,6 +593,9 @@ public class DefaultStore implements Store {
 
   @Override
   public Map<ProgramRunId, RunRecordDetail> getActiveRuns(ProgramId programId) {
+    if (activeRunCache.isEnabled()) {
+      return activeRunCache.getActiveRuns(r -> r.getProgramRunId().getParent().equals(programId));
+    }
     return TransactionRunners.run(transactionRunner, context -> {
       return getAppMetadataStore(context).getActiveRuns(programId);
     });
@@ -740,9 +795,8 @@ public class DefaultStore implements Store {
     LOG.trace("Removing application: namespace: {}, application: {}", appRef.getNamespace(),
         appRef.getApplication());
 
-    TransactionRunners.run(transactionRunner, context -> {
+    writeRunRecords((context, metaStore) -> {
       getAppStateTable(context).deleteAll(appRef.getNamespaceId(), appRef.getApplication());
-      AppMetadataStore metaStore = getAppMetadataStore(context);
       metaStore.deleteApplication(appRef);
       metaStore.deleteProgramHistory(appRef);
     });
@@ -753,9 +807,8 @@ public class DefaultStore implements Store {
     LOG.trace("Removing application: namespace: {}, application: {}", id.getNamespace(),
               id.getApplication(), id.getVersion());
 
-    TransactionRunners.run(transactionRunner, context -> {
+    writeRunRecords((context, metaStore) -> {
       getAppStateTable(context).deleteAll(id.getNamespaceId(), id.getApplication());
-      AppMetadataStore metaStore = getAppMetadataStore(context);
       metaStore.deleteApplication(id.getNamespace(), id.getApplication(), id.getVersion());
       metaStore.deleteProgramHistory(id.getNamespace(), id.getApplication(), id.getVersion());
     });
@@ -765,9 +818,8 @@ public class DefaultStore implements Store {
   public void removeAll(NamespaceId id) {
     LOG.trace("Removing all applications of namespace with id: {}", id.getNamespace());
 
-    TransactionRunners.run(transactionRunner, context -> {
+    writeRunRecords((context, metaStore) -> {
       getAppStateTable(context).deleteAll(id);
-      AppMetadataStore metaStore = getAppMetadataStore(context);
       metaStore.deleteApplications(id.getNamespace());
       metaStore.deleteProgramHistory(id);
     });
@@ -1236,4 +1288,12 @@ public class DefaultStore implements Store {
         return null;
     }
   }
+
+  /**
+   * Functional interface for writing run records through an {@link AppMetadataStore}.
+   */
+  private interface RunRecordWriter {
+
+    void write(StructuredTableContext context, AppMetadataStore store) throws Exception;
+  }
 }
@@ -33,6 +33,7 @@ import io.cdap.cdap.app.store.preview.PreviewStore;
 import io.cdap.cdap.common.ConflictException;
 import io.cdap.cdap.common.app.RunIds;
 import io.cdap.cdap.data2.dataset2.lib.table.MDSKey;
+import io.cdap.cdap.data2.dataset2.lib.table.leveldb.KeyValue;
 import io.cdap.cdap.data2.dataset2.lib.table.leveldb.LevelDBTableCore;
 import io.cdap.cdap.data2.dataset2.lib.table.leveldb.LevelDBTableService;
 import io.cdap.cdap.internal.io.SchemaTypeAdapter;
@@ -51,6 +52,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
@@ -125,6 +127,41 @@ public class DefaultPreviewStore implements PreviewStore {
     }
   }
 
+  @Override
+  public void putAll(ApplicationId applicationId, String tracerName,
+      Map<String, ? extends List<?>> values) {
+    Gson gson = new GsonBuilder().registerTypeAdapter(Schema.class, new SchemaTypeAdapter())
+        .registerTypeAdapter(StructuredRecord.class, new PreviewJsonSerializer()).create();
+    byte[] tracer = Bytes.toBytes(tracerName);
+
+    // Write all the values in one batch
+    Map<byte[], Map<byte[], byte[]>> changes = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    for (Map.Entry<String, ? extends List<?>> entry : values.entrySet()) {
+      byte[] property = Bytes.toBytes(entry.getKey());
+      for (Object value : entry.getValue()) {
+        MDSKey mdsKey = getPreviewRowKeyBuilder(DATA_ROW_KEY_PREFIX, applicationId)
+            .add(tracerName).add(counter.getAndIncrement()).build();
+        Map<byte[], byte[]> columns = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+        columns.put(TRACER, tracer);
+        columns.put(PROPERTY, property);
+        columns.put(VALUE, Bytes.toBytes(gson.toJson(value)));
+        changes.put(mdsKey.getKey(), columns);
+      }
+    }
+    if (changes.isEmpty()) {
+      return;
+    }
+
+    try {
+      previewTable.persist(changes, KeyValue.LATEST_TIMESTAMP);
+    } catch (IOException e) {
+      String message = String.format(
+          "Error while putting properties %s for application '%s' and tracer '%s' in"
+              + " preview table.", values.keySet(), applicationId, tracerName);
+      throw new RuntimeException(message, e);
+    }
+  }
+
   @Override
   public Map<String, List<JsonElement>> get(ApplicationId applicationId, String tracerName) {
     // PreviewStore is a singleton and we have to create gson for each operation since gson is not thread safe.
@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.worker;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Singleton;
+import io.cdap.cdap.api.metrics.MetricsCollectionService;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.apache.twill.common.Threads;
+import org.apache.twill.discovery.DiscoveryService;
+import org.apache.twill.discovery.DiscoveryServiceClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Supplies the injectors for running {@link ConfiguratorTask}. Each task gets a new injector, so
+ * that no state is shared between tasks. Creating the injector is expensive, hence a standby
+ * injector is kept ready: the first one is created when this class is instantiated, and the next
+ * one is created in the background once the standby injector is taken by a task, unless the worker
+ * is going to restart after that task.
+ */
+@Singleton
+class ConfiguratorInjectorSupplier implements Supplier<Injector> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ConfiguratorInjectorSupplier.class);
+
+  private final CConfiguration cConf;
+  private final DiscoveryService discoveryService;
+  private final DiscoveryServiceClient discoveryServiceClient;
+  private final MetricsCollectionService metricsCollectionService;
+  private final int maxTasks;
+  private final AtomicInteger taskCount;
+  private final ThreadPoolExecutor executor;
+  private final AtomicReference<CompletableFuture<Injector>> standby;
+
+  @Inject
+  ConfiguratorInjectorSupplier(CConfiguration cConf, DiscoveryService discoveryService,
+      DiscoveryServiceClient discoveryServiceClient,
+      MetricsCollectionService metricsCollectionService) {
+    this.cConf = cConf;
+    this.discoveryService = discoveryService;
+    this.discoveryServiceClient = discoveryServiceClient;
+    this.metricsCollectionService = metricsCollectionService;
+    // With user code isolation, the task worker restarts once it has processed the configured
+    // number of requests, hence no more standby injector is needed after that many tasks.
+    int killAfterRequestCount = cConf.getInt(
+        Constants.TaskWorker.CONTAINER_KILL_AFTER_REQUEST_COUNT, 0);
+    this.maxTasks = cConf.getBoolean(Constants.TaskWorker.USER_CODE_ISOLATION_ENABLED)
+        && killAfterRequestCount > 0 ? killAfterRequestCount : Integer.MAX_VALUE;
+    this.taskCount = new AtomicInteger();
+    // Don't keep the thread around if it is idle for more than 60 seconds.
+    this.executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+        Threads.createDaemonThreadFactory("configurator-injector-creator"));
+    this.executor.allowCoreThreadTimeOut(true);
+    this.standby = new AtomicReference<>(CompletableFuture.completedFuture(createInjector()));
+  }
+
+  @Override
+  public Injector get() {
+    CompletableFuture<Injector> future = standby.getAndSet(null);
+    Injector injector = null;
+    if (future != null) {
+      try {
+        injector = future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        LOG.debug("Failed to create standby injector for configurator task", e.getCause());
+      }
+    }
+    if (injector == null) {
+      injector = createInjector();
+    }
+    if (taskCount.incrementAndGet() < maxTasks) {
+      prepareStandby();
+    } else {
+      // The worker restarts after this task, hence there won't be another task to take a standby
+      executor.shutdown();
+    }
+    return injector;
+  }
+
+  /**
+   * Returns {@code true} if a standby injector is kept for the next task.
+   */
+  @VisibleForTesting
+  boolean hasStandby() {
+    return standby.get() != null;
+  }
+
+  /**
+   * Creates the next standby injector in the background if there is no standby injector.
+   */
+  private void prepareStandby() {
+    CompletableFuture<Injector> future = new CompletableFuture<>();
+    if (!standby.compareAndSet(null, future)) {
+      return;
+    }
+    executor.execute(() -> {
+      try {
+        future.complete(createInjector());
+      } catch (Throwable t) {
+        future.completeExceptionally(t);
+      }
+    });
+  }
+
+  private Injector createInjector() {
+    return ConfiguratorTask.createInjector(cConf, discoveryService, discoveryServiceClient,
+        metricsCollectionService);
+  }
+}
@@ -74,19 +74,11 @@ public class ConfiguratorTask implements RunnableTask {
   private static final Logger LOG = LoggerFactory.getLogger(
       ConfiguratorTask.class);
 
-  private final CConfiguration cConf;
-  private final DiscoveryService discoveryService;
-  private final DiscoveryServiceClient discoveryServiceClient;
-  private final MetricsCollectionService metricsCollectionService;
+  private final ConfiguratorInjectorSupplier injectorSupplier;
 
   @Inject
-  ConfiguratorTask(CConfiguration cConf, DiscoveryService discoveryService,
-      DiscoveryServiceClient discoveryServiceClient,
-      MetricsCollectionService metricsCollectionService) {
-    this.cConf = cConf;
-    this.discoveryService = discoveryService;
-    this.discoveryServiceClient = discoveryServiceClient;
-    this.metricsCollectionService = metricsCollectionService;
+  ConfiguratorTask(ConfiguratorInjectorSupplier injectorSupplier) {
+    this.injectorSupplier = injectorSupplier;
   }
 
   /**
@@ -116,8 +108,7 @@ public class ConfiguratorTask implements RunnableTask {
     AppDeploymentInfo deploymentInfo = GSON.fromJson(context.getParam(),
         AppDeploymentInfo.class);
 
-    Injector injector = createInjector(cConf, discoveryService,
-        discoveryServiceClient, metricsCollectionService);
+    Injector injector = injectorSupplier.get();
     ConfigResponse result = injector.getInstance(ConfiguratorTaskRunner.class)
         .configure(deploymentInfo);
     AppSpecInfo appSpecInfo = result.getAppSpecInfo();
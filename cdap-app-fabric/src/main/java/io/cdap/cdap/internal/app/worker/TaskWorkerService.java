@@ -51,6 +51,7 @@ public class TaskWorkerService extends AbstractIdleService {
 
   private final DiscoveryService discoveryService;
   private final NettyHttpService httpService;
+  private final TaskWorkerHttpHandlerInternal handler;
   private Cancellable cancelDiscovery;
   private InetSocketAddress bindAddress;
 
@@ -70,6 +71,8 @@ public class TaskWorkerService extends AbstractIdleService {
       cConf.set(TaskWorker.WORK_DIR, workDir);
     }
 
+    this.handler = new TaskWorkerHttpHandlerInternal(cConf, discoveryService,
+        discoveryServiceClient, this::stopService, metricsCollectionService);
     NettyHttpService.Builder builder = commonNettyHttpServiceFactory.builder(
             Constants.Service.TASK_WORKER)
         .setHost(cConf.get(Constants.TaskWorker.ADDRESS))
@@ -83,9 +86,7 @@ public class TaskWorkerService extends AbstractIdleService {
             pipeline.addAfter("compressor", "decompressor", new HttpContentDecompressor());
           }
         })
-        .setHttpHandlers(new TaskWorkerHttpHandlerInternal(cConf, discoveryService,
-            discoveryServiceClient, this::stopService,
-            metricsCollectionService));
+        .setHttpHandlers(handler);
 
     if (cConf.getBoolean(Constants.Security.SSL.INTERNAL_ENABLED)) {
       new HttpsEnabler().configureKeyStore(cConf, sConf).enable(builder);
@@ -96,6 +97,9 @@ public class TaskWorkerService extends AbstractIdleService {
   @Override
   protected void startUp() throws Exception {
     LOG.debug("Starting TaskWorkerService");
+    // Warm up before accepting requests, so that a restarted worker only takes requests when it is
+    // ready to serve them without the cold start.
+    handler.warmUp();
     httpService.start();
     bindAddress = httpService.getBindAddress();
     cancelDiscovery = discoveryService.register(
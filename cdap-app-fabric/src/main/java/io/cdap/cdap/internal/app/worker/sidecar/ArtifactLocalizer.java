@@ -128,7 +128,15 @@ public class ArtifactLocalizer extends AbstractArtifactLocalizer {
    * @throws Exception if there was an unexpected error
    */
   public File getAndUnpackArtifact(ArtifactId artifactId) throws Exception {
-    File jarLocation = getArtifact(artifactId);
+    return unpackArtifact(artifactId, getArtifact(artifactId));
+  }
+
+  /**
+   * Unpacks the given artifact jar into the cache if it is not unpacked yet.
+   *
+   * @return The Local Location of the directory that contains the unpacked artifact files
+   */
+  private File unpackArtifact(ArtifactId artifactId, File jarLocation) throws IOException {
     File unpackDir = getUnpackLocalPath(artifactId,
         Long.parseLong(jarLocation.getName().split("\\.")[0]));
     if (unpackDir.exists()) {
@@ -200,8 +208,9 @@ public class ArtifactLocalizer extends AbstractArtifactLocalizer {
    *
    * @param artifactNames list of artifact names to be preloaded in cache
    * @param versionCount number of versions to be cached
+   * @param unpack whether to also unpack the artifacts in cache
    */
-  public void preloadArtifacts(Set<String> artifactNames, int versionCount)
+  public void preloadArtifacts(Set<String> artifactNames, int versionCount, boolean unpack)
       throws IOException {
     ArtifactManager artifactManager = artifactManagerFactory.create(
         NamespaceId.SYSTEM,
@@ -229,7 +238,10 @@ public class ArtifactLocalizer extends AbstractArtifactLocalizer {
         ArtifactId artifactId = NamespaceId.SYSTEM.artifact(artifactInfo.getName(),
             artifactInfo.getVersion());
         try {
-          fetchArtifact(artifactId);
+          File jarLocation = fetchArtifact(artifactId);
+          if (unpack) {
+            unpackArtifact(artifactId, jarLocation);
+          }
         } catch (Exception e) {
           LOG.debug("Failed to preload artifact {}", artifactId);
         }
@@ -89,7 +89,8 @@ public class ArtifactLocalizerService extends AbstractIdleService {
 
     artifactLocalizer.preloadArtifacts(
         new HashSet<>(cConf.getTrimmedStringCollection(Constants.ArtifactLocalizer.PRELOAD_LIST)),
-        cConf.getInt(Constants.ArtifactLocalizer.PRELOAD_VERSION_LIMIT));
+        cConf.getInt(Constants.ArtifactLocalizer.PRELOAD_VERSION_LIMIT),
+        cConf.getBoolean(Constants.ArtifactLocalizer.PRELOAD_UNPACK));
 
     LOG.debug("Starting ArtifactLocalizerService has completed");
   }
@@ -23,6 +23,7 @@ import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
 import io.cdap.cdap.api.dataset.lib.CloseableIterator;
 import io.cdap.cdap.api.metrics.MetricsCollectionService;
 import io.cdap.cdap.api.metrics.MetricsContext;
@@ -37,6 +38,7 @@ import io.cdap.cdap.internal.app.runtime.schedule.constraint.CheckableConstraint
 import io.cdap.cdap.internal.app.runtime.schedule.constraint.ConstraintContext;
 import io.cdap.cdap.internal.app.runtime.schedule.constraint.ConstraintResult;
 import io.cdap.cdap.internal.app.runtime.schedule.queue.Job;
+import io.cdap.cdap.internal.app.runtime.schedule.queue.JobKey;
 import io.cdap.cdap.internal.app.runtime.schedule.queue.JobQueue;
 import io.cdap.cdap.internal.app.runtime.schedule.queue.JobQueueTable;
 import io.cdap.cdap.internal.app.runtime.schedule.store.Schedulers;
@@ -44,25 +46,46 @@ import io.cdap.cdap.internal.app.services.ProgramLifecycleService;
 import io.cdap.cdap.internal.app.services.PropertiesResolver;
 import io.cdap.cdap.internal.schedule.constraint.Constraint;
 import io.cdap.cdap.proto.id.NamespaceId;
+import io.cdap.cdap.proto.id.ProgramReference;
+import io.cdap.cdap.proto.id.ScheduleId;
 import io.cdap.cdap.spi.data.transaction.TransactionException;
 import io.cdap.cdap.spi.data.transaction.TransactionRunner;
 import io.cdap.cdap.spi.data.transaction.TransactionRunners;
 import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Polls the JobQueue, checks the jobs for constraint satisfaction, and launches them.
+ * Checks the jobs in the JobQueue for constraint satisfaction, and launches them.
+ *
+ * <p>Each partition of the JobQueue is fully scanned on startup and after failures. Afterwards,
+ * jobs are only read from the JobQueue when they are updated, as notified through
+ * {@link #jobsUpdated(ScheduleId)}, when a run of the scheduled program completed, as notified
+ * through {@link #programRunCompleted(ProgramReference)}, or when the next check time of a job that
+ * has its constraints not satisfied is reached. The next check times are tracked with a
+ * {@link TimerWheel}. A full scan is also performed periodically to reconcile jobs that are changed
+ * without notification.</p>
  */
+@Singleton
 class ConstraintCheckerService extends AbstractIdleService {
 
   private static final Logger LOG = LoggerFactory.getLogger(ConstraintCheckerService.class);
+  private static final long TIMER_TICK_MILLIS = 100L;
+  private static final int TIMER_WHEEL_SIZE = 64;
 
   private final Store store;
   private final ProgramLifecycleService lifecycleService;
@@ -70,8 +93,10 @@ class ConstraintCheckerService extends AbstractIdleService {
   private final NamespaceQueryAdmin namespaceQueryAdmin;
   private final CConfiguration cConf;
   private final TransactionRunner transactionRunner;
+  private final long fullScanIntervalMillis;
   private ScheduleTaskRunner taskRunner;
   private ListeningExecutorService taskExecutorService;
+  private volatile List<ConstraintCheckerThread> checkerThreads = Collections.emptyList();
   private volatile boolean stopping;
   private MetricsCollectionService metricsCollectionService;
 
@@ -89,6 +114,30 @@ class ConstraintCheckerService extends AbstractIdleService {
     this.cConf = cConf;
     this.transactionRunner = transactionRunner;
     this.metricsCollectionService = metricsCollectionService;
+    this.fullScanIntervalMillis = TimeUnit.SECONDS.toMillis(
+        cConf.getLong(Constants.Scheduler.CONSTRAINT_CHECK_FULL_SCAN_INTERVAL_SECONDS));
+  }
+
+  /**
+   * Notifies that jobs of the given schedule were added or updated in the JobQueue. This should be
+   * called after the transaction that updated the jobs is committed.
+   */
+  void jobsUpdated(ScheduleId scheduleId) {
+    List<ConstraintCheckerThread> threads = checkerThreads;
+    if (threads.isEmpty()) {
+      return;
+    }
+    threads.get(JobQueueTable.getPartition(scheduleId, threads.size())).jobsUpdated(scheduleId);
+  }
+
+  /**
+   * Notifies that a run of the given program completed, so that jobs waiting for active runs of the
+   * program to complete can be checked again.
+   */
+  void programRunCompleted(ProgramReference programRef) {
+    for (ConstraintCheckerThread thread : checkerThreads) {
+      thread.programRunCompleted(programRef);
+    }
   }
 
   @Override
@@ -101,8 +150,13 @@ class ConstraintCheckerService extends AbstractIdleService {
         namespaceQueryAdmin, cConf);
 
     int numPartitions = cConf.getInt(Constants.Scheduler.JOB_QUEUE_NUM_PARTITIONS);
+    List<ConstraintCheckerThread> threads = new ArrayList<>(numPartitions);
     for (int partition = 0; partition < numPartitions; partition++) {
-      taskExecutorService.submit(new ConstraintCheckerThread(partition));
+      threads.add(new ConstraintCheckerThread(partition));
+    }
+    checkerThreads = threads;
+    for (ConstraintCheckerThread thread : threads) {
+      taskExecutorService.submit(thread);
     }
     LOG.info("Started ConstraintCheckerService. state: " + state());
   }
@@ -111,6 +165,9 @@ class ConstraintCheckerService extends AbstractIdleService {
   protected void shutDown() throws Exception {
     stopping = true;
     LOG.info("Stopping ConstraintCheckerService.");
+    for (ConstraintCheckerThread thread : checkerThreads) {
+      thread.wakeup();
+    }
     try {
       // Shutdown the executor and wait for all pending task to be completed for max of 5 seconds
       taskExecutorService.shutdown();
@@ -130,8 +187,17 @@ class ConstraintCheckerService extends AbstractIdleService {
     private final RetryStrategy scheduleStrategy;
     private final int partition;
     private final Deque<Job> readyJobs = new ArrayDeque<>();
+    // Jobs updated or program runs completed since the last check, notified by other threads
+    private final Set<ScheduleId> updatedSchedules = ConcurrentHashMap.newKeySet();
+    private final Set<ProgramReference> completedPrograms = ConcurrentHashMap.newKeySet();
+    private final Semaphore wakeupSemaphore = new Semaphore(0);
+    // Next check times of the jobs, and the programs of the jobs waiting to be checked
+    private final TimerWheel<JobKey> timers;
+    private final Map<JobKey, ProgramReference> waitingJobs = new HashMap<>();
     private Job lastConsumed;
     private int failureCount;
+    private boolean scanning = true;
+    private long lastFullScanTime;
 
     ConstraintCheckerThread(int partition) {
       // TODO: [CDAP-11370] Need to be configured in cdap-default.xml. Retry with delay ranging from 0.1s to 30s
@@ -139,6 +205,22 @@ class ConstraintCheckerService extends AbstractIdleService {
           io.cdap.cdap.common.service.RetryStrategies.exponentialDelay(100, 30000,
               TimeUnit.MILLISECONDS);
       this.partition = partition;
+      this.timers = new TimerWheel<>(TIMER_TICK_MILLIS, TIMER_WHEEL_SIZE,
+          System.currentTimeMillis());
+    }
+
+    void jobsUpdated(ScheduleId scheduleId) {
+      updatedSchedules.add(scheduleId);
+      wakeup();
+    }
+
+    void programRunCompleted(ProgramReference programRef) {
+      completedPrograms.add(programRef);
+      wakeup();
+    }
+
+    void wakeup() {
+      wakeupSemaphore.release();
     }
 
     @Override
@@ -148,9 +230,9 @@ class ConstraintCheckerService extends AbstractIdleService {
       while (!stopping) {
         try {
           long sleepTime = checkJobQueue();
-          // Don't sleep if sleepTime returned is 0
-          if (sleepTime > 0) {
-            TimeUnit.MILLISECONDS.sleep(sleepTime);
+          // Don't sleep if sleepTime returned is 0. Notifications wake up the thread early.
+          if (sleepTime > 0 && wakeupSemaphore.tryAcquire(sleepTime, TimeUnit.MILLISECONDS)) {
+            wakeupSemaphore.drainPermits();
           }
         } catch (InterruptedException e) {
           // sleep is interrupted, just exit without doing anything
@@ -161,14 +243,25 @@ class ConstraintCheckerService extends AbstractIdleService {
     /**
      * Check jobs in job queue for constraint satisfaction.
      *
-     * @return sleep time in milliseconds before next fetch
+     * @return sleep time in milliseconds before next check
      */
     private long checkJobQueue() {
-      boolean emptyFetch = false;
+      long now = System.currentTimeMillis();
       try {
-        emptyFetch = TransactionRunners.run(transactionRunner, context -> {
-          return checkJobConstraints(JobQueueTable.getJobQueue(context, cConf));
-        });
+        if (!scanning && now - lastFullScanTime >= fullScanIntervalMillis) {
+          scanning = true;
+        }
+        if (scanning) {
+          boolean completed = TransactionRunners.run(transactionRunner, context -> {
+            return checkJobConstraints(JobQueueTable.getJobQueue(context, cConf));
+          });
+          if (completed) {
+            scanning = false;
+            lastFullScanTime = now;
+          }
+        } else {
+          checkUpdatedJobs(now);
+        }
 
         // run any ready jobs
         runReadyJobs();
@@ -176,6 +269,9 @@ class ConstraintCheckerService extends AbstractIdleService {
       } catch (Exception e) {
         LOG.warn("Failed to check Job constraints. Will retry in next run", e);
         failureCount++;
+        // Notifications could have been lost. Recover with a full scan.
+        scanning = true;
+        lastConsumed = null;
       }
 
       // If there is any failure, delay the next fetch based on the strategy
@@ -183,32 +279,107 @@ class ConstraintCheckerService extends AbstractIdleService {
         // Exponential strategy doesn't use the time component, so doesn't matter what we passed in as startTime
         return scheduleStrategy.nextRetry(failureCount, 0);
       }
-
-      // Sleep for 2 seconds if there's no jobs in the queue
-      return emptyFetch && readyJobs.isEmpty() ? 2000L : 0L;
+      if (scanning || !readyJobs.isEmpty()) {
+        return 0L;
+      }
+      // Sleep until the next timer tick or the next full scan
+      long nextCheckTime = Math.min(timers.getNextTickTime(),
+          lastFullScanTime + fullScanIntervalMillis);
+      return Math.max(0L, nextCheckTime - System.currentTimeMillis());
     }
 
+    /**
+     * Scans the next batch of jobs in the partition.
+     *
+     * @return {@code true} if the scan reached the end of the partition
+     */
     private boolean checkJobConstraints(JobQueue jobQueue) throws IOException {
-      boolean emptyScan = true;
-
       try (CloseableIterator<Job> jobQueueIter = jobQueue.getJobs(partition, lastConsumed)) {
         Stopwatch stopWatch = new Stopwatch().start();
         // limit the batches of the scan to 1000ms
         while (!stopping && stopWatch.elapsedMillis() < 1000) {
           if (!jobQueueIter.hasNext()) {
             lastConsumed = null;
-            return emptyScan;
+            return true;
           }
           Job job = jobQueueIter.next();
           lastConsumed = job;
-          emptyScan = false;
           checkAndUpdateJob(jobQueue, job);
         }
       }
-      return emptyScan;
+      return false;
+    }
+
+    /**
+     * Checks the jobs that were notified as updated, that are waiting for the completion of runs
+     * that completed, and that reached their next check time.
+     */
+    private void checkUpdatedJobs(long now) throws IOException {
+      Set<ScheduleId> schedules = drain(updatedSchedules);
+      Set<ProgramReference> programs = drain(completedPrograms);
+      Set<JobKey> jobKeys = new HashSet<>(timers.advance(now));
+      if (!programs.isEmpty()) {
+        for (Map.Entry<JobKey, ProgramReference> entry : waitingJobs.entrySet()) {
+          if (programs.contains(entry.getValue())) {
+            jobKeys.add(entry.getKey());
+          }
+        }
+      }
+      if (schedules.isEmpty() && jobKeys.isEmpty()) {
+        return;
+      }
+
+      TransactionRunners.run(transactionRunner, context -> {
+        JobQueueTable jobQueue = JobQueueTable.getJobQueue(context, cConf);
+        for (ScheduleId scheduleId : schedules) {
+          try (CloseableIterator<Job> jobs = jobQueue.getJobsForSchedule(scheduleId)) {
+            while (jobs.hasNext()) {
+              checkAndUpdateJob(jobQueue, jobs.next());
+            }
+          }
+        }
+        for (JobKey jobKey : jobKeys) {
+          if (schedules.contains(jobKey.getScheduleId())) {
+            continue;
+          }
+          Job job = jobQueue.getJob(jobKey);
+          if (job == null) {
+            forget(jobKey);
+          } else {
+            checkAndUpdateJob(jobQueue, job);
+          }
+        }
+      }, IOException.class);
+    }
+
+    private <T> Set<T> drain(Set<T> items) {
+      Set<T> result = new HashSet<>();
+      Iterator<T> iterator = items.iterator();
+      while (iterator.hasNext()) {
+        result.add(iterator.next());
+        iterator.remove();
+      }
+      return result;
+    }
+
+    /**
+     * Checks the job again at the given time, or earlier if a run of the scheduled program
+     * completes.
+     */
+    private void checkLater(Job job, long checkTimeMillis) {
+      JobKey jobKey = job.getJobKey();
+      waitingJobs.put(jobKey, job.getSchedule().getProgramId().getProgramReference());
+      timers.schedule(jobKey, Math.max(checkTimeMillis, System.currentTimeMillis()));
+    }
+
+    private void forget(JobKey jobKey) {
+      waitingJobs.remove(jobKey);
+      timers.cancel(jobKey);
     }
 
     private void checkAndUpdateJob(JobQueue jobQueue, Job job) throws IOException {
+      // Each check decides whether and when the job needs to be checked again
+      forget(job.getJobKey());
       long now = System.currentTimeMillis();
       if (job.isToBeDeleted()) {
         // only delete jobs that are pending trigger or pending constraint. If pending launch, the launcher will delete
@@ -223,11 +394,15 @@ class ConstraintCheckerService extends AbstractIdleService {
                 && now - job.getDeleteTimeMillis()
                 > 2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS))) {
           jobQueue.deleteJob(job);
+        } else if (job.getState() == Job.State.PENDING_TRIGGER) {
+          checkLater(job,
+              job.getDeleteTimeMillis() + 2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS + 1);
         }
         return;
       }
-      if (now - job.getCreationTime() >= job.getSchedule().getTimeoutMillis()
-          + 2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS) {
+      long timeoutTime = job.getCreationTime() + job.getSchedule().getTimeoutMillis()
+          + 2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS;
+      if (now >= timeoutTime) {
         LOG.info("Deleted job {}, due to timeout value of {}.", job.getJobKey(),
             job.getSchedule().getTimeoutMillis());
         jobQueue.deleteJob(job);
@@ -236,8 +411,10 @@ class ConstraintCheckerService extends AbstractIdleService {
       if (job.getState() != Job.State.PENDING_CONSTRAINT) {
         return;
       }
-      ConstraintResult.SatisfiedState satisfiedState = constraintsSatisfied(job, now);
+      ConstraintResult result = constraintsSatisfied(job, now);
+      ConstraintResult.SatisfiedState satisfiedState = result.getSatisfiedState();
       if (satisfiedState == ConstraintResult.SatisfiedState.NOT_SATISFIED) {
+        checkLater(job, Math.min(result.getNextCheckTime(), timeoutTime));
         return;
       }
       if (satisfiedState == ConstraintResult.SatisfiedState.NEVER_SATISFIED) {
@@ -306,8 +483,12 @@ class ConstraintCheckerService extends AbstractIdleService {
       return true;
     }
 
-    private ConstraintResult.SatisfiedState constraintsSatisfied(Job job, long now) {
-      ConstraintResult.SatisfiedState satisfiedState = ConstraintResult.SatisfiedState.SATISFIED;
+    /**
+     * Checks the constraints of the job. If any constraint is not satisfied, returns the not
+     * satisfied result that has the latest next check time.
+     */
+    private ConstraintResult constraintsSatisfied(Job job, long now) {
+      ConstraintResult notSatisfied = null;
 
       ConstraintContext constraintContext = new ConstraintContext(job, now, store);
       for (Constraint constraint : job.getSchedule().getConstraints()) {
@@ -322,13 +503,15 @@ class ConstraintCheckerService extends AbstractIdleService {
         ConstraintResult result = abstractConstraint.check(job.getSchedule(), constraintContext);
         if (result.getSatisfiedState() == ConstraintResult.NEVER_SATISFIED.getSatisfiedState()) {
           // if any of the constraints are NEVER_SATISFIED, return NEVER_SATISFIED
-          return ConstraintResult.NEVER_SATISFIED.getSatisfiedState();
+          return ConstraintResult.NEVER_SATISFIED;
         }
-        if (result.getSatisfiedState() == ConstraintResult.SatisfiedState.NOT_SATISFIED) {
-          satisfiedState = ConstraintResult.SatisfiedState.NOT_SATISFIED;
+        if (result.getSatisfiedState() == ConstraintResult.SatisfiedState.NOT_SATISFIED
+            && (notSatisfied == null
+            || result.getNextCheckTime() > notSatisfied.getNextCheckTime())) {
+          notSatisfied = result;
         }
       }
-      return satisfiedState;
+      return notSatisfied == null ? ConstraintResult.SATISFIED : notSatisfied;
     }
 
     private void emitScheduleJobSuccessAndLatencyMetric(String application, String schedule,
@@ -45,6 +45,7 @@ import io.cdap.cdap.internal.app.runtime.schedule.TimeSchedulerService;
 import io.cdap.cdap.internal.app.runtime.schedule.queue.Job;
 import io.cdap.cdap.internal.app.runtime.schedule.queue.JobQueueTable;
 import io.cdap.cdap.internal.app.runtime.schedule.store.ProgramScheduleStoreDataset;
+import io.cdap.cdap.internal.app.runtime.schedule.store.ScheduleTriggerIndex;
 import io.cdap.cdap.internal.app.runtime.schedule.store.Schedulers;
 import io.cdap.cdap.internal.app.store.profile.ProfileStore;
 import io.cdap.cdap.internal.profile.AdminEventPublisher;
@@ -73,6 +74,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
@@ -95,6 +97,7 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
   private final Store appMetaStore;
   private final Impersonator impersonator;
   private final TransactionRunner transactionRunner;
+  private final ScheduleTriggerIndex triggerIndex;
 
   @Inject
   CoreSchedulerService(TimeSchedulerService timeSchedulerService,
@@ -102,7 +105,7 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
       ConstraintCheckerService constraintCheckerService,
       MessagingService messagingService,
       CConfiguration cConf, Store store, Impersonator impersonator,
-      TransactionRunner transactionRunner) {
+      TransactionRunner transactionRunner, ScheduleTriggerIndex triggerIndex) {
     this.startedLatch = new CountDownLatch(1);
     MultiThreadMessagingContext messagingContext = new MultiThreadMessagingContext(
         messagingService);
@@ -111,6 +114,7 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
     this.appMetaStore = store;
     this.impersonator = impersonator;
     this.transactionRunner = transactionRunner;
+    this.triggerIndex = triggerIndex;
     // Use a retry on failure service to make it resilience to transient service unavailability during startup
     this.internalService = new RetryOnStartFailureService(() -> new AbstractIdleService() {
 
@@ -123,6 +127,7 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
       protected void startUp() {
         timeSchedulerService.startAndWait();
         cleanupJobs();
+        triggerIndex.load();
         constraintCheckerService.startAndWait();
         scheduleNotificationSubscriberService.startAndWait();
         startedLatch.countDown();
@@ -540,6 +545,9 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
   @Override
   public Collection<ProgramScheduleRecord> findSchedules(String triggerKey) {
     checkStarted();
+    if (triggerIndex.isEnabled()) {
+      return triggerIndex.findSchedules(triggerKey);
+    }
     return execute(store -> store.findSchedules(triggerKey), RuntimeException.class);
   }
 
@@ -646,43 +654,59 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
 
   private <V, T extends Exception> V execute(StoreTxRunnable<V, ? extends Exception> runnable,
       Class<? extends T> tClass) throws T {
-    return TransactionRunners.run(transactionRunner, context -> {
-      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context);
+    AtomicReference<ScheduleTriggerIndex.Changes> changes = new AtomicReference<>();
+    V result = TransactionRunners.run(transactionRunner, context -> {
+      changes.set(triggerIndex.newChanges());
+      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context, changes.get());
       return runnable.run(store);
     }, tClass);
+    triggerIndex.apply(changes.get());
+    return result;
   }
 
   @SuppressWarnings("UnusedReturnValue")
   private <V, T extends Exception> V execute(
       StoreAndQueueTxRunnable<V, ? extends Exception> runnable,
       Class<? extends T> tClass) throws T {
-    return TransactionRunners.run(transactionRunner, context -> {
-      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context);
+    AtomicReference<ScheduleTriggerIndex.Changes> changes = new AtomicReference<>();
+    V result = TransactionRunners.run(transactionRunner, context -> {
+      changes.set(triggerIndex.newChanges());
+      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context, changes.get());
       JobQueueTable queue = JobQueueTable.getJobQueue(context, cConf);
       return runnable.run(store, queue);
     }, tClass);
+    triggerIndex.apply(changes.get());
+    return result;
   }
 
   @SuppressWarnings({"UnusedReturnValue", "SameParameterValue"})
   private <V, T extends Exception> V execute(
       StoreAndProfileTxRunnable<V, ? extends Exception> runnable,
       Class<? extends T> tClass) throws T {
-    return TransactionRunners.run(transactionRunner, context -> {
-      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context);
+    AtomicReference<ScheduleTriggerIndex.Changes> changes = new AtomicReference<>();
+    V result = TransactionRunners.run(transactionRunner, context -> {
+      changes.set(triggerIndex.newChanges());
+      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context, changes.get());
       ProfileStore profileStore = ProfileStore.get(context);
       return runnable.run(store, profileStore);
     }, tClass);
+    triggerIndex.apply(changes.get());
+    return result;
   }
 
   @SuppressWarnings("UnusedReturnValue")
   private <V, T extends Exception> V execute(
       StoreQueueAndProfileTxRunnable<V, ? extends Exception> runnable,
       Class<? extends T> tClass) throws T {
-    return TransactionRunners.run(transactionRunner, context -> {
-      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context);
+    AtomicReference<ScheduleTriggerIndex.Changes> changes = new AtomicReference<>();
+    V result = TransactionRunners.run(transactionRunner, context -> {
+      changes.set(triggerIndex.newChanges());
+      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context, changes.get());
       ProfileStore profileStore = ProfileStore.get(context);
       JobQueueTable queue = JobQueueTable.getJobQueue(context, cConf);
       return runnable.run(store, queue, profileStore);
     }, tClass);
+    triggerIndex.apply(changes.get());
+    return result;
   }
 }
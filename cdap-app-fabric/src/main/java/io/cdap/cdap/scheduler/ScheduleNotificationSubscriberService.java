@@ -34,6 +34,7 @@ import io.cdap.cdap.internal.app.runtime.ProgramOptionConstants;
 import io.cdap.cdap.internal.app.runtime.schedule.ProgramScheduleRecord;
 import io.cdap.cdap.internal.app.runtime.schedule.queue.JobQueueTable;
 import io.cdap.cdap.internal.app.runtime.schedule.store.ProgramScheduleStoreDataset;
+import io.cdap.cdap.internal.app.runtime.schedule.store.ScheduleTriggerIndex;
 import io.cdap.cdap.internal.app.runtime.schedule.store.Schedulers;
 import io.cdap.cdap.internal.app.services.AbstractNotificationSubscriberService;
 import io.cdap.cdap.messaging.spi.MessagingService;
@@ -42,15 +43,19 @@ import io.cdap.cdap.proto.ProgramRunStatus;
 import io.cdap.cdap.proto.id.DatasetId;
 import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.ProgramId;
+import io.cdap.cdap.proto.id.ProgramReference;
 import io.cdap.cdap.proto.id.ProgramRunId;
 import io.cdap.cdap.proto.id.ScheduleId;
 import io.cdap.cdap.spi.data.StructuredTableContext;
 import io.cdap.cdap.spi.data.transaction.TransactionRunner;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -72,16 +77,21 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
   private final CConfiguration cConf;
   private final MessagingService messagingService;
   private final MetricsCollectionService metricsCollectionService;
+  private final ConstraintCheckerService constraintCheckerService;
+  private final ScheduleTriggerIndex triggerIndex;
   private final List<Service> subscriberServices;
   private ScheduledExecutorService subscriberExecutor;
 
   @Inject
   ScheduleNotificationSubscriberService(CConfiguration cConf, MessagingService messagingService,
       MetricsCollectionService metricsCollectionService,
-      TransactionRunner transactionRunner) {
+      TransactionRunner transactionRunner, ConstraintCheckerService constraintCheckerService,
+      ScheduleTriggerIndex triggerIndex) {
     this.cConf = cConf;
     this.messagingService = messagingService;
     this.metricsCollectionService = metricsCollectionService;
+    this.constraintCheckerService = constraintCheckerService;
+    this.triggerIndex = triggerIndex;
     this.subscriberServices = Arrays.asList(new SchedulerEventSubscriberService(transactionRunner),
         new DataEventSubscriberService(transactionRunner),
         new ProgramStatusEventSubscriberService(transactionRunner));
@@ -128,6 +138,9 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
   private abstract class AbstractSchedulerSubscriberService extends
       AbstractNotificationSubscriberService {
 
+    // Schedules with jobs updated by the current batch, to be notified after commit
+    private final Set<ScheduleId> updatedSchedules = ConcurrentHashMap.newKeySet();
+
     AbstractSchedulerSubscriberService(String name, String topic, int fetchSize,
         TransactionRunner transactionRunner) {
       super(name, cConf, topic, fetchSize,
@@ -158,11 +171,41 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
       }
     }
 
+    @Override
+    protected void postProcess() {
+      Iterator<ScheduleId> iterator = updatedSchedules.iterator();
+      while (iterator.hasNext()) {
+        constraintCheckerService.jobsUpdated(iterator.next());
+        iterator.remove();
+      }
+    }
+
     @Override
     protected ScheduledExecutorService executor() {
       return subscriberExecutor;
     }
 
+    /**
+     * Adds the notification to the job queue for the given schedule.
+     */
+    protected void addNotification(JobQueueTable jobQueue, ProgramScheduleRecord record,
+        Notification notification) throws IOException {
+      jobQueue.addNotification(record, notification);
+      updatedSchedules.add(record.getSchedule().getScheduleId());
+    }
+
+    /**
+     * Finds all schedules triggered by the given trigger key, from the {@link ScheduleTriggerIndex}
+     * if it is enabled, or from the schedule store otherwise.
+     */
+    protected Collection<ProgramScheduleRecord> findSchedules(
+        ProgramScheduleStoreDataset scheduleStore, String triggerKey) throws IOException {
+      if (triggerIndex.isEnabled()) {
+        return triggerIndex.findSchedules(triggerKey);
+      }
+      return scheduleStore.findSchedules(triggerKey);
+    }
+
     /**
      * Processes a single {@link Notification}.
      */
@@ -217,7 +260,7 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
         return;
       }
       try {
-        jobQueue.addNotification(record, notification);
+        addNotification(jobQueue, record, notification);
       } catch (Exception e) {
         emitScheduleJobNotificationFailureMetrics(
             record.getSchedule().getScheduleId().getApplication(),
@@ -257,8 +300,8 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
       }
       DatasetId datasetId = DatasetId.fromString(datasetIdString);
       for (ProgramScheduleRecord schedule :
-          scheduleStore.findSchedules(Schedulers.triggerKeyForPartition(datasetId))) {
-        jobQueue.addNotification(schedule, notification);
+          findSchedules(scheduleStore, Schedulers.triggerKeyForPartition(datasetId))) {
+        addNotification(jobQueue, schedule, notification);
       }
     }
   }
@@ -269,6 +312,9 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
   private final class ProgramStatusEventSubscriberService extends
       AbstractSchedulerSubscriberService {
 
+    // Programs with runs completed in the current batch, to be notified after commit
+    private final Set<ProgramReference> completedPrograms = ConcurrentHashMap.newKeySet();
+
     ProgramStatusEventSubscriberService(TransactionRunner transactionRunner) {
       // Fetch transactionally since publishing from AppMetadataStore is transactional.
       super("scheduler.program.event",
@@ -276,6 +322,16 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
           cConf.getInt(Constants.Scheduler.PROGRAM_STATUS_EVENT_FETCH_SIZE), transactionRunner);
     }
 
+    @Override
+    protected void postProcess() {
+      super.postProcess();
+      Iterator<ProgramReference> iterator = completedPrograms.iterator();
+      while (iterator.hasNext()) {
+        constraintCheckerService.programRunCompleted(iterator.next());
+        iterator.remove();
+      }
+    }
+
     @Override
     protected void processNotification(ProgramScheduleStoreDataset scheduleStore,
         JobQueueTable jobQueue, Notification notification) throws IOException {
@@ -284,10 +340,11 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
       String programRunStatusString = notification.getProperties()
           .get(ProgramOptionConstants.PROGRAM_STATUS);
 
+      ProgramRunStatus programRunStatus;
       ProgramStatus programStatus;
       try {
-        programStatus = ProgramRunStatus.toProgramStatus(
-            ProgramRunStatus.valueOf(programRunStatusString));
+        programRunStatus = ProgramRunStatus.valueOf(programRunStatusString);
+        programStatus = ProgramRunStatus.toProgramStatus(programRunStatus);
       } catch (IllegalArgumentException e) {
         // Return silently, this happens for statuses that are not meant to be scheduled
         return;
@@ -300,12 +357,16 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
 
       ProgramRunId programRunId = GSON.fromJson(programRunIdString, ProgramRunId.class);
       ProgramId programId = programRunId.getParent();
+      if (programRunStatus.isEndState()) {
+        // Jobs could be waiting for the completion of active runs of the program
+        completedPrograms.add(programId.getProgramReference());
+      }
       String triggerKeyForProgramStatus = Schedulers.triggerKeyForProgramStatus(programId,
           programStatus);
 
-      for (ProgramScheduleRecord schedule : scheduleStore.findSchedules(
+      for (ProgramScheduleRecord schedule : findSchedules(scheduleStore,
           triggerKeyForProgramStatus)) {
-        jobQueue.addNotification(schedule, notification);
+        addNotification(jobQueue, schedule, notification);
       }
     }
   }
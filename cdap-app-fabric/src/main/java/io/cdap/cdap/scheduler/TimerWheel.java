@@ -0,0 +1,234 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.scheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A hierarchical timer wheel for tracking the expiration of items. The first level has buckets
+ * of {@code tickMillis} each. Every higher level has buckets spanning the whole range of the level
+ * below, and is only created when an item expiring beyond the range of the existing levels is
+ * scheduled. Items in higher levels are moved down to lower levels as time advances, hence
+ * scheduling, cancelling and expiring an item is done in constant time regardless of the number of
+ * items tracked.
+ *
+ * <p>Each item has at most one expiration time. Scheduling an item that is already scheduled
+ * replaces its expiration time. This class is not thread safe.</p>
+ *
+ * @param <T> type of the items
+ */
+final class TimerWheel<T> {
+
+  private final int wheelSize;
+  private final List<Level<T>> levels;
+  // Current expiration time of each scheduled item. Bucket entries not matching it are stale.
+  private final Map<T, Long> expirations;
+
+  TimerWheel(long tickMillis, int wheelSize, long currentTimeMillis) {
+    if (tickMillis <= 0 || wheelSize <= 1) {
+      throw new IllegalArgumentException(
+          "Tick must be positive and wheel size must be greater than 1");
+    }
+    this.wheelSize = wheelSize;
+    this.levels = new ArrayList<>();
+    this.levels.add(new Level<>(tickMillis, wheelSize, currentTimeMillis));
+    this.expirations = new HashMap<>();
+  }
+
+  /**
+   * Schedules the given item to expire at the given time.
+   *
+   * @return {@code true} if the item is scheduled; {@code false} if the expiration time is before
+   *     the current tick, in which case the item is already expired and is not scheduled
+   */
+  boolean schedule(T item, long expirationMillis) {
+    if (expirationMillis < levels.get(0).currentTime) {
+      expirations.remove(item);
+      return false;
+    }
+    expirations.put(item, expirationMillis);
+    insert(item, expirationMillis);
+    return true;
+  }
+
+  /**
+   * Cancels the expiration of the given item.
+   */
+  void cancel(T item) {
+    expirations.remove(item);
+  }
+
+  /**
+   * Returns the number of scheduled items.
+   */
+  int size() {
+    return expirations.size();
+  }
+
+  /**
+   * Returns {@code true} if there is no scheduled item.
+   */
+  boolean isEmpty() {
+    return expirations.isEmpty();
+  }
+
+  /**
+   * Advances the wheel to the given time.
+   *
+   * @return the list of items expired up to the given time
+   */
+  List<T> advance(long currentTimeMillis) {
+    List<T> expired = new ArrayList<>();
+    Level<T> first = levels.get(0);
+    if (expirations.isEmpty()) {
+      // Nothing to expire, just move time forward and drop the stale entries
+      for (Level<T> level : levels) {
+        level.reset(currentTimeMillis);
+      }
+      return expired;
+    }
+
+    while (first.currentTime + first.tickMillis <= currentTimeMillis) {
+      Set<T> bucket = first.take(first.currentTime);
+      first.currentTime += first.tickMillis;
+      reinsert(bucket, expired);
+
+      // Find the highest level that moved to a new bucket, and move items down from the top.
+      int highest = 0;
+      for (int i = 1; i < levels.size(); i++) {
+        Level<T> level = levels.get(i);
+        long time = level.align(first.currentTime);
+        if (time == level.currentTime) {
+          break;
+        }
+        level.currentTime = time;
+        highest = i;
+      }
+      for (int i = highest; i > 0; i--) {
+        Level<T> level = levels.get(i);
+        reinsert(level.take(level.currentTime), expired);
+      }
+    }
+    return expired;
+  }
+
+  /**
+   * Returns the earliest time that {@link #advance(long)} may return expired items or move items
+   * across levels, or {@link Long#MAX_VALUE} if there is no scheduled item.
+   */
+  long getNextTickTime() {
+    if (expirations.isEmpty()) {
+      return Long.MAX_VALUE;
+    }
+    long result = Long.MAX_VALUE;
+    for (int i = 0; i < levels.size(); i++) {
+      Level<T> level = levels.get(i);
+      // Items in the first level expire at the end of the bucket, while items in higher levels move
+      // down at the beginning of the bucket, which is never the current one.
+      int start = i == 0 ? 0 : 1;
+      for (int j = start; j < wheelSize; j++) {
+        long bucketTime = level.currentTime + j * level.tickMillis;
+        if (!level.get(bucketTime).isEmpty()) {
+          result = Math.min(result, i == 0 ? bucketTime + level.tickMillis : bucketTime);
+          break;
+        }
+      }
+    }
+    return result;
+  }
+
+  private void reinsert(Set<T> items, List<T> expired) {
+    Level<T> first = levels.get(0);
+    for (T item : items) {
+      Long expiration = expirations.get(item);
+      if (expiration == null) {
+        continue;
+      }
+      if (expiration < first.currentTime) {
+        expirations.remove(item);
+        expired.add(item);
+      } else {
+        insert(item, expiration);
+      }
+    }
+  }
+
+  private void insert(T item, long expirationMillis) {
+    int i = 0;
+    while (true) {
+      if (i == levels.size()) {
+        Level<T> last = levels.get(i - 1);
+        levels.add(new Level<>(last.tickMillis * wheelSize, wheelSize, levels.get(0).currentTime));
+      }
+      Level<T> level = levels.get(i);
+      if (expirationMillis < level.currentTime + level.intervalMillis) {
+        level.get(expirationMillis).add(item);
+        return;
+      }
+      i++;
+    }
+  }
+
+  /**
+   * One level of the wheel.
+   */
+  private static final class Level<T> {
+
+    private final long tickMillis;
+    private final long intervalMillis;
+    private final List<Set<T>> buckets;
+    // Start time of the current bucket
+    private long currentTime;
+
+    Level(long tickMillis, int wheelSize, long currentTimeMillis) {
+      this.tickMillis = tickMillis;
+      this.intervalMillis = tickMillis * wheelSize;
+      this.buckets = new ArrayList<>(wheelSize);
+      for (int i = 0; i < wheelSize; i++) {
+        buckets.add(new HashSet<>());
+      }
+      this.currentTime = align(currentTimeMillis);
+    }
+
+    long align(long timeMillis) {
+      return timeMillis - Math.floorMod(timeMillis, tickMillis);
+    }
+
+    Set<T> get(long timeMillis) {
+      return buckets.get((int) Math.floorMod(timeMillis / tickMillis, (long) buckets.size()));
+    }
+
+    Set<T> take(long timeMillis) {
+      Set<T> bucket = get(timeMillis);
+      Set<T> result = new HashSet<>(bucket);
+      bucket.clear();
+      return result;
+    }
+
+    void reset(long currentTimeMillis) {
+      for (Set<T> bucket : buckets) {
+        bucket.clear();
+      }
+      currentTime = Math.max(currentTime, align(currentTimeMillis));
+    }
+  }
+}
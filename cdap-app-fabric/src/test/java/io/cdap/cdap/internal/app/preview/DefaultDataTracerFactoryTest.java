@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.cdap.internal.app.preview;
+
+import io.cdap.cdap.api.preview.DataTracer;
+import io.cdap.cdap.app.preview.PreviewMessage;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.utils.Tasks;
+import io.cdap.cdap.proto.id.ApplicationId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link DefaultDataTracerFactory}.
+ */
+public class DefaultDataTracerFactoryTest {
+
+  private static final ApplicationId APP_ID = new ApplicationId("ns", "app");
+
+  @Test
+  public void testBufferLifecycle() throws Exception {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setInt(Constants.Preview.DATA_TRACER_BATCH_SIZE, 100);
+    cConf.setLong(Constants.Preview.DATA_TRACER_FLUSH_INTERVAL_MS, 10L);
+    List<PreviewMessage> messages = Collections.synchronizedList(new ArrayList<>());
+    DefaultDataTracerFactory factory = new DefaultDataTracerFactory((id, message) -> messages.add(message), cConf);
+    try {
+      // Flushing the application publishes its buffered data and removes its buffers
+      DataTracer tracer = factory.getDataTracer(APP_ID, "stage");
+      tracer.info("records.in", "a");
+      factory.flush(APP_ID);
+      Assert.assertEquals(1, messages.size());
+      Assert.assertEquals(0, factory.getBufferCount());
+
+      // The buffer of a tracer created after the application finished is flushed and removed once idle
+      factory.getDataTracer(APP_ID, "late").info("records.in", "b");
+      Tasks.waitFor(2, messages::size, 10, TimeUnit.SECONDS);
+      Tasks.waitFor(0, factory::getBufferCount, 10, TimeUnit.SECONDS);
+
+      // A tracer of a removed buffer still publishes its data
+      tracer.info("records.in", "c");
+      Assert.assertEquals(3, messages.size());
+    } finally {
+      factory.close();
+    }
+
+    // Closing publishes the data buffered in all buffers
+    factory.getDataTracer(APP_ID, "stage").info("records.in", "d");
+    Assert.assertEquals(3, messages.size());
+    factory.close();
+    Assert.assertEquals(4, messages.size());
+    Assert.assertEquals(0, factory.getBufferCount());
+  }
+}
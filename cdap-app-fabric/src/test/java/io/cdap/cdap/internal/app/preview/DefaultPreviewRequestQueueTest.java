@@ -24,6 +24,7 @@ import com.google.inject.Key;
 import com.google.inject.name.Names;
 import io.cdap.cdap.api.artifact.ArtifactSummary;
 import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.metrics.MetricsCollectionService;
 import io.cdap.cdap.app.preview.PreviewConfigModule;
 import io.cdap.cdap.app.preview.PreviewRequest;
 import io.cdap.cdap.app.preview.PreviewRequestQueue;
@@ -33,6 +34,7 @@ import io.cdap.cdap.common.app.RunIds;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.conf.SConfiguration;
+import io.cdap.cdap.common.metrics.NoOpMetricsCollectionService;
 import io.cdap.cdap.data2.dataset2.lib.table.leveldb.LevelDBTableService;
 import io.cdap.cdap.proto.ProgramType;
 import io.cdap.cdap.proto.artifact.AppRequest;
@@ -42,6 +44,7 @@ import io.cdap.cdap.proto.id.ProgramId;
 import io.cdap.cdap.proto.id.ProgramRunId;
 import io.cdap.cdap.proto.security.Credential;
 import io.cdap.cdap.proto.security.Principal;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -76,6 +79,7 @@ public class DefaultPreviewRequestQueueTest {
         @Override
         protected void configure() {
           bind(PreviewStore.class).to(MockPreviewStore.class);
+          bind(MetricsCollectionService.class).to(NoOpMetricsCollectionService.class);
         }
       }
     );
@@ -215,5 +219,42 @@ public class DefaultPreviewRequestQueueTest {
     requestOptional = previewRequestQueue.poll(pollerInfo);
     Assert.assertFalse(requestOptional.isPresent());
   }
-}
 
+  @Test
+  public void testFairness() {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setInt(Constants.Preview.WAITING_QUEUE_CAPACITY, 10);
+    PreviewRequestQueue queue = new DefaultPreviewRequestQueue(cConf, new MockPreviewStore(),
+                                                               new NoOpMetricsCollectionService());
+
+    PreviewConfig previewConfig = new PreviewConfig("WordCount", ProgramType.WORKFLOW, null, null);
+    AppRequest<?> testRequest = new AppRequest<>(new ArtifactSummary("test", "1.0"), null, previewConfig);
+    Principal principal = new Principal("userFoo", Principal.PrincipalType.USER, null);
+
+    // Three requests from one submitter followed by one request from another submitter
+    ApplicationId app1 = new ApplicationId("ns1", RunIds.generate().getId());
+    ApplicationId app2 = new ApplicationId("ns1", RunIds.generate().getId());
+    ApplicationId app3 = new ApplicationId("ns1", RunIds.generate().getId());
+    ApplicationId app4 = new ApplicationId("ns2", RunIds.generate().getId());
+    for (ApplicationId appId : Arrays.asList(app1, app2, app3)) {
+      queue.add(new PreviewRequest(appId, testRequest, principal));
+    }
+    queue.add(new PreviewRequest(app4, testRequest, principal));
+
+    // The submitters take turns
+    Assert.assertEquals(4, queue.getState().getNumOfPreviewWaiting());
+    Assert.assertEquals(0, queue.positionOf(app1));
+    Assert.assertEquals(1, queue.positionOf(app4));
+    Assert.assertEquals(2, queue.positionOf(app2));
+    Assert.assertEquals(3, queue.positionOf(app3));
+
+    byte[] pollerInfo = Bytes.toBytes("runner-1");
+    for (ApplicationId appId : Arrays.asList(app1, app4, app2, app3)) {
+      Optional<PreviewRequest> request = queue.poll(pollerInfo);
+      Assert.assertTrue(request.isPresent());
+      Assert.assertEquals(appId, request.get().getProgram().getParent());
+    }
+    Assert.assertFalse(queue.poll(pollerInfo).isPresent());
+    Assert.assertEquals(-1, queue.positionOf(app1));
+  }
+}
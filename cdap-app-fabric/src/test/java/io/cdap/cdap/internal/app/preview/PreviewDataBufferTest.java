@@ -0,0 +1,157 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.preview;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.gson.Gson;
+import io.cdap.cdap.app.preview.PreviewMessage;
+import io.cdap.cdap.proto.id.ApplicationId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PreviewDataBuffer}.
+ */
+public class PreviewDataBufferTest {
+
+  private static final Gson GSON = new Gson();
+  private static final ApplicationId APP_ID = new ApplicationId("ns", "app");
+
+  @Test
+  public void testBatching() {
+    List<PreviewMessage> messages = new ArrayList<>();
+    PreviewDataBuffer buffer = new PreviewDataBuffer(APP_ID, "stage", (id, message) -> messages.add(message),
+                                                     3, TimeUnit.HOURS.toMillis(1), 100);
+
+    // Values are published once the batch is full
+    buffer.add("records.in", "a");
+    buffer.add("records.out", "b");
+    Assert.assertTrue(messages.isEmpty());
+    buffer.add("records.in", "c");
+    Assert.assertEquals(1, messages.size());
+
+    PreviewDataBatchPayload payload = getPayload(messages.get(0));
+    Assert.assertEquals("stage", payload.getTracerName());
+    Assert.assertEquals(Arrays.asList("a", "c"), payload.getProperties().get("records.in"));
+    Assert.assertEquals(Collections.singletonList("b"), payload.getProperties().get("records.out"));
+
+    // Flushing publishes the remaining values
+    buffer.flushExpired();
+    buffer.flush();
+    Assert.assertEquals(1, messages.size());
+    buffer.add("records.in", "d");
+    buffer.flushExpired();
+    Assert.assertEquals(1, messages.size());
+    buffer.flush();
+    Assert.assertEquals(2, messages.size());
+    Assert.assertEquals(Collections.singletonList("d"), getPayload(messages.get(1)).getProperties().get("records.in"));
+  }
+
+  @Test
+  public void testFlushInterval() {
+    List<PreviewMessage> messages = new ArrayList<>();
+    PreviewDataBuffer buffer = new PreviewDataBuffer(APP_ID, "stage", (id, message) -> messages.add(message),
+                                                     100, 0L, 100);
+    // Values buffered longer than the flush interval are published
+    buffer.add("records.in", "a");
+    Assert.assertEquals(1, messages.size());
+  }
+
+  @Test
+  public void testRecordLimit() {
+    List<PreviewMessage> messages = new ArrayList<>();
+    PreviewDataBuffer buffer = new PreviewDataBuffer(APP_ID, "stage", (id, message) -> messages.add(message),
+                                                     2, TimeUnit.HOURS.toMillis(1), 3);
+    for (int i = 0; i < 5; i++) {
+      buffer.add("records.in", "in" + i);
+    }
+    buffer.add("records.out", "out");
+    buffer.flush();
+
+    // Only the maximum number of records are traced for each property
+    Assert.assertTrue(buffer.isLimitReached("records.in"));
+    Assert.assertFalse(buffer.isLimitReached("records.out"));
+    List<Object> tracedIn = new ArrayList<>();
+    List<Object> tracedOut = new ArrayList<>();
+    for (PreviewMessage message : messages) {
+      PreviewDataBatchPayload payload = getPayload(message);
+      tracedIn.addAll(payload.getProperties().getOrDefault("records.in", Collections.emptyList()));
+      tracedOut.addAll(payload.getProperties().getOrDefault("records.out", Collections.emptyList()));
+    }
+    Assert.assertEquals(Arrays.asList("in0", "in1", "in2"), tracedIn);
+    Assert.assertEquals(Collections.singletonList("out"), tracedOut);
+  }
+
+  @Test
+  public void testClose() {
+    List<PreviewMessage> messages = new ArrayList<>();
+    PreviewDataBuffer buffer = new PreviewDataBuffer(APP_ID, "stage", (id, message) -> messages.add(message),
+                                                     100, TimeUnit.HOURS.toMillis(1), 100);
+    buffer.add("records.in", "a");
+    Assert.assertFalse(buffer.isIdle(0L));
+
+    // Closing publishes the buffered values, and values added later are published right away
+    buffer.close();
+    Assert.assertEquals(1, messages.size());
+    Assert.assertTrue(buffer.isIdle(0L));
+    buffer.add("records.in", "b");
+    Assert.assertEquals(2, messages.size());
+    Assert.assertEquals(Collections.singletonList("b"), getPayload(messages.get(1)).getProperties().get("records.in"));
+  }
+
+  @Test
+  public void testFlushWaitsForPublish() throws Exception {
+    CountDownLatch publishing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    List<PreviewMessage> messages = Collections.synchronizedList(new ArrayList<>());
+    PreviewDataBuffer buffer = new PreviewDataBuffer(APP_ID, "stage", (id, message) -> {
+      publishing.countDown();
+      Uninterruptibles.awaitUninterruptibly(release);
+      messages.add(message);
+    }, 100, TimeUnit.HOURS.toMillis(1), 100);
+    buffer.add("records.in", "a");
+
+    // A flush returns only after the values drained by a concurrent flush are published
+    CompletableFuture<Void> firstFlush = CompletableFuture.runAsync(buffer::flush);
+    Assert.assertTrue(publishing.await(10, TimeUnit.SECONDS));
+    CompletableFuture<Void> secondFlush = CompletableFuture.runAsync(buffer::flush);
+    try {
+      secondFlush.get(200, TimeUnit.MILLISECONDS);
+      Assert.fail("Flush should wait for the concurrent publish");
+    } catch (TimeoutException e) {
+      // expected
+    }
+    release.countDown();
+    secondFlush.get(10, TimeUnit.SECONDS);
+    Assert.assertEquals(1, messages.size());
+    firstFlush.get(10, TimeUnit.SECONDS);
+  }
+
+  private PreviewDataBatchPayload getPayload(PreviewMessage message) {
+    Assert.assertEquals(PreviewMessage.Type.DATA_BATCH, message.getType());
+    Assert.assertEquals(APP_ID, message.getEntityId());
+    return message.getPayload(GSON, PreviewDataBatchPayload.class);
+  }
+}
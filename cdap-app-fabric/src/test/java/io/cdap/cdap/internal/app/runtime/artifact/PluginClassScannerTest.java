@@ -0,0 +1,191 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.runtime.artifact;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.cdap.cdap.api.annotation.Metadata;
+import io.cdap.cdap.api.annotation.MetadataProperty;
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.cdap.api.dataset.lib.KeyValueTable;
+import io.cdap.cdap.api.dataset.table.Table;
+import io.cdap.cdap.api.plugin.PluginConfig;
+import io.cdap.cdap.api.plugin.PluginPropertyField;
+import io.cdap.cdap.internal.app.runtime.artifact.app.inspection.InspectionApp;
+import io.cdap.cdap.internal.app.runtime.artifact.plugin.nested.NestedConfigPlugin;
+import java.util.Arrays;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link PluginClassScanner}.
+ */
+public class PluginClassScannerTest {
+
+  private final PluginClassScanner scanner = new PluginClassScanner(getClass().getClassLoader());
+
+  @Test
+  public void testScanPlugin() {
+    PluginClassScanner.ScannedPlugin plugin =
+        scanner.scan(InspectionApp.MultipleRequirementsPlugin.class.getName());
+    Assert.assertNotNull(plugin);
+    Assert.assertTrue(plugin.isResolved());
+    Assert.assertEquals(InspectionApp.MULTIPLE_REQUIREMENTS_PLUGIN, plugin.getName());
+    Assert.assertEquals(InspectionApp.PLUGIN_TYPE, plugin.getType());
+    Assert.assertEquals(InspectionApp.PLUGIN_CATEGORY, plugin.getCategory());
+    Assert.assertEquals(InspectionApp.PLUGIN_DESCRIPTION, plugin.getDescription());
+    Assert.assertEquals("pluginConf", plugin.getConfigFieldName());
+    Assert.assertEquals(ImmutableMap.of(
+        "y", new PluginPropertyField("y", "", "double", true, true),
+        "isSomething", new PluginPropertyField("isSomething", "", "boolean", true, false)),
+        plugin.getProperties());
+    Assert.assertEquals(Arrays.asList(Table.TYPE, KeyValueTable.TYPE), plugin.getDatasetTypes());
+    Assert.assertTrue(plugin.getCapabilities().isEmpty());
+    Assert.assertNull(plugin.getMetadataTags());
+  }
+
+  @Test
+  public void testScanNestedConfig() {
+    PluginClassScanner.ScannedPlugin plugin = scanner.scan(NestedConfigPlugin.class.getName());
+    Assert.assertNotNull(plugin);
+    Assert.assertTrue(plugin.isResolved());
+    Assert.assertEquals("config", plugin.getConfigFieldName());
+    Assert.assertEquals(ImmutableMap.of(
+        "X", new PluginPropertyField("X", "", "int", true, false),
+        "Nested", new PluginPropertyField("Nested", "", "nestedconfig", true, true, false,
+            ImmutableSet.of("Nested1", "Nested2")),
+        "Nested1", new PluginPropertyField("Nested1", "", "string", true, true),
+        "Nested2", new PluginPropertyField("Nested2", "", "string", true, true)),
+        plugin.getProperties());
+  }
+
+  @Test
+  public void testScanTypes() {
+    PluginClassScanner.ScannedPlugin plugin = scanner.scan(TypesPlugin.class.getName());
+    Assert.assertNotNull(plugin);
+    Assert.assertTrue(plugin.isResolved());
+    Assert.assertEquals(TypesPlugin.class.getName(), plugin.getName());
+    Assert.assertEquals(Plugin.DEFAULT_TYPE, plugin.getType());
+    Assert.assertNull(plugin.getCategory());
+    Assert.assertEquals("", plugin.getDescription());
+    Assert.assertEquals("config", plugin.getConfigFieldName());
+
+    Map<String, PluginPropertyField> properties = plugin.getProperties();
+    Assert.assertEquals(ImmutableSet.of("count", "values", "matrix", "inner", "name", "renamed"),
+        properties.keySet());
+    Assert.assertEquals("int", properties.get("count").getType());
+    Assert.assertFalse(properties.get("count").isRequired());
+    Assert.assertEquals("string[]", properties.get("values").getType());
+    Assert.assertEquals("long[][]", properties.get("matrix").getType());
+    Assert.assertEquals("inner", properties.get("inner").getType());
+    Assert.assertEquals("string", properties.get("name").getType());
+    Assert.assertEquals("double", properties.get("renamed").getType());
+
+    Assert.assertEquals(ImmutableSet.of("tag1", "tag2"), plugin.getMetadataTags());
+    Assert.assertEquals(ImmutableMap.of("k", "v"), plugin.getMetadataProperties());
+  }
+
+  @Test
+  public void testUnresolved() {
+    // Type variables need to be resolved through reflection
+    PluginClassScanner.ScannedPlugin plugin = scanner.scan(GenericPlugin.class.getName());
+    Assert.assertNotNull(plugin);
+    Assert.assertFalse(plugin.isResolved());
+
+    // Duplicate properties are reported through reflection
+    plugin = scanner.scan(DuplicatePlugin.class.getName());
+    Assert.assertNotNull(plugin);
+    Assert.assertFalse(plugin.isResolved());
+  }
+
+  @Test
+  public void testNonPlugin() {
+    Assert.assertNull(scanner.scan(InspectionApp.class.getName()));
+    Assert.assertNull(scanner.scan("does.not.Exist"));
+  }
+
+  /**
+   * Plugin with different property types.
+   */
+  @Plugin
+  @Metadata(tags = {"tag1", "tag2"}, properties = {@MetadataProperty(key = "k", value = "v")})
+  public static class TypesPlugin {
+    private static final int IGNORED = 0;
+    private TypesConfig config;
+  }
+
+  /**
+   * Base config class.
+   */
+  public static class BaseConfig extends PluginConfig {
+    @Name("renamed")
+    private double value;
+  }
+
+  /**
+   * Config with different property types.
+   */
+  public static class TypesConfig extends BaseConfig {
+    private static final String CONSTANT = "constant";
+    @Nullable
+    private Integer count;
+    private String[] values;
+    private long[][] matrix;
+    private Inner inner;
+    private String name;
+    private transient String ignored;
+  }
+
+  /**
+   * A non config inner class.
+   */
+  public static class Inner {
+  }
+
+  /**
+   * Config with a type variable.
+   */
+  public static class GenericConfig<T> extends PluginConfig {
+    private T value;
+  }
+
+  /**
+   * Plugin with a generic config.
+   */
+  @Plugin
+  public static class GenericPlugin {
+    private GenericConfig<String> config;
+  }
+
+  /**
+   * Config with duplicate properties.
+   */
+  public static class DuplicateConfig extends BaseConfig {
+    private double renamed;
+  }
+
+  /**
+   * Plugin with duplicate properties.
+   */
+  @Plugin
+  public static class DuplicatePlugin {
+    private DuplicateConfig config;
+  }
+}
@@ -41,6 +41,7 @@ import io.cdap.cdap.data.runtime.StorageModule;
 import io.cdap.cdap.data.runtime.SystemDatasetRuntimeModule;
 import io.cdap.cdap.data2.dataset2.lib.table.inmemory.InMemoryTableService;
 import io.cdap.cdap.internal.app.runtime.SystemArguments;
+import io.cdap.cdap.internal.app.store.ActiveRunCache;
 import io.cdap.cdap.internal.app.store.AppMetadataStore;
 import io.cdap.cdap.internal.app.store.DefaultStore;
 import io.cdap.cdap.internal.app.store.RunRecordDetail;
@@ -95,6 +96,7 @@ public class DirectRuntimeRequestValidatorTest {
 
   private CConfiguration cConf;
   private TransactionRunner txRunner;
+  private ActiveRunCache activeRunCache;
 
   @Mock
   private AccessEnforcer accessEnforcer;
@@ -107,6 +109,8 @@ public class DirectRuntimeRequestValidatorTest {
     cConf.set(Constants.CFG_LOCAL_DATA_DIR, TEMP_FOLDER.newFolder().toString());
     // This will effectively turn off the cache in the validator with a TTL of 0.
     cConf.setLong(Constants.RuntimeMonitor.POLL_TIME_MS, 0L);
+    cConf.setBoolean(Constants.AppFabric.ACTIVE_RUN_CACHE_ENABLED, true);
+    cConf.setLong(Constants.AppFabric.ACTIVE_RUN_CACHE_REFRESH_INTERVAL_SECONDS, TimeUnit.HOURS.toSeconds(1));
 
     Injector injector = Guice.createInjector(
       new ConfigModule(cConf),
@@ -130,6 +134,7 @@ public class DirectRuntimeRequestValidatorTest {
     StoreDefinition.AppMetadataStore.create(injector.getInstance(StructuredTableAdmin.class));
 
     txRunner = injector.getInstance(TransactionRunner.class);
+    activeRunCache = injector.getInstance(ActiveRunCache.class);
   }
 
   @After
@@ -245,6 +250,35 @@ public class DirectRuntimeRequestValidatorTest {
     Assert.assertEquals(programRunStatus, programRunInfo.getProgramRunStatus());
   }
 
+  @Test
+  public void testFetcherUpdatesActiveRunCache() throws BadRequestException, GoneException {
+    ProgramRunId programRunId = NamespaceId.DEFAULT.app("app").spark("spark").run(RunIds.generate());
+    RunRecordDetail runRecord = RunRecordDetail.builder()
+      .setProgramRunId(programRunId)
+      .setStartTime(System.currentTimeMillis())
+      .setArtifactId(ARTIFACT_ID)
+      .setStatus(ProgramRunStatus.RUNNING)
+      .setSystemArgs(ImmutableMap.of(
+        SystemArguments.PROFILE_NAME, "default",
+        SystemArguments.PROFILE_PROVISIONER, "native"))
+      .setProfileId(NamespaceId.DEFAULT.profile("native"))
+      .setSourceId(new byte[MessageId.RAW_ID_SIZE])
+      .build();
+
+    // Load the cache before the run record is inserted
+    Assert.assertEquals(0, activeRunCache.countActiveRuns(null));
+
+    RuntimeRequestValidator validator = new DirectRuntimeRequestValidator(
+      cConf, txRunner, new MockProgramRunRecordFetcher().setRunRecord(runRecord), accessEnforcer,
+      authenticationContext, activeRunCache);
+    validator.getProgramRunStatus(programRunId, new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/"));
+
+    // The run record inserted into the runtime store should be reflected in the cache without a reload
+    RunRecordDetail cached = activeRunCache.getActiveRuns(r -> true).get(programRunId);
+    Assert.assertNotNull(cached);
+    Assert.assertEquals(ProgramRunStatus.RUNNING, cached.getStatus());
+  }
+
   @Test
   public void testValidProgramInStoppingState() throws BadRequestException, GoneException {
     ProgramRunId programRunId = NamespaceId.DEFAULT.app("app").spark("spark").run(RunIds.generate());
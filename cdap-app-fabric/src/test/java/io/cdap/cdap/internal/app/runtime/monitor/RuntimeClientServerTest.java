@@ -53,7 +53,11 @@ import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -109,6 +113,7 @@ public class RuntimeClientServerTest {
     cConf.setBoolean(Constants.AppFabric.SPARK_EVENT_LOGS_ENABLED, true);
     cConf.set(TEST_TOPIC_KEY, TEST_TOPIC);
     cConf.set(Constants.RuntimeMonitor.TOPICS_CONFIGS, Constants.Logging.TMS_TOPIC_PREFIX + ":1," + TEST_TOPIC_KEY);
+    cConf.setLong(Constants.RuntimeMonitor.MULTIPLEX_SERVER_MAX_REQUEST_BYTES, 1 << 20);
 
     Injector injector = Guice.createInjector(
       new ConfigModule(cConf),
@@ -221,6 +226,62 @@ public class RuntimeClientServerTest {
     Assert.assertEquals(expected, logEntries);
   }
 
+  @Test
+  public void testMultiplexedMessages() throws Exception {
+    ProgramRunId programRunId = NamespaceId.DEFAULT.app("app").workflow("workflow").run(RunIds.generate());
+    TopicId topicId = NamespaceId.SYSTEM.topic(TEST_TOPIC);
+    TopicId logTopicId = NamespaceId.SYSTEM.topic(cConf.get(Constants.Logging.TMS_TOPIC_PREFIX) + "0");
+    TopicId deniedTopicId = NamespaceId.SYSTEM.topic("denied");
+
+    List<Message> messages = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      messages.add(createMessage(i + RuntimeClient.CHUNK_SIZE));
+    }
+    List<Message> logMessages = IntStream.range(0, 100).mapToObj(this::createMessage).collect(Collectors.toList());
+
+    Map<TopicId, List<Message>> frames = new LinkedHashMap<>();
+    frames.put(topicId, messages);
+    frames.put(logTopicId, logMessages);
+    frames.put(deniedTopicId, Collections.singletonList(createMessage(10)));
+
+    // Messages of each topic are processed independently
+    Map<String, String> failedTopics = runtimeClient.sendMultiplexedMessages(programRunId, frames);
+    Assert.assertEquals(Collections.singleton(deniedTopicId.getTopic()), failedTopics.keySet());
+    assertMessages(topicId, messages);
+    Assert.assertEquals(logMessages.stream().map(Message::getPayloadAsString).collect(Collectors.toList()),
+                        logEntries);
+
+    // An empty frame is acknowledged without publishing anything
+    failedTopics = runtimeClient.sendMultiplexedMessages(programRunId,
+                                                         Collections.singletonMap(topicId, Collections.emptyList()));
+    Assert.assertTrue(failedTopics.isEmpty());
+    assertMessages(topicId, messages);
+  }
+
+  @Test
+  public void testMultiplexedMessagesTooLarge() throws Exception {
+    ProgramRunId programRunId = NamespaceId.DEFAULT.app("app").workflow("workflow").run(RunIds.generate());
+    TopicId topicId = NamespaceId.SYSTEM.topic(TEST_TOPIC);
+
+    // Random payloads don't compress, hence the request is larger than the server accepts
+    byte[] payload = new byte[2 << 20];
+    new Random().nextBytes(payload);
+    List<Message> largeMessages = Collections.singletonList(createMessage(payload));
+    try {
+      runtimeClient.sendMultiplexedMessages(programRunId, Collections.singletonMap(topicId, largeMessages));
+      Assert.fail("Expected RequestTooLargeException");
+    } catch (RequestTooLargeException e) {
+      // expected
+    }
+    assertMessages(topicId, Collections.emptyList());
+
+    // Smaller requests are still accepted
+    List<Message> messages = Collections.singletonList(createMessage(10));
+    Assert.assertTrue(runtimeClient.sendMultiplexedMessages(programRunId,
+                                                            Collections.singletonMap(topicId, messages)).isEmpty());
+    assertMessages(topicId, messages);
+  }
+
   @Test
   public void testFutureIsNotBlockingWhenValueIsSet() throws Exception {
     CountDownLatch countDownLatch = new CountDownLatch(1);
@@ -276,8 +337,14 @@ public class RuntimeClientServerTest {
    * Creates a {@link Message} with a payload of the given size.
    */
   private Message createMessage(int size) {
+    return createMessage(Strings.repeat("m", size).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Creates a {@link Message} with the given payload.
+   */
+  private Message createMessage(byte[] payload) {
     String messageId = RunIds.generate().getId();
-    byte[] payload = Strings.repeat("m", size).getBytes(StandardCharsets.UTF_8);
 
     return new Message() {
       @Override
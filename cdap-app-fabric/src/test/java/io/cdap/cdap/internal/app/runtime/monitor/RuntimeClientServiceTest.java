@@ -69,11 +69,13 @@ import io.cdap.cdap.security.authorization.AuthorizationEnforcementModule;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Spliterators;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -119,6 +121,7 @@ public class RuntimeClientServiceTest {
       NamespaceId.DEFAULT.app("app").workflow("workflow")
           .run(RunIds.generate());
   private static final Gson GSON = new Gson();
+  private static final int SERVER_MAX_REQUEST_BYTES = 1 << 16;
 
   private List<String> topicNames;
   private List<String> nonStatusTopicNames;
@@ -145,6 +148,8 @@ public class RuntimeClientServiceTest {
     cConf.set(Constants.RuntimeMonitor.TOPICS_CONFIGS, TOPIC_CONFIGS_VALUE);
     cConf.setInt(Constants.AppFabric.PROGRAM_STATUS_EVENT_NUM_PARTITIONS,
         PROGRAM_STATUS_EVENT_TEST_PARTITIONS);
+    cConf.setLong(Constants.RuntimeMonitor.MULTIPLEX_SERVER_MAX_REQUEST_BYTES,
+        SERVER_MAX_REQUEST_BYTES);
 
     topicNames = RuntimeMonitors.createTopicNameList(cConf);
     Pattern statusTopicRegex = Pattern.compile(
@@ -309,6 +314,13 @@ public class RuntimeClientServiceTest {
     programStateWriter.completed(PROGRAM_RUN_ID);
   }
 
+  @Test
+  public void testRelayPerTopic() throws Exception {
+    // Relay with one request per topic, which is also used if the server doesn't support multiplexing
+    clientCConf.setBoolean(Constants.RuntimeMonitor.MULTIPLEX_ENABLED, false);
+    testBasicRelay();
+  }
+
   @Test
   public void testRelayWithAggregation() throws Exception {
     TypeToken<MetricValues> metricValueType = TypeToken.of(MetricValues.class);
@@ -472,6 +484,40 @@ public class RuntimeClientServiceTest {
     waitForStatus(serverMessagingContext, ProgramRunStatus.COMPLETED);
   }
 
+  @Test
+  public void testProgramTerminateInRequestTooLarge() throws Exception {
+    MessagingContext messagingContext = new MultiThreadMessagingContext(
+        clientMessagingService);
+    ProgramStateWriter programStateWriter = new MessagingProgramStateWriter(
+        clientProgramStatePublisher);
+
+    // The program finish is detected in the same poll as a message too large for the server to
+    // accept in a multiplexed request, hence the poll falls back to one request per topic
+    String topic = nonStatusTopicNames.get(0);
+    byte[] randomBytes = new byte[SERVER_MAX_REQUEST_BYTES];
+    new Random(0L).nextBytes(randomBytes);
+    String payload = Base64.getEncoder().encodeToString(randomBytes);
+    messagingContext.getDirectMessagePublisher().publish(NamespaceId.SYSTEM.getNamespace(), topic,
+        payload);
+    programStateWriter.completed(PROGRAM_RUN_ID);
+
+    runtimeClientService = clientInjector.getInstance(
+        RuntimeClientService.class);
+    runtimeClientService.startAndWait();
+    Tasks.waitFor(Service.State.TERMINATED, () -> runtimeClientService.state(),
+        clientCConf.getLong(Constants.RuntimeMonitor.GRACEFUL_SHUTDOWN_MS)
+            + 2000, TimeUnit.MILLISECONDS);
+
+    // The held program status should only be relayed once
+    MessagingContext serverMessagingContext = new MultiThreadMessagingContext(
+        messagingService);
+    waitForStatus(serverMessagingContext, ProgramRunStatus.COMPLETED);
+    Assert.assertEquals(Collections.singletonList(payload),
+        fetchMessages(serverMessagingContext, topic, 10, null)
+            .stream().map(Message::getPayloadAsString)
+            .collect(Collectors.toList()));
+  }
+
   /**
    * Test for {@link RuntimeClientService} that will block termination until a
    * program completed mess
@@ -32,8 +32,10 @@ import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.io.Locations;
 import io.cdap.cdap.common.lang.jar.BundleJarUtil;
 import io.cdap.cdap.internal.app.runtime.ProgramClassLoader;
+import io.cdap.cdap.internal.app.runtime.artifact.Artifacts;
 import java.io.File;
 import java.io.IOException;
+import java.net.URL;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -76,6 +78,38 @@ public class PluginInstantiatorTest {
     pluginInstantiator.close();
   }
 
+  @Test
+  public void testShareExpandedArtifact() throws IOException {
+    File pluginDir = TMP_FOLDER.newFolder();
+    File pluginArchive = TMP_FOLDER.newFile();
+    ArtifactId artifactId = new ArtifactId("shared", new ArtifactVersion("1.0"), ArtifactScope.USER);
+    CConfiguration cConf = CConfiguration.create();
+    cConf.set(Constants.CFG_LOCAL_DATA_DIR, TMP_FOLDER.newFolder().getAbsolutePath());
+    cConf.setBoolean(Constants.AppFabric.UNPACKED_ARTIFACT_CACHE_ENABLED, true);
+    FileUtils.write(new File(pluginDir, "test.class"), "pluginData");
+    BundleJarUtil.createJar(pluginDir, pluginArchive);
+
+    ClassLoader parent = new ProgramClassLoader(cConf, TMP_FOLDER.newFolder(), getClass().getClassLoader());
+    File pluginsDir1 = TMP_FOLDER.newFolder();
+    File pluginsDir2 = TMP_FOLDER.newFolder();
+    try (PluginInstantiator instantiator1 = new PluginInstantiator(cConf, parent, pluginsDir1);
+         PluginInstantiator instantiator2 = new PluginInstantiator(cConf, parent, pluginsDir2)) {
+      instantiator1.addArtifact(Locations.toLocation(pluginArchive), artifactId);
+      URL resource1 = instantiator1.getArtifactClassLoader(artifactId).getResource("test.class");
+
+      // Replace the copy of the second instantiator, which would change the expanded content if the
+      // copy were expanded again instead of sharing the directory expanded from the same source
+      instantiator2.addArtifact(Locations.toLocation(pluginArchive), artifactId);
+      File copy = new File(pluginsDir2, Artifacts.getFileName(artifactId));
+      Assert.assertTrue(copy.delete());
+      FileUtils.write(copy, "not a jar");
+      URL resource2 = instantiator2.getArtifactClassLoader(artifactId).getResource("test.class");
+
+      Assert.assertEquals(resource1, resource2);
+      Assert.assertEquals("pluginData", IOUtils.toString(resource2));
+    }
+  }
+
   @Test
   public void testSubstituteMacros() throws Exception {
     File appDir = TMP_FOLDER.newFolder();
@@ -20,6 +20,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import io.cdap.cdap.api.ProgramStatus;
+import io.cdap.cdap.common.metrics.NoOpMetricsCollectionService;
 import io.cdap.cdap.internal.app.runtime.schedule.ProgramSchedule;
 import io.cdap.cdap.internal.app.runtime.schedule.ProgramScheduleRecord;
 import io.cdap.cdap.internal.app.runtime.schedule.ProgramScheduleStatus;
@@ -438,4 +439,90 @@ public abstract class ProgramScheduleStoreDatasetTest extends AppFabricTestBase
     );
     Assert.assertEquals(ImmutableSet.of(schedOrNew1), ds1Schedules);
   }
+
+  @Test
+  public void testTriggerIndex() {
+    TransactionRunner transactionRunner = getTransactionRunner();
+    ScheduleTriggerIndex index = new ScheduleTriggerIndex(true, Long.MAX_VALUE, transactionRunner,
+                                                          new NoOpMetricsCollectionService());
+
+    ProgramSchedule sched11 = new ProgramSchedule("sched11", "one partition schedule", PROG1_ID,
+                                                  ImmutableMap.of(), new PartitionTrigger(DS1_ID, 1),
+                                                  ImmutableList.of());
+    ProgramSchedule sched12 = new ProgramSchedule("sched12", "two partition schedule", PROG1_ID,
+                                                  ImmutableMap.of(), new PartitionTrigger(DS2_ID, 2),
+                                                  ImmutableList.of());
+    ProgramSchedule sched22 = new ProgramSchedule("sched22", "program status schedule", PROG2_ID,
+                                                  ImmutableMap.of(),
+                                                  new OrTrigger(new PartitionTrigger(DS2_ID, 22),
+                                                                new ProgramStatusTrigger(PROG1_ID,
+                                                                                         ProgramStatus.COMPLETED)),
+                                                  ImmutableList.of());
+    String ds1Key = Schedulers.triggerKeyForPartition(DS1_ID);
+    String ds2Key = Schedulers.triggerKeyForPartition(DS2_ID);
+    String prog1Key = Schedulers.triggerKeyForProgramStatus(PROG1_ID, ProgramStatus.COMPLETED);
+
+    // Schedules added before the index is loaded
+    runWithIndex(transactionRunner, index, store -> store.addSchedules(ImmutableList.of(sched11, sched12)));
+    assertIndexMatchesStore(transactionRunner, index, ds1Key, ds2Key, prog1Key);
+    Assert.assertEquals(ImmutableSet.of(sched11), toScheduleSet(index.findSchedules(ds1Key)));
+
+    // Add, update, change status and delete through the index
+    runWithIndex(transactionRunner, index, store -> store.addSchedule(sched22));
+    Assert.assertEquals(ImmutableSet.of(sched12, sched22), toScheduleSet(index.findSchedules(ds2Key)));
+    Assert.assertEquals(ImmutableSet.of(sched22), toScheduleSet(index.findSchedules(prog1Key)));
+
+    ProgramSchedule updated11 = new ProgramSchedule("sched11", "updated schedule", PROG1_ID,
+                                                    ImmutableMap.of(), new PartitionTrigger(DS2_ID, 3),
+                                                    ImmutableList.of());
+    runWithIndex(transactionRunner, index, store -> store.updateSchedule(updated11));
+    Assert.assertTrue(index.findSchedules(ds1Key).isEmpty());
+    Assert.assertEquals(ImmutableSet.of(updated11, sched12, sched22), toScheduleSet(index.findSchedules(ds2Key)));
+
+    runWithIndex(transactionRunner, index,
+                 store -> store.updateScheduleStatus(sched12.getScheduleId(), ProgramScheduleStatus.SCHEDULED));
+    assertIndexMatchesStore(transactionRunner, index, ds1Key, ds2Key, prog1Key);
+
+    runWithIndex(transactionRunner, index, store -> store.deleteSchedule(sched22.getScheduleId()));
+    Assert.assertEquals(ImmutableSet.of(updated11, sched12), toScheduleSet(index.findSchedules(ds2Key)));
+    Assert.assertTrue(index.findSchedules(prog1Key).isEmpty());
+
+    runWithIndex(transactionRunner, index, store -> store.modifySchedulesTriggeredByDeletedProgram(PROG1_ID));
+    assertIndexMatchesStore(transactionRunner, index, ds1Key, ds2Key, prog1Key);
+
+    // Changes that bypass the index are only visible after reload
+    TransactionRunners.run(transactionRunner, context -> {
+      Schedulers.getScheduleStore(context).addSchedule(sched22);
+    });
+    Assert.assertTrue(index.findSchedules(prog1Key).isEmpty());
+    index.invalidate();
+    Assert.assertEquals(ImmutableSet.of(sched22), toScheduleSet(index.findSchedules(prog1Key)));
+    assertIndexMatchesStore(transactionRunner, index, ds1Key, ds2Key, prog1Key);
+  }
+
+  private void runWithIndex(TransactionRunner transactionRunner, ScheduleTriggerIndex index,
+                            StoreOperation operation) {
+    ScheduleTriggerIndex.Changes changes = index.newChanges();
+    TransactionRunners.run(transactionRunner, context -> {
+      operation.run(Schedulers.getScheduleStore(context, changes));
+    });
+    index.apply(changes);
+  }
+
+  private void assertIndexMatchesStore(TransactionRunner transactionRunner, ScheduleTriggerIndex index,
+                                       String... triggerKeys) {
+    for (String triggerKey : triggerKeys) {
+      Set<ProgramScheduleRecord> expected = TransactionRunners.run(transactionRunner, context -> {
+        return new HashSet<>(Schedulers.getScheduleStore(context).findSchedules(triggerKey));
+      });
+      Assert.assertEquals(expected, new HashSet<>(index.findSchedules(triggerKey)));
+    }
+  }
+
+  /**
+   * An operation on the schedule store.
+   */
+  private interface StoreOperation {
+    void run(ProgramScheduleStoreDataset store) throws Exception;
+  }
 }
@@ -18,6 +18,7 @@ package io.cdap.cdap.internal.app.store;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -130,6 +131,66 @@ public abstract class AppMetadataStoreTest {
     assertPersistedStatus(1L, 10L, 100L, ProgramRunStatus.KILLED);
   }
 
+  @Test
+  public void testActiveRunCache() {
+    ActiveRunCache cache = new ActiveRunCache(true, Long.MAX_VALUE, transactionRunner);
+    ProgramId program = NamespaceId.DEFAULT.app("app").program(ProgramType.SPARK, "program");
+    ProgramRunId runId1 = program.run(RunIds.generate(runIdTime.incrementAndGet()));
+    ProgramRunId runId2 = program.run(RunIds.generate(runIdTime.incrementAndGet()));
+
+    // Load the empty cache
+    Assert.assertEquals(0, cache.countActiveRuns(null));
+
+    ActiveRunCache.Changes changes = cache.newChanges();
+    TransactionRunners.run(transactionRunner, context -> {
+      AppMetadataStore store = AppMetadataStore.create(context, changes);
+      store.recordProgramPending(runId1, Collections.emptyMap(), SINGLETON_PROFILE_MAP, ARTIFACT_ID);
+      store.recordProgramPending(runId2, Collections.emptyMap(), SINGLETON_PROFILE_MAP, ARTIFACT_ID);
+      recordProvisionAndStart(runId2, store);
+      store.recordProgramRunning(runId2, RunIds.getTime(runId2.getRun(), TimeUnit.SECONDS), null,
+                                 AppFabricTestHelper.createSourceId(sourceId.incrementAndGet()));
+    });
+    // Changes are not visible before applying
+    Assert.assertEquals(0, cache.countActiveRuns(null));
+    cache.apply(changes);
+
+    Assert.assertEquals(ImmutableSet.of(runId1, runId2), cache.getActiveRuns(r -> true).keySet());
+    Assert.assertEquals(2, cache.countActiveRuns(null));
+    Assert.assertEquals(1, cache.countActiveRuns(1));
+    Assert.assertEquals(1, cache.getFlowControlLaunchingCount());
+    Assert.assertEquals(1, cache.getFlowControlRunningCount());
+    TransactionRunners.run(transactionRunner, context -> {
+      AppMetadataStore store = AppMetadataStore.create(context);
+      Assert.assertEquals(store.getFlowControlLaunchingCount(), cache.getFlowControlLaunchingCount());
+      Assert.assertEquals(store.getFlowControlRunningCount(), cache.getFlowControlRunningCount());
+    });
+
+    // Stop the running program and apply the changes. A stale change applied afterwards is ignored.
+    ActiveRunCache.Changes staleChanges = cache.newChanges();
+    byte[] staleSourceId = AppFabricTestHelper.createSourceId(sourceId.incrementAndGet());
+    ActiveRunCache.Changes stopChanges = cache.newChanges();
+    TransactionRunners.run(transactionRunner, context -> {
+      AppMetadataStore.create(context, stopChanges)
+        .recordProgramStop(runId2, System.currentTimeMillis(), ProgramRunStatus.COMPLETED, null,
+                           AppFabricTestHelper.createSourceId(sourceId.incrementAndGet()));
+    });
+    staleChanges.recordWrite(RunRecordDetail.builder(cache.getActiveRuns(r -> true).get(runId2))
+                               .setSourceId(staleSourceId).build());
+    cache.apply(stopChanges);
+    cache.apply(staleChanges);
+    Assert.assertEquals(ImmutableSet.of(runId1), cache.getActiveRuns(r -> true).keySet());
+    Assert.assertEquals(1, cache.getFlowControlLaunchingCount());
+    Assert.assertEquals(0, cache.getFlowControlRunningCount());
+
+    // Deleting program history invalidates the cache
+    ActiveRunCache.Changes deleteChanges = cache.newChanges();
+    TransactionRunners.run(transactionRunner, context -> {
+      AppMetadataStore.create(context, deleteChanges).deleteProgramHistory(NamespaceId.DEFAULT);
+    });
+    cache.apply(deleteChanges);
+    Assert.assertEquals(0, cache.countActiveRuns(null));
+  }
+
   @Test
   public void testPendingToCompletedIsIgnored() throws Exception {
     ApplicationId application = NamespaceId.DEFAULT.app("app");
@@ -1101,6 +1162,49 @@ public abstract class AppMetadataStoreTest {
     }
   }
 
+  @Test
+  public void testCompactAppSpecFormat() {
+    Gson gson = ApplicationSpecificationAdapter.addTypeAdapters(new GsonBuilder()).create();
+    ApplicationSpecification appSpec = Specifications.from(new AllProgramsApp());
+    ApplicationId jsonAppId = NamespaceId.DEFAULT.app("jsonApp");
+    ApplicationId compactAppId = NamespaceId.DEFAULT.app("compactApp");
+
+    TransactionRunners.run(transactionRunner, context -> {
+      AppMetadataStore.create(context).writeApplication(
+          jsonAppId.getNamespace(), jsonAppId.getApplication(), jsonAppId.getVersion(), appSpec,
+          new ChangeDetail(null, null, null, creationTimeMillis), null);
+      AppMetadataStore.create(context, true).writeApplication(
+          compactAppId.getNamespace(), compactAppId.getApplication(), compactAppId.getVersion(), appSpec,
+          new ChangeDetail(null, null, null, creationTimeMillis), null);
+    });
+
+    TransactionRunners.run(transactionRunner, context -> {
+      StructuredTable appSpecTable = context.getTable(StoreDefinition.AppMetadataStore.APPLICATION_SPECIFICATIONS);
+      AppMetadataStore store = AppMetadataStore.create(context);
+      for (ApplicationId appId : Arrays.asList(jsonAppId, compactAppId)) {
+        String data = appSpecTable.read(store.getApplicationPrimaryKeys(
+            appId.getNamespace(), appId.getApplication(), appId.getVersion()))
+          .map(row -> row.getString(StoreDefinition.AppMetadataStore.APPLICATION_DATA_FIELD))
+          .orElseThrow(IllegalStateException::new);
+        Assert.assertEquals(appId.equals(compactAppId), ApplicationMetaCodec.isBinary(data));
+      }
+
+      // Both formats are readable regardless of the format being written
+      ApplicationMeta jsonMeta = store.getApplication(jsonAppId);
+      ApplicationMeta compactMeta = store.getApplication(compactAppId);
+      Assert.assertEquals(gson.toJson(jsonMeta.getSpec(), ApplicationSpecification.class),
+                          gson.toJson(compactMeta.getSpec(), ApplicationSpecification.class));
+
+      // Updating with the JSON format turns the compact record back into JSON
+      store.updateAppSpec(compactAppId, appSpec);
+      Assert.assertFalse(ApplicationMetaCodec.isBinary(
+        appSpecTable.read(store.getApplicationPrimaryKeys(
+            compactAppId.getNamespace(), compactAppId.getApplication(), compactAppId.getVersion()))
+          .map(row -> row.getString(StoreDefinition.AppMetadataStore.APPLICATION_DATA_FIELD))
+          .orElseThrow(IllegalStateException::new)));
+    });
+  }
+
   @Test
   public void testScanApplications() {
     ApplicationSpecification appSpec = Specifications.from(new AllProgramsApp());
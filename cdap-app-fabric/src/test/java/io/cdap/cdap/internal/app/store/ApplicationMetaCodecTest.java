@@ -0,0 +1,159 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.store;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import io.cdap.cdap.AllProgramsApp;
+import io.cdap.cdap.api.app.ApplicationSpecification;
+import io.cdap.cdap.internal.app.ApplicationSpecificationAdapter;
+import io.cdap.cdap.internal.app.deploy.Specifications;
+import io.cdap.cdap.proto.ProgramType;
+import io.cdap.cdap.proto.artifact.ChangeDetail;
+import io.cdap.cdap.proto.id.ApplicationId;
+import io.cdap.cdap.proto.id.NamespaceId;
+import io.cdap.cdap.proto.id.ProgramId;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Unit tests for {@link ApplicationMetaCodec}.
+ */
+public class ApplicationMetaCodecTest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ApplicationMetaCodecTest.class);
+
+  private static final Gson GSON = ApplicationSpecificationAdapter.addTypeAdapters(
+      new GsonBuilder()).create();
+
+  /**
+   * Returns the specification as it is read back from the store. The JSON codecs turn absent
+   * service properties into an empty map, which both storage formats share.
+   */
+  private static ApplicationSpecification createSpec() {
+    ApplicationSpecification spec = Specifications.from(new AllProgramsApp());
+    return GSON.fromJson(GSON.toJson(spec, ApplicationSpecification.class),
+        ApplicationSpecification.class);
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    ApplicationSpecification spec = createSpec();
+    String encoded = ApplicationMetaCodec.encode("app", spec);
+    Assert.assertTrue(ApplicationMetaCodec.isBinary(encoded));
+
+    ChangeDetail change = new ChangeDetail("summary", null, "author", 1000L);
+    ApplicationMeta meta = ApplicationMetaCodec.decode(encoded, change, null);
+    Assert.assertEquals("app", meta.getId());
+    Assert.assertSame(change, meta.getChange());
+
+    ApplicationSpecification decoded = meta.getSpec();
+    Assert.assertEquals(spec.getName(), decoded.getName());
+    Assert.assertEquals(spec.getAppVersion(), decoded.getAppVersion());
+    Assert.assertEquals(spec.getArtifactId(), decoded.getArtifactId());
+    for (io.cdap.cdap.api.app.ProgramType type : io.cdap.cdap.api.app.ProgramType.values()) {
+      Assert.assertEquals(spec.getProgramsByType(type), decoded.getProgramsByType(type));
+    }
+    // Fully decoded specification must be the same as the original one
+    Assert.assertEquals(GSON.toJson(spec, ApplicationSpecification.class),
+        GSON.toJson(decoded, ApplicationSpecification.class));
+
+    // Program ids can be listed from the encoded data
+    ApplicationId appId = NamespaceId.DEFAULT.app(spec.getName());
+    Set<ProgramId> programIds = new HashSet<>();
+    for (ProgramType type : ProgramType.values()) {
+      if (type.getApiProgramType() == null) {
+        continue;
+      }
+      for (String program : spec.getProgramsByType(type.getApiProgramType())) {
+        programIds.add(appId.program(type, program));
+      }
+    }
+    Assert.assertFalse(programIds.isEmpty());
+    Assert.assertEquals(programIds, ApplicationMetaCodec.getProgramIds(appId, encoded));
+  }
+
+  @Test
+  public void testJsonCompatibility() throws Exception {
+    ApplicationSpecification spec = createSpec();
+    String json = GSON.toJson(new ApplicationMeta("app", spec, null, null));
+    Assert.assertFalse(ApplicationMetaCodec.isBinary(json));
+
+    ApplicationMeta meta = ApplicationMetaCodec.decode(json, null, null);
+    Assert.assertEquals("app", meta.getId());
+    Assert.assertEquals(GSON.toJson(spec, ApplicationSpecification.class),
+        GSON.toJson(meta.getSpec(), ApplicationSpecification.class));
+
+    String encoded = ApplicationMetaCodec.encode("app", spec);
+    ApplicationId appId = NamespaceId.DEFAULT.app(spec.getName());
+    Assert.assertEquals(ApplicationMetaCodec.getProgramIds(appId, encoded),
+        ApplicationMetaCodec.getProgramIds(appId, json));
+
+    // The binary format should be more compact than the JSON one
+    Assert.assertTrue(encoded.length() < json.length());
+  }
+
+  /**
+   * Measures the size of both formats, the time to decode the header and the time to list the
+   * program ids. Only the size is asserted, the timings are logged for comparison.
+   */
+  @Test
+  public void testMeasureFormats() throws Exception {
+    ApplicationSpecification spec = createSpec();
+    ApplicationId appId = NamespaceId.DEFAULT.app(spec.getName());
+    String json = GSON.toJson(new ApplicationMeta("app", spec, null, null));
+    String encoded = ApplicationMetaCodec.encode("app", spec);
+    int iterations = 2000;
+
+    long[] decodeNanos = new long[2];
+    long[] programIdsNanos = new long[2];
+    String[] formats = { json, encoded };
+    // Run twice and only keep the second round to exclude warm up
+    for (int round = 0; round < 2; round++) {
+      for (int i = 0; i < formats.length; i++) {
+        long startTime = System.nanoTime();
+        for (int j = 0; j < iterations; j++) {
+          ApplicationMetaCodec.decode(formats[i], null, null).getSpec().getName();
+        }
+        decodeNanos[i] = (System.nanoTime() - startTime) / iterations;
+
+        startTime = System.nanoTime();
+        for (int j = 0; j < iterations; j++) {
+          ApplicationMetaCodec.getProgramIds(appId, formats[i]);
+        }
+        programIdsNanos[i] = (System.nanoTime() - startTime) / iterations;
+      }
+    }
+    LOG.info("JSON format: {} chars, decode {} us, list programs {} us",
+        json.length(), decodeNanos[0] / 1000, programIdsNanos[0] / 1000);
+    LOG.info("Compact format: {} chars, decode {} us, list programs {} us",
+        encoded.length(), decodeNanos[1] / 1000, programIdsNanos[1] / 1000);
+
+    Assert.assertTrue(encoded.length() < json.length());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testProgramIdsNameMismatch() throws Exception {
+    ApplicationSpecification spec = Specifications.from(new AllProgramsApp());
+    ApplicationMetaCodec.getProgramIds(NamespaceId.DEFAULT.app("other"),
+        ApplicationMetaCodec.encode("app", spec));
+  }
+}
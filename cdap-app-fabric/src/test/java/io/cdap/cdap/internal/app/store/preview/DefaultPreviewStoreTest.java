@@ -39,7 +39,10 @@ import io.cdap.cdap.proto.id.ProgramRunId;
 import io.cdap.cdap.proto.security.Credential;
 import io.cdap.cdap.proto.security.Principal;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import org.apache.hadoop.conf.Configuration;
@@ -126,6 +129,27 @@ public class DefaultPreviewStoreTest {
     Assert.assertEquals(0, firstApplicationData.size());
   }
 
+  @Test
+  public void testPutAll() {
+    ApplicationId applicationId = new ApplicationId(NamespaceMeta.DEFAULT.getName(), RunIds.generate().getId());
+    store.put(applicationId, "mytracer", "key1", "value1");
+
+    Map<String, List<Object>> values = new LinkedHashMap<>();
+    values.put("key1", Arrays.asList("value2", "value3"));
+    values.put("key2", Collections.singletonList(4));
+    store.putAll(applicationId, "mytracer", values);
+    store.putAll(applicationId, "mytracer", Collections.emptyMap());
+
+    Map<String, List<JsonElement>> data = store.get(applicationId, "mytracer");
+    Assert.assertEquals(2, data.size());
+    Assert.assertEquals(3, data.get("key1").size());
+    Assert.assertEquals("value1", data.get("key1").get(0).getAsString());
+    Assert.assertEquals("value2", data.get("key1").get(1).getAsString());
+    Assert.assertEquals("value3", data.get("key1").get(2).getAsString());
+    Assert.assertEquals(4, data.get("key2").get(0).getAsInt());
+    Assert.assertTrue(store.get(applicationId, "myanothertracer").isEmpty());
+  }
+
   @Test
   public void testPreviewInfo() throws IOException {
     // test non existing preview
@@ -44,9 +44,14 @@ import io.cdap.cdap.security.spi.authorization.AccessEnforcer;
 import io.cdap.cdap.security.spi.authorization.PermissionManager;
 import io.cdap.cdap.security.spi.authorization.UnauthorizedException;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import org.apache.twill.discovery.DiscoveryServiceClient;
 import org.junit.After;
@@ -84,6 +89,8 @@ public abstract class RemotePermissionsTestBase {
     AppFabricTestHelper.enableAuthorization(cConf, TEMPORARY_FOLDER);
     cConf.set(Constants.CFG_LOCAL_DATA_DIR, TEMPORARY_FOLDER.newFolder().getAbsolutePath());
     cConf.setInt(Constants.Security.Authorization.CACHE_TTL_SECS, CACHE_TIMEOUT);
+    // Use a longer batch window so that concurrent checks are batched
+    cConf.setLong(Constants.Security.Authorization.REMOTE_BATCH_WINDOW_MS, 50L);
     Injector injector = AppFabricTestHelper.getInjector(cConf);
     discoveryService = injector.getInstance(DiscoveryServiceClient.class);
     appFabricServer = injector.getInstance(AppFabricServer.class);
@@ -154,6 +161,33 @@ public abstract class RemotePermissionsTestBase {
     permissionManager.revoke(Authorizable.fromEntityId(NS, EntityType.PROFILE));
   }
 
+  @Test
+  public void testConcurrentEnforce() throws Exception {
+    permissionManager.grant(Authorizable.fromEntityId(NS), ALICE, EnumSet.allOf(StandardPermission.class));
+    permissionManager.grant(Authorizable.fromEntityId(APP), ALICE, Collections.singleton(StandardPermission.UPDATE));
+
+    // Concurrent checks, including identical ones, are coalesced and batched into bulk requests
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Boolean>> futures = new ArrayList<>();
+      for (int i = 0; i < 16; i++) {
+        futures.add(executor.submit(() -> isAuthorized(NS, ALICE, StandardPermission.GET)));
+        futures.add(executor.submit(() -> isAuthorized(APP, ALICE, StandardPermission.UPDATE)));
+        futures.add(executor.submit(() -> isAuthorized(APP, ALICE, StandardPermission.DELETE)));
+        futures.add(executor.submit(() -> isAuthorized(NS, BOB, StandardPermission.GET)));
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        Assert.assertEquals("Unexpected result for check " + i, i % 4 < 2,
+                            futures.get(i).get(30, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    permissionManager.revoke(Authorizable.fromEntityId(APP));
+    permissionManager.revoke(Authorizable.fromEntityId(NS));
+  }
+
   @Test
   public void testVisibility() throws Exception {
     ApplicationId app1 = NS.app("app1");
@@ -215,6 +249,16 @@ public abstract class RemotePermissionsTestBase {
     }
   }
 
+  private boolean isAuthorized(EntityId entityId, Principal principal,
+                               StandardPermission permission) throws AccessException {
+    try {
+      accessEnforcer.enforce(entityId, principal, permission);
+      return true;
+    } catch (UnauthorizedException e) {
+      return false;
+    }
+  }
+
   private void assertUnauthorized(Retries.Runnable<AccessException> runnable) throws AccessException {
     try {
       runnable.run();
@@ -18,8 +18,10 @@ package io.cdap.cdap.internal.app.worker;
 
 import com.google.inject.Injector;
 import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.metrics.NoOpMetricsCollectionService;
 import org.apache.twill.discovery.InMemoryDiscoveryService;
+import org.junit.Assert;
 import org.junit.Test;
 
 public class ConfiguratorTaskTest {
@@ -31,4 +33,49 @@ public class ConfiguratorTaskTest {
         discoveryService, discoveryService, new NoOpMetricsCollectionService());
     injector.getInstance(ConfiguratorTask.ConfiguratorTaskRunner.class);
   }
+
+  @Test
+  public void testStandbyInjector() {
+    InMemoryDiscoveryService discoveryService = new InMemoryDiscoveryService();
+
+    ConfiguratorInjectorSupplier supplier = new ConfiguratorInjectorSupplier(CConfiguration.create(),
+        discoveryService, discoveryService, new NoOpMetricsCollectionService());
+    // Each task gets a new injector
+    Injector first = supplier.get();
+    Injector second = supplier.get();
+    Assert.assertNotSame(first, second);
+    second.getInstance(ConfiguratorTask.ConfiguratorTaskRunner.class);
+  }
+
+  @Test
+  public void testNoStandbyBeforeRestart() {
+    InMemoryDiscoveryService discoveryService = new InMemoryDiscoveryService();
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setBoolean(Constants.TaskWorker.USER_CODE_ISOLATION_ENABLED, true);
+    cConf.setInt(Constants.TaskWorker.CONTAINER_KILL_AFTER_REQUEST_COUNT, 2);
+
+    ConfiguratorInjectorSupplier supplier = new ConfiguratorInjectorSupplier(cConf,
+        discoveryService, discoveryService, new NoOpMetricsCollectionService());
+    supplier.get();
+    Assert.assertTrue(supplier.hasStandby());
+    // The worker restarts after the second task, hence no standby is needed for a third one
+    supplier.get();
+    Assert.assertFalse(supplier.hasStandby());
+  }
+
+  @Test
+  public void testStandbyWithoutIsolation() {
+    InMemoryDiscoveryService discoveryService = new InMemoryDiscoveryService();
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setBoolean(Constants.TaskWorker.USER_CODE_ISOLATION_ENABLED, false);
+    cConf.setInt(Constants.TaskWorker.CONTAINER_KILL_AFTER_REQUEST_COUNT, 1);
+
+    ConfiguratorInjectorSupplier supplier = new ConfiguratorInjectorSupplier(cConf,
+        discoveryService, discoveryService, new NoOpMetricsCollectionService());
+    // The worker keeps serving tasks without isolation
+    for (int i = 0; i < 3; i++) {
+      supplier.get();
+      Assert.assertTrue(supplier.hasStandby());
+    }
+  }
 }
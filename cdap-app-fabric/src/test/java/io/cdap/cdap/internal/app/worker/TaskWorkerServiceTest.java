@@ -356,6 +356,7 @@ public class TaskWorkerServiceTest {
   public void testConcurrentRequestsWithIsolationDisabled() throws Exception {
     CConfiguration cConf = createCConf();
     cConf.setInt(TaskWorker.REQUEST_LIMIT, 2);
+    cConf.setInt(TaskWorker.REQUEST_QUEUE_SIZE, 0);
     cConf.setBoolean(TaskWorker.USER_CODE_ISOLATION_ENABLED, false);
     InMemoryDiscoveryService discoveryService = new InMemoryDiscoveryService();
     TaskWorkerService taskWorkerService = new TaskWorkerService(cConf,
@@ -411,6 +412,105 @@ public class TaskWorkerServiceTest {
     Assert.assertEquals(Service.State.TERMINATED, taskWorkerService.state());
   }
 
+  @Test
+  public void testQueuedRequestsWithIsolationDisabled() throws Exception {
+    CConfiguration cConf = createCConf();
+    cConf.setInt(TaskWorker.REQUEST_LIMIT, 1);
+    cConf.setInt(TaskWorker.REQUEST_QUEUE_SIZE, 1);
+    cConf.setBoolean(TaskWorker.USER_CODE_ISOLATION_ENABLED, false);
+    InMemoryDiscoveryService discoveryService = new InMemoryDiscoveryService();
+    TaskWorkerService taskWorkerService = new TaskWorkerService(cConf,
+        createSConf(), discoveryService, discoveryService,
+        metricsCollectionService,
+        new CommonNettyHttpServiceFactory(cConf, metricsCollectionService, auditLogContexts -> {}));
+    taskWorkerService.startAndWait();
+    InetSocketAddress addr = taskWorkerService.getBindAddress();
+    URI uri = URI.create(
+        String.format("http://%s:%s", addr.getHostName(), addr.getPort()));
+
+    RunnableTaskRequest request = RunnableTaskRequest.getBuilder(
+            TestRunnableClass.class.getName())
+        .withParam("1000").withNamespace("testNamespace").build();
+
+    String reqBody = GSON.toJson(request);
+    List<Callable<HttpResponse>> calls = new ArrayList<>();
+    int concurrentRequests = 3;
+
+    for (int i = 0; i < concurrentRequests; i++) {
+      calls.add(
+          () -> HttpRequests.execute(
+              HttpRequest.post(uri.resolve("/v3Internal/worker/run").toURL())
+                  .withBody(reqBody).build(),
+              new DefaultHttpRequestConfig(false))
+      );
+    }
+
+    List<Future<HttpResponse>> responses = Executors.newFixedThreadPool(
+        concurrentRequests).invokeAll(calls);
+    int okResponse = 0;
+    int conflictResponse = 0;
+    for (int i = 0; i < concurrentRequests; i++) {
+      if (responses.get(i).get().getResponseCode()
+          == HttpResponseStatus.OK.code()) {
+        okResponse++;
+      } else if (responses.get(i).get().getResponseCode()
+                 == HttpResponseStatus.TOO_MANY_REQUESTS.code()) {
+        conflictResponse++;
+      }
+    }
+    taskWorkerService.stopAndWait();
+    // One request runs, one waits in the queue for it to finish and one is rejected
+    Assert.assertEquals(2, okResponse);
+    Assert.assertEquals(1, conflictResponse);
+  }
+
+  @Test
+  public void testQueuedRequestsWithDefaultConf() throws Exception {
+    CConfiguration cConf = createCConf();
+    cConf.setBoolean(TaskWorker.USER_CODE_ISOLATION_ENABLED, false);
+    InMemoryDiscoveryService discoveryService = new InMemoryDiscoveryService();
+    TaskWorkerService taskWorkerService = new TaskWorkerService(cConf,
+        createSConf(), discoveryService, discoveryService,
+        metricsCollectionService,
+        new CommonNettyHttpServiceFactory(cConf, metricsCollectionService, auditLogContexts -> {}));
+    taskWorkerService.startAndWait();
+    InetSocketAddress addr = taskWorkerService.getBindAddress();
+    URI uri = URI.create(
+        String.format("http://%s:%s", addr.getHostName(), addr.getPort()));
+
+    RunnableTaskRequest request = RunnableTaskRequest.getBuilder(
+            TestRunnableClass.class.getName())
+        .withParam("1000").withNamespace("testNamespace").build();
+
+    String reqBody = GSON.toJson(request);
+    List<Callable<HttpResponse>> calls = new ArrayList<>();
+    // Fill up the default request limit and queue
+    int concurrentRequests = cConf.getInt(TaskWorker.REQUEST_LIMIT)
+        + cConf.getInt(TaskWorker.REQUEST_QUEUE_SIZE);
+
+    for (int i = 0; i < concurrentRequests; i++) {
+      calls.add(
+          () -> HttpRequests.execute(
+              HttpRequest.post(uri.resolve("/v3Internal/worker/run").toURL())
+                  .withBody(reqBody).build(),
+              new DefaultHttpRequestConfig(false))
+      );
+    }
+
+    List<Future<HttpResponse>> responses = Executors.newFixedThreadPool(
+        concurrentRequests).invokeAll(calls);
+    int okResponse = 0;
+    for (int i = 0; i < concurrentRequests; i++) {
+      if (responses.get(i).get().getResponseCode()
+          == HttpResponseStatus.OK.code()) {
+        okResponse++;
+      }
+    }
+    taskWorkerService.stopAndWait();
+    // Requests beyond the limit wait in the queue instead of being rejected
+    Assert.assertEquals(concurrentRequests, okResponse);
+  }
+
   @Test
   public void testRestartWithConcurrentRequests() throws Exception {
     CConfiguration cConf = createCConf();
@@ -72,7 +72,7 @@ public class ArtifactLocalizerTest extends AppFabricTestBase {
     RemoteClient mockClient = Mockito.mock(RemoteClient.class);
 
     ArtifactLocalizer localizer = createArtifactLocalizer(mockManager, mockClient);
-    localizer.preloadArtifacts(new HashSet<>(Arrays.asList("cdap-data-pipeline", "wrangler")), 2);
+    localizer.preloadArtifacts(new HashSet<>(Arrays.asList("cdap-data-pipeline", "wrangler")), 2, false);
 
     String downloadUrlFormat = "namespaces/default/artifacts/%s/versions/%s/download?scope=SYSTEM";
 
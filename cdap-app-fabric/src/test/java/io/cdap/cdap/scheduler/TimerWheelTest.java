@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.scheduler;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link TimerWheel}.
+ */
+public class TimerWheelTest {
+
+  @Test
+  public void testExpiration() {
+    TimerWheel<String> wheel = new TimerWheel<>(10, 4, 1000);
+    Assert.assertTrue(wheel.schedule("a", 1015));
+    // Beyond the range of the first level
+    Assert.assertTrue(wheel.schedule("b", 1100));
+    // Beyond the range of the second level
+    Assert.assertTrue(wheel.schedule("c", 1500));
+    // Already expired
+    Assert.assertFalse(wheel.schedule("d", 900));
+    Assert.assertEquals(3, wheel.size());
+
+    Assert.assertEquals(Collections.emptyList(), wheel.advance(1015));
+    Assert.assertEquals(1020, wheel.getNextTickTime());
+    Assert.assertEquals(Collections.singletonList("a"), wheel.advance(1020));
+    Assert.assertEquals(Collections.emptyList(), wheel.advance(1099));
+    Assert.assertEquals(Collections.singletonList("b"), wheel.advance(1110));
+    Assert.assertEquals(Collections.singletonList("c"), wheel.advance(2000));
+    Assert.assertTrue(wheel.isEmpty());
+    Assert.assertEquals(Long.MAX_VALUE, wheel.getNextTickTime());
+  }
+
+  @Test
+  public void testRescheduleAndCancel() {
+    TimerWheel<String> wheel = new TimerWheel<>(10, 4, 0);
+    wheel.schedule("a", 20);
+    wheel.schedule("b", 20);
+    // Reschedule to a later time, which should not expire at the original time
+    wheel.schedule("a", 300);
+    wheel.cancel("b");
+    Assert.assertEquals(1, wheel.size());
+    Assert.assertEquals(Collections.emptyList(), wheel.advance(100));
+    Assert.assertEquals(Collections.singletonList("a"), wheel.advance(310));
+
+    // Reschedule to an earlier time
+    wheel.schedule("c", 500);
+    wheel.schedule("c", 330);
+    Assert.assertEquals(Collections.singletonList("c"), wheel.advance(340));
+    Assert.assertEquals(Collections.emptyList(), wheel.advance(600));
+  }
+
+  @Test
+  public void testRandomized() {
+    Random random = new Random(0);
+    TimerWheel<Integer> wheel = new TimerWheel<>(10, 8, 0);
+    TreeMap<Long, Set<Integer>> expected = new TreeMap<>();
+    for (int i = 0; i < 1000; i++) {
+      long expiration = random.nextInt(100000);
+      wheel.schedule(i, expiration);
+      expected.computeIfAbsent(expiration, k -> new HashSet<>()).add(i);
+    }
+
+    long time = 0;
+    while (!wheel.isEmpty()) {
+      long nextTickTime = wheel.getNextTickTime();
+      Assert.assertTrue(nextTickTime > time);
+      time = nextTickTime;
+      List<Integer> expired = wheel.advance(time);
+
+      // All items expired before the current tick must be returned
+      Set<Integer> expectedExpired = new HashSet<>();
+      while (!expected.isEmpty() && expected.firstKey() < time - time % 10) {
+        expectedExpired.addAll(expected.pollFirstEntry().getValue());
+      }
+      Assert.assertEquals(expectedExpired, ImmutableSet.copyOf(expired));
+    }
+    Assert.assertTrue(expected.isEmpty());
+  }
+}
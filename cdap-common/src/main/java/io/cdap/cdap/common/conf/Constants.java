@@ -243,6 +243,15 @@ public final class Constants {
     public static final String SERVER_ANNOUNCE_PORT = "appfabric.announce.port";
     public static final String OUTPUT_DIR = "app.output.dir";
     public static final String TEMP_DIR = "app.temp.dir";
+    public static final String UNPACKED_ARTIFACT_CACHE_ENABLED =
+        "app.artifact.unpacked.cache.enabled";
+    public static final String UNPACKED_ARTIFACT_CACHE_MAX_SIZE_MB =
+        "app.artifact.unpacked.cache.max.size.mb";
+    public static final String ARTIFACT_PLUGIN_CACHE_ENABLED = "app.artifact.plugin.cache.enabled";
+    public static final String ARTIFACT_PLUGIN_CACHE_MAX_SIZE =
+        "app.artifact.plugin.cache.max.size";
+    public static final String ARTIFACT_PLUGIN_CACHE_EXPIRATION_SECONDS =
+        "app.artifact.plugin.cache.expiration.seconds";
     public static final String REST_PORT = "app.rest.port";
     public static final String PROGRAM_JVM_OPTS = "app.program.jvm.opts";
     public static final String PROGRAM_JVM_OPTS_PREFIX = "app.program.jvm.opts.";
@@ -257,6 +266,11 @@ public final class Constants {
 
     public static final String STATUS_EVENT_TX_SIZE = "app.program.status.event.tx.size";
     public static final String STATUS_EVENT_POLL_DELAY_MILLIS = "app.program.status.event.poll.delay.millis";
+    public static final String STATUS_EVENT_PROCESSING_LANES = "app.program.status.event.processing.lanes";
+    public static final String ACTIVE_RUN_CACHE_ENABLED = "app.program.runs.active.cache.enabled";
+    public static final String ACTIVE_RUN_CACHE_REFRESH_INTERVAL_SECONDS =
+        "app.program.runs.active.cache.refresh.interval.seconds";
+    public static final String APP_SPEC_COMPACT_FORMAT_ENABLED = "app.spec.compact.format.enabled";
     public static final String MAPREDUCE_JOB_CLIENT_CONNECT_MAX_RETRIES = "mapreduce.jobclient.connect.max.retries";
     public static final String MAPREDUCE_INCLUDE_CUSTOM_CLASSES = "mapreduce.include.custom.format.classes";
     public static final String MAPREDUCE_STATUS_REPORT_INTERVAL_SECONDS = "mapreduce.status.report.interval.seconds";
@@ -450,6 +464,8 @@ public final class Constants {
     public static final String BOSS_THREADS = "preview.boss.threads";
     public static final String WORKER_THREADS = "preview.worker.threads";
     public static final String MAX_NUM_OF_RECORDS = "preview.max.num.records";
+    public static final String DATA_TRACER_BATCH_SIZE = "preview.data.tracer.batch.size";
+    public static final String DATA_TRACER_FLUSH_INTERVAL_MS = "preview.data.tracer.flush.interval.ms";
 
     public static final String POLLER_COUNT = "preview.poller.count";
     public static final String REQUEST_POLL_DELAY_MILLIS = "preview.request.poll.delay.millis";
@@ -517,6 +533,9 @@ public final class Constants {
     public static final String CONTAINER_KILL_AFTER_DURATION_SECOND =
         "task.worker.container.kill.after.duration.second";
     public static final String REQUEST_LIMIT = "task.worker.request.limit";
+    public static final String REQUEST_QUEUE_SIZE = "task.worker.request.queue.size";
+    public static final String REQUEST_QUEUE_TIMEOUT_MS = "task.worker.request.queue.timeout.ms";
+    public static final String WARMUP_TASK_CLASSES = "task.worker.warmup.task.classes";
     public static final String USER_CODE_ISOLATION_ENABLED = "task.worker.request.userCodeIsolation.enabled";
     public static final String TASK_EXECUTION_DEADLINE_SECOND =
         "task.worker.taskExecutionDeadline.second";
@@ -608,6 +627,7 @@ public final class Constants {
     public static final String WORKER_THREADS = "artifact.localizer.worker.threads";
     public static final String PRELOAD_LIST = "artifact.localizer.preload.list";
     public static final String PRELOAD_VERSION_LIMIT = "artifact.localizer.preload.version.limit";
+    public static final String PRELOAD_UNPACK = "artifact.localizer.preload.unpack";
     public static final String REMOTE_AUTHENTICATOR_NAME =
         "artifact.localizer.remote.authenticator.name";
   }
@@ -631,6 +651,11 @@ public final class Constants {
     public static final String PROGRAM_STATUS_EVENT_FETCH_SIZE = "scheduler.program.status.event.fetch.size";
 
     public static final String JOB_QUEUE_NUM_PARTITIONS = "scheduler.job.queue.num.partitions";
+    public static final String CONSTRAINT_CHECK_FULL_SCAN_INTERVAL_SECONDS =
+        "scheduler.constraint.check.full.scan.interval.seconds";
+    public static final String TRIGGER_INDEX_ENABLED = "scheduler.trigger.index.enabled";
+    public static final String TRIGGER_INDEX_REFRESH_INTERVAL_SECONDS =
+        "scheduler.trigger.index.refresh.interval.seconds";
   }
 
   /**
@@ -876,6 +901,12 @@ public final class Constants {
     public static final String SERVER_BOSS_THREADS = "router.server.boss.threads";
     public static final String SERVER_WORKER_THREADS = "router.server.worker.threads";
     public static final String CONNECTION_TIMEOUT_SECS = "router.connection.idle.timeout.secs";
+    public static final String UPSTREAM_POOL_MAX_CONNECTIONS =
+        "router.upstream.pool.max.connections.per.endpoint";
+    public static final String UPSTREAM_POOL_MAX_IDLE = "router.upstream.pool.max.idle.per.endpoint";
+    public static final String UPSTREAM_POOL_ACQUIRE_TIMEOUT_MS =
+        "router.upstream.pool.acquire.timeout.ms";
+    public static final String UPSTREAM_POOL_IDLE_TIMEOUT_MS = "router.upstream.pool.idle.timeout.ms";
     public static final String ROUTER_AUDIT_PATH_CHECK_ENABLED = "router.audit.path.check.enabled";
     public static final String ROUTER_AUDIT_LOG_ENABLED = "router.audit.log.enabled";
 
@@ -1218,6 +1249,7 @@ public final class Constants {
     public static final class Preview {
 
       public static final String RUN_TIME_SECONDS = "preview.run.seconds";
+      public static final String QUEUE_WAIT_TIME_MS = "preview.queue.wait.time.millis";
     }
 
     /**
@@ -1234,6 +1266,9 @@ public final class Constants {
       public static final String CLIENT_REQUEST_LATENCY_MS =
           "client." + Constants.TaskWorker.METRIC_PREFIX
               + "request.latency.millis";
+      public static final String CLIENT_DISPATCH_LATENCY_MS =
+          "client." + Constants.TaskWorker.METRIC_PREFIX
+              + "dispatch.latency.millis";
     }
 
     /**
@@ -1292,6 +1327,11 @@ public final class Constants {
           "authorization.non.internal.visibility.check.count";
       public static final String EXTENSION_CHECK_MILLIS = "authorization.extension.check.millis";
       public static final String EXTENSION_VISIBILITY_MILLIS = "authorization.extension.visibility.millis";
+      public static final String REMOTE_CACHE_HIT_COUNT = "authorization.remote.cache.hit.count";
+      public static final String REMOTE_CACHE_MISS_COUNT = "authorization.remote.cache.miss.count";
+      public static final String REMOTE_ENFORCE_MILLIS = "authorization.remote.enforce.millis";
+      public static final String REMOTE_VISIBILITY_MILLIS = "authorization.remote.visibility.millis";
+      public static final String REMOTE_BATCH_SIZE = "authorization.remote.batch.size";
     }
 
     /**
@@ -1303,6 +1343,9 @@ public final class Constants {
       public static final String SCHEDULE_SUCCESS = "schedulejob.success";
       public static final String SCHEDULE_NOTIFICATION_FAILURE = "schedulejob.notification.failure";
       public static final String SCHEDULE_LATENCY = "schedulejob.latency";
+      public static final String TRIGGER_INDEX_SIZE = "schedulejob.trigger.index.size";
+      public static final String TRIGGER_INDEX_STALENESS_MS =
+          "schedulejob.trigger.index.staleness.ms";
     }
 
     /**
@@ -1456,6 +1499,13 @@ public final class Constants {
     public static final String SSL_ENABLED = "app.program.runtime.monitor.server.ssl.enabled";
 
     public static final String COMPRESSION_ENABLED = "app.program.runtime.monitor.compression.enabled";
+    // Whether to relay the messages of all topics of a program run in one request per poll
+    public static final String MULTIPLEX_ENABLED = "app.program.runtime.monitor.multiplex.enabled";
+    public static final String MULTIPLEX_MAX_REQUEST_BYTES =
+        "app.program.runtime.monitor.multiplex.max.request.bytes";
+    // The maximum size of a multiplexed request accepted by the runtime server
+    public static final String MULTIPLEX_SERVER_MAX_REQUEST_BYTES =
+        "app.program.runtime.monitor.server.multiplex.max.request.bytes";
 
     // Configuration key for specifying the base URL for sending monitoring messages.
     // If it is missing from the configuration, SSH tunnel will be used.
@@ -1592,6 +1642,17 @@ public final class Constants {
      * Time duration in milliseconds after which an active secret key should be retired.
      */
     public static final String TOKEN_DIGEST_KEY_EXPIRATION = "security.token.digest.key.expiration.ms";
+    /**
+     * Maximum number of validated access tokens cached by the token validator. A value of zero or
+     * less disables the cache.
+     */
+    public static final String TOKEN_VALIDATION_CACHE_MAX_SIZE =
+        "security.token.validation.cache.max.size";
+    /**
+     * Time in seconds that a validated access token is cached by the token validator.
+     */
+    public static final String TOKEN_VALIDATION_CACHE_EXPIRATION_SECS =
+        "security.token.validation.cache.expiration.secs";
     /**
      * Parent znode used for secret key distribution in ZooKeeper.
      */
@@ -1768,6 +1829,16 @@ public final class Constants {
        * Maximum number of entries the authorization cache will hold.
        */
       public static final String CACHE_MAX_ENTRIES = "security.authorization.cache.max.entries";
+      /**
+       * Time in milliseconds that remote authorization checks wait to be batched with other checks.
+       */
+      public static final String REMOTE_BATCH_WINDOW_MS =
+          "security.authorization.remote.batch.window.ms";
+      /**
+       * Maximum number of remote authorization checks in a batch.
+       */
+      public static final String REMOTE_BATCH_MAX_SIZE =
+          "security.authorization.remote.batch.max.size";
       /**
        * Batch size for query for the visibility of entities.
        */
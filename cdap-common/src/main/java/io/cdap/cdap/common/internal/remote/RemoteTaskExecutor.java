@@ -16,11 +16,15 @@
 
 package io.cdap.cdap.common.internal.remote;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.io.ByteStreams;
 import com.google.common.net.HttpHeaders;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
+import io.cdap.cdap.api.artifact.ArtifactId;
 import io.cdap.cdap.api.metrics.MetricsCollectionService;
+import io.cdap.cdap.api.metrics.MetricsContext;
 import io.cdap.cdap.api.retry.RetryCountProvider;
 import io.cdap.cdap.api.retry.RetryableException;
 import io.cdap.cdap.api.service.worker.RemoteExecutionException;
@@ -46,17 +50,27 @@ import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.net.HttpURLConnection;
 import java.net.NoRouteToHostException;
+import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.zip.DeflaterInputStream;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
+import javax.annotation.Nullable;
 
 /**
  * Helper class for executing a {@link RunnableTaskRequest} on a remote worker.
+ *
+ * <p>Workers advertise their load in the response headers. For each request, the executor
+ * discovers a few candidate workers and picks the one that is not saturated, preferring a worker
+ * that has run a task of the same artifact before and then the least loaded one.</p>
  */
 public class RemoteTaskExecutor {
 
@@ -67,12 +81,19 @@ public class RemoteTaskExecutor {
       (throwable instanceof RetryableException) || (throwable instanceof ServiceException);
   private static final Predicate<Throwable> RETRYABLE_PREDICATE_TASK_WORKER = throwable ->
       (throwable instanceof RetryableException);
+  // Number of discovered workers to choose from for each request
+  private static final int WORKER_CANDIDATES = 2;
+  // Advertised load older than this is not used for picking a worker
+  private static final long WORKER_LOAD_EXPIRY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+  // Maximum number of affinity keys remembered for each worker
+  private static final int MAX_WARM_KEYS = 64;
   private final boolean compression;
   private final RemoteClient remoteClient;
   private final RetryStrategy retryStrategy;
   private final Predicate<Throwable> retryablePredicate;
   private final MetricsCollectionService metricsCollectionService;
   private final String workerUrl;
+  private final Cache<String, WorkerLoad> workerLoads;
 
   public RemoteTaskExecutor(CConfiguration cConf, MetricsCollectionService metricsCollectionService,
       RemoteClientFactory remoteClientFactory, Type workerType) {
@@ -101,6 +122,9 @@ public class RemoteTaskExecutor {
           Constants.Service.SYSTEM_WORKER + ".");
       this.retryablePredicate = RETRYABLE_PREDICATE_SYSTEM_WORKER;
     }
+    this.workerLoads = CacheBuilder.newBuilder()
+        .expireAfterAccess(10, TimeUnit.MINUTES)
+        .build();
   }
 
   /**
@@ -115,12 +139,14 @@ public class RemoteTaskExecutor {
     //initialize start time for collecting latency metric
     long startTime = System.currentTimeMillis();
     ByteBuffer requestBody = encodeTaskRequest(runnableTaskRequest);
+    String affinityKey = getAffinityKey(runnableTaskRequest);
 
     try {
       return Retries.callWithRetries((retryContext) -> {
         try {
-          HttpRequest.Builder requestBuilder = remoteClient
-              .requestBuilder(HttpMethod.POST, workerUrl)
+          long attemptTime = System.currentTimeMillis();
+          URL url = pickWorker(affinityKey);
+          HttpRequest.Builder requestBuilder = HttpRequest.builder(HttpMethod.POST, url)
               .withBody(requestBody.duplicate());
           if (compression) {
             requestBuilder.addHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
@@ -129,6 +155,7 @@ public class RemoteTaskExecutor {
           HttpRequest httpRequest = requestBuilder.build();
 
           HttpResponse httpResponse = remoteClient.execute(httpRequest);
+          updateWorkerLoad(url, httpResponse, affinityKey);
           if (httpResponse.getResponseCode() == HttpResponseStatus.TOO_MANY_REQUESTS.code()) {
             throw new RetryableException(
                 String.format("Received response code %s for %s", httpResponse.getResponseCode(),
@@ -140,8 +167,12 @@ public class RemoteTaskExecutor {
             throw RemoteExecutionException.fromBasicThrowable(basicThrowable);
           }
           byte[] result = httpResponse.getUncompressedResponseBody();
+          // The dispatch latency is the time spent before the worker started running the task
+          long dispatchTime = attemptTime - startTime
+              + getHeaderAsLong(httpResponse, TaskWorkerHttpHandlerInternal.QUEUE_TIME_HEADER, 0L);
           //emit metrics with successful result
-          emitMetrics(startTime, true, runnableTaskRequest, retryContext.getRetryAttempt());
+          emitMetrics(startTime, true, runnableTaskRequest, retryContext.getRetryAttempt(),
+              dispatchTime);
           return result;
         } catch (NoRouteToHostException e) {
           throw new RetryableException(
@@ -152,15 +183,124 @@ public class RemoteTaskExecutor {
     } catch (ServiceException se) {
       Exception ex = getTaskException(se);
       //emit metrics with failed result
-      emitMetrics(startTime, false, runnableTaskRequest, getAttempts(ex));
+      emitMetrics(startTime, false, runnableTaskRequest, getAttempts(ex), -1L);
       throw ex;
     } catch (Exception e) {
       //emit metrics with failed result
-      emitMetrics(startTime, false, runnableTaskRequest, getAttempts(e));
+      emitMetrics(startTime, false, runnableTaskRequest, getAttempts(e), -1L);
       throw e;
     }
   }
 
+  /**
+   * Picks a worker among a few discovered ones and returns the URL for running a task on it.
+   */
+  private URL pickWorker(@Nullable String affinityKey) {
+    long now = System.currentTimeMillis();
+    URL pickedUrl = null;
+    WorkerLoad pickedLoad = null;
+    for (int i = 0; i < WORKER_CANDIDATES; i++) {
+      URL url = remoteClient.resolve(workerUrl);
+      if (pickedUrl != null && pickedUrl.getAuthority().equals(url.getAuthority())) {
+        continue;
+      }
+      WorkerLoad load = workerLoads.getIfPresent(url.getAuthority());
+      if (pickedUrl == null || compareWorkers(load, pickedLoad, affinityKey, now) < 0) {
+        pickedUrl = url;
+        pickedLoad = load;
+      }
+    }
+    return pickedUrl;
+  }
+
+  /**
+   * Compares two workers by their advertised loads. A worker that is not saturated is preferred,
+   * then a worker that is warm for the given affinity key, then the one with the lower load.
+   */
+  private int compareWorkers(@Nullable WorkerLoad first, @Nullable WorkerLoad second,
+      @Nullable String affinityKey, long now) {
+    int cmp = Boolean.compare(isSaturated(first, now), isSaturated(second, now));
+    if (cmp != 0) {
+      return cmp;
+    }
+    cmp = Boolean.compare(isWarm(second, affinityKey), isWarm(first, affinityKey));
+    if (cmp != 0) {
+      return cmp;
+    }
+    return Integer.compare(getLoad(first, now), getLoad(second, now));
+  }
+
+  private boolean isSaturated(@Nullable WorkerLoad load, long now) {
+    return load != null && load.isFresh(now) && load.capacity > 0 && load.load >= load.capacity;
+  }
+
+  private boolean isWarm(@Nullable WorkerLoad load, @Nullable String affinityKey) {
+    return load != null && affinityKey != null && load.warmKeys.contains(affinityKey);
+  }
+
+  private int getLoad(@Nullable WorkerLoad load, long now) {
+    return load != null && load.isFresh(now) ? load.load : 0;
+  }
+
+  /**
+   * Updates the load of the worker based on the load advertised in the response. If the worker
+   * accepted the task, the worker is also marked as warm for the given affinity key.
+   */
+  private void updateWorkerLoad(URL url, HttpResponse response, @Nullable String affinityKey) {
+    long running = getHeaderAsLong(response, TaskWorkerHttpHandlerInternal.RUNNING_REQUESTS_HEADER,
+        -1L);
+    if (running < 0) {
+      // The worker doesn't advertise its load
+      return;
+    }
+    WorkerLoad load;
+    try {
+      load = workerLoads.get(url.getAuthority(), WorkerLoad::new);
+    } catch (Exception e) {
+      // Shouldn't happen since creating a WorkerLoad doesn't throw
+      return;
+    }
+    load.update(
+        (int) (running
+            + getHeaderAsLong(response, TaskWorkerHttpHandlerInternal.QUEUED_REQUESTS_HEADER, 0L)),
+        (int) getHeaderAsLong(response, TaskWorkerHttpHandlerInternal.REQUEST_CAPACITY_HEADER, 0L));
+    if (affinityKey != null && response.getResponseCode() == HttpURLConnection.HTTP_OK) {
+      load.warmKeys.add(affinityKey);
+    }
+  }
+
+  /**
+   * Returns the key for picking a worker that has run a similar task before, which likely has the
+   * artifact localized and the classes loaded.
+   */
+  @Nullable
+  private String getAffinityKey(RunnableTaskRequest request) {
+    ArtifactId artifactId = request.getArtifactId();
+    if (artifactId != null) {
+      return artifactId.getScope() + ":" + artifactId.getName() + ":" + artifactId.getVersion();
+    }
+    if (request.getNamespace() == null) {
+      return null;
+    }
+    return request.getNamespace() + ":" + getTaskClassName(request);
+  }
+
+  private long getHeaderAsLong(HttpResponse response, String name, long defaultValue) {
+    String value = response.getHeaders().entries().stream()
+        .filter(e -> name.equalsIgnoreCase(e.getKey()))
+        .map(Map.Entry::getValue)
+        .findFirst()
+        .orElse(null);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+
   private Exception getTaskException(ServiceException e) {
     if (e.getJsonDetails() == null) {
       // This is not an application-level exception, might be a timeout or similar failure
@@ -192,17 +332,20 @@ public class RemoteTaskExecutor {
   }
 
   private void emitMetrics(long startTime, boolean success, RunnableTaskRequest runnableTaskRequest,
-      int attempts) {
+      int attempts, long dispatchTime) {
     String taskClass = getTaskClassName(runnableTaskRequest);
     Map<String, String> metricTags = new HashMap<>();
     metricTags.put(Constants.Metrics.Tag.CLASS, taskClass);
     metricTags.put(Constants.Metrics.Tag.STATUS, success ? "success" : "failure");
     metricTags.put(Constants.Metrics.Tag.TRIES, String.valueOf(attempts));
-    metricsCollectionService.getContext(metricTags)
-        .increment(Constants.Metrics.TaskWorker.CLIENT_REQUEST_COUNT, 1L);
-    metricsCollectionService.getContext(metricTags)
-        .gauge(Constants.Metrics.TaskWorker.CLIENT_REQUEST_LATENCY_MS,
-            System.currentTimeMillis() - startTime);
+    MetricsContext metricsContext = metricsCollectionService.getContext(metricTags);
+    metricsContext.increment(Constants.Metrics.TaskWorker.CLIENT_REQUEST_COUNT, 1L);
+    metricsContext.gauge(Constants.Metrics.TaskWorker.CLIENT_REQUEST_LATENCY_MS,
+        System.currentTimeMillis() - startTime);
+    if (dispatchTime >= 0) {
+      // Emitted as a distribution, so that percentiles of the dispatch latency are available
+      metricsContext.event(Constants.Metrics.TaskWorker.CLIENT_DISPATCH_LATENCY_MS, dispatchTime);
+    }
   }
 
   private String getTaskClassName(RunnableTaskRequest runnableTaskRequest) {
@@ -252,6 +395,33 @@ public class RemoteTaskExecutor {
     throw new IllegalArgumentException("Unsupported content encoding " + encoding);
   }
 
+  /**
+   * The load advertised by a worker.
+   */
+  private static final class WorkerLoad {
+
+    private final Set<String> warmKeys = Collections.synchronizedSet(
+        Collections.newSetFromMap(new LinkedHashMap<String, Boolean>() {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_WARM_KEYS;
+          }
+        }));
+    private volatile int load;
+    private volatile int capacity;
+    private volatile long updateTime;
+
+    void update(int load, int capacity) {
+      this.load = load;
+      this.capacity = capacity;
+      this.updateTime = System.currentTimeMillis();
+    }
+
+    boolean isFresh(long now) {
+      return now - updateTime < WORKER_LOAD_EXPIRY_MILLIS;
+    }
+  }
+
   /*
    Use task worker for executing an unsecured logic (e.g., deploying a pipeline which contains user code) remotely on
    a task worker pod.
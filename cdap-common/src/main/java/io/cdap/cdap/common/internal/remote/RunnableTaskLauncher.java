@@ -69,20 +69,36 @@ public class RunnableTaskLauncher {
    *                   runnable throws an exception after its started.
    */
   public void launchRunnableTask(RunnableTaskContext context) throws Exception {
+    RunnableTask runnableTask = createRunnableTask(context.getClassName());
+    runnableTask.run(context);
+  }
+
+  /**
+   * Loads and instantiates a {@link RunnableTask} without running it, so that the classes and the
+   * dependencies of the task are initialized before the first task of the class is launched.
+   *
+   * @param className the class name of the runnable task
+   * @throws Exception when the class for the runnable task isn't found or it cannot be
+   *                   instantiated.
+   */
+  public void warmUp(String className) throws Exception {
+    createRunnableTask(className);
+  }
+
+  private RunnableTask createRunnableTask(String className) throws Exception {
     ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
     if (classLoader == null) {
       classLoader = getClass().getClassLoader();
     }
 
-    Class<?> clazz = classLoader.loadClass(context.getClassName());
+    Class<?> clazz = classLoader.loadClass(className);
 
     Object obj = injector.getInstance(clazz);
 
     if (!(obj instanceof RunnableTask)) {
       throw new ClassCastException(
-          String.format("%s is not a RunnableTask", context.getClassName()));
+          String.format("%s is not a RunnableTask", className));
     }
-    RunnableTask runnableTask = (RunnableTask) obj;
-    runnableTask.run(context);
+    return (RunnableTask) obj;
   }
 }
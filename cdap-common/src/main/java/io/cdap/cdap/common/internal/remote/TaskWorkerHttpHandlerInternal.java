@@ -47,6 +47,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Random;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -71,6 +72,27 @@ import org.slf4j.LoggerFactory;
 @Path(Constants.Gateway.INTERNAL_API_VERSION_3 + "/worker")
 public class TaskWorkerHttpHandlerInternal extends AbstractHttpHandler {
 
+  /**
+   * Response header carrying the number of requests being executed by the worker.
+   */
+  public static final String RUNNING_REQUESTS_HEADER = "CDAP-Task-Worker-Running";
+
+  /**
+   * Response header carrying the number of requests waiting in the queue of the worker.
+   */
+  public static final String QUEUED_REQUESTS_HEADER = "CDAP-Task-Worker-Queued";
+
+  /**
+   * Response header carrying the number of requests the worker can hold, including the queued
+   * ones.
+   */
+  public static final String REQUEST_CAPACITY_HEADER = "CDAP-Task-Worker-Capacity";
+
+  /**
+   * Response header carrying the time in milliseconds the request waited in the queue.
+   */
+  public static final String QUEUE_TIME_HEADER = "CDAP-Task-Worker-Queue-Millis";
+
   /**
    * Fraction of duration which will be used for calculating a range.
    */
@@ -89,6 +111,7 @@ public class TaskWorkerHttpHandlerInternal extends AbstractHttpHandler {
    */
   private final AtomicInteger runningRequestCount = new AtomicInteger(0);
   private final AtomicInteger requestProcessedCount = new AtomicInteger(0);
+  private final AtomicInteger queuedRequestCount = new AtomicInteger(0);
 
   private final String metadataServiceEndpoint;
   private final MetricsCollectionService metricsCollectionService;
@@ -99,6 +122,13 @@ public class TaskWorkerHttpHandlerInternal extends AbstractHttpHandler {
    */
   private final AtomicBoolean mustRestart = new AtomicBoolean(false);
   private final int concurrentRequestLimit;
+  private final int requestQueueSize;
+  private final long requestQueueTimeoutMillis;
+
+  /**
+   * Permits for running requests. Requests that cannot get a permit wait in a bounded queue.
+   */
+  private final Semaphore requestPermits;
 
   /**
    * Constructs the {@link TaskWorkerHttpHandlerInternal}.
@@ -120,9 +150,24 @@ public class TaskWorkerHttpHandlerInternal extends AbstractHttpHandler {
     if (enableUserCodeIsolationEnabled) {
       // Run only one request at a time in user code isolation mode.
       this.concurrentRequestLimit = 1;
+      // The worker stops after running user code. A queued request would get the permit released
+      // right before the worker stops and would run on a stopping worker, hence don't queue.
+      this.requestQueueSize = 0;
     } else {
       this.concurrentRequestLimit = cConf.getInt(TaskWorker.REQUEST_LIMIT);
+      // Requests are executed in the handler executor threads, hence queued requests can only
+      // occupy the threads that are not used for running requests.
+      int queueSize = cConf.getInt(TaskWorker.REQUEST_QUEUE_SIZE, 0);
+      this.requestQueueSize = Math.max(0, Math.min(queueSize,
+          cConf.getInt(TaskWorker.EXEC_THREADS, 0) - concurrentRequestLimit));
+      if (requestQueueSize < queueSize) {
+        LOG.warn("Task worker request queue size is limited to {} instead of {} since {} is less "
+                + "than the sum of {} and {}", requestQueueSize, queueSize, TaskWorker.EXEC_THREADS,
+            TaskWorker.REQUEST_LIMIT, TaskWorker.REQUEST_QUEUE_SIZE);
+      }
     }
+    this.requestQueueTimeoutMillis = cConf.getLong(TaskWorker.REQUEST_QUEUE_TIMEOUT_MS, 0L);
+    this.requestPermits = new Semaphore(concurrentRequestLimit, true);
 
     // Restart the service to clean up and re-claim resources after user code
     // execution.
@@ -130,6 +175,7 @@ public class TaskWorkerHttpHandlerInternal extends AbstractHttpHandler {
       taskDetails.emitMetrics(succeeded);
       final int pendingRequests = runningRequestCount.decrementAndGet();
       requestProcessedCount.incrementAndGet();
+      requestPermits.release();
 
       String className = taskDetails.getClassName();
       if (mustRestart.get() && pendingRequests == 0) {
@@ -199,6 +245,24 @@ public class TaskWorkerHttpHandlerInternal extends AbstractHttpHandler {
     }, waitTime, finalTaskDeadlineSeconds, TimeUnit.SECONDS);
   }
 
+  /**
+   * Initializes the task classes configured by {@link TaskWorker#WARMUP_TASK_CLASSES}. This
+   * should be called before the worker starts accepting requests, so that the first request of
+   * each class doesn't pay for the class loading and the initialization of the task.
+   */
+  public void warmUp() {
+    for (String className : cConf.getTrimmedStringCollection(TaskWorker.WARMUP_TASK_CLASSES)) {
+      long startTime = System.currentTimeMillis();
+      try {
+        runnableTaskLauncher.warmUp(className);
+        LOG.debug("Task {} warmed up in {} ms", className,
+            System.currentTimeMillis() - startTime);
+      } catch (Exception e) {
+        LOG.warn("Failed to warm up task {}", className, e);
+      }
+    }
+  }
+
   /**
    * Run a new {@link io.cdap.cdap.api.service.worker.RunnableTask}.
    *
@@ -209,16 +273,22 @@ public class TaskWorkerHttpHandlerInternal extends AbstractHttpHandler {
   @Path("/run")
   public void run(FullHttpRequest request, HttpResponder responder) {
     if (mustRestart.get()) {
-      responder.sendStatus(HttpResponseStatus.TOO_MANY_REQUESTS);
+      responder.sendStatus(HttpResponseStatus.TOO_MANY_REQUESTS, createLoadHeaders());
       return;
     }
-    if (runningRequestCount.incrementAndGet() > concurrentRequestLimit) {
-      responder.sendStatus(HttpResponseStatus.TOO_MANY_REQUESTS);
-      runningRequestCount.decrementAndGet();
+    long startTime = System.currentTimeMillis();
+    if (!acquireRequestPermit()) {
+      responder.sendStatus(HttpResponseStatus.TOO_MANY_REQUESTS, createLoadHeaders());
       return;
     }
-
-    long startTime = System.currentTimeMillis();
+    if (mustRestart.get()) {
+      // The restart is triggered while the request is waiting in the queue
+      requestPermits.release();
+      responder.sendStatus(HttpResponseStatus.TOO_MANY_REQUESTS, createLoadHeaders());
+      return;
+    }
+    runningRequestCount.incrementAndGet();
+    long queueTime = System.currentTimeMillis() - startTime;
     try {
       RunnableTaskRequest runnableTaskRequest = GSON.fromJson(
           request.content().toString(StandardCharsets.UTF_8),
@@ -245,8 +315,9 @@ public class TaskWorkerHttpHandlerInternal extends AbstractHttpHandler {
         responder.sendContent(HttpResponseStatus.OK,
             new RunnableTaskBodyProducer(runnableTaskContext,
                 taskCompletionConsumer, taskDetails),
-            new DefaultHttpHeaders().add(HttpHeaders.CONTENT_TYPE,
-                MediaType.APPLICATION_OCTET_STREAM));
+            createLoadHeaders()
+                .add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_OCTET_STREAM)
+                .add(QUEUE_TIME_HEADER, queueTime));
       } catch (ClassNotFoundException | ClassCastException ex) {
         responder.sendString(HttpResponseStatus.BAD_REQUEST,
             exceptionToJson(ex),
@@ -273,6 +344,45 @@ public class TaskWorkerHttpHandlerInternal extends AbstractHttpHandler {
     }
   }
 
+  /**
+   * Acquires a permit for running a request. If there is no permit available, waits in the queue
+   * until a permit is released or the queue timeout is reached.
+   *
+   * @return {@code true} if a permit is acquired; {@code false} if the queue is full or the
+   *     request timed out in the queue
+   */
+  private boolean acquireRequestPermit() {
+    try {
+      // Honors the fairness of the semaphore, so that new requests don't overtake queued ones
+      if (requestPermits.tryAcquire(0L, TimeUnit.MILLISECONDS)) {
+        return true;
+      }
+      if (queuedRequestCount.incrementAndGet() > requestQueueSize) {
+        queuedRequestCount.decrementAndGet();
+        return false;
+      }
+      try {
+        return requestPermits.tryAcquire(requestQueueTimeoutMillis, TimeUnit.MILLISECONDS);
+      } finally {
+        queuedRequestCount.decrementAndGet();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Creates response headers that advertise the current load of this worker, which is used by
+   * {@link RemoteTaskExecutor} to pick a worker for subsequent requests.
+   */
+  private io.netty.handler.codec.http.HttpHeaders createLoadHeaders() {
+    return new DefaultHttpHeaders()
+        .add(RUNNING_REQUESTS_HEADER, runningRequestCount.get())
+        .add(QUEUED_REQUESTS_HEADER, queuedRequestCount.get())
+        .add(REQUEST_CAPACITY_HEADER, concurrentRequestLimit + requestQueueSize);
+  }
+
   /**
    * Returns a new token from metadata server.
    *
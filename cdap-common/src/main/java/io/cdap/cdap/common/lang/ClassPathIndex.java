@@ -0,0 +1,222 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.common.lang;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An index of the directories that a {@link URLClassLoader} can load classes and resources from
+ * by itself, without going through its parent. Directories are in resource name form, e.g.
+ * {@code io/cdap/cdap/api} for classes in the {@code io.cdap.cdap.api} package. The index of JAR
+ * files is built from the JAR listings, while directories on the class path are checked on demand.
+ *
+ * <p>An index is only available for class loaders that load from local files only and use the
+ * standard parent-first lookup, so that a lookup in a directory that is not in the index can only
+ * be answered by the parent ClassLoader. Indexes are shared and are created lazily on first use.
+ */
+final class ClassPathIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ClassPathIndex.class);
+  private static final String VERSIONS_DIR = "META-INF/versions/";
+  private static final String JAR_INDEX = "META-INF/INDEX.LIST";
+
+  private static final LoadingCache<ClassLoader, Optional<ClassPathIndex>> INDEXES =
+      CacheBuilder.newBuilder().weakKeys().build(
+          new CacheLoader<ClassLoader, Optional<ClassPathIndex>>() {
+            @Override
+            public Optional<ClassPathIndex> load(ClassLoader classLoader) {
+              return Optional.ofNullable(create(classLoader));
+            }
+          });
+
+  /**
+   * Whether a ClassLoader type only uses the standard lookup of {@link URLClassLoader}. The
+   * {@link InterceptableClassLoader} also qualifies, since it only rewrites classes that are on
+   * its own class path.
+   */
+  private static final ClassValue<Boolean> STANDARD_LOOKUP = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(Class<?> type) {
+      return isDeclaredBy(type, "loadClass", new Class<?>[]{String.class, boolean.class},
+          ClassLoader.class)
+          && isDeclaredBy(type, "findClass", new Class<?>[]{String.class},
+          URLClassLoader.class, InterceptableClassLoader.class)
+          && isDeclaredBy(type, "getResource", new Class<?>[]{String.class}, ClassLoader.class)
+          && isDeclaredBy(type, "getResources", new Class<?>[]{String.class}, ClassLoader.class)
+          && isDeclaredBy(type, "getResourceAsStream", new Class<?>[]{String.class},
+          ClassLoader.class, URLClassLoader.class)
+          && isDeclaredBy(type, "findResource", new Class<?>[]{String.class}, URLClassLoader.class)
+          && isDeclaredBy(type, "findResources", new Class<?>[]{String.class}, URLClassLoader.class)
+          && isDeclaredBy(type, "addURL", new Class<?>[]{URL.class}, URLClassLoader.class);
+    }
+  };
+
+  private final Set<String> jarDirs;
+  private final List<File> dirs;
+
+  private ClassPathIndex(Set<String> jarDirs, List<File> dirs) {
+    this.jarDirs = jarDirs;
+    this.dirs = dirs;
+  }
+
+  /**
+   * Returns the {@link ClassPathIndex} of the given ClassLoader, or {@code null} if the
+   * ClassLoader cannot be indexed.
+   */
+  @Nullable
+  static ClassPathIndex get(ClassLoader classLoader) {
+    return INDEXES.getUnchecked(classLoader).orElse(null);
+  }
+
+  /**
+   * Returns {@code true} if the class path may contain classes or resources in the given
+   * directory. A {@code false} return means the directory is definitely not on the class path.
+   */
+  boolean mayContain(String dir) {
+    if (jarDirs.contains(dir)) {
+      return true;
+    }
+    for (File file : dirs) {
+      if (dir.isEmpty() || new File(file, dir).isDirectory()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the directory in resource name form of the given class name.
+   */
+  static String getClassDir(String className) {
+    int idx = className.lastIndexOf('.');
+    return idx < 0 ? "" : className.substring(0, idx).replace('.', '/');
+  }
+
+  /**
+   * Returns the directory of the given resource name.
+   */
+  static String getResourceDir(String resourceName) {
+    int idx = resourceName.lastIndexOf('/');
+    return idx < 0 ? "" : resourceName.substring(0, idx);
+  }
+
+  @Nullable
+  private static ClassPathIndex create(ClassLoader classLoader) {
+    if (!(classLoader instanceof URLClassLoader)
+        || !STANDARD_LOOKUP.get(classLoader.getClass())) {
+      return null;
+    }
+
+    Set<String> jarDirs = new HashSet<>();
+    ImmutableList.Builder<File> dirs = ImmutableList.builder();
+    for (URL url : ((URLClassLoader) classLoader).getURLs()) {
+      if (!"file".equals(url.getProtocol())) {
+        return null;
+      }
+      File file;
+      try {
+        file = new File(url.toURI());
+      } catch (URISyntaxException | IllegalArgumentException e) {
+        return null;
+      }
+      if (file.isDirectory()) {
+        dirs.add(file);
+      } else if (file.isFile() && !addJarDirs(file, jarDirs)) {
+        LOG.trace("Not indexing ClassLoader {} due to jar file {}", classLoader, file);
+        return null;
+      }
+    }
+    return new ClassPathIndex(ImmutableSet.copyOf(jarDirs), dirs.build());
+  }
+
+  /**
+   * Adds the directories of all entries in the given jar file to the given set.
+   *
+   * @return {@code false} if the jar file cannot be indexed, because it cannot be read or it
+   *     refers to other jar files
+   */
+  private static boolean addJarDirs(File file, Set<String> dirs) {
+    try (JarFile jarFile = new JarFile(file)) {
+      Manifest manifest = jarFile.getManifest();
+      if (manifest != null
+          && manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH) != null) {
+        return false;
+      }
+      Enumeration<JarEntry> entries = jarFile.entries();
+      while (entries.hasMoreElements()) {
+        String name = entries.nextElement().getName();
+        if (JAR_INDEX.equals(name)) {
+          return false;
+        }
+        // Classes of multi-release jars can be loaded from the versioned directories
+        if (name.startsWith(VERSIONS_DIR)) {
+          int idx = name.indexOf('/', VERSIONS_DIR.length());
+          if (idx > 0) {
+            dirs.add(getResourceDir(name.substring(idx + 1)));
+          }
+        }
+        dirs.add(getResourceDir(name));
+      }
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns {@code true} if the given method is declared by one of the given classes when looked
+   * up from the given type.
+   */
+  private static boolean isDeclaredBy(Class<?> type, String name, Class<?>[] parameterTypes,
+      Class<?>... declaringClasses) {
+    for (Class<?> cls = type; cls != null; cls = cls.getSuperclass()) {
+      try {
+        cls.getDeclaredMethod(name, parameterTypes);
+      } catch (NoSuchMethodException e) {
+        continue;
+      }
+      for (Class<?> declaringClass : declaringClasses) {
+        if (declaringClass == cls) {
+          return true;
+        }
+      }
+      return false;
+    }
+    return false;
+  }
+}
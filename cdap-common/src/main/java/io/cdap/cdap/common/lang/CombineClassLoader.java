@@ -16,6 +16,8 @@
 
 package io.cdap.cdap.common.lang;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Sets;
@@ -27,6 +29,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Set;
 import javax.annotation.Nullable;
@@ -37,11 +40,30 @@ import org.slf4j.LoggerFactory;
  * A {@link ClassLoader} that load classes from list of other {@link ClassLoader}s. Note that this
  * ClassLoader just delegates to other ClassLoaders, but never define class, hence no Class loaded
  * by this class would have {@link Class#getClassLoader()}} returning this ClassLoader.
+ *
+ * <p>Delegates that load from local files with the standard parent-first lookup are indexed by
+ * the packages on their class path. For each package, the ClassLoaders to look up from are
+ * computed once: a delegate that doesn't have the package on its class path is replaced by its
+ * parent, and a parent shared by multiple delegates is only looked up once. This gives the same
+ * result as trying each delegate in order. Classes that cannot be found are remembered if all
+ * delegates load from a fixed class path.
  */
 public class CombineClassLoader extends URLClassLoader {
 
   private static final Logger LOG = LoggerFactory.getLogger(CombineClassLoader.class);
+  private static final int MAX_LOOKUP_PATHS = 10000;
+  private static final int MAX_MISSING_CLASSES = 10000;
+  // ClassLoader for looking up from the bootstrap ClassLoader, which is represented by null parent
+  private static final ClassLoader BOOTSTRAP_CLASSLOADER = new URLClassLoader(new URL[0], null);
+
+  static {
+    ClassLoader.registerAsParallelCapable();
+  }
+
   private final List<ClassLoader> delegates;
+  private final Cache<String, List<ClassLoader>> lookupPaths;
+  private final Cache<String, Boolean> missingClasses;
+  private volatile Boolean fixedClassPath;
 
   /**
    * Creates a CombineClassLoader with the given parent and a list of ClassLoaders for delegation.
@@ -63,6 +85,8 @@ public class CombineClassLoader extends URLClassLoader {
       Iterable<? extends ClassLoader> delegates) {
     super(new URL[0], parent);
     this.delegates = ImmutableList.copyOf(delegates);
+    this.lookupPaths = CacheBuilder.newBuilder().maximumSize(MAX_LOOKUP_PATHS).build();
+    this.missingClasses = CacheBuilder.newBuilder().maximumSize(MAX_MISSING_CLASSES).build();
   }
 
   @Override
@@ -85,7 +109,11 @@ public class CombineClassLoader extends URLClassLoader {
 
   @Override
   protected Class<?> findClass(String name) throws ClassNotFoundException {
-    for (ClassLoader classLoader : delegates) {
+    if (missingClasses.getIfPresent(name) != null) {
+      throw new ClassNotFoundException("Class not found in all delegated ClassLoaders: " + name);
+    }
+
+    for (ClassLoader classLoader : getLookupPath(ClassPathIndex.getClassDir(name))) {
       try {
         return classLoader.loadClass(name);
       } catch (ClassNotFoundException e) {
@@ -93,12 +121,15 @@ public class CombineClassLoader extends URLClassLoader {
       }
     }
 
+    if (hasFixedClassPath()) {
+      missingClasses.put(name, Boolean.TRUE);
+    }
     throw new ClassNotFoundException("Class not found in all delegated ClassLoaders: " + name);
   }
 
   @Override
   public URL findResource(String name) {
-    for (ClassLoader classLoader : delegates) {
+    for (ClassLoader classLoader : getLookupPath(ClassPathIndex.getResourceDir(name))) {
       URL url = classLoader.getResource(name);
       if (url != null) {
         return url;
@@ -111,7 +142,7 @@ public class CombineClassLoader extends URLClassLoader {
   public Enumeration<URL> findResources(String name) throws IOException {
     // Using LinkedHashSet to preserve the ordering
     Set<URL> urls = Sets.newLinkedHashSet();
-    for (ClassLoader classLoader : delegates) {
+    for (ClassLoader classLoader : getLookupPath(ClassPathIndex.getResourceDir(name))) {
       Iterators.addAll(urls, Iterators.forEnumeration(classLoader.getResources(name)));
     }
     return Iterators.asEnumeration(urls.iterator());
@@ -119,7 +150,7 @@ public class CombineClassLoader extends URLClassLoader {
 
   @Override
   public InputStream getResourceAsStream(String name) {
-    for (ClassLoader classLoader : delegates) {
+    for (ClassLoader classLoader : getLookupPath(ClassPathIndex.getResourceDir(name))) {
       InputStream is = classLoader.getResourceAsStream(name);
       if (is != null) {
         return is;
@@ -127,4 +158,87 @@ public class CombineClassLoader extends URLClassLoader {
     }
     return null;
   }
+
+  /**
+   * Returns the list of {@link ClassLoader}s to look up classes and resources in the given
+   * directory from.
+   */
+  private List<ClassLoader> getLookupPath(String dir) {
+    List<ClassLoader> lookupPath = lookupPaths.getIfPresent(dir);
+    if (lookupPath == null) {
+      lookupPath = createLookupPath(dir);
+      lookupPaths.put(dir, lookupPath);
+    }
+    return lookupPath;
+  }
+
+  /**
+   * Creates the list of {@link ClassLoader}s to look up classes and resources in the given
+   * directory from. It has the delegates in order, except that an indexed delegate that doesn't
+   * have the directory on its class path is replaced by its parent, since the delegate can only
+   * find it through the parent. A ClassLoader that was already looked up, either directly or as
+   * the parent of an indexed delegate, is not added again.
+   */
+  private List<ClassLoader> createLookupPath(String dir) {
+    List<ClassLoader> lookupPath = new ArrayList<>();
+    Set<ClassLoader> lookedUp = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (ClassLoader delegate : delegates) {
+      ClassPathIndex index = ClassPathIndex.get(delegate);
+      ClassLoader classLoader = index == null || index.mayContain(dir)
+          ? delegate : getParent(delegate);
+      if (lookedUp.add(classLoader)) {
+        lookupPath.add(classLoader);
+      }
+      // An indexed delegate always looks up from its parent first
+      if (index != null) {
+        lookedUp.add(getParent(delegate));
+      }
+    }
+    return ImmutableList.copyOf(lookupPath);
+  }
+
+  /**
+   * Returns {@code true} if a class that cannot be found from the delegates won't be found later
+   * either, which is the case when all delegates and their ancestors load from a fixed class path.
+   */
+  private boolean hasFixedClassPath() {
+    Boolean fixed = fixedClassPath;
+    if (fixed == null) {
+      fixed = delegates.stream().allMatch(CombineClassLoader::hasFixedClassPath);
+      fixedClassPath = fixed;
+    }
+    return fixed;
+  }
+
+  private static boolean hasFixedClassPath(ClassLoader classLoader) {
+    for (ClassLoader cl = classLoader; cl != null; cl = cl.getParent()) {
+      if (cl instanceof CombineClassLoader) {
+        if (!((CombineClassLoader) cl).hasFixedClassPath()) {
+          return false;
+        }
+      } else if (!(cl instanceof FilterClassLoader) && !isSystemClassLoader(cl)
+          && ClassPathIndex.get(cl) == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns {@code true} if the given ClassLoader is the system ClassLoader or one of its
+   * ancestors.
+   */
+  private static boolean isSystemClassLoader(ClassLoader classLoader) {
+    for (ClassLoader cl = ClassLoader.getSystemClassLoader(); cl != null; cl = cl.getParent()) {
+      if (cl == classLoader) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static ClassLoader getParent(ClassLoader classLoader) {
+    ClassLoader parent = classLoader.getParent();
+    return parent == null ? BOOTSTRAP_CLASSLOADER : parent;
+  }
 }
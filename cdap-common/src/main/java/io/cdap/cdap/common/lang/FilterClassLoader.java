@@ -16,6 +16,8 @@
 
 package io.cdap.cdap.common.lang;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import java.io.IOException;
 import java.io.InputStream;
@@ -28,10 +30,23 @@ import java.util.List;
 import java.util.Set;
 
 /**
- * ClassLoader that filters out certain resources.
+ * ClassLoader that filters out certain resources. Classes are loaded in parallel, and classes that
+ * are known to be absent from the extension ClassLoader are not looked up from it again.
  */
 public final class FilterClassLoader extends ClassLoader {
 
+  private static final int MAX_NON_EXTENSION_CLASSES = 50000;
+
+  // Names of classes not found from the extension ClassLoader, which has a fixed class path.
+  // It is shared since all instances use the same extension class path.
+  private static final Cache<String, Boolean> NON_EXTENSION_CLASSES = CacheBuilder.newBuilder()
+      .maximumSize(MAX_NON_EXTENSION_CLASSES)
+      .build();
+
+  static {
+    ClassLoader.registerAsParallelCapable();
+  }
+
   private final ClassLoader extensionClassLoader;
   private final Filter filter;
 
@@ -106,17 +121,19 @@ public final class FilterClassLoader extends ClassLoader {
   }
 
   @Override
-  protected synchronized Class<?> loadClass(String name, boolean resolve)
-      throws ClassNotFoundException {
+  protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
     // Try to load it from bootstrap class loader first
-    try {
-      return extensionClassLoader.loadClass(name);
-    } catch (ClassNotFoundException e) {
-      if (filter.acceptResource(classNameToResourceName(name))) {
-        return super.loadClass(name, resolve);
+    if (NON_EXTENSION_CLASSES.getIfPresent(name) == null) {
+      try {
+        return extensionClassLoader.loadClass(name);
+      } catch (ClassNotFoundException e) {
+        NON_EXTENSION_CLASSES.put(name, Boolean.TRUE);
       }
-      throw e;
     }
+    if (filter.acceptResource(classNameToResourceName(name))) {
+      return super.loadClass(name, resolve);
+    }
+    throw new ClassNotFoundException(name);
   }
 
   @Override
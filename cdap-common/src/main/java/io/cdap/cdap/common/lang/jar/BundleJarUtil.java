@@ -23,7 +23,9 @@ import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
 import java.nio.file.CopyOption;
@@ -270,6 +272,29 @@ public class BundleJarUtil {
     return destinationFolder;
   }
 
+  /**
+   * Unpack a jar from the given stream to a directory. The stream is not closed and is positioned
+   * after the last entry of the jar when this method returns.
+   *
+   * @param input the stream to read the jar from
+   * @param destinationFolder Directory to expand into
+   * @param nameFilter Predicate to select files to unpack
+   * @throws IOException If failed to expand the jar
+   */
+  static void unJarStream(InputStream input, File destinationFolder,
+      Predicate<String> nameFilter)
+      throws IOException {
+    try (ZipInputStream zipIn = new ZipInputStream(new BufferedInputStream(
+        new FilterInputStream(input) {
+          @Override
+          public void close() {
+            // Leave the stream open for the caller
+          }
+        }))) {
+      unJar(zipIn, destinationFolder, nameFilter);
+    }
+  }
+
   /**
    * Unpack a jar file to a directory.
    *
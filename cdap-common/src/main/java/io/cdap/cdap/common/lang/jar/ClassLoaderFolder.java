@@ -22,8 +22,13 @@ import io.cdap.cdap.common.utils.DirUtils;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.function.Predicate;
 import java.util.jar.JarFile;
+import javax.annotation.Nullable;
 import org.apache.twill.filesystem.Location;
 
 /**
@@ -34,6 +39,8 @@ public final class ClassLoaderFolder implements Closeable {
 
   private final File dir;
   private final boolean needDelete;
+  @Nullable
+  private final Closeable releaser;
 
   ClassLoaderFolder(Location location, ThrowingSupplier<File, IOException> targetDirSupplier)
       throws IOException {
@@ -42,18 +49,51 @@ public final class ClassLoaderFolder implements Closeable {
       this.needDelete = false;
     } else {
       File targetDir = targetDirSupplier.get();
-      Files.createDirectories(targetDir.toPath());
-      BundleJarUtil.unJar(location, targetDir,
-          name -> name.equals(JarFile.MANIFEST_NAME) || name.endsWith(".jar"));
-
-      // Note: We start with space to ensure this file goes first in case resources order is important
-      File artifactTempName = File.createTempFile(" artifact", ".jar", targetDir);
-      artifactTempName.delete();
-      Locations.linkOrCopy(location, artifactTempName);
-
+      expand(location, targetDir, null);
       this.dir = targetDir;
       this.needDelete = true;
     }
+    this.releaser = null;
+  }
+
+  /**
+   * Creates an instance for a directory that is managed elsewhere, such as by the
+   * {@link ClassLoaderFolderCache}. The given releaser is called instead of deleting the directory
+   * on {@link #close()}.
+   */
+  ClassLoaderFolder(File dir, Closeable releaser) {
+    this.dir = dir;
+    this.needDelete = false;
+    this.releaser = releaser;
+  }
+
+  /**
+   * Expands the given jar file into the target directory for class loading. If a
+   * {@link MessageDigest} is given, it is updated with the content of the jar while the jar is
+   * expanded, so that the jar is only read once.
+   */
+  static void expand(Location location, File targetDir, @Nullable MessageDigest digest)
+      throws IOException {
+    Files.createDirectories(targetDir.toPath());
+    Predicate<String> nameFilter =
+        name -> name.equals(JarFile.MANIFEST_NAME) || name.endsWith(".jar");
+    if (digest == null) {
+      BundleJarUtil.unJar(location, targetDir, nameFilter);
+    } else {
+      try (InputStream is = new DigestInputStream(location.getInputStream(), digest)) {
+        BundleJarUtil.unJarStream(is, targetDir, nameFilter);
+        // Read the rest of the jar after the last entry to complete the digest
+        byte[] buffer = new byte[8192];
+        while (is.read(buffer) >= 0) {
+          // no-op
+        }
+      }
+    }
+
+    // Note: We start with space to ensure this file goes first in case resources order is important
+    File artifactTempName = File.createTempFile(" artifact", ".jar", targetDir);
+    artifactTempName.delete();
+    Locations.linkOrCopy(location, artifactTempName);
   }
 
   public File getDir() {
@@ -62,6 +102,9 @@ public final class ClassLoaderFolder implements Closeable {
 
   @Override
   public void close() throws IOException {
+    if (releaser != null) {
+      releaser.close();
+    }
     if (needDelete && dir.exists()) {
       DirUtils.deleteDirectoryContents(dir);
     }
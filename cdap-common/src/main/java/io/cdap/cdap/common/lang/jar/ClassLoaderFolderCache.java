@@ -0,0 +1,427 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.common.lang.jar;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.Striped;
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.lang.ThrowingSupplier;
+import io.cdap.cdap.common.utils.DirUtils;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import org.apache.twill.filesystem.Location;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache of jar files expanded into {@link ClassLoaderFolder}, keyed by the SHA-256 digest of the
+ * jar content. Concurrent users of the same jar share the same expanded directory, which is
+ * reference counted and only becomes eligible for eviction when no {@link ClassLoaderFolder}
+ * returned for it remains open. Directories not in use are evicted in least recently used order
+ * when the total size of the cache exceeds the configured budget.
+ *
+ * <p>There is one cache per temporary directory in the process, obtained through
+ * {@link #get(CConfiguration)}. Expanded directories are kept in a fixed directory under the
+ * temporary directory, which is locked by the process using it, since the reference counts are not
+ * shared across processes. Directories left by a previous process are deleted when the directory
+ * is first used. If the directory is locked by another process, jars are expanded without
+ * caching.</p>
+ */
+public final class ClassLoaderFolderCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ClassLoaderFolderCache.class);
+  private static final ConcurrentMap<File, ClassLoaderFolderCache> CACHES =
+      new ConcurrentHashMap<>();
+  private static final ClassLoaderFolderCache DISABLED = new ClassLoaderFolderCache(null, 0L);
+  private static final int MAX_DIGESTS = 10000;
+  @VisibleForTesting
+  static final String CACHE_DIR_NAME = "unpacked.artifacts";
+  private static final String LOCK_FILE_NAME = ".lock";
+
+  private final File baseDir;
+  private final long maxSizeBytes;
+  private final Map<String, Entry> entries;
+  // Digest of jar files, keyed by the location, size and last modified time of the jar, or of
+  // the location it was copied from
+  private final Cache<String, String> digests;
+  // Lock by jar location, such that concurrent users of a jar not yet in the digest cache don't
+  // expand the jar more than once
+  private final Striped<Lock> digestLocks;
+  private final AtomicLong sequence;
+  private volatile boolean initialized;
+  // Holds the lock on the cache directory for the lifetime of the process
+  private FileChannel lockChannel;
+  @Nullable
+  private volatile File cacheDir;
+  private long totalSize;
+
+  /**
+   * Returns the {@link ClassLoaderFolderCache} for the temporary directory of the given
+   * configuration. If the cache is disabled, the returned cache always expands jar files into new
+   * directories.
+   *
+   * @throws IllegalArgumentException if the cache for the temporary directory was already created
+   *     with a different size budget
+   */
+  public static ClassLoaderFolderCache get(CConfiguration cConf) {
+    if (!cConf.getBoolean(Constants.AppFabric.UNPACKED_ARTIFACT_CACHE_ENABLED)) {
+      return DISABLED;
+    }
+    File baseDir = new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
+        cConf.get(Constants.AppFabric.TEMP_DIR)).getAbsoluteFile();
+    long maxSizeBytes =
+        cConf.getLong(Constants.AppFabric.UNPACKED_ARTIFACT_CACHE_MAX_SIZE_MB) * 1024 * 1024;
+    ClassLoaderFolderCache cache = CACHES.computeIfAbsent(
+        baseDir, dir -> new ClassLoaderFolderCache(dir, maxSizeBytes));
+    if (cache.maxSizeBytes != maxSizeBytes) {
+      throw new IllegalArgumentException(String.format(
+          "The unpacked artifact cache in %s is already created with a size budget of %d bytes, "
+              + "which is different from the configured budget of %d bytes",
+          baseDir, cache.maxSizeBytes, maxSizeBytes));
+    }
+    return cache;
+  }
+
+  @VisibleForTesting
+  ClassLoaderFolderCache(File baseDir, long maxSizeBytes) {
+    this.baseDir = baseDir;
+    this.maxSizeBytes = maxSizeBytes;
+    this.entries = new HashMap<>();
+    this.digests = CacheBuilder.newBuilder().maximumSize(MAX_DIGESTS).build();
+    this.digestLocks = Striped.lock(16);
+    this.sequence = new AtomicLong();
+  }
+
+  /**
+   * Prepares a {@link ClassLoaderFolder} for the given jar, which is the same as
+   * {@link BundleJarUtil#prepareClassLoaderFolder(Location, ThrowingSupplier)}, except that the
+   * expanded directory is shared with other users of a jar with the same content. The directory
+   * content must not be modified. Closing the returned {@link ClassLoaderFolder} releases the
+   * directory instead of deleting it.
+   *
+   * @param jarLocation Location containing the jar file or local directory with already
+   *     unpacked jar files
+   * @param destinationSupplier Supply the directory to expand into when caching is disabled
+   * @return a {@link ClassLoaderFolder} containing the directory with the content ready for
+   *     classloader creation.
+   * @throws IOException If failed to expand the jar
+   */
+  public ClassLoaderFolder prepareClassLoaderFolder(Location jarLocation,
+      ThrowingSupplier<File, IOException> destinationSupplier) throws IOException {
+    return prepareClassLoaderFolder(jarLocation, null, destinationSupplier);
+  }
+
+  /**
+   * Prepares a {@link ClassLoaderFolder} for the given jar, which is a copy of the jar in the given
+   * source location. The digest of the jar content is looked up by the source location, so that
+   * new copies of the same jar don't need to be expanded again to find the shared directory.
+   *
+   * @param jarLocation Location containing the jar file or local directory with already
+   *     unpacked jar files
+   * @param sourceLocation Location the jar was copied from, or {@code null} if it is not a
+   *     copy
+   * @param destinationSupplier Supply the directory to expand into when caching is disabled
+   * @return a {@link ClassLoaderFolder} containing the directory with the content ready for
+   *     classloader creation.
+   * @throws IOException If failed to expand the jar
+   */
+  public ClassLoaderFolder prepareClassLoaderFolder(Location jarLocation,
+      @Nullable Location sourceLocation,
+      ThrowingSupplier<File, IOException> destinationSupplier) throws IOException {
+    if (baseDir == null
+        || ("file".equals(jarLocation.toURI().getScheme()) && jarLocation.isDirectory())
+        || getCacheDir() == null) {
+      return BundleJarUtil.prepareClassLoaderFolder(jarLocation, destinationSupplier);
+    }
+
+    Location keyLocation = sourceLocation == null ? jarLocation : sourceLocation;
+    String key = keyLocation.toURI() + ":" + keyLocation.length() + ":"
+        + keyLocation.lastModified();
+    Lock lock = digestLocks.get(key);
+    lock.lock();
+    String digest;
+    File expandedDir = null;
+    try {
+      digest = digests.getIfPresent(key);
+      if (digest == null) {
+        // Compute the digest while expanding the jar, so that the jar is only read once
+        MessageDigest messageDigest = createMessageDigest();
+        expandedDir = expand(jarLocation, messageDigest);
+        digest = Bytes.toHexString(messageDigest.digest());
+        digests.put(key, digest);
+      }
+    } finally {
+      lock.unlock();
+    }
+
+    Entry entry;
+    synchronized (this) {
+      entry = entries.computeIfAbsent(digest, Entry::new);
+      entry.refCount++;
+      entry.lastAccess = System.nanoTime();
+    }
+    try {
+      File dir = entry.populate(jarLocation, expandedDir);
+      AtomicBoolean released = new AtomicBoolean();
+      return new ClassLoaderFolder(dir, () -> {
+        if (released.compareAndSet(false, true)) {
+          release(entry);
+        }
+      });
+    } catch (IOException | RuntimeException e) {
+      release(entry);
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the total size in bytes of all expanded directories in the cache.
+   */
+  @VisibleForTesting
+  synchronized long getTotalSize() {
+    return totalSize;
+  }
+
+  private void release(Entry entry) {
+    synchronized (this) {
+      entry.refCount--;
+      entry.lastAccess = System.nanoTime();
+      if (entry.refCount == 0 && entry.dir == null) {
+        // Failed to populate, remove it so that it can be retried
+        entries.remove(entry.digest, entry);
+      }
+    }
+    evict();
+  }
+
+  /**
+   * Evicts the least recently used directories that are not in use until the cache size is within
+   * the budget.
+   */
+  private void evict() {
+    List<File> evicted = new ArrayList<>();
+    synchronized (this) {
+      if (totalSize <= maxSizeBytes) {
+        return;
+      }
+      List<Entry> candidates = entries.values().stream()
+          .filter(e -> e.refCount == 0 && e.dir != null)
+          .sorted(Comparator.comparingLong(e -> e.lastAccess))
+          .collect(Collectors.toList());
+      for (Entry entry : candidates) {
+        if (totalSize <= maxSizeBytes) {
+          break;
+        }
+        entries.remove(entry.digest);
+        totalSize -= entry.size;
+        evicted.add(entry.dir);
+      }
+    }
+    // Directories are deleted outside of the lock. Each population uses a new directory name, hence
+    // it won't conflict with the deletion.
+    for (File dir : evicted) {
+      try {
+        DirUtils.deleteDirectoryContents(dir);
+        LOG.trace("Evicted expanded jar directory {}", dir);
+      } catch (IOException e) {
+        LOG.warn("Failed to delete expanded jar directory {}", dir, e);
+      }
+    }
+  }
+
+  private static MessageDigest createMessageDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // This shouldn't happen as SHA-256 must be supported by every JVM
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Expands the jar into a new staging directory in the cache directory.
+   *
+   * @param jarLocation location of the jar file
+   * @param digest if not {@code null}, it is updated with the content of the jar
+   * @return the staging directory
+   */
+  private File expand(Location jarLocation, @Nullable MessageDigest digest) throws IOException {
+    File stagingDir = new File(getCacheDir(), ".staging-" + sequence.incrementAndGet());
+    try {
+      ClassLoaderFolder.expand(jarLocation, stagingDir, digest);
+    } catch (IOException | RuntimeException e) {
+      deleteDirectory(stagingDir, e);
+      throw e;
+    }
+    return stagingDir;
+  }
+
+  private static void deleteDirectory(File dir, Exception cause) {
+    try {
+      if (dir.exists()) {
+        DirUtils.deleteDirectoryContents(dir);
+      }
+    } catch (IOException e) {
+      cause.addSuppressed(e);
+    }
+  }
+
+  /**
+   * Returns the cache directory, or {@code null} if it is locked by another process. On the first
+   * call, the directory is locked and the content left by a previous process is deleted.
+   */
+  @Nullable
+  private File getCacheDir() throws IOException {
+    if (initialized) {
+      return cacheDir;
+    }
+    synchronized (this) {
+      if (initialized) {
+        return cacheDir;
+      }
+      File dir = new File(baseDir, CACHE_DIR_NAME);
+      Files.createDirectories(dir.toPath());
+      FileChannel channel = FileChannel.open(new File(dir, LOCK_FILE_NAME).toPath(),
+          StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+      FileLock fileLock;
+      try {
+        fileLock = channel.tryLock();
+      } catch (OverlappingFileLockException e) {
+        // Locked by another cache in this process
+        fileLock = null;
+      } catch (IOException | RuntimeException e) {
+        channel.close();
+        throw e;
+      }
+      if (fileLock == null) {
+        channel.close();
+        LOG.warn("Expanded jar directory {} is used by another process. "
+            + "Jars will be expanded without caching.", dir);
+      } else {
+        lockChannel = channel;
+        for (File file : DirUtils.listFiles(dir)) {
+          if (file.isDirectory()) {
+            DirUtils.deleteDirectoryContents(file);
+          } else if (!file.getName().equals(LOCK_FILE_NAME)) {
+            Files.deleteIfExists(file.toPath());
+          }
+        }
+        LOG.debug("Using expanded jar directory {}", dir);
+        cacheDir = dir;
+      }
+      initialized = true;
+      return cacheDir;
+    }
+  }
+
+  private static long computeSize(File dir) throws IOException {
+    AtomicLong size = new AtomicLong();
+    Files.walkFileTree(dir.toPath(), new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        size.addAndGet(attrs.size());
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return size.get();
+  }
+
+  /**
+   * An expanded directory in the cache.
+   */
+  private final class Entry {
+
+    private final String digest;
+    // The following fields are guarded by the cache lock
+    private int refCount;
+    private long lastAccess;
+    // The following fields are only set once by populate
+    private volatile File dir;
+    private volatile long size;
+
+    private Entry(String digest) {
+      this.digest = digest;
+    }
+
+    /**
+     * Expands the jar into the directory of this entry if it is not yet expanded. Concurrent
+     * callers block until the directory is ready.
+     *
+     * @param jarLocation location of the jar file
+     * @param expandedDir a staging directory the jar is already expanded into, or {@code null}
+     *     if the jar is not yet expanded. It is either moved into the cache or deleted.
+     */
+    synchronized File populate(Location jarLocation, @Nullable File expandedDir)
+        throws IOException {
+      if (dir != null) {
+        if (expandedDir != null) {
+          // Another user of the same content has expanded it first
+          try {
+            DirUtils.deleteDirectoryContents(expandedDir);
+          } catch (IOException e) {
+            LOG.warn("Failed to delete expanded jar directory {}", expandedDir, e);
+          }
+        }
+        return dir;
+      }
+      File stagingDir = expandedDir == null ? expand(jarLocation, null) : expandedDir;
+      File targetDir = new File(getCacheDir(), digest + "-" + sequence.incrementAndGet());
+      try {
+        Files.move(stagingDir.toPath(), targetDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException | RuntimeException e) {
+        deleteDirectory(stagingDir, e);
+        throw e;
+      }
+      size = computeSize(targetDir);
+      dir = targetDir;
+      synchronized (ClassLoaderFolderCache.this) {
+        totalSize += size;
+      }
+      LOG.debug("Expanded {} into {} with size {}", jarLocation, targetDir, size);
+      evict();
+      return targetDir;
+    }
+  }
+}
@@ -19,6 +19,7 @@ package io.cdap.cdap.common.internal.remote;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.cdap.cdap.api.metrics.MetricsCollectionService;
 import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.api.retry.RetryableException;
 import io.cdap.cdap.api.service.worker.RemoteExecutionException;
 import io.cdap.cdap.api.service.worker.RunnableTask;
 import io.cdap.cdap.api.service.worker.RunnableTaskContext;
@@ -33,10 +34,18 @@ import io.cdap.http.NettyHttpService;
 import io.netty.channel.ChannelPipeline;
 import io.netty.handler.codec.http.HttpContentDecompressor;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.apache.twill.common.Cancellable;
 import org.apache.twill.discovery.InMemoryDiscoveryService;
 import org.junit.After;
@@ -143,7 +152,8 @@ public class RemoteTaskExecutorTest {
 
           @Override
           public void event(String metricName, long value) {
-            // no-op
+            metricCollectors.putIfAbsent(context, new HashMap<>());
+            metricCollectors.get(context).put(metricName, value);
           }
 
           @Override
@@ -214,10 +224,84 @@ public class RemoteTaskExecutorTest {
     Map<String, Long> metricsValue = metricCollectors.get(metricsKey);
     Assert.assertTrue(hasMetric(metricsValue, Constants.Metrics.TaskWorker.CLIENT_REQUEST_LATENCY_MS));
     Assert.assertTrue(hasMetric(metricsValue, Constants.Metrics.TaskWorker.CLIENT_REQUEST_COUNT));
+    Assert.assertTrue(hasMetric(metricsValue, Constants.Metrics.TaskWorker.CLIENT_DISPATCH_LATENCY_MS));
     //check the clz tag is set correctly
     Assert.assertEquals(ValidRunnableClass.class.getName(), metricsKey.get("clz"));
   }
 
+  @Test
+  public void testRequestQueue() throws Exception {
+    // A worker that runs one request at a time and queues one more request
+    CConfiguration workerConf = CConfiguration.copy(cConf);
+    workerConf.setBoolean(Constants.TaskWorker.USER_CODE_ISOLATION_ENABLED, false);
+    workerConf.setInt(Constants.TaskWorker.REQUEST_LIMIT, 1);
+    workerConf.setInt(Constants.TaskWorker.REQUEST_QUEUE_SIZE, 1);
+    workerConf.setInt(Constants.TaskWorker.EXEC_THREADS, 3);
+    workerConf.setLong(Constants.TaskWorker.REQUEST_QUEUE_TIMEOUT_MS, 10000L);
+    NettyHttpService workerService = new CommonNettyHttpServiceBuilder(workerConf, "test",
+                                                                       new NoOpMetricsCollectionService(),
+                                                                       auditLogContexts -> { })
+      .setHttpHandlers(new TaskWorkerHttpHandlerInternal(workerConf, discoveryService, discoveryService,
+                                                         className -> { }, new NoOpMetricsCollectionService()))
+      .setExecThreadPoolSize(3)
+      .setChannelPipelineModifier(new ChannelPipelineModifier() {
+        @Override
+        public void modify(ChannelPipeline pipeline) {
+          pipeline.addAfter("compressor", "decompressor", new HttpContentDecompressor());
+        }
+      })
+      .build();
+    workerService.start();
+
+    // Register the worker as the only task worker and don't retry on rejection
+    registered.cancel();
+    InMemoryDiscoveryService workerDiscovery = new InMemoryDiscoveryService();
+    Cancellable workerRegistered = workerDiscovery.register(
+      URIScheme.createDiscoverable(Constants.Service.TASK_WORKER, workerService));
+    CConfiguration clientConf = CConfiguration.copy(cConf);
+    clientConf.set(Constants.Service.TASK_WORKER + "." + Constants.Retry.TYPE, "none");
+    RemoteTaskExecutor remoteTaskExecutor = new RemoteTaskExecutor(
+      clientConf, new NoOpMetricsCollectionService(),
+      new RemoteClientFactory(workerDiscovery, new NoOpInternalAuthenticator()), RemoteTaskExecutor.Type.TASK_WORKER);
+
+    BlockingRunnableClass.started = new CountDownLatch(1);
+    BlockingRunnableClass.release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      RunnableTaskRequest blockingRequest = RunnableTaskRequest.getBuilder(BlockingRunnableClass.class.getName())
+        .withParam("param").withNamespace("testNamespace").build();
+      Future<byte[]> running = executor.submit(() -> remoteTaskExecutor.runTask(blockingRequest));
+      Assert.assertTrue(BlockingRunnableClass.started.await(10, TimeUnit.SECONDS));
+
+      // One request waits in the queue and the other one is rejected
+      RunnableTaskRequest request = RunnableTaskRequest.getBuilder(ValidRunnableClass.class.getName())
+        .withParam("param").withNamespace("testNamespace").build();
+      List<Future<byte[]>> futures = new ArrayList<>();
+      for (int i = 0; i < 2; i++) {
+        futures.add(executor.submit(() -> remoteTaskExecutor.runTask(request)));
+      }
+      // Give the requests time to reach the worker
+      TimeUnit.MILLISECONDS.sleep(500);
+      BlockingRunnableClass.release.countDown();
+
+      Assert.assertEquals("success", new String(running.get(10, TimeUnit.SECONDS), StandardCharsets.UTF_8));
+      int succeeded = 0;
+      for (Future<byte[]> future : futures) {
+        try {
+          Assert.assertEquals("success", new String(future.get(10, TimeUnit.SECONDS), StandardCharsets.UTF_8));
+          succeeded++;
+        } catch (ExecutionException e) {
+          Assert.assertTrue(e.getCause() instanceof RetryableException);
+        }
+      }
+      Assert.assertEquals(1, succeeded);
+    } finally {
+      executor.shutdownNow();
+      workerRegistered.cancel();
+      workerService.stop();
+    }
+  }
+
   @Test
   public void testRetryMetrics() throws Exception {
     // Remove the service registration
@@ -260,6 +344,18 @@ public class RemoteTaskExecutorTest {
     }
   }
 
+  static class BlockingRunnableClass implements RunnableTask {
+    static volatile CountDownLatch started;
+    static volatile CountDownLatch release;
+
+    @Override
+    public void run(RunnableTaskContext context) throws Exception {
+      started.countDown();
+      release.await(10, TimeUnit.SECONDS);
+      context.writeResult("success".getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
   static class InValidRunnableClass implements RunnableTask {
     @Override
     public void run(RunnableTaskContext context) throws Exception {
@@ -35,15 +35,22 @@ import io.cdap.cdap.common.lang.jar.BundleJarUtil;
 import io.cdap.cdap.common.test.AppJarHelper;
 import io.cdap.cdap.internal.io.SchemaGenerator;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Method;
 import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
 import org.apache.twill.api.ClassAcceptor;
 import org.apache.twill.filesystem.LocalLocationFactory;
 import org.apache.twill.filesystem.Location;
@@ -52,6 +59,8 @@ import org.junit.Assert;
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
 
 /**
  * Unit test for ClassLoader.
@@ -115,6 +124,68 @@ public class ClassLoaderTest {
     }
   }
 
+  @Test
+  public void testCombineClassLoaderIndex() throws Exception {
+    File jarA = createJar(TMP_FOLDER.newFile("a.jar"), "test.a.A");
+    File jarB = createJar(TMP_FOLDER.newFile("b.jar"), "test.b.B");
+    CountingClassLoader parent = new CountingClassLoader(getClass().getClassLoader());
+    ClassLoader delegateA = new URLClassLoader(new URL[] { jarA.toURI().toURL() }, parent);
+    ClassLoader delegateB = new URLClassLoader(new URL[] { jarB.toURI().toURL() }, parent);
+    ClassLoader classLoader = new CombineClassLoader(null, delegateA, delegateB);
+
+    // Classes are loaded from the delegate that has them, or from the shared parent
+    Assert.assertSame(delegateA, classLoader.loadClass("test.a.A").getClassLoader());
+    Assert.assertSame(delegateB, classLoader.loadClass("test.b.B").getClassLoader());
+    Assert.assertSame(Bytes.class, classLoader.loadClass(Bytes.class.getName()));
+    Assert.assertNotNull(classLoader.getResource("test/b/B.txt"));
+    Assert.assertNotNull(classLoader.getResource(Bytes.class.getName().replace('.', '/') + ".class"));
+    try (InputStream is = classLoader.getResourceAsStream("test/a/A.txt")) {
+      Assert.assertNotNull(is);
+    }
+    Assert.assertEquals(1, Collections.list(classLoader.getResources("test/a/A.txt")).size());
+
+    // The shared parent is only consulted once for a class that is in none of the delegates
+    parent.loadCount.set(0);
+    try {
+      classLoader.loadClass("test.c.C");
+      Assert.fail("Expected ClassNotFoundException");
+    } catch (ClassNotFoundException e) {
+      // expected
+    }
+    Assert.assertEquals(1, parent.loadCount.get());
+
+    // The first delegate wins even if the class comes from its parent
+    ClassLoader delegateParent = new URLClassLoader(new URL[] { jarB.toURI().toURL() }, null);
+    ClassLoader delegateC = new URLClassLoader(new URL[] { jarA.toURI().toURL() }, delegateParent);
+    classLoader = new CombineClassLoader(null, delegateC, delegateB);
+    Assert.assertSame(delegateParent, classLoader.loadClass("test.b.B").getClassLoader());
+  }
+
+  @Test
+  public void testCombineClassLoaderMissingClass() throws Exception {
+    File dir = TMP_FOLDER.newFolder();
+    ClassLoader delegate = new URLClassLoader(new URL[] { dir.toURI().toURL() }, null);
+    ClassLoader classLoader = new CombineClassLoader(null, delegate);
+    try {
+      classLoader.loadClass("test.d.D");
+      Assert.fail("Expected ClassNotFoundException");
+    } catch (ClassNotFoundException e) {
+      // expected
+    }
+
+    // Missing classes are remembered since the delegate has a fixed class path
+    File classFile = new File(dir, "test/d/D.class");
+    Assert.assertTrue(classFile.getParentFile().mkdirs());
+    Files.write(classFile.toPath(), generateClass("test.d.D"));
+    try {
+      classLoader.loadClass("test.d.D");
+      Assert.fail("Expected ClassNotFoundException");
+    } catch (ClassNotFoundException e) {
+      // expected
+    }
+    Assert.assertNotNull(new CombineClassLoader(null, delegate).loadClass("test.d.D"));
+  }
+
   @Test
   public void testWeakReferenceClassLoader() throws Exception {
     // Creates a jar that has Application class in it.
@@ -255,4 +326,48 @@ public class ClassLoaderTest {
 
     Assert.assertEquals(currentThreadName, executorThreadName.get());
   }
+
+  /**
+   * Creates a jar with the given classes. Each class has a text resource next to it.
+   */
+  private File createJar(File file, String... classNames) throws IOException {
+    try (JarOutputStream output = new JarOutputStream(new FileOutputStream(file))) {
+      for (String className : classNames) {
+        String path = className.replace('.', '/');
+        output.putNextEntry(new JarEntry(path + ".class"));
+        output.write(generateClass(className));
+        output.closeEntry();
+        output.putNextEntry(new JarEntry(path + ".txt"));
+        output.write(className.getBytes(StandardCharsets.UTF_8));
+        output.closeEntry();
+      }
+    }
+    return file;
+  }
+
+  private byte[] generateClass(String className) {
+    ClassWriter classWriter = new ClassWriter(0);
+    classWriter.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, className.replace('.', '/'), null,
+                      "java/lang/Object", null);
+    classWriter.visitEnd();
+    return classWriter.toByteArray();
+  }
+
+  /**
+   * A {@link ClassLoader} that counts the number of class lookups.
+   */
+  private static final class CountingClassLoader extends ClassLoader {
+
+    private final AtomicInteger loadCount = new AtomicInteger();
+
+    CountingClassLoader(ClassLoader parent) {
+      super(parent);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      loadCount.incrementAndGet();
+      return super.loadClass(name, resolve);
+    }
+  }
 }
@@ -18,6 +18,12 @@ package io.cdap.cdap.common.lang;
 
 import io.cdap.cdap.api.app.Application;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import javax.ws.rs.PUT;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.util.VersionInfo;
@@ -85,4 +91,33 @@ public class FilterClassLoaderTest {
     // as the system Configuration class.
     Assert.assertSame(Configuration.class, classLoader.loadClass(Configuration.class.getName()));
   }
+
+  @Test
+  public void testParallelLoading() throws Exception {
+    FilterClassLoader classLoader = FilterClassLoader.create(this.getClass().getClassLoader());
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Class<?>>> futures = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        futures.add(executor.submit(() -> classLoader.loadClass(Application.class.getName())));
+        futures.add(executor.submit(() -> classLoader.loadClass(String.class.getName())));
+      }
+      for (int i = 0; i < futures.size(); i += 2) {
+        Assert.assertSame(Application.class, futures.get(i).get(10, TimeUnit.SECONDS));
+        Assert.assertSame(String.class, futures.get(i + 1).get(10, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // Hidden classes stay hidden on repeated lookups
+    for (int i = 0; i < 2; i++) {
+      try {
+        classLoader.loadClass(FilterClassLoader.class.getName());
+        Assert.fail("Expected ClassNotFoundException");
+      } catch (ClassNotFoundException e) {
+        // expected
+      }
+    }
+  }
 }
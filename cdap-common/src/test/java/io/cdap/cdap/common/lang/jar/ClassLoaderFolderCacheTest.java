@@ -0,0 +1,191 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.common.lang.jar;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.io.Files;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.io.Locations;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.twill.filesystem.Location;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link ClassLoaderFolderCache}.
+ */
+public class ClassLoaderFolderCacheTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testShareAndEvict() throws Exception {
+    ClassLoaderFolderCache cache = new ClassLoaderFolderCache(TEMP_FOLDER.newFolder(), 0L);
+    Location jar1 = createJar("content1");
+    // A copy of the same jar at a different location
+    Location jar1Copy = Locations.toLocation(new File(TEMP_FOLDER.newFolder(), "copy.jar"));
+    Files.copy(new File(jar1.toURI()), new File(jar1Copy.toURI()));
+    Location jar2 = createJar("content2");
+
+    File dir1;
+    try (ClassLoaderFolder folder1 = cache.prepareClassLoaderFolder(jar1, TEMP_FOLDER::newFolder);
+        ClassLoaderFolder folder2 = cache.prepareClassLoaderFolder(jar1Copy,
+            TEMP_FOLDER::newFolder)) {
+      dir1 = folder1.getDir();
+      // Same content should share the same directory
+      Assert.assertEquals(dir1, folder2.getDir());
+      Assert.assertTrue(new File(dir1, "lib/nested.jar").isFile());
+
+      try (ClassLoaderFolder folder3 = cache.prepareClassLoaderFolder(jar2,
+          TEMP_FOLDER::newFolder)) {
+        Assert.assertNotEquals(dir1, folder3.getDir());
+      }
+      // The directory of jar2 is no longer in use and should be evicted since the budget is zero
+      Assert.assertTrue(dir1.isDirectory());
+      folder1.close();
+      // Still in use by folder2
+      Assert.assertTrue(dir1.isDirectory());
+    }
+    Assert.assertFalse(dir1.exists());
+    Assert.assertEquals(0L, cache.getTotalSize());
+  }
+
+  @Test
+  public void testReuseWithinBudget() throws Exception {
+    ClassLoaderFolderCache cache = new ClassLoaderFolderCache(TEMP_FOLDER.newFolder(),
+        Long.MAX_VALUE);
+    Location jar = createJar("content");
+
+    File dir;
+    try (ClassLoaderFolder folder = cache.prepareClassLoaderFolder(jar, TEMP_FOLDER::newFolder)) {
+      dir = folder.getDir();
+    }
+    // The directory should be retained and reused
+    Assert.assertTrue(dir.isDirectory());
+    Assert.assertTrue(cache.getTotalSize() > 0);
+    try (ClassLoaderFolder folder = cache.prepareClassLoaderFolder(jar, TEMP_FOLDER::newFolder)) {
+      Assert.assertEquals(dir, folder.getDir());
+    }
+  }
+
+  @Test
+  public void testConcurrentPopulate() throws Exception {
+    ClassLoaderFolderCache cache = new ClassLoaderFolderCache(TEMP_FOLDER.newFolder(),
+        Long.MAX_VALUE);
+    Location jar = createJar("concurrent");
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<ClassLoaderFolder>> futures = new ArrayList<>();
+      for (int i = 0; i < 32; i++) {
+        futures.add(executor.submit(
+            () -> cache.prepareClassLoaderFolder(jar, TEMP_FOLDER::newFolder)));
+      }
+      File dir = null;
+      for (Future<ClassLoaderFolder> future : futures) {
+        try (ClassLoaderFolder folder = future.get()) {
+          if (dir == null) {
+            dir = folder.getDir();
+          }
+          Assert.assertEquals(dir, folder.getDir());
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testDirectory() throws Exception {
+    ClassLoaderFolderCache cache = new ClassLoaderFolderCache(TEMP_FOLDER.newFolder(), 0L);
+    File dir = TEMP_FOLDER.newFolder();
+    // Directory is used as is
+    try (ClassLoaderFolder folder = cache.prepareClassLoaderFolder(Locations.toLocation(dir),
+        TEMP_FOLDER::newFolder)) {
+      Assert.assertEquals(dir, folder.getDir());
+    }
+    Assert.assertTrue(dir.isDirectory());
+  }
+
+  @Test
+  public void testStableDirectory() throws Exception {
+    File baseDir = TEMP_FOLDER.newFolder();
+    // Directory left by a previous process
+    File staleDir = new File(new File(baseDir, ClassLoaderFolderCache.CACHE_DIR_NAME), "stale-1");
+    Assert.assertTrue(staleDir.mkdirs());
+    Files.write("stale", new File(staleDir, "file"), Charsets.UTF_8);
+
+    ClassLoaderFolderCache cache = new ClassLoaderFolderCache(baseDir, Long.MAX_VALUE);
+    Location jar = createJar("stable");
+    File dir;
+    try (ClassLoaderFolder folder = cache.prepareClassLoaderFolder(jar, TEMP_FOLDER::newFolder)) {
+      dir = folder.getDir();
+    }
+    Assert.assertEquals(staleDir.getParentFile(), dir.getParentFile());
+    Assert.assertFalse(staleDir.exists());
+
+    // The directory is locked, hence another cache on the same directory expands without caching
+    ClassLoaderFolderCache otherCache = new ClassLoaderFolderCache(baseDir, Long.MAX_VALUE);
+    File uncachedDir;
+    try (ClassLoaderFolder folder = otherCache.prepareClassLoaderFolder(jar,
+        TEMP_FOLDER::newFolder)) {
+      uncachedDir = folder.getDir();
+      Assert.assertNotEquals(dir.getParentFile(), uncachedDir.getParentFile());
+    }
+    Assert.assertFalse(uncachedDir.exists());
+    Assert.assertTrue(dir.isDirectory());
+  }
+
+  @Test
+  public void testBudgetMismatch() throws Exception {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.set(Constants.CFG_LOCAL_DATA_DIR, TEMP_FOLDER.newFolder().getAbsolutePath());
+    cConf.setBoolean(Constants.AppFabric.UNPACKED_ARTIFACT_CACHE_ENABLED, true);
+    cConf.setLong(Constants.AppFabric.UNPACKED_ARTIFACT_CACHE_MAX_SIZE_MB, 10);
+    ClassLoaderFolderCache cache = ClassLoaderFolderCache.get(cConf);
+    Assert.assertSame(cache, ClassLoaderFolderCache.get(cConf));
+
+    cConf.setLong(Constants.AppFabric.UNPACKED_ARTIFACT_CACHE_MAX_SIZE_MB, 20);
+    try {
+      ClassLoaderFolderCache.get(cConf);
+      Assert.fail("Expected the cache to reject a different budget");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  private Location createJar(String content) throws IOException {
+    File dir = TEMP_FOLDER.newFolder();
+    File libDir = new File(dir, "lib");
+    libDir.mkdirs();
+    Files.write(Strings.repeat(content, 100), new File(libDir, "nested.jar"), Charsets.UTF_8);
+    File jar = new File(TEMP_FOLDER.newFolder(), "test.jar");
+    BundleJarUtil.createJar(dir, jar);
+    return Locations.toLocation(jar);
+  }
+}
@@ -70,6 +70,7 @@ import io.cdap.cdap.data.RuntimeProgramContextAware;
 import io.cdap.cdap.data2.dataset2.lib.file.FileSetDataset;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -102,6 +103,8 @@ public class PartitionedFileSetDataset extends AbstractDataset
   private static final Gson GSON =
       new GsonBuilder().registerTypeAdapter(PartitionKey.class, new PartitionKeyCodec()).create();
   private static final String QUARANTINE_DIR = ".quarantine";
+  // number of rows a partition scan reads past before it seeks to the next row that can match
+  private static final int MAX_ROWS_BEFORE_SEEK = 8;
 
   // A function to convert PartitionOperation into PartitionKey by getting the key from the operation.
   private static final Function<PartitionOperation, PartitionKey> OP_TO_KEY =
@@ -693,16 +696,37 @@ public class PartitionedFileSetDataset extends AbstractDataset
     getPartitions(filter, consumer, decodeMetadata, startKey, endKey, Long.MAX_VALUE);
   }
 
+  /**
+   * Scans the partitions table and passes the partitions that match the filter to the consumer.
+   * When a row does not match the filter, the scan skips to the next row key that can match the
+   * filter (see {@link #generateSeekKey}), so that filters on fields other than the leading fields
+   * of the partitioning do not require reading all partitions.
+   */
   private void getPartitions(@Nullable PartitionFilter filter, PartitionConsumer consumer,
       boolean decodeMetadata,
       @Nullable byte[] startKey, @Nullable byte[] endKey, long limit) {
     long count = 0L;
-    try (Scanner scanner = partitionsTable.scan(startKey, endKey)) {
+    byte[] seekKey = null;
+    int rowsBeforeSeek = 0;
+    Scanner scanner = partitionsTable.scan(startKey, endKey);
+    try {
       while (count < limit) {
         Row row = scanner.next();
         if (row == null) {
           break;
         }
+        if (seekKey != null) {
+          if (Bytes.compareTo(row.getRow(), seekKey) < 0) {
+            // for short distances, reading the next rows is cheaper than starting a new scan
+            if (++rowsBeforeSeek >= MAX_ROWS_BEFORE_SEEK) {
+              scanner.close();
+              scanner = partitionsTable.scan(seekKey, endKey);
+              seekKey = null;
+            }
+            continue;
+          }
+          seekKey = null;
+        }
         PartitionKey key;
         try {
           key = parseRowKey(row.getRow(), partitioning);
@@ -712,6 +736,12 @@ public class PartitionedFileSetDataset extends AbstractDataset
           continue;
         }
         if (filter != null && !filter.match(key)) {
+          seekKey = generateSeekKey(row.getRow(), key, filter, partitioning);
+          if (seekKey == null || (endKey != null && Bytes.compareTo(seekKey, endKey) >= 0)) {
+            // no later row can match the filter
+            break;
+          }
+          rowsBeforeSeek = 0;
           continue;
         }
         byte[] pathBytes = row.get(RELATIVE_PATH);
@@ -724,6 +754,8 @@ public class PartitionedFileSetDataset extends AbstractDataset
       if (count == 0) {
         warnIfInvalidPartitionFilter(filter, partitioning);
       }
+    } finally {
+      scanner.close();
     }
   }
 
@@ -1222,6 +1254,57 @@ public class PartitionedFileSetDataset extends AbstractDataset
     return stopKey;
   }
 
+  /**
+   * Generates the smallest row key after the given row key that can match the partition filter,
+   * given that the partition key of the row does not match the filter. Fields are compared in the
+   * order of the partitioning. For the first field that does not match its condition:
+   * <ul>
+   *   <li>if the value is below the lower bound of the condition, the row key for the lower bound
+   *   under the same leading fields is returned;</li>
+   *   <li>otherwise, no other value of this field can match under the same leading fields, and the
+   *   row key after all rows with the same leading fields is returned.</li>
+   * </ul>
+   *
+   * @return the row key to continue the scan at, or null if no later row can match the filter
+   */
+  @VisibleForTesting
+  @Nullable
+  static byte[] generateSeekKey(byte[] rowKey, PartitionKey key, PartitionFilter filter,
+      Partitioning partitioning) {
+    int offset = 0;
+    for (Map.Entry<String, FieldType> entry : partitioning.getFields().entrySet()) {
+      String fieldName = entry.getKey();
+      FieldType fieldType = entry.getValue();
+      Comparable value = key.getField(fieldName);
+      PartitionFilter.Condition<? extends Comparable> condition = filter.getCondition(fieldName);
+      if (condition != null && !condition.match(value)) {
+        Comparable lowerValue = condition.getLower();
+        @SuppressWarnings("unchecked")
+        boolean belowLower = lowerValue != null && lowerValue.compareTo(value) > 0;
+        if (belowLower) {
+          byte[] lowerBytes = FieldTypes.toBytes(lowerValue, fieldType);
+          byte[] seekKey = new byte[offset + lowerBytes.length];
+          System.arraycopy(rowKey, 0, seekKey, 0, offset);
+          System.arraycopy(lowerBytes, 0, seekKey, offset, lowerBytes.length);
+          return seekKey;
+        }
+        if (offset == 0) {
+          // the first field is beyond the upper bound
+          return null;
+        }
+        // all rows with the same leading fields have a \0 after the previous field; use \1 instead
+        byte[] seekKey = Arrays.copyOf(rowKey, offset);
+        seekKey[offset - 1] = 1;
+        return seekKey;
+      }
+      // skip this field and the \0 that follows it
+      offset += FieldTypes.determineLengthInBytes(rowKey, offset, fieldType) + 1;
+    }
+    // all partitioning fields match, so the filter has a condition on a field that is not part of
+    // the partitioning, which no partition can match
+    return null;
+  }
+
   @VisibleForTesting
   static PartitionKey parseRowKey(byte[] rowKey, Partitioning partitioning) {
     PartitionKey.Builder builder = PartitionKey.builder();
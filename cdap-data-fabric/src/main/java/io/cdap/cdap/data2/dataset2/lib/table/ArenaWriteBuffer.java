@@ -0,0 +1,481 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.data2.dataset2.lib.table;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Maps;
+import io.cdap.cdap.api.common.Bytes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * {@link TableWriteBuffer} that appends the changes as cells to large byte array chunks, instead of
+ * allocating map entries and byte arrays for every change. It reduces the heap used by
+ * transactions that buffer a large number of changes.
+ *
+ * <p>Each cell is referenced by a {@code long}, which is the chunk index and the offset of the
+ * cell in the chunk. New cells are appended to an unsorted tail. When the tail is full, it is
+ * sorted by row and column into a run, combining the cells of the same row and column. Runs of
+ * similar sizes are merged, so that there are only a logarithmic number of runs to look up when
+ * reading the buffered changes. The cells superseded by combining are reclaimed by copying the
+ * live cells to new chunks when they take up most of the space.</p>
+ *
+ * <p>This class is not thread safe.</p>
+ */
+final class ArenaWriteBuffer implements TableWriteBuffer {
+
+  private static final int CHUNK_SIZE = 256 * 1024;
+  private static final int TAIL_SIZE = 1024;
+
+  // Cell layout: type (1 byte), row length (4 bytes), column length (4 bytes),
+  // value length (4 bytes), row, column, value
+  private static final int HEADER_SIZE = 13;
+  private static final byte TYPE_PUT = 0;
+  private static final byte TYPE_DELETE = 1;
+  private static final byte TYPE_INCREMENT = 2;
+
+  private List<byte[]> chunks;
+  private byte[] chunk;
+  private int chunkPosition;
+  private long usedBytes;
+  private long garbageBytes;
+
+  // Sorted runs with one cell per row and column, from the oldest to the newest
+  private final List<long[]> runs;
+  // Cells not yet sorted, in the order of being appended
+  private final long[] tail;
+  private int tailSize;
+
+  ArenaWriteBuffer() {
+    this.chunks = new ArrayList<>();
+    this.runs = new ArrayList<>();
+    this.tail = new long[TAIL_SIZE];
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return runs.isEmpty() && tailSize == 0;
+  }
+
+  @Override
+  public boolean containsRow(byte[] row) {
+    return getRow(row) != null;
+  }
+
+  @Nullable
+  @Override
+  public NavigableMap<byte[], Update> getRow(byte[] row) {
+    NavigableMap<byte[], Update> result = null;
+    // Apply from the oldest to the newest cells
+    for (long[] run : runs) {
+      for (int i = lowerBound(run, row); i < run.length && compareRow(run[i], row) == 0; i++) {
+        if (result == null) {
+          result = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+        }
+        result = mergeInto(result, run[i]);
+      }
+    }
+    for (int i = 0; i < tailSize; i++) {
+      if (compareRow(tail[i], row) == 0) {
+        if (result == null) {
+          result = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+        }
+        result = mergeInto(result, tail[i]);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public NavigableMap<byte[], NavigableMap<byte[], Update>> getRows(@Nullable byte[] startRow,
+      @Nullable byte[] stopRow) {
+    long[] cells = compactAll();
+    int start = startRow == null ? 0 : lowerBound(cells, startRow);
+    int end = stopRow == null ? cells.length : lowerBound(cells, stopRow);
+    return toMap(cells, start, end);
+  }
+
+  @Override
+  public Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> rows() {
+    final long[] cells = compactAll();
+    // Creates the map of one row at a time from the sorted run
+    return new AbstractIterator<Map.Entry<byte[], NavigableMap<byte[], Update>>>() {
+
+      private int index;
+
+      @Override
+      protected Map.Entry<byte[], NavigableMap<byte[], Update>> computeNext() {
+        if (index >= cells.length) {
+          return endOfData();
+        }
+        byte[] row = copyRange(cells[index], rowOffset(cells[index]), getRowLength(cells[index]));
+        NavigableMap<byte[], Update> columns = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+        for (; index < cells.length && compareRow(cells[index], row) == 0; index++) {
+          long cell = cells[index];
+          columns.put(copyRange(cell, columnOffset(cell), getColumnLength(cell)), toUpdate(cell));
+        }
+        return Maps.immutableEntry(row, columns);
+      }
+    };
+  }
+
+  @Override
+  public void put(byte[] row, byte[][] columns, byte[][] values) {
+    for (int i = 0; i < columns.length; i++) {
+      byte[] value = values[i];
+      byte type = value == null ? TYPE_DELETE : TYPE_PUT;
+      add(append(type, row, columns[i], value == null ? Bytes.EMPTY_BYTE_ARRAY : value));
+    }
+  }
+
+  @Override
+  public void increment(byte[] row, byte[][] columns, long[] amounts) {
+    for (int i = 0; i < columns.length; i++) {
+      IncrementValue increment = new IncrementValue(amounts[i]);
+      // Fail the increment now if the buffered value is not a long
+      NavigableMap<byte[], Update> buffered = getRow(row);
+      if (buffered != null) {
+        Updates.mergeUpdates(buffered.get(columns[i]), increment);
+      }
+      add(append(TYPE_INCREMENT, row, columns[i], Bytes.toBytes(amounts[i])));
+    }
+  }
+
+  @Override
+  public void clear() {
+    chunks = new ArrayList<>();
+    chunk = null;
+    chunkPosition = 0;
+    usedBytes = 0;
+    garbageBytes = 0;
+    runs.clear();
+    tailSize = 0;
+  }
+
+  /**
+   * Appends a cell to the arena and returns the reference to it.
+   */
+  private long append(byte type, byte[] row, byte[] column, byte[] value) {
+    int size = HEADER_SIZE + row.length + column.length + value.length;
+    if (chunk == null || chunkPosition + size > chunk.length) {
+      chunk = new byte[Math.max(CHUNK_SIZE, size)];
+      chunkPosition = 0;
+      chunks.add(chunk);
+    }
+    int offset = chunkPosition;
+    chunk[offset] = type;
+    Bytes.putInt(chunk, offset + 1, row.length);
+    Bytes.putInt(chunk, offset + 5, column.length);
+    Bytes.putInt(chunk, offset + 9, value.length);
+    int position = offset + HEADER_SIZE;
+    System.arraycopy(row, 0, chunk, position, row.length);
+    position += row.length;
+    System.arraycopy(column, 0, chunk, position, column.length);
+    position += column.length;
+    System.arraycopy(value, 0, chunk, position, value.length);
+    chunkPosition = position + value.length;
+    usedBytes += size;
+    return ((long) (chunks.size() - 1) << 32) | offset;
+  }
+
+  /**
+   * Adds a newly appended cell to the tail, sorting the tail into a run if it is full.
+   */
+  private void add(long cell) {
+    tail[tailSize++] = cell;
+    if (tailSize == TAIL_SIZE) {
+      flushTail();
+    }
+  }
+
+  private void flushTail() {
+    if (tailSize == 0) {
+      return;
+    }
+    long[] cells = Arrays.copyOf(tail, tailSize);
+    tailSize = 0;
+    sort(cells, new long[cells.length], 0, cells.length);
+    runs.add(combine(cells));
+
+    // Merge the newest runs while they are of similar sizes
+    int size = runs.size();
+    while (size > 1 && runs.get(size - 2).length <= 2L * runs.get(size - 1).length) {
+      long[] newer = runs.remove(size - 1);
+      long[] older = runs.remove(size - 2);
+      runs.add(merge(older, newer));
+      size--;
+    }
+    if (garbageBytes > CHUNK_SIZE && garbageBytes * 2 > usedBytes) {
+      reclaim();
+    }
+  }
+
+  /**
+   * Merges the tail and all the runs into one run and returns it.
+   */
+  private long[] compactAll() {
+    flushTail();
+    while (runs.size() > 1) {
+      long[] newer = runs.remove(runs.size() - 1);
+      long[] older = runs.remove(runs.size() - 1);
+      runs.add(merge(older, newer));
+    }
+    return runs.isEmpty() ? new long[0] : runs.get(0);
+  }
+
+  /**
+   * Combines the adjacent cells of the same row and column in sorted cells, in which the cells of
+   * the same row and column are in the order of being appended.
+   */
+  private long[] combine(long[] cells) {
+    int size = 0;
+    for (long cell : cells) {
+      if (size > 0 && compareCell(cells[size - 1], cell) == 0) {
+        cells[size - 1] = combine(cells[size - 1], cell);
+      } else {
+        cells[size++] = cell;
+      }
+    }
+    return size == cells.length ? cells : Arrays.copyOf(cells, size);
+  }
+
+  /**
+   * Merges two runs into one, combining the cells of the same row and column.
+   */
+  private long[] merge(long[] older, long[] newer) {
+    long[] result = new long[older.length + newer.length];
+    int i = 0;
+    int j = 0;
+    int size = 0;
+    while (i < older.length && j < newer.length) {
+      int cmp = compareCell(older[i], newer[j]);
+      if (cmp < 0) {
+        result[size++] = older[i++];
+      } else if (cmp > 0) {
+        result[size++] = newer[j++];
+      } else {
+        result[size++] = combine(older[i++], newer[j++]);
+      }
+    }
+    while (i < older.length) {
+      result[size++] = older[i++];
+    }
+    while (j < newer.length) {
+      result[size++] = newer[j++];
+    }
+    return size == result.length ? result : Arrays.copyOf(result, size);
+  }
+
+  /**
+   * Combines two cells of the same row and column and returns the resulting cell.
+   */
+  private long combine(long older, long newer) {
+    if (getType(newer) != TYPE_INCREMENT) {
+      garbageBytes += getSize(older);
+      return newer;
+    }
+    Update update = Updates.mergeUpdates(toUpdate(older), toUpdate(newer));
+    garbageBytes += getSize(older) + getSize(newer);
+    byte[] row = copyRange(older, rowOffset(older), getRowLength(older));
+    byte[] column = copyRange(older, columnOffset(older), getColumnLength(older));
+    if (update instanceof IncrementValue) {
+      long amount = ((IncrementValue) update).getValue();
+      return append(TYPE_INCREMENT, row, column, Bytes.toBytes(amount));
+    }
+    return append(TYPE_PUT, row, column, ((PutValue) update).getValue());
+  }
+
+  /**
+   * Copies the live cells to new chunks, releasing the space used by the superseded cells.
+   */
+  private void reclaim() {
+    List<byte[]> oldChunks = chunks;
+    chunks = new ArrayList<>();
+    chunk = null;
+    chunkPosition = 0;
+    usedBytes = 0;
+    garbageBytes = 0;
+    for (long[] run : runs) {
+      for (int i = 0; i < run.length; i++) {
+        run[i] = copyCell(oldChunks, run[i]);
+      }
+    }
+    for (int i = 0; i < tailSize; i++) {
+      tail[i] = copyCell(oldChunks, tail[i]);
+    }
+  }
+
+  private long copyCell(List<byte[]> fromChunks, long cell) {
+    byte[] from = fromChunks.get(chunkIndex(cell));
+    int offset = offset(cell);
+    int size = HEADER_SIZE + Bytes.toInt(from, offset + 1) + Bytes.toInt(from, offset + 5)
+        + Bytes.toInt(from, offset + 9);
+    if (chunk == null || chunkPosition + size > chunk.length) {
+      chunk = new byte[Math.max(CHUNK_SIZE, size)];
+      chunkPosition = 0;
+      chunks.add(chunk);
+    }
+    System.arraycopy(from, offset, chunk, chunkPosition, size);
+    long result = ((long) (chunks.size() - 1) << 32) | chunkPosition;
+    chunkPosition += size;
+    usedBytes += size;
+    return result;
+  }
+
+  /**
+   * Stable merge sort of the cells by row and column.
+   */
+  private void sort(long[] cells, long[] buffer, int from, int to) {
+    if (to - from < 2) {
+      return;
+    }
+    int mid = (from + to) >>> 1;
+    sort(cells, buffer, from, mid);
+    sort(cells, buffer, mid, to);
+    if (compareCell(cells[mid - 1], cells[mid]) <= 0) {
+      return;
+    }
+    System.arraycopy(cells, from, buffer, from, to - from);
+    int i = from;
+    int j = mid;
+    for (int k = from; k < to; k++) {
+      if (j >= to || (i < mid && compareCell(buffer[i], buffer[j]) <= 0)) {
+        cells[k] = buffer[i++];
+      } else {
+        cells[k] = buffer[j++];
+      }
+    }
+  }
+
+  /**
+   * Returns the index of the first cell in the sorted cells with row not smaller than the given
+   * row.
+   */
+  private int lowerBound(long[] cells, byte[] row) {
+    int low = 0;
+    int high = cells.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (compareRow(cells[mid], row) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private NavigableMap<byte[], NavigableMap<byte[], Update>> toMap(long[] cells, int from,
+      int to) {
+    NavigableMap<byte[], NavigableMap<byte[], Update>> result =
+        new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    NavigableMap<byte[], Update> columns = null;
+    for (int i = from; i < to; i++) {
+      long cell = cells[i];
+      if (columns == null || compareRow(cell, result.lastKey()) != 0) {
+        columns = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+        result.put(copyRange(cell, rowOffset(cell), getRowLength(cell)), columns);
+      }
+      columns.put(copyRange(cell, columnOffset(cell), getColumnLength(cell)), toUpdate(cell));
+    }
+    return result;
+  }
+
+  private NavigableMap<byte[], Update> mergeInto(NavigableMap<byte[], Update> columns, long cell) {
+    byte[] column = copyRange(cell, columnOffset(cell), getColumnLength(cell));
+    columns.put(column, Updates.mergeUpdates(columns.get(column), toUpdate(cell)));
+    return columns;
+  }
+
+  private Update toUpdate(long cell) {
+    switch (getType(cell)) {
+      case TYPE_DELETE:
+        return new PutValue(null);
+      case TYPE_INCREMENT:
+        return new IncrementValue(Bytes.toLong(chunks.get(chunkIndex(cell)), valueOffset(cell)));
+      default:
+        return new PutValue(copyRange(cell, valueOffset(cell), getValueLength(cell)));
+    }
+  }
+
+  private int compareRow(long cell, byte[] row) {
+    return Bytes.compareTo(chunks.get(chunkIndex(cell)), rowOffset(cell), getRowLength(cell),
+        row, 0, row.length);
+  }
+
+  private int compareCell(long cell1, long cell2) {
+    byte[] chunk1 = chunks.get(chunkIndex(cell1));
+    byte[] chunk2 = chunks.get(chunkIndex(cell2));
+    int cmp = Bytes.compareTo(chunk1, rowOffset(cell1), getRowLength(cell1),
+        chunk2, rowOffset(cell2), getRowLength(cell2));
+    if (cmp != 0) {
+      return cmp;
+    }
+    return Bytes.compareTo(chunk1, columnOffset(cell1), getColumnLength(cell1),
+        chunk2, columnOffset(cell2), getColumnLength(cell2));
+  }
+
+  private byte[] copyRange(long cell, int offset, int length) {
+    return Arrays.copyOfRange(chunks.get(chunkIndex(cell)), offset, offset + length);
+  }
+
+  private byte getType(long cell) {
+    return chunks.get(chunkIndex(cell))[offset(cell)];
+  }
+
+  private int getRowLength(long cell) {
+    return Bytes.toInt(chunks.get(chunkIndex(cell)), offset(cell) + 1);
+  }
+
+  private int getColumnLength(long cell) {
+    return Bytes.toInt(chunks.get(chunkIndex(cell)), offset(cell) + 5);
+  }
+
+  private int getValueLength(long cell) {
+    return Bytes.toInt(chunks.get(chunkIndex(cell)), offset(cell) + 9);
+  }
+
+  private int getSize(long cell) {
+    return HEADER_SIZE + getRowLength(cell) + getColumnLength(cell) + getValueLength(cell);
+  }
+
+  private int rowOffset(long cell) {
+    return offset(cell) + HEADER_SIZE;
+  }
+
+  private int columnOffset(long cell) {
+    return rowOffset(cell) + getRowLength(cell);
+  }
+
+  private int valueOffset(long cell) {
+    return columnOffset(cell) + getColumnLength(cell);
+  }
+
+  private static int chunkIndex(long cell) {
+    return (int) (cell >>> 32);
+  }
+
+  private static int offset(long cell) {
+    return (int) cell;
+  }
+}
@@ -48,7 +48,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
-import java.util.concurrent.ConcurrentSkipListMap;
 import javax.annotation.Nullable;
 import org.apache.tephra.Transaction;
 import org.apache.tephra.TransactionAware;
@@ -80,6 +79,12 @@ import org.slf4j.LoggerFactory;
  * NOTE: Using {@link #get(byte[], byte[], byte[], int)} is generally always not efficient since it
  * always hits the persisted store even if all needed data is in-memory buffer. See more info at
  * method javadoc
+ * <p>
+ * By default the in-memory buffer is kept in nested sorted maps. Setting the
+ * {@link #PROPERTY_WRITE_BUFFER} table property to {@link #WRITE_BUFFER_ARENA} keeps the buffer in
+ * large byte array chunks instead, which uses much less heap for transactions writing many cells.
+ * With that buffer, reading the buffered changes is more expensive and a scanner doesn't see
+ * the changes made after it is opened.
  */
 // todo: copying passed params to write methods may be done more efficiently: no need to copy when no changes are made
 public abstract class BufferingTable extends AbstractTable implements MeteredDataset {
@@ -88,6 +93,13 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
 
   protected static final byte[] DELETE_MARKER = new byte[0];
 
+  /**
+   * Table property for the type of the in-memory buffer.
+   */
+  public static final String PROPERTY_WRITE_BUFFER = "dataset.table.write.buffer";
+  public static final String WRITE_BUFFER_MAP = "map";
+  public static final String WRITE_BUFFER_ARENA = "arena";
+
   // name of the table
   private final String name;
   // conflict detection level
@@ -96,13 +108,15 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   private final byte[] nameAsTxChangePrefix;
   // Whether read-less increments should be used when increment() is called
   private final boolean enableReadlessIncrements;
+  // Whether the in-memory buffer is an ArenaWriteBuffer
+  private final boolean arenaWriteBuffer;
 
   // In-memory buffer that keeps not yet persisted data. It is row->(column->value) map. Value can be null which means
   // that the corresponded column was removed.
-  private NavigableMap<byte[], NavigableMap<byte[], Update>> buff;
+  private TableWriteBuffer buff;
 
   // Keeps track of what was persisted so far
-  private NavigableMap<byte[], NavigableMap<byte[], Update>> toUndo;
+  private TableWriteBuffer toUndo;
 
   // Report data ops metrics to
   private MetricsCollector metricsCollector;
@@ -154,7 +168,8 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     // we want it to be of format length+value to avoid conflicts like table="ab", row="cd" vs table="abc", row="d"
     // Default uses the above scheme. Subclasses can change it by overriding the #getNameAsTxChangePrefix method
     this.nameAsTxChangePrefix = Bytes.add(new byte[]{(byte) name.length()}, Bytes.toBytes(name));
-    this.buff = new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR);
+    this.arenaWriteBuffer = WRITE_BUFFER_ARENA.equals(properties.get(PROPERTY_WRITE_BUFFER));
+    this.buff = createWriteBuffer();
   }
 
   /**
@@ -201,6 +216,30 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   protected abstract void undo(NavigableMap<byte[], NavigableMap<byte[], Update>> persisted)
       throws Exception;
 
+  /**
+   * Persists in-memory buffer given as an iterator over its rows in the order of the rows. It is
+   * used instead of {@link #persist(NavigableMap)} when the buffer is not kept as a map, so that
+   * the rows can be written without copying all of them into a map first. By default it collects
+   * the rows into a map and calls {@link #persist(NavigableMap)}.
+   *
+   * @param rows in-memory buffer to persist, as row->(column->value) entries
+   */
+  protected void persist(Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> rows)
+      throws Exception {
+    persist(collect(rows));
+  }
+
+  /**
+   * Undos previously persisted changes given as an iterator over their rows in the order of the
+   * rows. By default it collects the rows into a map and calls {@link #undo(NavigableMap)}.
+   *
+   * @param persisted previously persisted changes, as row->(column->value) entries
+   */
+  protected void undo(Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> persisted)
+      throws Exception {
+    undo(collect(persisted));
+  }
+
   /**
    * Fetches column->value pairs for set of columns from persistent store. NOTE: persisted store can
    * also be in-memory, it is called "persisted" to distinguish from in-memory buffer.
@@ -317,17 +356,20 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
 
   private Collection<byte[]> getRowChanges() {
     // we resolve conflicts on row level of individual table
-    List<byte[]> changes = new ArrayList<>(buff.size());
-    for (byte[] changedRow : buff.keySet()) {
-      changes.add(Bytes.add(getNameAsTxChangePrefix(), changedRow));
+    List<byte[]> changes = new ArrayList<>();
+    Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> rows = buff.rows();
+    while (rows.hasNext()) {
+      changes.add(Bytes.add(getNameAsTxChangePrefix(), rows.next().getKey()));
     }
     return changes;
   }
 
   private Collection<byte[]> getColumnChanges() {
     // we resolve conflicts on row level of individual table
-    List<byte[]> changes = new ArrayList<>(buff.size());
-    for (Map.Entry<byte[], NavigableMap<byte[], Update>> rowChange : buff.entrySet()) {
+    List<byte[]> changes = new ArrayList<>();
+    Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> rows = buff.rows();
+    while (rows.hasNext()) {
+      Map.Entry<byte[], NavigableMap<byte[], Update>> rowChange = rows.next();
       if (rowChange.getValue() == null) {
         // NOTE: as of now we cannot detect conflict between delete whole row and row's column value change.
         //       this is not a big problem as of now, as row deletion is now act as deletion of every column, but this
@@ -351,13 +393,19 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
       // We first assume that all data will be persisted. So that if exception happen during persist we try to
       // rollback everything we had in in-memory buffer.
       toUndo = buff;
-      // clearing up in-memory buffer by initializing new map.
-      // NOTE: we want to init map here so that if no changes are made we re-use same instance of the map in next tx
-      // NOTE: we could cache two maps and swap them to avoid creation of map instances, but code would be ugly
-      buff = new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR);
+      // clearing up in-memory buffer by initializing new buffer.
+      // NOTE: we want to init buffer here so that if no changes are made we re-use same instance of the buffer in
+      //       next tx
+      // NOTE: we could cache two buffers and swap them to avoid creation of buffer instances, but code would be ugly
+      buff = createWriteBuffer();
       // TODO: tracking of persisted items can be optimized by returning a pair {succeededOrNot, persisted} which
       //       tells if persisting succeeded and what was persisted (i.e. what we will have to undo in case of rollback)
-      persist(toUndo);
+      if (arenaWriteBuffer) {
+        // stream the rows of the arena buffer instead of copying all of them into a map
+        persist(toUndo.rows());
+      } else {
+        persist(toUndo.getRows(null, null));
+      }
     }
     return true;
   }
@@ -374,7 +422,11 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   public boolean rollbackTx() throws Exception {
     buff.clear();
     if (toUndo != null) {
-      undo(toUndo);
+      if (arenaWriteBuffer) {
+        undo(toUndo.rows());
+      } else {
+        undo(toUndo.getRows(null, null));
+      }
       toUndo = null;
     }
     tx = null;
@@ -428,7 +480,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     ensureTransactionIsStarted();
     reportRead(1);
     // checking if the row was deleted inside this tx
-    NavigableMap<byte[], Update> buffCols = buff.get(row);
+    NavigableMap<byte[], Update> buffCols = buff.getRow(row);
 
     // NOTE: since we cannot tell the exact column set, we always have to go to persisted store.
     //       potential improvement: do not fetch columns available in in-mem buffer (we know them at this point)
@@ -482,7 +534,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
         rowColumns.putAll(persistedRow);
 
         byte[] row = get.getRow();
-        NavigableMap<byte[], Update> buffCols = buff.get(row);
+        NavigableMap<byte[], Update> buffCols = buff.getRow(row);
 
         // merge what was in the buffer and what was persisted
         if (buffCols != null) {
@@ -517,24 +569,12 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   }
 
   private void putInternal(byte[] row, byte[][] columns, byte[][] values) {
-    NavigableMap<byte[], Update> colVals = buff.get(row);
-    boolean newRow = false;
-    if (colVals == null) {
-      colVals = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-      newRow = true;
-    }
     for (int i = 0; i < columns.length; i++) {
-      // NOTE: we copy passed column's and value's byte arrays to protect buffer against possible changes of these
-      // arrays on client
       if (values[i] != null && values[i].length == 0) {
         warnAboutEmptyValue(columns[i]);
       }
-      colVals.put(copy(columns[i]), new PutValue(copy(values[i])));
-    }
-    if (newRow) {
-      // NOTE: we copy passed row's byte arrays to protect buffer against possible changes of this array on client
-      buff.put(copy(row), colVals);
     }
+    buff.put(row, columns, values);
   }
 
   /**
@@ -640,15 +680,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   public void increment(byte[] row, byte[][] columns, long[] amounts) {
     ensureTransactionIsStarted();
     if (enableReadlessIncrements) {
-      NavigableMap<byte[], Update> colVals = buff.get(row);
-      if (colVals == null) {
-        colVals = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-        buff.put(row, colVals);
-      }
-      for (int i = 0; i < columns.length; i++) {
-        colVals.put(columns[i],
-            Updates.mergeUpdates(colVals.get(columns[i]), new IncrementValue(amounts[i])));
-      }
+      buff.increment(row, columns, amounts);
       reportWrite(1, getSize(row) + getSize(columns) + getSize(amounts));
     } else {
       internalIncrementAndGet(row, columns, amounts);
@@ -728,18 +760,8 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   }
 
   private NavigableMap<byte[], NavigableMap<byte[], Update>> scanBuffer(Scan scan) {
-    NavigableMap<byte[], NavigableMap<byte[], Update>> bufferMap;
-    byte[] startRow = scan.getStartRow();
-    byte[] stopRow = scan.getStopRow();
-    if (startRow == null && stopRow == null) {
-      bufferMap = buff;
-    } else if (startRow == null) {
-      bufferMap = buff.headMap(stopRow, false);
-    } else if (stopRow == null) {
-      bufferMap = buff.tailMap(startRow, true);
-    } else {
-      bufferMap = buff.subMap(startRow, true, stopRow, false);
-    }
+    NavigableMap<byte[], NavigableMap<byte[], Update>> bufferMap =
+        buff.getRows(scan.getStartRow(), scan.getStopRow());
     bufferMap = applyFilter(bufferMap, scan.getFilter());
     return bufferMap;
   }
@@ -770,8 +792,8 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   private Map<byte[], byte[]> getRowMap(byte[] row) throws Exception {
     NavigableMap<byte[], byte[]> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     // checking if the row was deleted inside this tx
-    NavigableMap<byte[], Update> buffCols = buff.get(row);
-    boolean rowDeleted = buffCols == null && buff.containsKey(row);
+    NavigableMap<byte[], Update> buffCols = buff.getRow(row);
+    boolean rowDeleted = buffCols == null && buff.containsRow(row);
     if (rowDeleted) {
       return Collections.emptyMap();
     }
@@ -790,7 +812,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   private Map<byte[], byte[]> getRowMap(byte[] row, byte[][] columns) throws Exception {
     NavigableMap<byte[], byte[]> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     // checking if the row was deleted inside this tx
-    NavigableMap<byte[], Update> buffCols = buff.get(row);
+    NavigableMap<byte[], Update> buffCols = buff.getRow(row);
 
     // if nothing locally, return all from server
     if (buffCols == null) {
@@ -954,6 +976,21 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     return result;
   }
 
+  private TableWriteBuffer createWriteBuffer() {
+    return arenaWriteBuffer ? new ArenaWriteBuffer() : new MapWriteBuffer();
+  }
+
+  private static NavigableMap<byte[], NavigableMap<byte[], Update>> collect(
+      Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> rows) {
+    NavigableMap<byte[], NavigableMap<byte[], Update>> result =
+        Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    while (rows.hasNext()) {
+      Map.Entry<byte[], NavigableMap<byte[], Update>> row = rows.next();
+      result.put(row.getKey(), row.getValue());
+    }
+    return result;
+  }
+
   private void reportWrite(int numOps, int dataSize) {
     if (metricsCollector != null) {
       metricsCollector.increment(Constants.Metrics.Name.Dataset.WRITE_COUNT, numOps);
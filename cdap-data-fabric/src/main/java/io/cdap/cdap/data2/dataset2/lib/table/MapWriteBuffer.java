@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.data2.dataset2.lib.table;
+
+import com.google.common.collect.Maps;
+import io.cdap.cdap.api.common.Bytes;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import javax.annotation.Nullable;
+
+/**
+ * {@link TableWriteBuffer} that keeps the changes in nested sorted maps.
+ */
+final class MapWriteBuffer implements TableWriteBuffer {
+
+  private final NavigableMap<byte[], NavigableMap<byte[], Update>> buff =
+      new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR);
+
+  @Override
+  public boolean isEmpty() {
+    return buff.isEmpty();
+  }
+
+  @Override
+  public boolean containsRow(byte[] row) {
+    return buff.containsKey(row);
+  }
+
+  @Nullable
+  @Override
+  public NavigableMap<byte[], Update> getRow(byte[] row) {
+    return buff.get(row);
+  }
+
+  @Override
+  public NavigableMap<byte[], NavigableMap<byte[], Update>> getRows(@Nullable byte[] startRow,
+      @Nullable byte[] stopRow) {
+    if (startRow == null && stopRow == null) {
+      return buff;
+    }
+    if (startRow == null) {
+      return buff.headMap(stopRow, false);
+    }
+    if (stopRow == null) {
+      return buff.tailMap(startRow, true);
+    }
+    return buff.subMap(startRow, true, stopRow, false);
+  }
+
+  @Override
+  public Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> rows() {
+    return buff.entrySet().iterator();
+  }
+
+  @Override
+  public void put(byte[] row, byte[][] columns, byte[][] values) {
+    NavigableMap<byte[], Update> colVals = buff.get(row);
+    boolean newRow = false;
+    if (colVals == null) {
+      colVals = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      newRow = true;
+    }
+    for (int i = 0; i < columns.length; i++) {
+      // NOTE: we copy passed column's and value's byte arrays to protect buffer against possible
+      // changes of these arrays on client
+      colVals.put(copy(columns[i]), new PutValue(copy(values[i])));
+    }
+    if (newRow) {
+      // NOTE: we copy passed row's byte arrays to protect buffer against possible changes of this
+      // array on client
+      buff.put(copy(row), colVals);
+    }
+  }
+
+  @Override
+  public void increment(byte[] row, byte[][] columns, long[] amounts) {
+    NavigableMap<byte[], Update> colVals = buff.get(row);
+    if (colVals == null) {
+      colVals = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      buff.put(row, colVals);
+    }
+    for (int i = 0; i < columns.length; i++) {
+      colVals.put(columns[i],
+          Updates.mergeUpdates(colVals.get(columns[i]), new IncrementValue(amounts[i])));
+    }
+  }
+
+  @Override
+  public void clear() {
+    buff.clear();
+  }
+
+  private static byte[] copy(byte[] bytes) {
+    return bytes == null ? null : Arrays.copyOf(bytes, bytes.length);
+  }
+}
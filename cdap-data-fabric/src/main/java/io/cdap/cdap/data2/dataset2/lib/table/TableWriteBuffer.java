@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.data2.dataset2.lib.table;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import javax.annotation.Nullable;
+
+/**
+ * In-memory buffer of the changes made to a {@link BufferingTable} in a transaction. The changes
+ * are described as row->(column->update). A {@link PutValue} with {@code null} value means that
+ * the column was deleted.
+ */
+interface TableWriteBuffer {
+
+  /**
+   * Returns {@code true} if there is no buffered change.
+   */
+  boolean isEmpty();
+
+  /**
+   * Returns {@code true} if the given row has an entry in the buffer.
+   */
+  boolean containsRow(byte[] row);
+
+  /**
+   * Returns the buffered changes of the given row, or {@code null} if the row has no change. The
+   * returned map must not be modified.
+   */
+  @Nullable
+  NavigableMap<byte[], Update> getRow(byte[] row);
+
+  /**
+   * Returns the buffered changes of the rows in the given range. The returned map must not be
+   * modified.
+   *
+   * @param startRow the first row in the range, inclusive; {@code null} means from the first row
+   * @param stopRow the last row in the range, exclusive; {@code null} means to the last row
+   */
+  NavigableMap<byte[], NavigableMap<byte[], Update>> getRows(@Nullable byte[] startRow,
+      @Nullable byte[] stopRow);
+
+  /**
+   * Returns an iterator over the buffered changes of all the rows, in the order of the rows. The
+   * buffer must not be changed while iterating, and the returned entries must not be modified.
+   */
+  Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> rows();
+
+  /**
+   * Buffers the puts of the given columns. A {@code null} value means the column is deleted. The
+   * arrays are copied, hence can be reused by the caller.
+   */
+  void put(byte[] row, byte[][] columns, byte[][] values);
+
+  /**
+   * Buffers the increments of the given columns, merging them with the changes already buffered.
+   *
+   * @throws NumberFormatException if a buffered value of the columns is not a long
+   */
+  void increment(byte[] row, byte[][] columns, long[] amounts);
+
+  /**
+   * Removes all the buffered changes.
+   */
+  void clear();
+}
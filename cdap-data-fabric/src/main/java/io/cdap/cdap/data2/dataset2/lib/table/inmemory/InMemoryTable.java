@@ -37,6 +37,7 @@ import java.io.IOException;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.NavigableMap;
+import java.util.TreeMap;
 import javax.annotation.Nullable;
 import org.apache.tephra.Transaction;
 
@@ -106,6 +107,14 @@ public class InMemoryTable extends BufferingTable {
     InMemoryTableService.merge(getTableName(), updates, tx.getWritePointer());
   }
 
+  @Override
+  protected void persist(Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> rows) {
+    // merge one row at a time, the changes are only visible to the transactions after commit
+    while (rows.hasNext()) {
+      persistUpdates(singleRow(rows.next()));
+    }
+  }
+
   @Override
   protected void undo(NavigableMap<byte[], NavigableMap<byte[], Update>> persisted) {
     if (persisted.isEmpty()) {
@@ -120,6 +129,21 @@ public class InMemoryTable extends BufferingTable {
     InMemoryTableService.undo(getTableName(), persisted, tx.getWritePointer());
   }
 
+  @Override
+  protected void undo(Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> persisted) {
+    while (persisted.hasNext()) {
+      undoPersisted(singleRow(persisted.next()));
+    }
+  }
+
+  private static NavigableMap<byte[], NavigableMap<byte[], Update>> singleRow(
+      Map.Entry<byte[], NavigableMap<byte[], Update>> row) {
+    NavigableMap<byte[], NavigableMap<byte[], Update>> result =
+        new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    result.put(row.getKey(), row.getValue());
+    return result;
+  }
+
   @Override
   protected NavigableMap<byte[], byte[]> getPersisted(byte[] row, byte[] startColumn,
       byte[] stopColumn, int limit)
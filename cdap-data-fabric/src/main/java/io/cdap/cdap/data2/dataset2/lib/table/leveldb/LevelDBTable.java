@@ -34,6 +34,7 @@ import io.cdap.cdap.data2.dataset2.lib.table.PutValue;
 import io.cdap.cdap.data2.dataset2.lib.table.Update;
 import io.cdap.cdap.data2.dataset2.lib.table.inmemory.PrefixedNamespaces;
 import java.io.IOException;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.NavigableMap;
 import javax.annotation.Nullable;
@@ -95,6 +96,19 @@ public class LevelDBTable extends BufferingTable {
     }
   }
 
+  @Override
+  protected void persist(Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> rows)
+      throws Exception {
+    persistedVersion = tx == null ? System.currentTimeMillis() : tx.getWritePointer();
+    persistRows(rows);
+  }
+
+  @WriteOnly
+  private void persistRows(Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> rows)
+      throws IOException {
+    core.persistUpdates(rows, persistedVersion);
+  }
+
   @WriteOnly
   private void persist(NavigableMap<byte[], NavigableMap<byte[], Long>> increments,
       NavigableMap<byte[], NavigableMap<byte[], byte[]>> puts) throws IOException {
@@ -117,6 +131,20 @@ public class LevelDBTable extends BufferingTable {
     core.undo(persisted, persistedVersion);
   }
 
+  @Override
+  protected void undo(Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> persisted)
+      throws Exception {
+    if (persisted.hasNext()) {
+      undoPersisted(persisted);
+    }
+  }
+
+  @WriteOnly
+  private void undoPersisted(Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> persisted)
+      throws IOException {
+    core.undo(persisted, persistedVersion);
+  }
+
   @ReadOnly
   @Override
   protected NavigableMap<byte[], byte[]> getPersisted(byte[] row, @Nullable byte[][] columns)
@@ -23,6 +23,9 @@ import io.cdap.cdap.api.dataset.table.Row;
 import io.cdap.cdap.api.dataset.table.Scanner;
 import io.cdap.cdap.common.utils.ImmutablePair;
 import io.cdap.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
+import io.cdap.cdap.data2.dataset2.lib.table.IncrementValue;
+import io.cdap.cdap.data2.dataset2.lib.table.PutValue;
+import io.cdap.cdap.data2.dataset2.lib.table.Update;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
@@ -179,6 +182,37 @@ public class LevelDBTableCore {
     db.write(batch, service.getWriteOptions());
   }
 
+  /**
+   * Writes the changes of the rows returned by the iterator in one batch. Puts are written with
+   * the given version, while increments are added to the latest values of the columns.
+   */
+  public synchronized void persistUpdates(
+      Iterator<? extends Map.Entry<byte[], ? extends Map<byte[], Update>>> changes, long version)
+      throws IOException {
+    DB db = getDB();
+    WriteBatch batch = db.createWriteBatch();
+    try (Snapshot snapshot = db.getSnapshot()) {
+      ReadOptions readOptions = new ReadOptions().snapshot(snapshot);
+      while (changes.hasNext()) {
+        Map.Entry<byte[], ? extends Map<byte[], Update>> row = changes.next();
+        for (Map.Entry<byte[], Update> column : row.getValue().entrySet()) {
+          Update update = column.getValue();
+          if (update instanceof IncrementValue) {
+            byte[] key = createPutKey(row.getKey(), column.getKey(), Long.MAX_VALUE);
+            long newValue = incrementValue(((IncrementValue) update).getValue(),
+                db.get(key, readOptions), row.getKey(), column.getKey());
+            batch.put(key, Bytes.toBytes(newValue));
+          } else if (update instanceof PutValue) {
+            byte[] value = ((PutValue) update).getValue();
+            batch.put(createPutKey(row.getKey(), column.getKey(), version),
+                value == null ? DELETE_MARKER : value);
+          }
+        }
+      }
+      db.write(batch, service.getWriteOptions());
+    }
+  }
+
   /**
    * Write the value at the target row and column with the max version {@link
    * KeyValue.LATEST_TIMESTAMP}. as a result it hides any value written with equal or smaller
@@ -250,9 +284,19 @@ public class LevelDBTableCore {
     if (persisted.isEmpty()) {
       return;
     }
+    undo(persisted.entrySet().iterator(), version);
+  }
+
+  /**
+   * Deletes the values written with the given version in the rows and columns returned by the
+   * iterator.
+   */
+  public void undo(Iterator<? extends Map.Entry<byte[], ? extends Map<byte[], ?>>> persisted,
+      long version) throws IOException {
     DB db = getDB();
     WriteBatch batch = db.createWriteBatch();
-    for (Map.Entry<byte[], ? extends Map<byte[], ?>> row : persisted.entrySet()) {
+    while (persisted.hasNext()) {
+      Map.Entry<byte[], ? extends Map<byte[], ?>> row = persisted.next();
       for (Map.Entry<byte[], ?> column : row.getValue().entrySet()) {
         byte[] key = createPutKey(row.getKey(), column.getKey(), version);
         batch.delete(key);
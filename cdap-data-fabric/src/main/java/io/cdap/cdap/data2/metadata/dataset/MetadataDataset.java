@@ -32,6 +32,7 @@ import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.dataset.lib.AbstractDataset;
 import io.cdap.cdap.api.dataset.lib.IndexedTable;
 import io.cdap.cdap.api.dataset.table.Delete;
+import io.cdap.cdap.api.dataset.table.Get;
 import io.cdap.cdap.api.dataset.table.Put;
 import io.cdap.cdap.api.dataset.table.Row;
 import io.cdap.cdap.api.dataset.table.Scan;
@@ -69,6 +70,8 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
@@ -194,6 +197,8 @@ public class MetadataDataset extends AbstractDataset {
   private static final String HISTORY_COLUMN = "h"; // column for metadata history
   private static final String VALUE_COLUMN = "v";  // column for metadata value
   private static final String TAGS_SEPARATOR = ",";
+  // maximum number of search hits whose metadata values are read with one multi-get
+  private static final int SEARCH_BATCH_SIZE = 256;
 
   // Fuzzy key is of form <row key, key mask>. We want to compare row keys.
   private static final Comparator<ImmutablePair<byte[], byte[]>> FUZZY_KEY_COMPARATOR =
@@ -715,6 +720,8 @@ public class MetadataDataset extends AbstractDataset {
     List<MetadataEntry> results = new LinkedList<>();
     String column = request.isNamespaced()
         ? DEFAULT_INDEX_COLUMN.getColumn() : DEFAULT_INDEX_COLUMN.getCrossNamespaceColumn();
+    // the same metadata value is usually hit by multiple search terms, hence only read it once
+    Map<byte[], MetadataEntry> resolved = new TreeMap<>(Bytes.BYTES_COMPARATOR);
 
     for (SearchTerm searchTerm : getSearchTerms(request)) {
       Scanner scanner;
@@ -729,12 +736,17 @@ public class MetadataDataset extends AbstractDataset {
         scanner = indexedTable.readByIndex(Bytes.toBytes(column), value);
       }
       try {
+        List<IndexHit> hits = new ArrayList<>();
         Row next;
         while ((next = scanner.next()) != null) {
-          Optional<MetadataEntry> metadataEntry = parseRow(next, column, request.getTypes(),
-              request.shouldShowHidden());
-          metadataEntry.ifPresent(results::add);
+          parseHit(next, column, request.getTypes(), request.shouldShowHidden())
+              .ifPresent(hits::add);
+          if (hits.size() >= SEARCH_BATCH_SIZE) {
+            addEntries(hits, resolved, results);
+            hits.clear();
+          }
         }
+        addEntries(hits, resolved, results);
       } finally {
         scanner.close();
       }
@@ -766,6 +778,7 @@ public class MetadataDataset extends AbstractDataset {
     }
 
     String cursor = request.getCursor();
+    Map<byte[], MetadataEntry> resolved = new TreeMap<>(Bytes.BYTES_COMPARATOR);
     for (SearchTerm searchTerm : getSearchTerms(request)) {
       // start key will be the start key for the namespace, or the start key for the cursor if its defined
       // 'ns1:' for namespace 'ns1' without a cursor, 'ns1:abc' for namespace 'ns1' with cursor 'abc'
@@ -787,23 +800,38 @@ public class MetadataDataset extends AbstractDataset {
       // remainder on division can never be 1, it is always 0.
       int mod = (limit == 1) ? 0 : 1;
       try (Scanner scanner = indexedTable.scanByIndex(Bytes.toBytes(column), startKey, stopKey)) {
-        Row next;
-        while ((next = scanner.next()) != null && results.size() < fetchSize) {
-          Optional<MetadataEntry> metadataEntry =
-              parseRow(next, column, request.getTypes(), request.shouldShowHidden());
-          if (!metadataEntry.isPresent()) {
-            continue;
+        boolean exhausted = false;
+        while (!exhausted && results.size() < fetchSize) {
+          // read no more hits than can still be added to the results
+          int batchSize = Math.min(fetchSize - results.size(), SEARCH_BATCH_SIZE);
+          List<IndexHit> hits = new ArrayList<>(batchSize);
+          while (hits.size() < batchSize) {
+            Row next = scanner.next();
+            if (next == null) {
+              exhausted = true;
+              break;
+            }
+            parseHit(next, column, request.getTypes(), request.shouldShowHidden())
+                .ifPresent(hits::add);
           }
-          results.add(metadataEntry.get());
-
-          if (results.size() > limit + offset && (results.size() - offset) % limit == mod) {
-            String cursorVal = Bytes.toString(next.get(column));
-            // add the cursor, with the namespace removed.
-            if (cursorVal != null && request.isNamespaced()) {
-              cursorVal = cursorVal.substring(
-                  cursorVal.indexOf(MetadataConstants.KEYVALUE_SEPARATOR) + 1);
+
+          List<MetadataEntry> entries = resolveHits(hits, resolved);
+          for (int i = 0; i < hits.size() && results.size() < fetchSize; i++) {
+            MetadataEntry metadataEntry = entries.get(i);
+            if (metadataEntry == null) {
+              continue;
+            }
+            results.add(metadataEntry);
+
+            if (results.size() > limit + offset && (results.size() - offset) % limit == mod) {
+              String cursorVal = hits.get(i).getIndexValue();
+              // add the cursor, with the namespace removed.
+              if (request.isNamespaced()) {
+                cursorVal = cursorVal.substring(
+                    cursorVal.indexOf(MetadataConstants.KEYVALUE_SEPARATOR) + 1);
+              }
+              cursors.add(cursorVal);
             }
-            cursors.add(cursorVal);
           }
         }
       }
@@ -812,8 +840,8 @@ public class MetadataDataset extends AbstractDataset {
   }
 
   // there may not be a MetadataEntry in the row or it may for a different targetType (entityFilter),
-  // so return an Optional
-  private Optional<MetadataEntry> parseRow(Row rowToProcess, String indexColumn,
+  // so return an Optional. The metadata value of the hit is read later, in batches with other hits.
+  private Optional<IndexHit> parseHit(Row rowToProcess, String indexColumn,
       Set<String> entityFilter, boolean showHidden) {
     String rowValue = rowToProcess.getString(indexColumn);
     if (rowValue == null) {
@@ -842,8 +870,61 @@ public class MetadataDataset extends AbstractDataset {
     }
 
     String key = MetadataKey.extractMetadataKey(rowKey);
-    MetadataEntry entry = getMetadata(metadataEntity, key);
-    return Optional.ofNullable(entry);
+    return Optional.of(new IndexHit(metadataEntity, key, rowValue));
+  }
+
+  /**
+   * Adds the {@link MetadataEntry} of each search hit that still has a metadata value to the
+   * results, in the order of the hits.
+   */
+  private void addEntries(List<IndexHit> hits, Map<byte[], MetadataEntry> resolved,
+      List<MetadataEntry> results) {
+    for (MetadataEntry entry : resolveHits(hits, resolved)) {
+      if (entry != null) {
+        results.add(entry);
+      }
+    }
+  }
+
+  /**
+   * Reads the metadata values of the given search hits with multi-gets, skipping the values already
+   * present in the given map of resolved value row keys.
+   *
+   * @return the {@link MetadataEntry} for each hit, in the same order, or {@code null} if the hit
+   *     no longer has a value
+   */
+  private List<MetadataEntry> resolveHits(List<IndexHit> hits,
+      Map<byte[], MetadataEntry> resolved) {
+    List<byte[]> rowKeys = new ArrayList<>(hits.size());
+    List<Get> gets = new ArrayList<>();
+    List<IndexHit> getHits = new ArrayList<>();
+    Set<byte[]> requested = new TreeSet<>(Bytes.BYTES_COMPARATOR);
+    for (IndexHit hit : hits) {
+      byte[] rowKey = MetadataKey.createValueRowKey(hit.getMetadataEntity(), hit.getKey()).getKey();
+      rowKeys.add(rowKey);
+      if (!resolved.containsKey(rowKey) && requested.add(rowKey)) {
+        gets.add(new Get(rowKey, Bytes.toBytes(VALUE_COLUMN)));
+        getHits.add(hit);
+      }
+    }
+
+    for (int start = 0; start < gets.size(); start += SEARCH_BATCH_SIZE) {
+      int end = Math.min(start + SEARCH_BATCH_SIZE, gets.size());
+      List<Row> rows = indexedTable.get(gets.subList(start, end));
+      for (int i = start; i < end; i++) {
+        IndexHit hit = getHits.get(i);
+        // the row still exists with a null value when all tags are removed one by one
+        byte[] value = rows.get(i - start).get(VALUE_COLUMN);
+        resolved.put(gets.get(i).getRow(), value == null ? null
+            : new MetadataEntry(hit.getMetadataEntity(), hit.getKey(), Bytes.toString(value)));
+      }
+    }
+
+    List<MetadataEntry> entries = new ArrayList<>(hits.size());
+    for (byte[] rowKey : rowKeys) {
+      entries.add(resolved.get(rowKey));
+    }
+    return entries;
   }
 
   /**
@@ -1313,6 +1394,37 @@ public class MetadataDataset extends AbstractDataset {
     }
   }
 
+  /**
+   * A row of a search index that matched a search term, before its metadata value is read.
+   */
+  private static final class IndexHit {
+
+    private final MetadataEntity metadataEntity;
+    private final String key;
+    private final String indexValue;
+
+    IndexHit(MetadataEntity metadataEntity, String key, String indexValue) {
+      this.metadataEntity = metadataEntity;
+      this.key = key;
+      this.indexValue = indexValue;
+    }
+
+    MetadataEntity getMetadataEntity() {
+      return metadataEntity;
+    }
+
+    String getKey() {
+      return key;
+    }
+
+    /**
+     * Returns the indexed value that matched, which is also the cursor for sorted searches.
+     */
+    String getIndexValue() {
+      return indexValue;
+    }
+  }
+
   /**
    * Represents the change in Metadata
    */
@@ -17,6 +17,8 @@
 package io.cdap.cdap.data2.metadata.lineage.field;
 
 import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -29,10 +31,12 @@ import io.cdap.cdap.api.lineage.field.TransformOperation;
 import io.cdap.cdap.api.lineage.field.WriteOperation;
 import io.cdap.cdap.common.utils.Checksums;
 import io.cdap.cdap.proto.codec.OperationTypeAdapter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -62,6 +66,14 @@ public class FieldLineageInfo {
   // Dropped fields are stored with this EPF so that will be serialized by GSON's library
   static final EndPointField NULL_EPF = new EndPointField(EndPoint.of(null), null);
 
+  // Summaries computed recently, keyed by the checksum of the operations. Programs usually emit
+  // the same operations on every run, hence the summaries of a run can be reused for later runs.
+  // A cached entry is only used if its operations are equal, since checksums can collide.
+  private static final Cache<Long, Summaries> SUMMARIES_CACHE = CacheBuilder.newBuilder()
+      .maximumSize(100)
+      .softValues()
+      .build();
+
   private final long checksum;
 
   private final Set<Operation> operations;
@@ -137,15 +149,26 @@ public class FieldLineageInfo {
     this.checksum = computeChecksum();
     if (computeSummaries) {
       this.destinationFields = computeDestinationFields();
-      this.incomingSummary = computeIncomingSummary();
-      this.outgoingSummary = computeOutgoingSummary();
-
-      // incomingSummary would have NULL_EPF key if there's a drop operation, so we must clear the
-      // null EPF from the map
-      if (!dropTransforms.isEmpty()) {
-        incomingSummary.remove(NULL_EPF);
+      Summaries summaries = SUMMARIES_CACHE.getIfPresent(checksum);
+      if (summaries == null || !summaries.operations.equals(this.operations)) {
+        summaries = computeSummaries();
+        SUMMARIES_CACHE.put(checksum, summaries);
       }
+      this.incomingSummary = summaries.incoming;
+      this.outgoingSummary = summaries.outgoing;
+    }
+  }
+
+  private Summaries computeSummaries() {
+    this.incomingSummary = computeIncomingSummary();
+    this.outgoingSummary = computeOutgoingSummary();
+
+    // incomingSummary would have NULL_EPF key if there's a drop operation, so we must clear the
+    // null EPF from the map
+    if (!dropTransforms.isEmpty()) {
+      incomingSummary.remove(NULL_EPF);
     }
+    return new Summaries(operations, incomingSummary, outgoingSummary);
   }
 
   private void computeAndValidateFieldLineageInfo(Collection<? extends Operation> operations) {
@@ -340,107 +363,101 @@ public class FieldLineageInfo {
       computeAndValidateFieldLineageInfo(this.operations);
     }
 
-    Map<String, Set<EndPointField>> operationEndPointMap = new HashMap<>();
+    Map<String, Set<EndPointField>> transformSources = computeTransformSources();
     Map<EndPointField, Set<EndPointField>> summary = new HashMap<>();
     for (WriteOperation write : writeOperations) {
-      List<InputField> inputs = write.getInputs();
-      for (InputField input : inputs) {
+      for (InputField input : write.getInputs()) {
         EndPointField dest = new EndPointField(write.getDestination(), input.getName());
-        Set<EndPointField> fields = summary.computeIfAbsent(dest, k -> new HashSet<>());
-        if (operationEndPointMap.containsKey(input.getOrigin())) {
-          fields.addAll(operationEndPointMap.get(input.getOrigin()));
-        } else {
-          // handle a special case for read -> write
-          // in this case, the write operation has to be one to one relation with the fields in the read operation,
-          // since a write operation can only take a list of input fields that come from the previous stage
-          Operation origin = operationsMap.get(input.getOrigin());
-          if (origin.getType() == OperationType.READ) {
-            fields.add(new EndPointField(((ReadOperation) origin).getSource(), input.getName()));
-            continue;
-          }
-          fields.addAll(computeIncomingSummaryHelper(origin, write, operationEndPointMap));
-        }
+        addSources(input, transformSources,
+            summary.computeIfAbsent(dest, k -> new HashSet<>()));
       }
     }
 
     for (TransformOperation transform : dropTransforms) {
       for (InputField input : transform.getInputs()) {
-        Operation previous = operationsMap.get(input.getOrigin());
         // drop transforms uses a common NULL endpoint as key
-        Set<EndPointField> endPointFields = summary.computeIfAbsent(NULL_EPF, k -> new HashSet<>());
-        if (operationEndPointMap.containsKey(input.getOrigin())) {
-          endPointFields.addAll(new HashSet<>(operationEndPointMap.get(input.getOrigin())));
-          continue;
-        }
-        endPointFields.addAll(
-            computeIncomingSummaryHelper(previous, transform, operationEndPointMap));
+        addSources(input, transformSources,
+            summary.computeIfAbsent(NULL_EPF, k -> new HashSet<>()));
       }
     }
     return summary;
   }
 
   /**
-   * Helper method to compute the incoming summary
+   * Computes the set of source fields that the outputs of each transform are derived from. The
+   * transforms are visited in topological order using the outgoing connections of the operations,
+   * so that the sources of every transform are computed once from the already computed sources of
+   * the transforms it reads from, instead of traversing the shared part of the graph again for
+   * every field that is written.
    *
-   * @param currentOperation the operation being processed. Since we are processing incoming
-   *     this operation is on the left side if graph is imagined in horizontal orientation or this
-   *     operation is the input to the to previousOperation
-   * @param previousOperation the previous operation which is processed and reside on right to
-   *     the current operation if the graph is imagined to be in horizontal orientation.
-   * @param operationEndPointMap a map that contains the operation name to the final endpoint
-   *     field it will generate, this is used to track the path we already computed to ensure we do
-   *     not do the same computation again
+   * @return a map from the transform name to the source fields of the transform. Transforms
+   *     which are part of a cycle are not present in the map.
    */
-  private Set<EndPointField> computeIncomingSummaryHelper(Operation currentOperation,
-      Operation previousOperation,
-      Map<String, Set<EndPointField>> operationEndPointMap) {
-    if (currentOperation.getType() == OperationType.READ) {
-      // if current operation is of type READ, previous operation must be of type TRANSFORM or WRITE
-      // get only the input fields from the previous operations for which the origin is current READ operation
-      Set<InputField> inputFields = new HashSet<>();
-      if (OperationType.WRITE == previousOperation.getType()) {
-        WriteOperation previousWrite = (WriteOperation) previousOperation;
-        inputFields = new HashSet<>(previousWrite.getInputs());
-      } else if (OperationType.TRANSFORM == previousOperation.getType()) {
-        TransformOperation previousTransform = (TransformOperation) previousOperation;
-        inputFields = new HashSet<>(previousTransform.getInputs());
+  private Map<String, Set<EndPointField>> computeTransformSources() {
+    // number of distinct transforms that each transform reads from and which are not visited yet
+    Map<String, Integer> pendingOrigins = new HashMap<>();
+    Deque<TransformOperation> ready = new ArrayDeque<>();
+    for (Operation operation : operations) {
+      if (operation.getType() != OperationType.TRANSFORM) {
+        continue;
       }
+      TransformOperation transform = (TransformOperation) operation;
+      int count = (int) transform.getInputs().stream()
+          .map(InputField::getOrigin)
+          .distinct()
+          .filter(origin -> operationsMap.get(origin).getType() == OperationType.TRANSFORM)
+          .count();
+      if (count == 0) {
+        ready.add(transform);
+      } else {
+        pendingOrigins.put(transform.getName(), count);
+      }
+    }
 
-      Set<EndPointField> sourceEndPointFields = new HashSet<>();
+    Map<String, Set<EndPointField>> transformSources = new HashMap<>();
+    while (!ready.isEmpty()) {
+      TransformOperation transform = ready.poll();
+      Set<EndPointField> sources = new HashSet<>();
+      for (InputField input : transform.getInputs()) {
+        addSources(input, transformSources, sources);
+      }
+      transformSources.put(transform.getName(), sources);
 
-      // for all the input fields of the previous operation if the origin was current operation (remember we are
-      // traversing backward)
-      ReadOperation read = (ReadOperation) currentOperation;
-      EndPoint source = read.getSource();
-      for (InputField inputField : inputFields) {
-        if (inputField.getOrigin().equals(currentOperation.getName())) {
-          sourceEndPointFields.add(new EndPointField(source, inputField.getName()));
+      for (Operation next : operationOutgoingConnections.get(transform.getName())) {
+        if (next.getType() == OperationType.TRANSFORM
+            && pendingOrigins.merge(next.getName(), -1, Integer::sum) == 0) {
+          ready.add((TransformOperation) next);
         }
       }
-      // reached the end of graph unwind the recursive calls
-      return sourceEndPointFields;
     }
+    return transformSources;
+  }
 
-    Set<EndPointField> relatedSources = new HashSet<>();
-    // for transform we traverse backward in graph further through the inputs of the transform
-    if (currentOperation.getType() == OperationType.TRANSFORM) {
-      TransformOperation transform = (TransformOperation) currentOperation;
-      // optimization to avoid repeating work if there are input fields with the same origin
-      Set<String> transformOrigins = transform.getInputs().stream()
-          .map(InputField::getOrigin)
-          .collect(Collectors.toSet());
-      for (String transformOrigin : transformOrigins) {
-        if (operationEndPointMap.containsKey(transformOrigin)) {
-          relatedSources.addAll(operationEndPointMap.get(transformOrigin));
-        } else {
-          relatedSources.addAll(
-              computeIncomingSummaryHelper(operationsMap.get(transformOrigin), currentOperation,
-                  operationEndPointMap));
+  /**
+   * Adds the source fields of the given input field to the given set.
+   *
+   * @param input the input field of a transform or a write operation
+   * @param transformSources the source fields of the transforms computed so far
+   * @param sources the set to add the source fields to
+   */
+  private void addSources(InputField input, Map<String, Set<EndPointField>> transformSources,
+      Set<EndPointField> sources) {
+    Operation origin = operationsMap.get(input.getOrigin());
+    switch (origin.getType()) {
+      case READ:
+        sources.add(new EndPointField(((ReadOperation) origin).getSource(), input.getName()));
+        break;
+      case TRANSFORM:
+        Set<EndPointField> originSources = transformSources.get(origin.getName());
+        if (originSources == null) {
+          throw new IllegalArgumentException(
+              String.format("Cycle detected in graph for operation '%s'.", origin.getName()));
         }
-      }
-      operationEndPointMap.put(currentOperation.getName(), relatedSources);
+        sources.addAll(originSources);
+        break;
+      default:
+        // fields from a write operation do not carry any source
     }
-    return relatedSources;
   }
 
   private Map<EndPointField, Set<EndPointField>> computeOutgoingSummary() {
@@ -627,16 +644,14 @@ public class FieldLineageInfo {
    * @return true if the field is used in the nextOperation
    */
   private boolean containsInputField(Operation nextOperation, InputField inputField) {
-    Set<InputField> inputFields = new HashSet<>();
+    // if the next operation inputFields does contains the given fieldName return true
     if (OperationType.WRITE == nextOperation.getType()) {
-      WriteOperation nextWrite = (WriteOperation) nextOperation;
-      inputFields = new HashSet<>(nextWrite.getInputs());
-    } else if (OperationType.TRANSFORM == nextOperation.getType()) {
-      TransformOperation nextTransform = (TransformOperation) nextOperation;
-      inputFields = new HashSet<>(nextTransform.getInputs());
+      return ((WriteOperation) nextOperation).getInputs().contains(inputField);
     }
-    // if the next operation inputFields does contains the given fieldName return true
-    return inputFields.contains(inputField);
+    if (OperationType.TRANSFORM == nextOperation.getType()) {
+      return ((TransformOperation) nextOperation).getInputs().contains(inputField);
+    }
+    return false;
   }
 
   /**
@@ -797,6 +812,33 @@ public class FieldLineageInfo {
     return GSON.toJson(ops);
   }
 
+  /**
+   * The incoming and outgoing summaries computed for a set of operations. The summaries are shared
+   * by all {@link FieldLineageInfo} with the same operations, hence they are not modifiable.
+   */
+  private static final class Summaries {
+
+    private final Set<Operation> operations;
+    private final Map<EndPointField, Set<EndPointField>> incoming;
+    private final Map<EndPointField, Set<EndPointField>> outgoing;
+
+    Summaries(Set<Operation> operations, Map<EndPointField, Set<EndPointField>> incoming,
+        Map<EndPointField, Set<EndPointField>> outgoing) {
+      this.operations = Collections.unmodifiableSet(operations);
+      this.incoming = unmodifiable(incoming);
+      this.outgoing = unmodifiable(outgoing);
+    }
+
+    private static Map<EndPointField, Set<EndPointField>> unmodifiable(
+        Map<EndPointField, Set<EndPointField>> summary) {
+      Map<EndPointField, Set<EndPointField>> result = new HashMap<>();
+      for (Map.Entry<EndPointField, Set<EndPointField>> entry : summary.entrySet()) {
+        result.put(entry.getKey(), Collections.unmodifiableSet(entry.getValue()));
+      }
+      return Collections.unmodifiableMap(result);
+    }
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
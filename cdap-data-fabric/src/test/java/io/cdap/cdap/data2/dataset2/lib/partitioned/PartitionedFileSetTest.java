@@ -23,6 +23,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import io.cdap.cdap.api.Predicate;
+import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.dataset.DataSetException;
 import io.cdap.cdap.api.dataset.PartitionNotFoundException;
 import io.cdap.cdap.api.dataset.lib.FileSet;
@@ -177,6 +178,86 @@ public class PartitionedFileSetTest {
     Assert.assertEquals(PARTITION_KEY, decoded);
   }
 
+  @Test
+  public void testGenerateSeekKey() {
+    PartitionKey key = PartitionKey.builder()
+      .addStringField("s", "b")
+      .addIntField("i", 5)
+      .addLongField("l", 17L)
+      .build();
+    byte[] rowKey = PartitionedFileSetDataset.generateRowKey(key, PARTITIONING_1);
+
+    // below the lower bound of a non-leading field: seek to the lower bound under the same leading fields
+    PartitionFilter filter = PartitionFilter.builder().addRangeCondition("i", 10, 20).build();
+    byte[] seekKey = PartitionedFileSetDataset.generateSeekKey(rowKey, key, filter, PARTITIONING_1);
+    Assert.assertNotNull(seekKey);
+    Assert.assertTrue(Bytes.compareTo(rowKey, seekKey) < 0);
+    Assert.assertTrue(Bytes.compareTo(seekKey, rowKey(PARTITIONING_1, "b", 10, Long.MIN_VALUE)) <= 0);
+    Assert.assertTrue(Bytes.compareTo(seekKey, rowKey(PARTITIONING_1, "b", 9, Long.MAX_VALUE)) > 0);
+
+    // beyond the upper bound of a non-leading field: seek to the next value of the leading field
+    filter = PartitionFilter.builder().addRangeCondition("i", 1, 5).build();
+    seekKey = PartitionedFileSetDataset.generateSeekKey(rowKey, key, filter, PARTITIONING_1);
+    Assert.assertNotNull(seekKey);
+    Assert.assertTrue(Bytes.compareTo(seekKey, rowKey(PARTITIONING_1, "b", Integer.MAX_VALUE, Long.MAX_VALUE)) > 0);
+    Assert.assertTrue(Bytes.compareTo(seekKey, rowKey(PARTITIONING_1, "b\u0001", Integer.MIN_VALUE, 0L)) <= 0);
+    Assert.assertTrue(Bytes.compareTo(seekKey, rowKey(PARTITIONING_1, "ba", Integer.MIN_VALUE, 0L)) < 0);
+
+    // no other value of the last field matches: seek past the leading fields
+    filter = PartitionFilter.builder().addValueCondition("l", 3L).build();
+    seekKey = PartitionedFileSetDataset.generateSeekKey(rowKey, key, filter, PARTITIONING_1);
+    Assert.assertNotNull(seekKey);
+    Assert.assertTrue(Bytes.compareTo(seekKey, rowKey(PARTITIONING_1, "b", 5, Long.MAX_VALUE)) > 0);
+    Assert.assertTrue(Bytes.compareTo(seekKey, rowKey(PARTITIONING_1, "b", 6, 3L)) <= 0);
+
+    // beyond the upper bound of the first field: no later row can match
+    filter = PartitionFilter.builder().addRangeCondition("s", "a", "b").build();
+    Assert.assertNull(PartitionedFileSetDataset.generateSeekKey(rowKey, key, filter, PARTITIONING_1));
+  }
+
+  @Test
+  public void testFilterOnNonLeadingField() throws Exception {
+    final PartitionedFileSet dataset = dsFrameworkUtil.getInstance(pfsInstance);
+    final Set<BasicPartition> allPartitionDetails = Sets.newHashSet();
+
+    // add enough partitions so that the scan seeks past the partitions that don't match
+    dsFrameworkUtil.newTransactionExecutor((TransactionAware) dataset).execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        for (int s = 0; s < 5; s++) {
+          for (int i = 0; i < 20; i++) {
+            for (long l = 0; l < 20; l++) {
+              PartitionKey key = PartitionKey.builder()
+                .addField("s", String.valueOf(s))
+                .addField("i", i)
+                .addField("l", l)
+                .build();
+              PartitionOutput output = dataset.getPartitionOutput(key);
+              output.addPartition();
+              allPartitionDetails.add(new BasicPartition((PartitionedFileSetDataset) dataset,
+                                                         output.getRelativePath(), key));
+            }
+          }
+        }
+      }
+    });
+
+    testFilter(dataset, allPartitionDetails, PartitionFilter.builder().addValueCondition("i", 7).build());
+    testFilter(dataset, allPartitionDetails, PartitionFilter.builder().addValueCondition("l", 19L).build());
+    testFilter(dataset, allPartitionDetails, PartitionFilter.builder().addRangeCondition("l", 3L, 5L).build());
+    testFilter(dataset, allPartitionDetails, PartitionFilter.builder()
+      .addRangeCondition("s", "1", "3")
+      .addRangeCondition("i", 18, null)
+      .addValueCondition("l", 0L)
+      .build());
+    testFilter(dataset, allPartitionDetails, PartitionFilter.builder().addValueCondition("i", 20).build());
+  }
+
+  private static byte[] rowKey(Partitioning partitioning, String s, int i, long l) {
+    return PartitionedFileSetDataset.generateRowKey(
+      PartitionKey.builder().addStringField("s", s).addIntField("i", i).addLongField("l", l).build(), partitioning);
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testDecodeIncomplete() {
     byte[] rowKey = PartitionedFileSetDataset.generateRowKey(PARTITION_KEY, PARTITIONING_1);
@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.data2.dataset2.lib.table;
+
+import io.cdap.cdap.api.common.Bytes;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ArenaWriteBuffer}, verified against {@link MapWriteBuffer}.
+ */
+public class ArenaWriteBufferTest {
+
+  @Test
+  public void testBasic() {
+    ArenaWriteBuffer buffer = new ArenaWriteBuffer();
+    Assert.assertTrue(buffer.isEmpty());
+    Assert.assertNull(buffer.getRow(Bytes.toBytes("r1")));
+
+    byte[] value = Bytes.toBytes("v1");
+    buffer.put(Bytes.toBytes("r1"), new byte[][] { Bytes.toBytes("c1"), Bytes.toBytes("c2") },
+               new byte[][] { value, null });
+    // Buffer is not affected by changes to the arrays passed in
+    value[0] = 'x';
+    buffer.put(Bytes.toBytes("r2"), new byte[][] { Bytes.toBytes("c1") }, new byte[][] { Bytes.toBytes(1L) });
+    buffer.increment(Bytes.toBytes("r2"), new byte[][] { Bytes.toBytes("c1"), Bytes.toBytes("c2") },
+                     new long[] { 2L, 3L });
+
+    Assert.assertFalse(buffer.isEmpty());
+    Assert.assertTrue(buffer.containsRow(Bytes.toBytes("r1")));
+    NavigableMap<byte[], Update> row = buffer.getRow(Bytes.toBytes("r1"));
+    Assert.assertArrayEquals(Bytes.toBytes("v1"), ((PutValue) row.get(Bytes.toBytes("c1"))).getValue());
+    Assert.assertTrue(row.containsKey(Bytes.toBytes("c2")));
+    Assert.assertNull(((PutValue) row.get(Bytes.toBytes("c2"))).getValue());
+
+    row = buffer.getRow(Bytes.toBytes("r2"));
+    Assert.assertArrayEquals(Bytes.toBytes(3L), ((PutValue) row.get(Bytes.toBytes("c1"))).getValue());
+    Assert.assertEquals(3L, ((IncrementValue) row.get(Bytes.toBytes("c2"))).getValue().longValue());
+
+    // Incrementing a non-long value fails without changing the buffer
+    try {
+      buffer.increment(Bytes.toBytes("r1"), new byte[][] { Bytes.toBytes("c1") }, new long[] { 1L });
+      Assert.fail("Expected NumberFormatException");
+    } catch (NumberFormatException e) {
+      // expected
+    }
+    Assert.assertArrayEquals(Bytes.toBytes("v1"),
+                             ((PutValue) buffer.getRow(Bytes.toBytes("r1")).get(Bytes.toBytes("c1"))).getValue());
+
+    Assert.assertEquals(1, buffer.getRows(Bytes.toBytes("r2"), null).size());
+    Assert.assertEquals(1, buffer.getRows(null, Bytes.toBytes("r2")).size());
+    Assert.assertEquals(2, buffer.getRows(null, null).size());
+
+    buffer.clear();
+    Assert.assertTrue(buffer.isEmpty());
+    Assert.assertFalse(buffer.rows().hasNext());
+  }
+
+  @Test
+  public void testRandomChanges() {
+    Random random = new Random(0L);
+    ArenaWriteBuffer arena = new ArenaWriteBuffer();
+    MapWriteBuffer expected = new MapWriteBuffer();
+
+    // Enough changes to create and merge runs, and to reclaim the superseded cells
+    for (int i = 0; i < 50000; i++) {
+      byte[] row = Bytes.toBytes("row" + random.nextInt(200));
+      byte[][] columns = new byte[][] { Bytes.toBytes("col" + random.nextInt(20)) };
+      int op = random.nextInt(10);
+      if (op < 6) {
+        byte[] value = random.nextInt(3) == 0 ? Bytes.toBytes((long) i) : new byte[random.nextInt(64)];
+        random.nextBytes(value);
+        arena.put(row, columns, new byte[][] { value });
+        expected.put(row, columns, new byte[][] { value });
+      } else if (op < 7) {
+        arena.put(row, columns, new byte[][] { null });
+        expected.put(row, columns, new byte[][] { null });
+      } else if (op < 9) {
+        long[] amounts = new long[] { random.nextInt(100) };
+        boolean failed = false;
+        try {
+          expected.increment(row, columns, amounts);
+        } catch (NumberFormatException e) {
+          failed = true;
+        }
+        try {
+          arena.increment(row, columns, amounts);
+          Assert.assertFalse(failed);
+        } catch (NumberFormatException e) {
+          Assert.assertTrue(failed);
+        }
+      } else {
+        assertRowEquals(expected.getRow(row), arena.getRow(row));
+      }
+    }
+
+    assertEquals(expected.getRows(null, null), arena.rows());
+    assertEquals(expected.getRows(null, null), arena.getRows(null, null).entrySet().iterator());
+    assertEquals(expected.getRows(Bytes.toBytes("row1"), Bytes.toBytes("row5")),
+                 arena.getRows(Bytes.toBytes("row1"), Bytes.toBytes("row5")).entrySet().iterator());
+  }
+
+  private void assertEquals(NavigableMap<byte[], NavigableMap<byte[], Update>> expected,
+                            Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> actual) {
+    for (Map.Entry<byte[], NavigableMap<byte[], Update>> entry : expected.entrySet()) {
+      Assert.assertTrue(actual.hasNext());
+      Map.Entry<byte[], NavigableMap<byte[], Update>> actualEntry = actual.next();
+      Assert.assertArrayEquals(entry.getKey(), actualEntry.getKey());
+      assertRowEquals(entry.getValue(), actualEntry.getValue());
+    }
+    Assert.assertFalse(actual.hasNext());
+  }
+
+  private void assertRowEquals(NavigableMap<byte[], Update> expected, NavigableMap<byte[], Update> actual) {
+    if (expected == null) {
+      Assert.assertNull(actual);
+      return;
+    }
+    Assert.assertEquals(expected.size(), actual.size());
+    for (Map.Entry<byte[], Update> entry : expected.entrySet()) {
+      Update actualUpdate = actual.get(entry.getKey());
+      Assert.assertNotNull(actualUpdate);
+      Assert.assertEquals(entry.getValue().getClass(), actualUpdate.getClass());
+      Assert.assertArrayEquals(entry.getValue().getBytes(), actualUpdate.getBytes());
+    }
+  }
+}
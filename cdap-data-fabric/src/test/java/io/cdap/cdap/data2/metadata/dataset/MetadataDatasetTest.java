@@ -15,10 +15,12 @@
  */
 package io.cdap.cdap.data2.metadata.dataset;
 
+import com.google.common.collect.HashMultiset;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Multiset;
 import com.google.common.collect.Sets;
 import com.google.inject.Key;
 import com.google.inject.name.Names;
@@ -28,6 +30,7 @@ import io.cdap.cdap.api.dataset.DatasetContext;
 import io.cdap.cdap.api.dataset.DatasetDefinition;
 import io.cdap.cdap.api.dataset.DatasetProperties;
 import io.cdap.cdap.api.dataset.DatasetSpecification;
+import io.cdap.cdap.api.dataset.lib.IndexedTable;
 import io.cdap.cdap.api.dataset.lib.IndexedTableDefinition;
 import io.cdap.cdap.api.dataset.table.Scanner;
 import io.cdap.cdap.api.metadata.MetadataEntity;
@@ -1415,6 +1418,85 @@ public class MetadataDatasetTest {
     return ImmutableMap.of(prefix + k1, v1, prefix + k2, v2, prefix + k3, v3);
   }
 
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testSearchResolvesValuesInBatches() throws Exception {
+    // Search through a dataset that shares its table, so that value rows can be deleted under the index rows
+    DatasetDefinition tableDefinition = dsFrameworkUtil.getInjector()
+      .getInstance(Key.get(DatasetDefinition.class, Names.named(Constants.Dataset.TABLE_TYPE)));
+    IndexedTable indexedTable = new IndexedTableDefinition("indexedTable", tableDefinition)
+      .getDataset(DatasetContext.from(NamespaceId.SYSTEM.getNamespace()),
+                  Iterables.getOnlyElement(spec.getSpecifications().values()), Collections.emptyMap(), null);
+    MetadataDataset dataset = new MetadataDataset(indexedTable, MetadataScope.SYSTEM);
+    TransactionExecutor txnl = dsFrameworkUtil.newInMemoryTransactionExecutor((TransactionAware) dataset);
+
+    // span more than one batch of index hits
+    int numEntities = 600;
+    List<MetadataEntity> entities = new ArrayList<>();
+    List<MetadataEntity> liveEntities = new ArrayList<>();
+    for (int i = 0; i < numEntities; i++) {
+      MetadataEntity entity = new DatasetId("ns1", String.format("ds%04d", i)).toMetadataEntity();
+      entities.add(entity);
+      if (i % 7 != 0) {
+        liveEntities.add(entity);
+      }
+    }
+    txnl.execute(() -> {
+      for (int i = 0; i < numEntities; i++) {
+        MetadataEntity entity = entities.get(i);
+        dataset.addProperty(entity, MetadataConstants.ENTITY_NAME_KEY, String.format("name%04d", i));
+        dataset.addTags(entity, "tag" + (i % 2), "common");
+      }
+    });
+    // delete the values of every 7th entity but keep their index rows
+    txnl.execute(() -> {
+      for (int i = 0; i < numEntities; i += 7) {
+        for (String key : ImmutableList.of(MetadataConstants.ENTITY_NAME_KEY, MetadataConstants.TAGS_KEY)) {
+          indexedTable.delete(MetadataKey.createValueRowKey(entities.get(i), key).getKey());
+        }
+      }
+    });
+
+    NamespaceId ns1 = new NamespaceId("ns1");
+    txnl.execute(() -> {
+      // both terms hit the same tags value, which is returned for each of the hits
+      SearchRequest request = new SearchRequest(ns1, "tag0 common", ALL_TYPES, SortInfo.DEFAULT, 0,
+                                                Integer.MAX_VALUE, 1, null, false, EnumSet.allOf(EntityScope.class));
+      Multiset<MetadataEntity> hits = HashMultiset.create();
+      for (MetadataEntry entry : dataset.search(request).getResults()) {
+        int i = entities.indexOf(entry.getMetadataEntity());
+        Assert.assertEquals(MetadataConstants.TAGS_KEY, entry.getKey());
+        Assert.assertEquals(ImmutableSet.of("tag" + (i % 2), "common"),
+                            ImmutableSet.copyOf(entry.getValue().split(",")));
+        hits.add(entry.getMetadataEntity());
+      }
+      Assert.assertEquals(new HashSet<>(liveEntities), hits.elementSet());
+      for (MetadataEntity entity : liveEntities) {
+        Assert.assertEquals(entities.indexOf(entity) % 2 == 0 ? 2 : 1, hits.count(entity));
+      }
+
+      // cursors are taken at the same positions of the results without the deleted values
+      int limit = 100;
+      int numCursors = 3;
+      SortInfo nameAsc = new SortInfo(MetadataConstants.ENTITY_NAME_KEY, SortInfo.SortOrder.ASC);
+      request = new SearchRequest(ns1, "*", ALL_TYPES, nameAsc, 0, limit, numCursors, null, false,
+                                  EnumSet.allOf(EntityScope.class));
+      SearchResults results = dataset.search(request);
+      List<MetadataEntry> expectedResults = new ArrayList<>();
+      for (MetadataEntity entity : liveEntities.subList(0, (numCursors + 1) * limit)) {
+        expectedResults.add(new MetadataEntry(entity, MetadataConstants.ENTITY_NAME_KEY,
+                                              String.format("name%04d", entities.indexOf(entity))));
+      }
+      Assert.assertEquals(expectedResults, results.getResults());
+      List<String> expectedCursors = new ArrayList<>();
+      for (int i = 1; i <= numCursors; i++) {
+        expectedCursors.add(expectedResults.get(i * limit).getValue());
+      }
+      Assert.assertEquals(expectedCursors, results.getCursors());
+    });
+    dataset.close();
+  }
+
   private Set<String> toTags(String prefix, String... tags) {
     ImmutableSet.Builder<String> builder = new ImmutableSet.Builder<>();
     for (String tag : tags) {
@@ -18,6 +18,7 @@ package io.cdap.cdap.data2.metadata.lineage;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 import io.cdap.cdap.common.app.RunIds;
 import io.cdap.cdap.proto.ProgramType;
 import io.cdap.cdap.proto.id.DatasetId;
@@ -26,7 +27,11 @@ import io.cdap.cdap.proto.id.ProgramId;
 import io.cdap.cdap.proto.id.ProgramRunId;
 import io.cdap.cdap.spi.data.transaction.TransactionRunner;
 import io.cdap.cdap.spi.data.transaction.TransactionRunners;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import org.apache.twill.api.RunId;
 import org.junit.Assert;
 import org.junit.Before;
@@ -135,6 +140,56 @@ public abstract class LineageTableTest {
     });
   }
 
+  @Test
+  public void testRelationsAcrossDays() {
+    final long day = TimeUnit.DAYS.toMillis(1);
+    final DatasetId datasetInstance = NamespaceId.DEFAULT.dataset("dataset1");
+    final ProgramId program = NamespaceId.DEFAULT.app("app1").spark("spark1");
+
+    // Two runs a day, at the start and in the middle of the day
+    final List<RunId> runIds = new ArrayList<>();
+    for (int i = 1; i <= 5; i++) {
+      runIds.add(RunIds.generate(i * day));
+      runIds.add(RunIds.generate(i * day + day / 2));
+    }
+    TransactionRunners.run(transactionRunner, context -> {
+      LineageTable lineageTable = LineageTable.create(context);
+      for (RunId runId : runIds) {
+        lineageTable.addAccess(program.run(runId), datasetInstance, AccessType.READ, 0L);
+        // Recording the same access again should not change the relations
+        lineageTable.addAccess(program.run(runId), datasetInstance, AccessType.READ, 1L);
+      }
+    });
+
+    Set<Relation> all = new HashSet<>();
+    for (RunId runId : runIds) {
+      all.add(new Relation(datasetInstance, program, AccessType.READ, runId));
+    }
+    // The range covers the days in between fully, and the first and last day partially
+    Set<Relation> partial = new HashSet<>();
+    for (RunId runId : runIds.subList(1, 8)) {
+      partial.add(new Relation(datasetInstance, program, AccessType.READ, runId));
+    }
+
+    TransactionRunners.run(transactionRunner, context -> {
+      LineageTable lineageTable = LineageTable.create(context);
+      Assert.assertEquals(all, lineageTable.getRelations(datasetInstance, 0, Long.MAX_VALUE,
+                                                         x -> true));
+      Assert.assertEquals(all, lineageTable.getRelations(program, 0, Long.MAX_VALUE, x -> true));
+      Assert.assertEquals(partial, lineageTable.getRelations(datasetInstance, day + day / 2,
+                                                             4 * day + day / 2, x -> true));
+      Assert.assertEquals(partial, lineageTable.getRelations(program, day + day / 2,
+                                                             4 * day + day / 2, x -> true));
+
+      // The filter applies to the relations in the range
+      RunId excluded = runIds.get(4);
+      Assert.assertEquals(Sets.filter(partial, r -> !excluded.equals(r.getRun())),
+                          lineageTable.getRelations(datasetInstance, day + day / 2,
+                                                    4 * day + day / 2,
+                                                    r -> !excluded.equals(r.getRun())));
+    });
+  }
+
   @SafeVarargs
   protected static <T> Set<T> toSet(T... elements) {
     return ImmutableSet.copyOf(elements);
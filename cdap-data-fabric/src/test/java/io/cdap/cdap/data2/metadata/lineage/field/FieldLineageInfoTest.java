@@ -164,6 +164,55 @@ public class FieldLineageInfoTest {
     Assert.assertEquals(expectedIncoming, info.getIncomingSummary());
   }
 
+  @Test(timeout = 10000)
+  public void testSharedSubGraphs() {
+    // Build layers of transforms where every transform reads both transforms of the previous layer
+    List<Operation> operations = new ArrayList<>();
+    operations.add(new ReadOperation("read", "", EndPoint.of("src"), "a", "b"));
+    String left = "read";
+    String right = "read";
+    for (int i = 0; i < 500; i++) {
+      List<InputField> inputs = Arrays.asList(InputField.of(left, "a"), InputField.of(right, "b"));
+      operations.add(new TransformOperation("left" + i, "", inputs, "a"));
+      operations.add(new TransformOperation("right" + i, "", inputs, "b"));
+      left = "left" + i;
+      right = "right" + i;
+    }
+    operations.add(new WriteOperation("write", "", EndPoint.of("dest"),
+                                      InputField.of(left, "a"), InputField.of("read", "b")));
+
+    FieldLineageInfo info = new FieldLineageInfo(operations);
+    EndPointField srcA = new EndPointField(EndPoint.of("src"), "a");
+    EndPointField srcB = new EndPointField(EndPoint.of("src"), "b");
+    EndPointField destA = new EndPointField(EndPoint.of("dest"), "a");
+    EndPointField destB = new EndPointField(EndPoint.of("dest"), "b");
+    Assert.assertEquals(ImmutableMap.of(destA, ImmutableSet.of(srcA, srcB),
+                                        destB, ImmutableSet.of(srcB)),
+                        info.getIncomingSummary());
+    Assert.assertEquals(ImmutableMap.of(srcA, ImmutableSet.of(destA),
+                                        srcB, ImmutableSet.of(destA, destB)),
+                        info.getOutgoingSummary());
+
+    // Summaries of operations with the same checksum are reused
+    Collections.reverse(operations);
+    FieldLineageInfo sameInfo = new FieldLineageInfo(operations);
+    Assert.assertEquals(info.getChecksum(), sameInfo.getChecksum());
+    Assert.assertSame(info.getIncomingSummary(), sameInfo.getIncomingSummary());
+    Assert.assertSame(info.getOutgoingSummary(), sameInfo.getOutgoingSummary());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSummaryCycle() {
+    ReadOperation read = new ReadOperation("read", "", EndPoint.of("src"), "a");
+    TransformOperation first = new TransformOperation("first", "",
+        Arrays.asList(InputField.of("read", "a"), InputField.of("second", "a")), "a");
+    TransformOperation second = new TransformOperation("second", "",
+        Collections.singletonList(InputField.of("first", "a")), "a");
+    WriteOperation write = new WriteOperation("write", "", EndPoint.of("dest"),
+        InputField.of("second", "a"));
+    new FieldLineageInfo(ImmutableList.of(read, first, second, write));
+  }
+
   @Test
   public void testInvalidOperations() {
     ReadOperation read = new ReadOperation("read", "some read", EndPoint.of("endpoint1"), "offset", "body");
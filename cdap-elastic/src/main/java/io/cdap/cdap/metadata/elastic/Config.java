@@ -35,12 +35,16 @@ public final class Config {
   static final String CONF_ELASTIC_WINDOW_SIZE = "metadata.elasticsearch.max.window.size";
   static final String CONF_ELASTIC_CONFLICT_NUM_RETRIES = "metadata.elasticsearch.conflict.num.retries";
   static final String CONF_ELASTIC_CONFLICT_RETRY_SLEEP_MS = "metadata.elasticsearch.conflict.retry.sleep.ms";
+  static final String CONF_ELASTIC_BULK_CHUNK_SIZE = "metadata.elasticsearch.bulk.chunk.size";
+  static final String CONF_ELASTIC_BULK_PARALLELISM = "metadata.elasticsearch.bulk.parallelism";
 
   static final String DEFAULT_ELASTIC_HOSTS = "localhost:9200";
   static final String DEFAULT_INDEX_NAME = "cdap.metadata";
   static final String DEFAULT_SCROLL_TIMEOUT = "60s";
   static final int DEFAULT_ELASTIC_CONFLICT_NUM_RETRIES = 50;
   static final int DEFAULT_ELASTIC_CONFLICT_RETRY_SLEEP_MS = 100;
+  static final int DEFAULT_ELASTIC_BULK_CHUNK_SIZE = 500;
+  static final int DEFAULT_ELASTIC_BULK_PARALLELISM = 4;
   static final int DEFAULT_MAX_RESULT_WINDOW = 10000; // this is hardcoded in Elasticsearch
   static final boolean DEFAULT_ELASTIC_TLS_VERIFY = true;
 
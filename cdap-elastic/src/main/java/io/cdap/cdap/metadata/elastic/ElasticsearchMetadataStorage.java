@@ -20,10 +20,12 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Charsets;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.io.Closeables;
 import com.google.common.io.Resources;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.inject.Inject;
@@ -68,6 +70,10 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -81,6 +87,7 @@ import org.apache.http.client.CredentialsProvider;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.ssl.SSLContextBuilder;
 import org.apache.lucene.search.join.ScoreMode;
+import org.apache.twill.common.Threads;
 import org.elasticsearch.ElasticsearchStatusException;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.DocWriteRequest;
@@ -92,6 +99,7 @@ import org.elasticsearch.action.admin.indices.get.GetIndexRequest;
 import org.elasticsearch.action.admin.indices.get.GetIndexResponse;
 import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsRequest;
 import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsResponse;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
 import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
@@ -155,6 +163,9 @@ public class ElasticsearchMetadataStorage implements MetadataStorage {
   @VisibleForTesting
   static final boolean DISCARD = false;
 
+  // version used for entities that are created by an earlier mutation in the same batch
+  private static final long UNINDEXED_VERSION = -1L;
+
   // used to tokenize the query string, same as the MetadataDataset
   private static final Pattern SPACE_SEPARATOR_PATTERN = Pattern.compile("\\s+");
 
@@ -198,6 +209,10 @@ public class ElasticsearchMetadataStorage implements MetadataStorage {
   // sleep 100 ms for at most 50 times
   private final RetryStrategy retryStrategyOnConflict;
 
+  // maximum number of entities in a bulk request, and the executor for parallel bulk requests
+  private final int bulkChunkSize;
+  private final ExecutorService bulkExecutor;
+
   @Inject
   public ElasticsearchMetadataStorage(CConfiguration cConf, SConfiguration sConf) {
     this.cConf = cConf;
@@ -215,10 +230,17 @@ public class ElasticsearchMetadataStorage implements MetadataStorage {
         Config.DEFAULT_ELASTIC_CONFLICT_RETRY_SLEEP_MS);
     this.retryStrategyOnConflict = RetryStrategies.limit(numRetries,
         RetryStrategies.fixDelay(retrySleepMs, TimeUnit.MILLISECONDS));
+    this.bulkChunkSize = Math.max(1, cConf.getInt(Config.CONF_ELASTIC_BULK_CHUNK_SIZE,
+        Config.DEFAULT_ELASTIC_BULK_CHUNK_SIZE));
+    this.bulkExecutor = Executors.newFixedThreadPool(
+        Math.max(1, cConf.getInt(Config.CONF_ELASTIC_BULK_PARALLELISM,
+            Config.DEFAULT_ELASTIC_BULK_PARALLELISM)),
+        Threads.createDaemonThreadFactory("elastic-metadata-bulk-%d"));
   }
 
   @Override
   public void close() {
+    bulkExecutor.shutdownNow();
     Closeables.closeQuietly(client);
   }
 
@@ -464,78 +486,132 @@ public class ElasticsearchMetadataStorage implements MetadataStorage {
     if (mutations.size() == 1) {
       return Collections.singletonList(apply(mutations.get(0), options));
     }
-    // first detect whether there are duplicate entity ids. If so, execute in sequence
-    Set<MetadataEntity> entities = new HashSet<>();
-    LinkedHashMap<MetadataEntity, MetadataMutation> mutationMap = new LinkedHashMap<>(
-        mutations.size());
-    boolean duplicate = false;
+    // group the mutations by entity, so that all mutations of an entity are merged into one request
+    LinkedHashMap<MetadataEntity, List<MetadataMutation>> mutationMap = new LinkedHashMap<>();
     for (MetadataMutation mutation : mutations) {
-      if (!entities.add(mutation.getEntity())) {
-        duplicate = true;
-        break;
-      }
-      mutationMap.put(mutation.getEntity(), mutation);
-    }
-    if (duplicate) {
-      // if there are multiple mutations for the same entity, execute all in sequence
-      List<MetadataChange> changes = new ArrayList<>(mutations.size());
-      for (MetadataMutation mutation : mutations) {
-        changes.add(apply(mutation, options));
-      }
-      return changes;
+      mutationMap.computeIfAbsent(mutation.getEntity(), e -> new ArrayList<>()).add(mutation);
     }
-    // collect all changes in an order-preserving map. The first time doBatch() is called, it will
-    // enter all entities in the map. Every time it is retried, the change may get updated, but that
-    // will not change the order of the map.
-    LinkedHashMap<MetadataEntity, MetadataChange> changes = new LinkedHashMap<>(mutations.size());
+    // if the bulk requests are split into multiple chunks, the index is refreshed once at the end
+    boolean deferRefresh = mutationMap.size() > bulkChunkSize;
+    // every time doBatch() is called, it removes the completed entities from the mutation map
+    // and adds their changes to the changes map, so that only conflicting entities are retried
+    Map<MetadataEntity, List<MetadataChange>> changes = new HashMap<>(mutationMap.size());
     try {
       // repeatedly try to read current metadata, apply the mutations and reindex, until there is no conflict
-      return Retries.callWithRetries(() -> doBatch(mutationMap, changes, options),
+      Retries.runWithRetries(() -> doBatch(mutationMap, changes, options, deferRefresh),
           RetryStrategies.limit(50, RetryStrategies.fixDelay(100, TimeUnit.MILLISECONDS)),
           e -> e instanceof MetadataConflictException);
     } catch (MetadataConflictException e) {
       throw new MetadataConflictException("After retries: " + e.getRawMessage(),
           e.getConflictingEntities());
+    } finally {
+      if (deferRefresh) {
+        refreshIndex();
+      }
+    }
+
+    // return the changes in the order of the mutations
+    Map<MetadataEntity, Integer> positions = new HashMap<>();
+    List<MetadataChange> result = new ArrayList<>(mutations.size());
+    for (MetadataMutation mutation : mutations) {
+      int position = positions.merge(mutation.getEntity(), 1, Integer::sum) - 1;
+      result.add(changes.get(mutation.getEntity()).get(position));
     }
+    return result;
   }
 
   /**
    * For the given mutations, reads the current metadata for the involved entities, applies the
-   * mutations, and attempts to execute the resulting index operations in bulk. When finished,
-   * returns the list of metadata changes caused by the mutations.
+   * mutations, and attempts to execute the resulting index operations in bulk. The entities are
+   * split into chunks of at most {@link Config#CONF_ELASTIC_BULK_CHUNK_SIZE} entities, which are
+   * executed in parallel.
    *
-   * If a conflict occurs during any of these operations, the successful mutations are removed from
-   * the mutations map, and the changes map is updated with the corresponding change, before the
+   * If a conflict occurs for some entities, the mutations of all other entities are removed from
+   * the mutations map, and the changes map is updated with the corresponding changes, before the
    * {@link MetadataConflictException} is thrown. That is, calling this repeatedly will gradually
    * shrink the mutations map to an empty map and fill the changes map with changes performed.
    *
-   * @param mutations the mutations to apply. Every mutation that is successfully executed is
-   *     removed from this map, even if an exception is thrown.
-   * @param changes the changes caused by the mutations. For every mutation that is successfully
-   *     executed, this map is updated with the corresponding change, even if an exception is
-   *     thrown.
-   * @return the list of all changes performed by the mutations, if all mutations complete
-   *     successfully
+   * @param mutations the mutations to apply, grouped by entity. The mutations of every entity
+   *     that are successfully executed are removed from this map, even if an exception is thrown.
+   * @param changes the changes caused by the mutations, grouped by entity. For every entity that
+   *     is successfully executed, this map is updated with the corresponding changes, even if an
+   *     exception is thrown.
+   * @param deferRefresh whether to skip the refresh of the index after each bulk request
    * @throws MetadataConflictException if a conflict occurs for any of the mutations
    * @throws IOException for any other problem encountered
    */
-  private List<MetadataChange> doBatch(LinkedHashMap<MetadataEntity, MetadataMutation> mutations,
-      LinkedHashMap<MetadataEntity, MetadataChange> changes,
-      MutationOptions options)
-      throws IOException {
+  private void doBatch(LinkedHashMap<MetadataEntity, List<MetadataMutation>> mutations,
+      Map<MetadataEntity, List<MetadataChange>> changes,
+      MutationOptions options, boolean deferRefresh) throws IOException {
+    List<List<MetadataEntity>> chunks = Lists.partition(new ArrayList<>(mutations.keySet()),
+        bulkChunkSize);
+    List<BulkResult> results = new ArrayList<>(chunks.size());
+    IOException failure = null;
+    if (chunks.size() == 1) {
+      results.add(executeChunk(chunks.get(0), mutations, options, deferRefresh));
+    } else {
+      List<Future<BulkResult>> futures = new ArrayList<>(chunks.size());
+      for (List<MetadataEntity> chunk : chunks) {
+        futures.add(bulkExecutor.submit(
+            () -> executeChunk(chunk, mutations, options, deferRefresh)));
+      }
+      for (Future<BulkResult> future : futures) {
+        try {
+          results.add(Uninterruptibles.getUninterruptibly(future));
+        } catch (ExecutionException e) {
+          IOException ioe = e.getCause() instanceof IOException
+              ? (IOException) e.getCause() : new IOException(e.getCause());
+          if (failure == null) {
+            failure = ioe;
+          } else {
+            failure.addSuppressed(ioe);
+          }
+        }
+      }
+    }
+
+    List<MetadataEntity> conflictEntities = new ArrayList<>();
+    for (BulkResult result : results) {
+      for (Map.Entry<MetadataEntity, List<MetadataChange>> entry : result.completed.entrySet()) {
+        mutations.remove(entry.getKey());
+        changes.put(entry.getKey(), entry.getValue());
+      }
+      conflictEntities.addAll(result.conflicts);
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    if (!conflictEntities.isEmpty()) {
+      LOG.debug("Encountered conflicts in batch mutation for entities {}", conflictEntities);
+      throw new MetadataConflictException("Bulk request conflicts for entities ${conflicting}",
+          conflictEntities);
+    }
+  }
+
+  /**
+   * Reads the current metadata of a chunk of entities, merges the mutations of each entity into
+   * one request, and executes the requests in bulk.
+   *
+   * @return the entities that completed with their changes, and the entities that had conflicts
+   * @throws IOException for any problem other than conflicts
+   */
+  private BulkResult executeChunk(List<MetadataEntity> entities,
+      Map<MetadataEntity, List<MetadataMutation>> mutations, MutationOptions options,
+      boolean deferRefresh) throws IOException {
     MultiGetRequest multiGet = new MultiGetRequest();
-    for (Map.Entry<MetadataEntity, MetadataMutation> entry : mutations.entrySet()) {
-      multiGet.add(indexName, DOC_TYPE, toDocumentId(entry.getKey()));
+    for (MetadataEntity entity : entities) {
+      multiGet.add(indexName, DOC_TYPE, toDocumentId(entity));
     }
     RestHighLevelClient client = getClient();
     MultiGetResponse multiGetResponse = client.mget(multiGet, RequestOptions.DEFAULT);
     // responses are in the same order as the original requests
     int index = 0;
     BulkRequest bulkRequest = new BulkRequest();
-    for (Map.Entry<MetadataEntity, MetadataMutation> entry : mutations.entrySet()) {
+    Map<MetadataEntity, List<MetadataChange>> chunkChanges = new HashMap<>();
+    for (MetadataEntity entity : entities) {
       MultiGetItemResponse itemResponse = multiGetResponse.getResponses()[index++];
       if (itemResponse.isFailed()) {
-        throw new IOException("Failed to read from index for entity " + entry.getKey());
+        throw new IOException("Failed to read from index for entity " + entity);
       }
       GetResponse getResponse = itemResponse.getResponse();
       VersionedMetadata before = getResponse.isExists()
@@ -543,13 +619,49 @@ public class ElasticsearchMetadataStorage implements MetadataStorage {
           GSON.fromJson(getResponse.getSourceAsString(), MetadataDocument.class).getMetadata(),
           getResponse.getVersion())
           : VersionedMetadata.NONE;
-      RequestAndChange intermediary = applyMutation(before, entry.getValue());
-      bulkRequest.add((DocWriteRequest<?>) intermediary.getRequest());
-      changes.put(entry.getKey(), intermediary.getChange());
+      List<MetadataChange> entityChanges = new ArrayList<>();
+      bulkRequest.add((DocWriteRequest<?>) applyMutations(entity, before, mutations.get(entity),
+          entityChanges));
+      chunkChanges.put(entity, entityChanges);
+    }
+    if (deferRefresh) {
+      bulkRequest.setRefreshPolicy(WriteRequest.RefreshPolicy.NONE);
+    } else {
+      setRefreshPolicy(bulkRequest, options);
+    }
+    List<MetadataEntity> conflicts = executeBulk(bulkRequest);
+    for (MetadataEntity conflict : conflicts) {
+      chunkChanges.remove(conflict);
+    }
+    return new BulkResult(chunkChanges, conflicts);
+  }
+
+  /**
+   * Applies a sequence of mutations of an entity to its current metadata, and returns a single
+   * request that writes the final metadata, conditioned on the version of the current metadata.
+   *
+   * @param changes the list to add the changes caused by each of the mutations to
+   */
+  private WriteRequest<?> applyMutations(MetadataEntity entity, VersionedMetadata before,
+      List<MetadataMutation> mutations, List<MetadataChange> changes) {
+    if (mutations.size() == 1) {
+      RequestAndChange intermediary = applyMutation(before, mutations.get(0));
+      changes.add(intermediary.getChange());
+      return intermediary.getRequest();
+    }
+    VersionedMetadata current = before;
+    for (MetadataMutation mutation : mutations) {
+      MetadataChange change = applyMutation(current, mutation).getChange();
+      changes.add(change);
+      // only the existence matters for the following mutations, the version is of the final request
+      current = mutation.getType() == MetadataMutation.Type.DROP
+          ? VersionedMetadata.NONE
+          : VersionedMetadata.of(change.getAfter(),
+              before.existing() ? before.getVersion() : UNINDEXED_VERSION);
     }
-    setRefreshPolicy(bulkRequest, options);
-    executeBulk(bulkRequest, mutations);
-    return new ArrayList<>(changes.values());
+    return current.existing()
+        ? writeToIndex(entity, before.getVersion(), current.getMetadata())
+        : deleteFromIndex(entity, before.getVersion());
   }
 
   @Override
@@ -814,62 +926,61 @@ public class ElasticsearchMetadataStorage implements MetadataStorage {
   }
 
   /**
-   * Executes a bulk request and handles the responses for possible failures, and removes all
-   * successful mutations from the mutations map.
+   * Executes a bulk request and handles the responses for possible failures.
    *
-   * @param mutations the mutations represented by this bulk. Every mutation that is
-   *     successfully executed is removed from this map, even if an exception is thrown.
-   * @throws MetadataConflictException if a conflict occurs for any of the operations in the
-   *     bulk
-   * @throws IOException for any other problem encountered
+   * @return the entities for which a conflict occurred. All other operations in the bulk
+   *     succeeded.
+   * @throws IOException for any problem other than conflicts
    */
-  private void executeBulk(BulkRequest bulkRequest,
-      LinkedHashMap<MetadataEntity, MetadataMutation> mutations) throws IOException {
+  private List<MetadataEntity> executeBulk(BulkRequest bulkRequest) throws IOException {
     RestHighLevelClient client = getClient();
     BulkResponse response = client.bulk(bulkRequest, RequestOptions.DEFAULT);
-    if (response.hasFailures()) {
-      IOException ioe = null;
-      List<MetadataEntity> conflictEntities = new ArrayList<>();
-      for (BulkItemResponse itemResponse : response) {
-        MetadataEntity entityId;
-        try {
-          entityId = toMetadataEntity(itemResponse.getId());
-        } catch (Exception e) {
-          LOG.warn("Cannot parse entity id from document id {} in bulk response",
-              itemResponse.getId());
-          continue;
-        }
-        if (!itemResponse.isFailed()) {
-          // remove this mutation - it was successful
-          mutations.remove(entityId);
-          continue;
-        }
-        if (isNotFound(itemResponse.status())) {
-          // only happens for deletes - we consider this successful
-          mutations.remove(entityId);
-          continue;
-        }
-        // this mutation failed
-        BulkItemResponse.Failure failure = itemResponse.getFailure();
-        if (isConflict(failure.getStatus())) {
-          conflictEntities.add(entityId);
-          continue;
-        }
-        // not a conflict -> true failure
-        if (ioe == null) {
-          ioe = new IOException("Bulk request unsuccessful");
-        }
-        ioe.addSuppressed(new IOException(String.format("%s request unsuccessful for entity %s: %s",
-            itemResponse.getOpType(), entityId, failure.getMessage())));
+    if (!response.hasFailures()) {
+      return Collections.emptyList();
+    }
+    IOException ioe = null;
+    List<MetadataEntity> conflictEntities = new ArrayList<>();
+    for (BulkItemResponse itemResponse : response) {
+      if (!itemResponse.isFailed() || isNotFound(itemResponse.status())) {
+        // successful, not found only happens for deletes - we consider this successful
+        continue;
+      }
+      MetadataEntity entityId;
+      try {
+        entityId = toMetadataEntity(itemResponse.getId());
+      } catch (Exception e) {
+        LOG.warn("Cannot parse entity id from document id {} in bulk response",
+            itemResponse.getId());
+        continue;
       }
-      if (ioe != null) {
-        throw ioe;
+      // this mutation failed
+      BulkItemResponse.Failure failure = itemResponse.getFailure();
+      if (isConflict(failure.getStatus())) {
+        conflictEntities.add(entityId);
+        continue;
       }
-      if (!conflictEntities.isEmpty()) {
-        LOG.debug("Encountered conflicts in batch mutation for entities {}", conflictEntities);
-        throw new MetadataConflictException("Bulk request conflicts for entities ${conflicting}",
-            conflictEntities);
+      // not a conflict -> true failure
+      if (ioe == null) {
+        ioe = new IOException("Bulk request unsuccessful");
       }
+      ioe.addSuppressed(new IOException(String.format("%s request unsuccessful for entity %s: %s",
+          itemResponse.getOpType(), entityId, failure.getMessage())));
+    }
+    if (ioe != null) {
+      throw ioe;
+    }
+    return conflictEntities;
+  }
+
+  /**
+   * Refreshes the index after bulk writes that did not refresh it, so that they are visible to
+   * searches when the batch returns. A failure is only logged, because the writes were applied.
+   */
+  private void refreshIndex() {
+    try {
+      getClient().indices().refresh(new RefreshRequest(indexName), RequestOptions.DEFAULT);
+    } catch (Exception e) {
+      LOG.warn("Failed to refresh index {} after batch mutation", indexName, e);
     }
   }
 
@@ -1304,4 +1415,19 @@ public class ElasticsearchMetadataStorage implements MetadataStorage {
     return status.getStatus() == 409;
   }
 
+
+  /**
+   * The result of a bulk request for a chunk of entities.
+   */
+  private static final class BulkResult {
+
+    private final Map<MetadataEntity, List<MetadataChange>> completed;
+    private final List<MetadataEntity> conflicts;
+
+    private BulkResult(Map<MetadataEntity, List<MetadataChange>> completed,
+        List<MetadataEntity> conflicts) {
+      this.completed = completed;
+      this.conflicts = conflicts;
+    }
+  }
 }
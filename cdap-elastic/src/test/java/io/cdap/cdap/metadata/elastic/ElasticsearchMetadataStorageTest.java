@@ -25,7 +25,9 @@ import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.SConfiguration;
 import io.cdap.cdap.common.metadata.Cursor;
 import io.cdap.cdap.spi.metadata.Metadata;
+import io.cdap.cdap.spi.metadata.MetadataChange;
 import io.cdap.cdap.spi.metadata.MetadataKind;
+import io.cdap.cdap.spi.metadata.MetadataMutation;
 import io.cdap.cdap.spi.metadata.MetadataMutation.Drop;
 import io.cdap.cdap.spi.metadata.MetadataMutation.Update;
 import io.cdap.cdap.spi.metadata.MetadataRecord;
@@ -37,6 +39,7 @@ import io.cdap.cdap.spi.metadata.ScopedNameOfKind;
 import io.cdap.cdap.spi.metadata.SearchRequest;
 import io.cdap.cdap.spi.metadata.SearchResponse;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
@@ -55,6 +58,7 @@ public class ElasticsearchMetadataStorageTest extends MetadataStorageTest {
   private static final Logger LOG = LoggerFactory.getLogger(ElasticsearchMetadataStorageTest.class);
 
   private static ElasticsearchMetadataStorage elasticStore;
+  private static CConfiguration cConf;
 
   @Override
   protected MetadataStorage getMetadataStorage() {
@@ -63,7 +67,7 @@ public class ElasticsearchMetadataStorageTest extends MetadataStorageTest {
 
   @BeforeClass
   public static void createIndex() throws IOException {
-    CConfiguration cConf = CConfiguration.create();
+    cConf = CConfiguration.create();
     cConf.set(Config.CONF_ELASTIC_INDEX_NAME,
               "idx" + new Random(System.currentTimeMillis()).nextInt());
     cConf.set(Config.CONF_ELASTIC_SCROLL_TIMEOUT, "2s");
@@ -375,6 +379,51 @@ public class ElasticsearchMetadataStorageTest extends MetadataStorageTest {
     mds.batch(records.stream().map(MetadataRecord::getEntity).map(Drop::new).collect(Collectors.toList()), options);
   }
 
+  @Test
+  public void testChunkedBatch() throws IOException {
+    // use a separate store on the same index that splits batches into chunks of 3 entities
+    CConfiguration chunkConf = CConfiguration.copy(cConf);
+    chunkConf.setInt(Config.CONF_ELASTIC_BULK_CHUNK_SIZE, 3);
+    chunkConf.setInt(Config.CONF_ELASTIC_BULK_PARALLELISM, 2);
+    ElasticsearchMetadataStorage mds = new ElasticsearchMetadataStorage(chunkConf,
+                                                                        SConfiguration.create());
+    try {
+      MutationOptions options = MutationOptions.builder().setAsynchronous(false).build();
+      List<MetadataEntity> entities = IntStream.range(0, 10).boxed()
+        .map(i -> MetadataEntity.ofDataset("ns", "chunk" + i)).collect(Collectors.toList());
+
+      // two mutations per entity, which are merged into one request for each entity
+      List<MetadataMutation> mutations = new ArrayList<>();
+      for (MetadataEntity entity : entities) {
+        mutations.add(new Update(entity, new Metadata(MetadataScope.USER, tags("chunked"))));
+      }
+      for (int i = 0; i < entities.size(); i++) {
+        mutations.add(new Update(entities.get(i),
+                                 new Metadata(MetadataScope.USER, tags(), props("p", "v" + i))));
+      }
+      List<MetadataChange> changes = mds.batch(mutations, options);
+      Assert.assertEquals(mutations.size(), changes.size());
+      for (int i = 0; i < entities.size(); i++) {
+        Metadata tagged = new Metadata(MetadataScope.USER, tags("chunked"));
+        Assert.assertEquals(new MetadataChange(entities.get(i), Metadata.EMPTY, tagged), changes.get(i));
+        Assert.assertEquals(new MetadataChange(entities.get(i), tagged,
+                                               new Metadata(MetadataScope.USER, tags("chunked"),
+                                                            props("p", "v" + i))),
+                            changes.get(entities.size() + i));
+      }
+
+      // all entities are searchable when the batch returns
+      SearchResponse response = mds.search(SearchRequest.of("chunked").setLimit(100).build());
+      Assert.assertEquals(entities.size(), response.getResults().size());
+
+      mds.batch(entities.stream().map(Drop::new).collect(Collectors.toList()), options);
+      response = mds.search(SearchRequest.of("chunked").setLimit(100).build());
+      Assert.assertTrue(response.getResults().isEmpty());
+    } finally {
+      Closeables.closeQuietly(mds);
+    }
+  }
+
   @Override
   protected void validateCursor(String cursor, int expectedOffset, int expectedPageSize) {
     Cursor c = Cursor.fromString(cursor);
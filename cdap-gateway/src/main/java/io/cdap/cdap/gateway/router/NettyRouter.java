@@ -35,6 +35,7 @@ import io.cdap.cdap.gateway.router.handlers.AuthenticationHandler;
 import io.cdap.cdap.gateway.router.handlers.ConfigBasedRequestBlockingHandler;
 import io.cdap.cdap.gateway.router.handlers.HttpRequestRouter;
 import io.cdap.cdap.gateway.router.handlers.HttpStatusRequestHandler;
+import io.cdap.cdap.gateway.router.handlers.UpstreamConnectionPool;
 import io.cdap.cdap.security.auth.TokenValidator;
 import io.cdap.cdap.security.auth.UserIdentityExtractor;
 import io.cdap.cdap.security.impersonation.SecurityUtil;
@@ -100,6 +101,7 @@ public class NettyRouter extends AbstractIdleService {
 
   private InetSocketAddress boundAddress;
   private Cancellable serverCancellable;
+  private UpstreamConnectionPool connectionPool;
 
   private ScheduledExecutorService scheduledExecutorService;
 
@@ -144,6 +146,7 @@ public class NettyRouter extends AbstractIdleService {
       tokenValidator.startAndWait();
     }
     ChannelGroup channelGroup = new DefaultChannelGroup(ImmediateEventExecutor.INSTANCE);
+    connectionPool = new UpstreamConnectionPool(cConf);
     serverCancellable = startServer(createServerBootstrap(channelGroup), channelGroup);
     scheduleConfigReloadThread();
   }
@@ -154,6 +157,7 @@ public class NettyRouter extends AbstractIdleService {
     boundAddress = null;
     LOG.info("Stopping Netty Router...");
 
+    connectionPool.close();
     serverCancellable.cancel();
     // If internal authorization enforcement is enabled, we avoid duplicate cleanup of the token manager.
     if (SecurityUtil.isManagedSecurity(cConf) && !SecurityUtil.isInternalAuthEnabled(cConf)) {
@@ -243,7 +247,8 @@ public class NettyRouter extends AbstractIdleService {
             pipeline.addLast("expect-continue", new HttpServerExpectContinueHandler());
             // for now there's only one hardcoded rule, but if there will be more,
             // we may want it generic and configurable
-            pipeline.addLast("http-request-handler", new HttpRequestRouter(cConf, serviceLookup));
+            pipeline.addLast("http-request-handler",
+                new HttpRequestRouter(serviceLookup, connectionPool));
           }
         });
   }
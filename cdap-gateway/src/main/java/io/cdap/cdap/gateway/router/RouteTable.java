@@ -0,0 +1,377 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.gateway.router;
+
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.util.concurrent.FastThreadLocal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * An ordered table of routes that is compiled into a trie of path segments. A route matches a path
+ * by a prefix of segments, optionally with a suffix of segments, an exact number of segments, an
+ * HTTP method and a prefix that must not be matched. A {@code null} segment in a prefix or suffix
+ * matches any segment. When multiple routes match a path, the one added first wins.
+ *
+ * <p>Lookups walk the trie by comparing segments in place in the path string, without splitting
+ * the path, and only check the remaining conditions of the routes that are reached.</p>
+ */
+final class RouteTable {
+
+  /**
+   * The segment that matches any segment in a route.
+   */
+  static final String ANY = null;
+
+  private static final FastThreadLocal<PathSegments> PATH_SEGMENTS =
+      new FastThreadLocal<PathSegments>() {
+        @Override
+        protected PathSegments initialValue() {
+          return new PathSegments();
+        }
+      };
+
+  private final Route[] routes;
+  private final Node root;
+  private final RouteDestination defaultDestination;
+
+  private RouteTable(List<Route> routes, RouteDestination defaultDestination) {
+    this.routes = routes.toArray(new Route[0]);
+    this.defaultDestination = defaultDestination;
+
+    MutableNode root = new MutableNode();
+    for (int i = 0; i < this.routes.length; i++) {
+      MutableNode node = root;
+      for (String segment : this.routes[i].prefix) {
+        node = segment == null
+            ? (node.wildcard == null ? node.wildcard = new MutableNode() : node.wildcard)
+            : node.children.computeIfAbsent(segment, k -> new MutableNode());
+      }
+      node.routes.add(i);
+    }
+    this.root = root.compile();
+  }
+
+  static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns the destination of the given path.
+   *
+   * @param path the normalized path without the query string
+   * @param method the HTTP method of the request
+   * @return the destination of the first matching route, which can be {@code null} if the route
+   *     is not to be routed, or the default destination if there is no matching route
+   */
+  @Nullable
+  RouteDestination lookup(String path, HttpMethod method) {
+    PathSegments segments = PATH_SEGMENTS.get().reset(path);
+    int index = match(root, 0, segments, method, routes.length);
+    return index < routes.length ? routes[index].resolver.resolve(segments) : defaultDestination;
+  }
+
+  /**
+   * Returns the index of the first route reachable from the given node that matches the path, or
+   * {@code best} if there is none before it.
+   */
+  private int match(Node node, int depth, PathSegments segments, HttpMethod method, int best) {
+    if (node.minRoute >= best) {
+      return best;
+    }
+    for (int index : node.routes) {
+      if (index >= best) {
+        break;
+      }
+      if (routes[index].matches(segments, method)) {
+        best = index;
+        break;
+      }
+    }
+    if (depth == segments.size()) {
+      return best;
+    }
+    Node child = node.getChild(segments, depth);
+    if (child != null) {
+      best = match(child, depth + 1, segments, method, best);
+    }
+    if (node.wildcard != null) {
+      best = match(node.wildcard, depth + 1, segments, method, best);
+    }
+    return best;
+  }
+
+  /**
+   * Resolves the {@link RouteDestination} of a matched path.
+   */
+  interface Resolver {
+
+    @Nullable
+    RouteDestination resolve(PathSegments segments);
+  }
+
+  /**
+   * Builder for {@link RouteTable}.
+   */
+  static final class Builder {
+
+    private final List<Route> routes = new ArrayList<>();
+
+    /**
+     * Starts a route that matches paths beginning with the given segments.
+     */
+    RouteBuilder route(String... prefix) {
+      return new RouteBuilder(this, prefix);
+    }
+
+    RouteTable build(RouteDestination defaultDestination) {
+      return new RouteTable(routes, defaultDestination);
+    }
+  }
+
+  /**
+   * Builder for a route in the table.
+   */
+  static final class RouteBuilder {
+
+    private final Builder builder;
+    private final String[] prefix;
+    private String[] suffix;
+    private String[] excludedPrefix;
+    private int length = -1;
+    private HttpMethod method;
+
+    private RouteBuilder(Builder builder, String[] prefix) {
+      this.builder = builder;
+      this.prefix = prefix;
+    }
+
+    /**
+     * Only matches paths ending with the given segments.
+     */
+    RouteBuilder endsWith(String... suffix) {
+      this.suffix = suffix;
+      return this;
+    }
+
+    /**
+     * Only matches paths not beginning with the given segments.
+     */
+    RouteBuilder unless(String... excludedPrefix) {
+      this.excludedPrefix = excludedPrefix;
+      return this;
+    }
+
+    /**
+     * Only matches paths with exactly the given number of segments.
+     */
+    RouteBuilder length(int length) {
+      this.length = length;
+      return this;
+    }
+
+    /**
+     * Only matches requests with the given method.
+     */
+    RouteBuilder method(HttpMethod method) {
+      this.method = method;
+      return this;
+    }
+
+    Builder to(RouteDestination destination) {
+      return to(segments -> destination);
+    }
+
+    /**
+     * Matching paths are not to be routed.
+     */
+    Builder unrouted() {
+      return to(segments -> null);
+    }
+
+    Builder to(Resolver resolver) {
+      builder.routes.add(new Route(prefix, suffix, excludedPrefix, length, method, resolver));
+      return builder;
+    }
+  }
+
+  /**
+   * The segments of a path, represented by offsets in the path string.
+   */
+  static final class PathSegments {
+
+    private String path;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int size;
+
+    private PathSegments reset(String path) {
+      this.path = path;
+      this.size = 0;
+      int length = path.length();
+      int start = 0;
+      while (start < length) {
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+          end = length;
+        }
+        if (end > start) {
+          if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+          }
+          starts[size] = start;
+          ends[size] = end;
+          size++;
+        }
+        start = end + 1;
+      }
+      return this;
+    }
+
+    int size() {
+      return size;
+    }
+
+    /**
+     * Returns the segment at the given index.
+     */
+    String get(int index) {
+      return path.substring(starts[index], ends[index]);
+    }
+
+    /**
+     * Returns whether the segment at the given index is the same as the given string.
+     */
+    boolean is(int index, String segment) {
+      int start = starts[index];
+      int length = ends[index] - start;
+      return length == segment.length() && path.regionMatches(start, segment, 0, length);
+    }
+
+    /**
+     * Returns whether the segments starting from the given offset match the given pattern.
+     */
+    private boolean matches(int offset, String[] pattern) {
+      if (offset < 0 || offset + pattern.length > size) {
+        return false;
+      }
+      for (int i = 0; i < pattern.length; i++) {
+        if (pattern[i] != null && !is(offset + i, pattern[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * A route in the table. The prefix is matched by the trie.
+   */
+  private static final class Route {
+
+    private final String[] prefix;
+    private final String[] suffix;
+    private final String[] excludedPrefix;
+    private final int length;
+    private final HttpMethod method;
+    private final Resolver resolver;
+
+    private Route(String[] prefix, @Nullable String[] suffix, @Nullable String[] excludedPrefix,
+        int length, @Nullable HttpMethod method, Resolver resolver) {
+      this.prefix = prefix;
+      this.suffix = suffix;
+      this.excludedPrefix = excludedPrefix;
+      this.length = length;
+      this.method = method;
+      this.resolver = resolver;
+    }
+
+    /**
+     * Returns whether the conditions other than the prefix match.
+     */
+    boolean matches(PathSegments segments, HttpMethod method) {
+      return (length < 0 || segments.size() == length)
+          && (this.method == null || this.method.equals(method))
+          && (suffix == null || segments.matches(segments.size() - suffix.length, suffix))
+          && (excludedPrefix == null || !segments.matches(0, excludedPrefix));
+    }
+  }
+
+  /**
+   * A node in the trie, with the routes of which the prefix ends at the node sorted by their
+   * order.
+   */
+  private static final class Node {
+
+    private final String[] segments;
+    private final Node[] children;
+    private final Node wildcard;
+    private final int[] routes;
+    // The smallest route index in the subtree rooted at this node
+    private final int minRoute;
+
+    private Node(String[] segments, Node[] children, @Nullable Node wildcard, int[] routes,
+        int minRoute) {
+      this.segments = segments;
+      this.children = children;
+      this.wildcard = wildcard;
+      this.routes = routes;
+      this.minRoute = minRoute;
+    }
+
+    @Nullable
+    Node getChild(PathSegments path, int index) {
+      for (int i = 0; i < segments.length; i++) {
+        if (path.is(index, segments[i])) {
+          return children[i];
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * A node in the trie while the table is being compiled.
+   */
+  private static final class MutableNode {
+
+    private final Map<String, MutableNode> children = new LinkedHashMap<>();
+    private final List<Integer> routes = new ArrayList<>();
+    private MutableNode wildcard;
+
+    Node compile() {
+      String[] segments = children.keySet().toArray(new String[0]);
+      Node[] compiled = new Node[segments.length];
+      int minRoute = routes.isEmpty() ? Integer.MAX_VALUE : routes.get(0);
+      for (int i = 0; i < segments.length; i++) {
+        compiled[i] = children.get(segments[i]).compile();
+        minRoute = Math.min(minRoute, compiled[i].minRoute);
+      }
+      Node compiledWildcard = wildcard == null ? null : wildcard.compile();
+      if (compiledWildcard != null) {
+        minRoute = Math.min(minRoute, compiledWildcard.minRoute);
+      }
+      return new Node(segments, compiled, compiledWildcard,
+          routes.stream().mapToInt(Integer::intValue).toArray(), minRoute);
+    }
+  }
+}
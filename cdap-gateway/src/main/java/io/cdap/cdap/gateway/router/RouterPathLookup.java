@@ -17,13 +17,16 @@
 package io.cdap.cdap.gateway.router;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.service.ServiceDiscoverable;
 import io.cdap.cdap.proto.ProgramType;
 import io.cdap.http.AbstractHttpHandler;
+import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpRequest;
-import java.util.stream.StreamSupport;
+import java.util.Map;
+import java.util.Set;
 import javax.annotation.Nullable;
 
 /**
@@ -31,11 +34,6 @@ import javax.annotation.Nullable;
  */
 public final class RouterPathLookup extends AbstractHttpHandler {
 
-  @SuppressWarnings("unused")
-  private enum AllowedMethod {
-    GET, PUT, POST, DELETE
-  }
-
   public static final RouteDestination APP_FABRIC_HTTP = new RouteDestination(
       Constants.Service.APP_FABRIC_HTTP);
   public static final RouteDestination APP_FABRIC_PROCESSOR = new RouteDestination(
@@ -64,6 +62,12 @@ public final class RouterPathLookup extends AbstractHttpHandler {
   public static final RouteDestination DONT_ROUTE = new RouteDestination(
       Constants.Router.DONT_ROUTE_SERVICE);
 
+  private static final String ANY = RouteTable.ANY;
+  private static final Set<HttpMethod> ALLOWED_METHODS = ImmutableSet.of(
+      HttpMethod.GET, HttpMethod.PUT, HttpMethod.POST, HttpMethod.DELETE);
+
+  private static final RouteTable ROUTES = createRouteTable();
+
   /**
    * Returns the CDAP service which will handle the HttpRequest.
    *
@@ -73,206 +77,182 @@ public final class RouterPathLookup extends AbstractHttpHandler {
    */
   @Nullable
   public RouteDestination getRoutingService(String requestPath, HttpRequest httpRequest) {
-    try {
-      String method = httpRequest.method().name();
-      AllowedMethod requestMethod = AllowedMethod.valueOf(method);
-      String[] uriParts = StreamSupport
-          .stream(Splitter.on('/').omitEmptyStrings().split(requestPath).spliterator(), false)
-          .toArray(String[]::new);
-
-      if (uriParts[0].equals(Constants.Gateway.API_VERSION_3_TOKEN)) {
-        return getV3RoutingService(uriParts, requestMethod);
-      }
-    } catch (Exception e) {
-      // Ignore exception. Default routing to app-fabric.
+    HttpMethod method = httpRequest.method();
+    if (!ALLOWED_METHODS.contains(method)) {
+      // Default routing to app-fabric.
+      return APP_FABRIC_HTTP;
     }
-    return APP_FABRIC_HTTP;
+    return ROUTES.lookup(requestPath, method);
   }
 
-  private boolean isUserServiceType(String uriPart) {
-    for (ProgramType type : ServiceDiscoverable.getUserServiceTypes()) {
-      if (type.getCategoryName().equals(uriPart)) {
-        return true;
-      }
-    }
-    return false;
-  }
+  /**
+   * Creates the {@link RouteTable} for the v3 APIs. Routes are matched in the order they are added,
+   * and requests not matching any route are routed to app-fabric.
+   */
+  private static RouteTable createRouteTable() {
+    RouteTable.Builder builder = RouteTable.builder();
+    // TODO(Rohit) find a better way to handle that - this looks hackish
+    // This needs to now changed especially metadata since now it can have custom parts
+    builder.route("v3", "feeds").unrouted();
+    builder.route("v3", "bootstrap").to(APP_FABRIC_PROCESSOR);
 
-  @Nullable
-  private RouteDestination getV3RoutingService(String[] uriParts, AllowedMethod requestMethod) {
-    if ((uriParts.length >= 2) && uriParts[1].equals("feeds")) {
-      // TODO(Rohit) find a better way to handle that - this looks hackish
-      // This needs to now changed especially metadata since now it can have custom parts
-      return null;
-    } else if ("bootstrap".equals(uriParts[1])) {
-      return APP_FABRIC_PROCESSOR;
-    } else if ((uriParts.length >= 11) && "versions".equals(uriParts[5]) && isUserServiceType(
-        uriParts[7])
-        && "methods".equals(uriParts[9])) {
+    for (ProgramType type : ServiceDiscoverable.getUserServiceTypes()) {
       // User defined services (version specific) handle methods on them:
       //Path: "/v3/namespaces/{namespace-id}/apps/{app-id}/versions/{version-id}/services/{service-id}/methods/
       //       <user-defined-method-path>"
-      String serviceName = ServiceDiscoverable.getName(uriParts[2], uriParts[4],
-          ProgramType.valueOfCategoryName(uriParts[7]), uriParts[8]);
-      String version = uriParts[6];
-      return new RouteDestination(serviceName, version);
-    } else if ((uriParts.length >= 9) && isUserServiceType(uriParts[5]) && "methods".equals(
-        uriParts[7])) {
+      builder.route("v3", ANY, ANY, ANY, ANY, "versions", ANY, type.getCategoryName(), ANY,
+              "methods", ANY)
+          .to(path -> new RouteDestination(
+              ServiceDiscoverable.getName(path.get(2), path.get(4), type, path.get(8)),
+              path.get(6)));
+    }
+    for (ProgramType type : ServiceDiscoverable.getUserServiceTypes()) {
       //User defined services handle methods on them:
       //Path: "/v3/namespaces/{namespace-id}/apps/{app-id}/services/{service-id}/methods/<user-defined-method-path>"
-      return new RouteDestination(ServiceDiscoverable.getName(uriParts[2], uriParts[4],
-          ProgramType.valueOfCategoryName(uriParts[5]),
-          uriParts[6]));
-    } else if (beginsWith(uriParts, "v3", "system", "services", null, "logs")) {
-      //Log Handler Path /v3/system/services/<service-id>/logs
-      return LOG_QUERY;
-    } else if (beginsWith(uriParts, "v3", "namespaces", null)
-        && (endsWith(uriParts, "instances")
-          || endsWith(uriParts, "live-info")
-          || endsWith(uriParts, "loglevels")
-          || endsWith(uriParts, "resetloglevels"))) {
-      // ProgramRuntimeLifecycleHttpHandler Paths:
-      // v3/namespaces/{ns-id}/instances
-      // v3/namespaces/{ns-id}/apps/{app-id}/services/{service-id}/instances
-      // v3/namespaces/{ns-id}/apps/{app-id}/workers/{worker-id}/instances
-      // v3/namespaces/{ns-id}/apps/{app-id}/{program-category}/{program-id}/live-info
-      // v3/namespaces/{ns-id}/apps/{app-name}/{program-type}/{program-name}/runs/{run-id}/loglevels
-      // v3/namespaces/{ns-id}/apps/{app-name}/versions/{appVer}/{progType}/{progName}/runs/{runId}/loglevels
-      // v3/namespaces/{ns-id}/apps/{app-name}/{program-type}/{progName}/runs/{runId}/resetloglevels
-      // v3/namespaces/{ns-id}/apps/{app-name}/versions/{appVer}/{progType}/{progName}/runs/{runId}/resetloglevels
-      return APP_FABRIC_PROCESSOR;
-    } else if ((!beginsWith(uriParts, "v3", "namespaces", null, "securekeys")) && (
-        endsWith(uriParts, "metadata")
-            ||
-            // do no intercept the namespaces/<namespace-name>/securekeys/<key>/metadata as that is handled by the
-            // SecureStoreHandler
-            endsWith(uriParts, "metadata", "properties") || endsWith(uriParts, "metadata",
-            "properties", null)
-            || endsWith(uriParts, "metadata", "tags") || endsWith(uriParts, "metadata", "tags",
-            null)
+      builder.route("v3", ANY, ANY, ANY, ANY, type.getCategoryName(), ANY, "methods", ANY)
+          .to(path -> new RouteDestination(
+              ServiceDiscoverable.getName(path.get(2), path.get(4), type, path.get(6))));
+    }
 
-            || endsWith(uriParts, "metadata", "search")
-            || beginsWith(uriParts, "v3", "namespaces", null, "datasets", null, "lineage")
-            || endsWith(uriParts, "runs", null, "endpoints")
-            || beginsWith(uriParts, "v3", "metadata", "search"))) {
-      return METADATA_SERVICE;
-    } else if (beginsWith(uriParts, "v3", "security", "authorization")
-        || beginsWith(uriParts, "v3", "namespaces", null, "securekeys")) {
-      // Authorization and Secure Store Handlers currently run in App Fabric
-      return APP_FABRIC_HTTP;
-    } else if (beginsWith(uriParts, "v3", "security", "store", "namespaces", null)) {
-      return APP_FABRIC_HTTP;
-    } else if (beginsWith(uriParts, "v3", "namespaces", null, "data", "datasets", null, "programs")
+    //Log Handler Path /v3/system/services/<service-id>/logs
+    builder.route("v3", "system", "services", ANY, "logs").to(LOG_QUERY);
 
-        && requestMethod.equals(AllowedMethod.GET)) {
-      return APP_FABRIC_HTTP;
-    } else if (beginsWith(uriParts, "v3", "namespaces", null, "profiles")
-        || beginsWith(uriParts, "v3", "profiles")) {
-      return APP_FABRIC_HTTP;
-    } else if (beginsWith(uriParts, "v3", "namespaces", null, "runs")) {
-      return APP_FABRIC_HTTP;
-    } else if (beginsWith(uriParts, "v3", "namespaces", null, "previews")) {
-      return PREVIEW_HTTP;
-    } else if (beginsWith(uriParts, "v3", "system", "serviceproviders")) {
-      return APP_FABRIC_HTTP;
-    } else if (beginsWith(uriParts, "v3", "namespaces", null, "credentials")
-        || beginsWith(uriParts, "v3", "credentials")) {
-      return APP_FABRIC_HTTP;
-    } else if (beginsWith(uriParts, "v3", "namespaces", null, "schedules")
-        || beginsWith(uriParts, "v3", "namespaces", null, "apps", null, "schedules")
-        || beginsWith(uriParts, "v3", "namespaces", null, "apps", null, null, null, "schedules")
-        || beginsWith(uriParts, "v3", "namespaces", null, "apps", null, "versions", null, "schedules")
-        || beginsWith(uriParts, "v3", "namespaces", null, "apps", null, "versions", null, null, null, "schedules")
-        || beginsWith(uriParts, "v3", "namespaces", null, "previousruntime")
-        || beginsWith(uriParts, "v3", "namespaces", null, "nextruntime")
-        || beginsWith(uriParts, "v3", "namespaces", null, "apps", null, null, null, "previousruntime")
-        || beginsWith(uriParts, "v3", "namespaces", null, "apps", null, null, null, "nextruntime")) {
-      // Program Schedule handler paths:
-      // /v3/namespaces/{namespace-id}/apps/{app-name}/{program-type}/{program-name}/schedules
-      // /v3/namespaces/{namespace-id}/apps/{app-name}/versions/{app-version}/{program-type}/{program-name}/schedules
-      // /v3/namespaces/{namespace-id}/apps/{app-name}/schedules
-      // /v3/namespaces/{namespace-id}/apps/{app-name}/schedules/{schedule-name}
-      // /v3/namespaces/{namespace-id}/apps/{app-name}/schedules/{schedule-name}/update
-      // /v3/namespaces/{namespace-id}/apps/{app-id}/schedules/{schedule-name}/{action}
-      // /v3/namespaces/{namespace-id}/apps/{app-name}/versions/{app-version}/schedules
-      // /v3/namespaces/{namespace-id}/apps/{app-name}/versions/{app-version}/schedules/{schedule-name}
-      // /v3/namespaces/{namespace-id}/apps/{app-name}/versions/{app-version}/schedules/{schedule-name}/update
-      // /v3/namespaces/{namespace-id}/apps/{app-id}/versions/{version-id}/schedules/{schedule-name}/status
-      // /v3/namespaces/{namespace-id}/apps/{app-id}/versions/{app-version}/schedules/{schedule-name}/{action}
-      // /v3/namespaces/{namespace-id}/schedules/re-enable
-      // /v3/namespaces/{namespace-id}/schedules/trigger-type/program-status
-      // /v3/namespaces/{namespace-id}/apps/{app-name}/{program-type}/{program-name}/previousruntime
-      // /v3/namespaces/{namespace-id}/apps/{app-name}/{program-type}/{program-name}/nextruntime
-      // /v3/namespaces/{namespace-id}/previousruntime
-      // /v3/namespaces/{namespace-id}/nextruntime
-      // /v3/namespaces/{namespace-id}/apps/{app-id}/{program-type}/{program-id}/status
-      return APP_FABRIC_PROCESSOR;
-    } else if ((uriParts.length >= 8 && uriParts[7].equals("logs"))
-        || (uriParts.length >= 10 && (uriParts[9].equals("logs") || uriParts[9].equals("classify")))
-        || (uriParts.length >= 6 && uriParts[5].equals("logs"))) {
-      //Log Handler Paths:
-      // /v3/namespaces/<namespaceid>/apps/<appid>/<programid-type>/<programid>/logs
-      // /v3/namespaces/{namespace-id}/apps/{app-id}/{program-type}/{program-id}/runs/{run-id}/logs
-      // /v3/namespaces/{namespace-id}/apps/{app-id}/{program-type}/{program-id}/runs/{run-id}/classify
-      return LOG_QUERY;
-    } else if (uriParts.length >= 2 && uriParts[1].equals("metrics")) {
-      //Metrics Search Handler Path /v3/metrics
-      return METRICS;
-    } else if (beginsWith(uriParts, "v3", "system", "services", null, "status")
-        || beginsWith(uriParts, "v3", "system", "services", null, "stacks")) {
-      switch (uriParts[3]) {
-        case Constants.Service.LOGSAVER:
-          return LOG_SAVER;
-        case Constants.Service.TRANSACTION:
-          return TRANSACTION;
-        case Constants.Service.METRICS_PROCESSOR:
-          return METRICS_PROCESSOR;
-        case Constants.Service.METRICS:
-          return METRICS;
-        case Constants.Service.APP_FABRIC_HTTP:
-          return APP_FABRIC_HTTP;
-        case Constants.Service.APP_FABRIC_PROCESSOR:
-          return APP_FABRIC_PROCESSOR;
-        case Constants.Service.DATASET_EXECUTOR:
-          return DATASET_EXECUTOR;
-        case Constants.Service.METADATA_SERVICE:
-          return METADATA_SERVICE;
-        case Constants.Service.MESSAGING_SERVICE:
-          return MESSAGING;
-        case Constants.Service.RUNTIME:
-          return RUNTIME;
-        case Constants.Service.SUPPORT_BUNDLE_SERVICE:
-          return SUPPORT_BUNDLE_SERVICE;
-        default:
-          return null;
+    // ProgramRuntimeLifecycleHttpHandler Paths:
+    // v3/namespaces/{ns-id}/instances
+    // v3/namespaces/{ns-id}/apps/{app-id}/services/{service-id}/instances
+    // v3/namespaces/{ns-id}/apps/{app-id}/workers/{worker-id}/instances
+    // v3/namespaces/{ns-id}/apps/{app-id}/{program-category}/{program-id}/live-info
+    // v3/namespaces/{ns-id}/apps/{app-name}/{program-type}/{program-name}/runs/{run-id}/loglevels
+    // v3/namespaces/{ns-id}/apps/{app-name}/versions/{appVer}/{progType}/{progName}/runs/{runId}/loglevels
+    // v3/namespaces/{ns-id}/apps/{app-name}/{program-type}/{progName}/runs/{runId}/resetloglevels
+    // v3/namespaces/{ns-id}/apps/{app-name}/versions/{appVer}/{progType}/{progName}/runs/{runId}/resetloglevels
+    for (String suffix : new String[] {"instances", "live-info", "loglevels", "resetloglevels"}) {
+      builder.route("v3", "namespaces", ANY).endsWith(suffix).to(APP_FABRIC_PROCESSOR);
+    }
+
+    // do no intercept the namespaces/<namespace-name>/securekeys/<key>/metadata as that is handled by the
+    // SecureStoreHandler
+    String[] secureKeys = {"v3", "namespaces", ANY, "securekeys"};
+    builder.route("v3").endsWith("metadata").unless(secureKeys).to(METADATA_SERVICE);
+    builder.route("v3").endsWith("metadata", "properties").unless(secureKeys)
+        .to(METADATA_SERVICE);
+    builder.route("v3").endsWith("metadata", "properties", ANY).unless(secureKeys)
+        .to(METADATA_SERVICE);
+    builder.route("v3").endsWith("metadata", "tags").unless(secureKeys).to(METADATA_SERVICE);
+    builder.route("v3").endsWith("metadata", "tags", ANY).unless(secureKeys)
+        .to(METADATA_SERVICE);
+    builder.route("v3").endsWith("metadata", "search").unless(secureKeys).to(METADATA_SERVICE);
+    builder.route("v3", "namespaces", ANY, "datasets", ANY, "lineage").unless(secureKeys)
+        .to(METADATA_SERVICE);
+    builder.route("v3").endsWith("runs", ANY, "endpoints").unless(secureKeys)
+        .to(METADATA_SERVICE);
+    builder.route("v3", "metadata", "search").unless(secureKeys).to(METADATA_SERVICE);
+
+    // Authorization and Secure Store Handlers currently run in App Fabric
+    builder.route("v3", "security", "authorization").to(APP_FABRIC_HTTP);
+    builder.route("v3", "namespaces", ANY, "securekeys").to(APP_FABRIC_HTTP);
+    builder.route("v3", "security", "store", "namespaces", ANY).to(APP_FABRIC_HTTP);
+    builder.route("v3", "namespaces", ANY, "data", "datasets", ANY, "programs")
+        .method(HttpMethod.GET).to(APP_FABRIC_HTTP);
+    builder.route("v3", "namespaces", ANY, "profiles").to(APP_FABRIC_HTTP);
+    builder.route("v3", "profiles").to(APP_FABRIC_HTTP);
+    builder.route("v3", "namespaces", ANY, "runs").to(APP_FABRIC_HTTP);
+    builder.route("v3", "namespaces", ANY, "previews").to(PREVIEW_HTTP);
+    builder.route("v3", "system", "serviceproviders").to(APP_FABRIC_HTTP);
+    builder.route("v3", "namespaces", ANY, "credentials").to(APP_FABRIC_HTTP);
+    builder.route("v3", "credentials").to(APP_FABRIC_HTTP);
+
+    // Program Schedule handler paths:
+    // /v3/namespaces/{namespace-id}/apps/{app-name}/{program-type}/{program-name}/schedules
+    // /v3/namespaces/{namespace-id}/apps/{app-name}/versions/{app-version}/{program-type}/{program-name}/schedules
+    // /v3/namespaces/{namespace-id}/apps/{app-name}/schedules
+    // /v3/namespaces/{namespace-id}/apps/{app-name}/schedules/{schedule-name}
+    // /v3/namespaces/{namespace-id}/apps/{app-name}/schedules/{schedule-name}/update
+    // /v3/namespaces/{namespace-id}/apps/{app-id}/schedules/{schedule-name}/{action}
+    // /v3/namespaces/{namespace-id}/apps/{app-name}/versions/{app-version}/schedules
+    // /v3/namespaces/{namespace-id}/apps/{app-name}/versions/{app-version}/schedules/{schedule-name}
+    // /v3/namespaces/{namespace-id}/apps/{app-name}/versions/{app-version}/schedules/{schedule-name}/update
+    // /v3/namespaces/{namespace-id}/apps/{app-id}/versions/{version-id}/schedules/{schedule-name}/status
+    // /v3/namespaces/{namespace-id}/apps/{app-id}/versions/{app-version}/schedules/{schedule-name}/{action}
+    // /v3/namespaces/{namespace-id}/schedules/re-enable
+    // /v3/namespaces/{namespace-id}/schedules/trigger-type/program-status
+    // /v3/namespaces/{namespace-id}/apps/{app-name}/{program-type}/{program-name}/previousruntime
+    // /v3/namespaces/{namespace-id}/apps/{app-name}/{program-type}/{program-name}/nextruntime
+    // /v3/namespaces/{namespace-id}/previousruntime
+    // /v3/namespaces/{namespace-id}/nextruntime
+    // /v3/namespaces/{namespace-id}/apps/{app-id}/{program-type}/{program-id}/status
+    builder.route("v3", "namespaces", ANY, "schedules").to(APP_FABRIC_PROCESSOR);
+    builder.route("v3", "namespaces", ANY, "apps", ANY, "schedules").to(APP_FABRIC_PROCESSOR);
+    builder.route("v3", "namespaces", ANY, "apps", ANY, ANY, ANY, "schedules")
+        .to(APP_FABRIC_PROCESSOR);
+    builder.route("v3", "namespaces", ANY, "apps", ANY, "versions", ANY, "schedules")
+        .to(APP_FABRIC_PROCESSOR);
+    builder.route("v3", "namespaces", ANY, "apps", ANY, "versions", ANY, ANY, ANY, "schedules")
+        .to(APP_FABRIC_PROCESSOR);
+    builder.route("v3", "namespaces", ANY, "previousruntime").to(APP_FABRIC_PROCESSOR);
+    builder.route("v3", "namespaces", ANY, "nextruntime").to(APP_FABRIC_PROCESSOR);
+    builder.route("v3", "namespaces", ANY, "apps", ANY, ANY, ANY, "previousruntime")
+        .to(APP_FABRIC_PROCESSOR);
+    builder.route("v3", "namespaces", ANY, "apps", ANY, ANY, ANY, "nextruntime")
+        .to(APP_FABRIC_PROCESSOR);
+
+    //Log Handler Paths:
+    // /v3/namespaces/<namespaceid>/apps/<appid>/<programid-type>/<programid>/logs
+    // /v3/namespaces/{namespace-id}/apps/{app-id}/{program-type}/{program-id}/runs/{run-id}/logs
+    // /v3/namespaces/{namespace-id}/apps/{app-id}/{program-type}/{program-id}/runs/{run-id}/classify
+    builder.route("v3", ANY, ANY, ANY, ANY, ANY, ANY, "logs").to(LOG_QUERY);
+    builder.route("v3", ANY, ANY, ANY, ANY, ANY, ANY, ANY, ANY, "logs").to(LOG_QUERY);
+    builder.route("v3", ANY, ANY, ANY, ANY, ANY, ANY, ANY, ANY, "classify").to(LOG_QUERY);
+    builder.route("v3", ANY, ANY, ANY, ANY, "logs").to(LOG_QUERY);
+
+    //Metrics Search Handler Path /v3/metrics
+    builder.route("v3", "metrics").to(METRICS);
+
+    Map<String, RouteDestination> systemServices = ImmutableMap
+        .<String, RouteDestination>builder()
+        .put(Constants.Service.LOGSAVER, LOG_SAVER)
+        .put(Constants.Service.TRANSACTION, TRANSACTION)
+        .put(Constants.Service.METRICS_PROCESSOR, METRICS_PROCESSOR)
+        .put(Constants.Service.METRICS, METRICS)
+        .put(Constants.Service.APP_FABRIC_HTTP, APP_FABRIC_HTTP)
+        .put(Constants.Service.APP_FABRIC_PROCESSOR, APP_FABRIC_PROCESSOR)
+        .put(Constants.Service.DATASET_EXECUTOR, DATASET_EXECUTOR)
+        .put(Constants.Service.METADATA_SERVICE, METADATA_SERVICE)
+        .put(Constants.Service.MESSAGING_SERVICE, MESSAGING)
+        .put(Constants.Service.RUNTIME, RUNTIME)
+        .put(Constants.Service.SUPPORT_BUNDLE_SERVICE, SUPPORT_BUNDLE_SERVICE)
+        .build();
+    for (String action : new String[] {"status", "stacks"}) {
+      for (Map.Entry<String, RouteDestination> entry : systemServices.entrySet()) {
+        builder.route("v3", "system", "services", entry.getKey(), action).to(entry.getValue());
       }
-    } else if (uriParts.length == 7 && uriParts[3].equals("data") && uriParts[4].equals("datasets")
+      builder.route("v3", "system", "services", ANY, action).unrouted();
+    }
 
-        && (uriParts[6].equals("flows") || uriParts[6].equals("workers") || uriParts[6].equals(
-        "mapreduce"))) {
-      // namespaced app fabric data operations:
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/flows
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/workers
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/mapreduce
-      return APP_FABRIC_HTTP;
-    } else if ((uriParts.length >= 4) && uriParts[3].equals("data")) {
-      // other data operations. For example:
-      // /v3/namespaces/{namespace-id}/data/datasets
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/properties
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/admin/{method}
-      return DATASET_MANAGER;
-    } else if (beginsWith(uriParts, "v3", "support", "bundles")) {
-      // Support Bundle Handler Path /v3/support/bundles
-      return SUPPORT_BUNDLE_SERVICE;
-    } else if ((uriParts.length == 3) && uriParts[1].equals("metadata-internals")) {
-      // we don't want to expose endpoints for direct metadata mutation from CDAP master
-      // /v3/metadata-internals/{mutation-type}
-      return DONT_ROUTE;
-    } else if ((uriParts.length == 2) && beginsWith(uriParts, "v3", "dashboard")) {
-      return APP_FABRIC_PROCESSOR;
+    // namespaced app fabric data operations:
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/flows
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/workers
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/mapreduce
+    for (String programs : new String[] {"flows", "workers", "mapreduce"}) {
+      builder.route("v3", ANY, ANY, "data", "datasets", ANY, programs).length(7)
+          .to(APP_FABRIC_HTTP);
     }
-    return APP_FABRIC_HTTP;
+    // other data operations. For example:
+    // /v3/namespaces/{namespace-id}/data/datasets
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/properties
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/admin/{method}
+    builder.route("v3", ANY, ANY, "data").to(DATASET_MANAGER);
+
+    // Support Bundle Handler Path /v3/support/bundles
+    builder.route("v3", "support", "bundles").to(SUPPORT_BUNDLE_SERVICE);
+
+    // we don't want to expose endpoints for direct metadata mutation from CDAP master
+    // /v3/metadata-internals/{mutation-type}
+    builder.route("v3", "metadata-internals", ANY).length(3).to(DONT_ROUTE);
+    builder.route("v3", "dashboard").length(2).to(APP_FABRIC_PROCESSOR);
+
+    return builder.build(APP_FABRIC_HTTP);
   }
 
   /**
@@ -17,52 +17,34 @@
 package io.cdap.cdap.gateway.router.handlers;
 
 import io.cdap.cdap.common.HandlerException;
-import io.cdap.cdap.common.conf.CConfiguration;
-import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.discovery.EndpointStrategy;
-import io.cdap.cdap.common.discovery.URIScheme;
 import io.cdap.cdap.common.http.Channels;
 import io.cdap.cdap.gateway.router.RouterServiceLookup;
-import io.netty.bootstrap.Bootstrap;
-import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandler;
-import io.netty.channel.ChannelInitializer;
-import io.netty.channel.ChannelOption;
-import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.FullHttpResponse;
-import io.netty.handler.codec.http.HttpClientCodec;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.LastHttpContent;
-import io.netty.handler.ssl.SslContext;
-import io.netty.handler.ssl.SslContextBuilder;
-import io.netty.handler.ssl.SslHandler;
-import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
-import io.netty.handler.timeout.IdleStateHandler;
 import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GenericFutureListener;
 import java.io.Closeable;
 import java.io.Flushable;
 import java.nio.channels.ClosedChannelException;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
 import java.util.LinkedList;
-import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.TimeUnit;
-import javax.annotation.Nullable;
-import javax.net.ssl.SSLException;
 import org.apache.twill.discovery.Discoverable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -77,17 +59,16 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(HttpRequestRouter.class);
 
-  private final CConfiguration cConf;
   private final RouterServiceLookup serviceLookup;
-  private final Map<Discoverable, Queue<MessageSender>> messageSenders;
+  private final UpstreamConnectionPool connectionPool;
   private int inflightRequests;
   private MessageSender currentMessageSender;
   private ChannelFutureListener failureResponseListener;
 
-  public HttpRequestRouter(CConfiguration cConf, RouterServiceLookup serviceLookup) {
-    this.cConf = cConf;
+  public HttpRequestRouter(RouterServiceLookup serviceLookup,
+      UpstreamConnectionPool connectionPool) {
     this.serviceLookup = serviceLookup;
-    this.messageSenders = new HashMap<>();
+    this.connectionPool = connectionPool;
   }
 
   @Override
@@ -130,9 +111,9 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
           }
         };
 
-        currentMessageSender = getMessageSender(
-            httpRequestChannel, getDiscoverable(request)
-        );
+        Discoverable discoverable = getDiscoverable(request);
+        currentMessageSender = new MessageSender(connectionPool, httpRequestChannel, discoverable);
+        LOG.trace("Create new message sender for {}", discoverable);
       }
 
       if (inflightRequests == 1 && currentMessageSender != null) {
@@ -163,9 +144,10 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
       }
       inflightRequests = 0;
 
-      // Recycle the message sender
+      // Release the connection used by the message sender back to the pool
       if (currentMessageSender != null) {
-        messageSenders.get(currentMessageSender.getDiscoverable()).add(currentMessageSender);
+        currentMessageSender.release();
+        currentMessageSender = null;
       }
     }
   }
@@ -184,11 +166,6 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
     if (currentMessageSender != null) {
       currentMessageSender.close();
     }
-    for (Map.Entry<Discoverable, Queue<MessageSender>> entry : messageSenders.entrySet()) {
-      for (MessageSender sender : entry.getValue()) {
-        sender.close();
-      }
-    }
     ctx.fireChannelInactive();
   }
 
@@ -200,14 +177,15 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
   public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
     if (inflightRequests > 0 && currentMessageSender != null && currentMessageSender.internalServiceChannel != null) {
       final Channel httpRequestChannel = ctx.channel();
+      final MessageSender messageSender = currentMessageSender;
       ctx.executor().execute(() -> {
         // If httpRequestChannel is not saturated anymore, continue accepting
         // the incoming traffic from the internalServiceChannel for service<>router.
         if (httpRequestChannel.isWritable()) {
-          currentMessageSender.setAutoRead(true);
+          messageSender.setAutoRead(true);
         } else {
           // If httpRequestChannel is saturated, do not read internalServiceChannel
-          currentMessageSender.setAutoRead(false);
+          messageSender.setAutoRead(false);
         }
       });
     }
@@ -256,29 +234,6 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
     return discoverable;
   }
 
-  /**
-   * Returns the {@link MessageSender} for writing messages to the endpoint represented by the given
-   * {@link Discoverable}.
-   */
-  private MessageSender getMessageSender(Channel httpRequestChannel,
-      Discoverable discoverable) {
-    Queue<MessageSender> senders = messageSenders.computeIfAbsent(discoverable,
-        k -> new LinkedList<>());
-
-    MessageSender sender = senders.poll();
-
-    // Found a MessageSender to reuse, return it
-    if (sender != null) {
-      LOG.trace("Reuse message sender for {}", discoverable);
-      return sender;
-    }
-
-    // Create new MessageSender
-    sender = new MessageSender(cConf, httpRequestChannel, discoverable);
-    LOG.trace("Create new message sender for {}", discoverable);
-    return sender;
-  }
-
   private String getRequestLine(HttpRequest request) {
     return request.method() + " " + request.uri() + " " + request.protocolVersion();
   }
@@ -304,56 +259,26 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
 
   /**
    * For sending messages to internalServiceChannel while maintaining the order of messages according to
-   * the order that {@link #send(Object, ChannelFutureListener)} method is called.
+   * the order that {@link #send(Object, ChannelFutureListener)} method is called. The
+   * internalServiceChannel is acquired from the {@link UpstreamConnectionPool} for one request and
+   * is released back to the pool when the response is completed.
    */
   private static final class MessageSender implements Flushable, Closeable {
 
+    private final UpstreamConnectionPool connectionPool;
+    private final Channel httpRequestChannel;
     private final Discoverable discoverable;
     private final Queue<OutboundMessage> pendingMessages;
-    private final Bootstrap clientBootstrap;
-    private volatile SslContext sslContext;
+    private Future<Channel> acquireFuture;
     private Channel internalServiceChannel;
     private boolean closed;
-    private boolean connecting;
 
-    private MessageSender(final CConfiguration cConf, final Channel httpRequestChannel,
-        final Discoverable discoverable) {
+    private MessageSender(UpstreamConnectionPool connectionPool, Channel httpRequestChannel,
+        Discoverable discoverable) {
+      this.connectionPool = connectionPool;
+      this.httpRequestChannel = httpRequestChannel;
       this.discoverable = discoverable;
       this.pendingMessages = new LinkedList<>();
-
-      // A channel listener for resetting the state of this message sender on closing of internalServiceChannel
-      final ChannelFutureListener onCloseResetListener = new ChannelFutureListener() {
-        @Override
-        public void operationComplete(ChannelFuture future) {
-          internalServiceChannel = null;
-          connecting = false;
-        }
-      };
-
-      // Create a client Bootstrap for connecting to internal services
-      // It must be create using the same EventLoopGroup as the inbound channel to make
-      // sure thread safety between the httpRequestChannel and internalServiceChannel callbacks.
-      this.clientBootstrap = new Bootstrap()
-          .group(httpRequestChannel.eventLoop())
-          .channel(NioSocketChannel.class)
-          .option(ChannelOption.SO_KEEPALIVE, true)
-          .handler(new ChannelInitializer<SocketChannel>() {
-            @Override
-            protected void initChannel(SocketChannel ch) throws Exception {
-              ch.closeFuture().addListener(onCloseResetListener);
-              ChannelPipeline pipeline = ch.pipeline();
-
-              SslHandler sslHandler = getSslHandler(discoverable, ch.alloc());
-              if (sslHandler != null) {
-                pipeline.addLast("ssl", sslHandler);
-              }
-              pipeline.addLast("idle-state-handler",
-                  new IdleStateHandler(0, 0,
-                      cConf.getInt(Constants.Router.CONNECTION_TIMEOUT_SECS)));
-              pipeline.addLast("codec", new HttpClientCodec());
-              pipeline.addLast("forwarder", new InternalServiceRequestHandler(httpRequestChannel));
-            }
-          });
     }
 
     /**
@@ -369,33 +294,39 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
         return;
       }
 
-      // If not yet connected or still connecting, just add the message to the pending queue
+      // If not yet acquired, just add the message to the pending queue
       pendingMessages.add(new OutboundMessage(msg, writeCompletedListener));
 
-      // If connecting, we can just return. When the connection completed, it will send all messages in the queue.
-      if (connecting) {
+      // If acquiring, we can just return. When the connection is acquired, it will send all messages in the queue.
+      if (acquireFuture != null) {
         return;
       }
 
-      // Make a new connection
-      ChannelFuture connectFuture = clientBootstrap.connect(discoverable.getSocketAddress());
-      connectFuture.addListener(new ChannelFutureListener() {
+      // It must be acquired from the same EventLoop as the inbound channel to make
+      // sure thread safety between the httpRequestChannel and internalServiceChannel callbacks.
+      acquireFuture = connectionPool.acquire(httpRequestChannel.eventLoop(), discoverable);
+      acquireFuture.addListener(new GenericFutureListener<Future<Channel>>() {
         @Override
-        public void operationComplete(ChannelFuture future) throws Exception {
-          // Always remember the internalServiceChannel even if the connection fail.
-          // This make sure any message received before the inbound channel is closed will not get forwarded
-          internalServiceChannel = future.channel();
-          connecting = false;
-
+        public void operationComplete(Future<Channel> future) throws Exception {
+          ChannelFuture channelFuture;
           if (future.isSuccess()) {
+            // Always remember the internalServiceChannel.
+            // This make sure any message received before the inbound channel is closed will not get forwarded
+            internalServiceChannel = future.getNow();
             // If this sender is closed (because inbound channel is closed), just close the internalServiceChannel
             if (closed) {
               Channels.closeOnFlush(internalServiceChannel);
+            } else {
+              internalServiceChannel.pipeline().get(InternalServiceRequestHandler.class)
+                  .setHttpRequestChannel(httpRequestChannel);
             }
+            channelFuture = internalServiceChannel.newSucceededFuture();
+          } else {
+            channelFuture = httpRequestChannel.newFailedFuture(future.cause());
           }
           OutboundMessage message = pendingMessages.poll();
           while (message != null) {
-            processMessage(message, future);
+            processMessage(message, channelFuture);
             message = pendingMessages.poll();
           }
           if (future.isSuccess()) {
@@ -403,8 +334,6 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
           }
         }
       });
-
-      connecting = true;
     }
 
     @Override
@@ -420,38 +349,35 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
         closed = true;
         if (internalServiceChannel != null) {
           Channels.closeOnFlush(internalServiceChannel);
+        } else if (acquireFuture != null) {
+          acquireFuture.cancel(false);
         }
       }
     }
 
-    Discoverable getDiscoverable() {
-      return discoverable;
-    }
-
     /**
-     * Returns the {@link SslContext} to be used for a given discoverable endpoint
-     *
-     * @param discoverable the endpoint to connect to
-     * @return the {@link SslContext} or {@code null} if SSL is not needed
+     * Releases the internalServiceChannel after the response is completed. The channel is returned
+     * to the pool if it can be reused, otherwise it is closed.
      */
-    @Nullable
-    private SslHandler getSslHandler(Discoverable discoverable, ByteBufAllocator alloc)
-        throws SSLException {
-      if (!URIScheme.HTTPS.isMatch(discoverable)) {
-        return null;
-      }
-      SslContext context = sslContext;
-      if (context != null) {
-        return context.newHandler(alloc);
+    void release() {
+      Channel channel = internalServiceChannel;
+      if (channel == null || closed) {
+        return;
       }
-      synchronized (this) {
-        context = sslContext;
-        if (context == null) {
-          sslContext = context = SslContextBuilder.forClient()
-              .trustManager(InsecureTrustManagerFactory.INSTANCE).build();
-        }
-        return context.newHandler(alloc);
+      internalServiceChannel = null;
+      closed = true;
+
+      InternalServiceRequestHandler handler =
+          channel.pipeline().get(InternalServiceRequestHandler.class);
+      if (handler == null || !handler.isReusable()) {
+        // Keep the handler bound so that closing of the channel is propagated to the httpRequestChannel
+        // when the response is not keep-alive
+        channel.close();
+        return;
       }
+      handler.setHttpRequestChannel(null);
+      channel.config().setAutoRead(true);
+      connectionPool.release(channel);
     }
 
     /**
@@ -478,6 +404,10 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
      * Setting the reading capability (ChannelHandlerContext. read())of a channel.
      */
     private void setAutoRead(Boolean isAutoRead) {
+      // The internalServiceChannel is no longer owned by this sender once it is released
+      if (internalServiceChannel == null || closed) {
+        return;
+      }
       LOG.trace("Message sender's internalServiceChannel readable is set to {}.", isAutoRead);
       this.internalServiceChannel.config().setAutoRead(isAutoRead);
     }
@@ -27,43 +27,84 @@ import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.ReferenceCountUtil;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * A {@link ChannelDuplexHandler} for forwarding requests/responses between the router and the
  * internal service. It also handle idle state event for closing idled internal connections.
+ *
+ * <p>When the internal connection is pooled by {@link UpstreamConnectionPool}, the handler is bound
+ * to the inbound channel of the request that is currently using the connection, and is unbound
+ * while the connection is idle in the pool.</p>
  */
 public class InternalServiceRequestHandler extends ChannelDuplexHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(InternalServiceRequestHandler.class);
 
-  private final Channel httpRequestChannel;
+  private Channel httpRequestChannel;
   private boolean requestInProgress;
+  private boolean requestWritten;
   private boolean keepAlive;
 
-  public InternalServiceRequestHandler(Channel httpRequestChannel) {
+  public InternalServiceRequestHandler() {
+    this(null);
+  }
+
+  public InternalServiceRequestHandler(@Nullable Channel httpRequestChannel) {
+    this.httpRequestChannel = httpRequestChannel;
+  }
+
+  /**
+   * Sets the inbound channel that responses are forwarded to, or {@code null} if the connection is
+   * not used by any request.
+   */
+  void setHttpRequestChannel(@Nullable Channel httpRequestChannel) {
     this.httpRequestChannel = httpRequestChannel;
   }
 
+  /**
+   * Returns {@code true} if the last request was fully written and its response was completed with
+   * keep-alive, hence the connection can be used for another request.
+   */
+  boolean isReusable() {
+    return !requestInProgress && requestWritten && keepAlive;
+  }
+
   @Override
   public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-    // One receiving messages from the internal service, forward it to the httpRequestChannel
-    httpRequestChannel.write(msg);
+    Channel channel = httpRequestChannel;
+    if (channel == null) {
+      // The connection is idle, there shouldn't be any message from the internal service
+      LOG.trace("Closing idle connection {} on unexpected message.", ctx.channel());
+      ReferenceCountUtil.release(msg);
+      ctx.close();
+      return;
+    }
 
     if (msg instanceof HttpResponse) {
       keepAlive = HttpUtil.isKeepAlive((HttpResponse) msg);
     }
 
-    // A response is completed by receiving the last http content
+    // A response is completed by receiving the last http content.
+    // The state is updated before forwarding, since the connection is released to the pool
+    // when the last http content is written to the httpRequestChannel.
     if (msg instanceof LastHttpContent) {
       requestInProgress = false;
     }
+
+    // One receiving messages from the internal service, forward it to the httpRequestChannel
+    channel.write(msg);
   }
 
   @Override
   public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
-    httpRequestChannel.flush();
+    Channel channel = httpRequestChannel;
+    if (channel != null) {
+      channel.flush();
+    }
   }
 
   @Override
@@ -72,14 +113,19 @@ public class InternalServiceRequestHandler extends ChannelDuplexHandler {
     // A request starts with a HttpRequest
     if (msg instanceof HttpRequest) {
       requestInProgress = true;
+      requestWritten = false;
       keepAlive = HttpUtil.isKeepAlive((HttpRequest) msg);
     }
+    if (msg instanceof LastHttpContent) {
+      requestWritten = true;
+    }
     ctx.write(msg, promise);
   }
 
   @Override
   public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
-    if (requestInProgress) {
+    Channel httpRequestChannel = this.httpRequestChannel;
+    if (requestInProgress && httpRequestChannel != null) {
       final Channel internalServiceChannel = ctx.channel();
       ctx.executor().execute(() -> {
         // If internalServiceChannel is not saturated anymore, continue accepting
@@ -101,7 +147,7 @@ public class InternalServiceRequestHandler extends ChannelDuplexHandler {
   public void channelInactive(ChannelHandlerContext ctx) throws Exception {
     // Close the httpRequestChannel if there is request in progress, or the last request/response has
     // keep-alive == false
-    if (requestInProgress || !keepAlive) {
+    if (httpRequestChannel != null && (requestInProgress || !keepAlive)) {
       Channels.closeOnFlush(httpRequestChannel);
     }
     ctx.fireChannelInactive();
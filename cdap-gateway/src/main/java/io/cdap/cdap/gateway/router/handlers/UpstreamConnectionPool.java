@@ -0,0 +1,361 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.gateway.router.handlers;
+
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.discovery.URIScheme;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLException;
+import org.apache.twill.discovery.Discoverable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pool of keep-alive connections from the router to internal service endpoints. Connections are
+ * pooled per {@link EventLoop} and per endpoint, so that a pooled connection always shares the same
+ * thread as the inbound connection using it and no locking is needed. Connections that are closed,
+ * either by the remote side or by the idle timeout, are evicted from the pool. Connections that
+ * stay idle in the pool longer than the pool idle timeout are closed by the pool, which is shorter
+ * than the keep-alive timeout of the endpoints, so that a request is not sent on a connection
+ * that the endpoint is closing.
+ *
+ * <p>All methods except {@link #close()} and the statistics getters must be called from the
+ * {@link EventLoop} that the connection belongs to.</p>
+ */
+public final class UpstreamConnectionPool implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(UpstreamConnectionPool.class);
+  private static final AttributeKey<EndpointPool> ENDPOINT_POOL =
+      AttributeKey.valueOf("upstream.endpoint.pool");
+  private static final AttributeKey<Long> IDLE_SINCE = AttributeKey.valueOf("upstream.idle.since");
+
+  private final int idleTimeoutSecs;
+  private final int maxConnections;
+  private final int maxIdle;
+  private final long acquireTimeoutMillis;
+  private final long poolIdleTimeoutNanos;
+  private final ConcurrentMap<EventLoop, Map<Discoverable, EndpointPool>> pools;
+  private final AtomicInteger openConnections;
+  private final AtomicInteger idleConnections;
+  private final AtomicLong createdConnections;
+  private final AtomicLong reusedConnections;
+  private volatile SslContext sslContext;
+
+  public UpstreamConnectionPool(CConfiguration cConf) {
+    this.idleTimeoutSecs = cConf.getInt(Constants.Router.CONNECTION_TIMEOUT_SECS);
+    this.maxConnections = cConf.getInt(Constants.Router.UPSTREAM_POOL_MAX_CONNECTIONS);
+    this.maxIdle = cConf.getInt(Constants.Router.UPSTREAM_POOL_MAX_IDLE);
+    this.acquireTimeoutMillis = cConf.getLong(Constants.Router.UPSTREAM_POOL_ACQUIRE_TIMEOUT_MS);
+    this.poolIdleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(
+        cConf.getLong(Constants.Router.UPSTREAM_POOL_IDLE_TIMEOUT_MS));
+    this.pools = new ConcurrentHashMap<>();
+    this.openConnections = new AtomicInteger();
+    this.idleConnections = new AtomicInteger();
+    this.createdConnections = new AtomicLong();
+    this.reusedConnections = new AtomicLong();
+  }
+
+  /**
+   * Acquires a connection to the given endpoint. An idle pooled connection is reused if there is
+   * one, otherwise a new connection is made, unless the maximum number of connections is reached,
+   * in which case the returned future completes when a connection is released back to the pool.
+   *
+   * @param eventLoop the {@link EventLoop} of the inbound channel
+   * @param discoverable the endpoint to connect to
+   * @return a {@link Future} of the connected {@link Channel}
+   */
+  Future<Channel> acquire(EventLoop eventLoop, Discoverable discoverable) {
+    Map<Discoverable, EndpointPool> endpointPools = pools.computeIfAbsent(eventLoop,
+        k -> new HashMap<>());
+    return endpointPools.computeIfAbsent(discoverable,
+        k -> new EndpointPool(eventLoop, discoverable, endpointPools)).acquire();
+  }
+
+  /**
+   * Releases a connection acquired from this pool after the response is completed. The connection
+   * is handed to a waiting request or kept for reuse if it is still active.
+   */
+  void release(Channel channel) {
+    EndpointPool endpointPool = channel.attr(ENDPOINT_POOL).get();
+    if (endpointPool == null) {
+      channel.close();
+      return;
+    }
+    endpointPool.release(channel);
+  }
+
+  /**
+   * Returns the number of connections currently open to all endpoints.
+   */
+  public int getOpenConnections() {
+    return openConnections.get();
+  }
+
+  /**
+   * Returns the number of open connections that are idle in the pool.
+   */
+  public int getIdleConnections() {
+    return idleConnections.get();
+  }
+
+  /**
+   * Returns the total number of connections made to the endpoints.
+   */
+  public long getCreatedConnections() {
+    return createdConnections.get();
+  }
+
+  /**
+   * Returns the total number of times that a pooled connection was reused for a request.
+   */
+  public long getReusedConnections() {
+    return reusedConnections.get();
+  }
+
+  /**
+   * Closes all idle connections in the pool.
+   */
+  @Override
+  public void close() {
+    for (Map.Entry<EventLoop, Map<Discoverable, EndpointPool>> entry : pools.entrySet()) {
+      if (entry.getKey().isShuttingDown()) {
+        continue;
+      }
+      entry.getKey().execute(() -> {
+        for (EndpointPool endpointPool : new ArrayList<>(entry.getValue().values())) {
+          endpointPool.closeIdle();
+        }
+      });
+    }
+    LOG.debug("Closed upstream connection pool. Created connections: {}, reused connections: {}",
+        getCreatedConnections(), getReusedConnections());
+  }
+
+  /**
+   * Returns the {@link SslHandler} to be used for a given discoverable endpoint.
+   *
+   * @param discoverable the endpoint to connect to
+   * @return the {@link SslHandler} or {@code null} if SSL is not needed
+   */
+  @Nullable
+  private SslHandler getSslHandler(Discoverable discoverable, ByteBufAllocator alloc)
+      throws SSLException {
+    if (!URIScheme.HTTPS.isMatch(discoverable)) {
+      return null;
+    }
+    SslContext context = sslContext;
+    if (context != null) {
+      return context.newHandler(alloc);
+    }
+    synchronized (this) {
+      context = sslContext;
+      if (context == null) {
+        sslContext = context = SslContextBuilder.forClient()
+            .trustManager(InsecureTrustManagerFactory.INSTANCE).build();
+      }
+      return context.newHandler(alloc);
+    }
+  }
+
+  /**
+   * The connections to one endpoint from one {@link EventLoop}. It is only accessed from the
+   * {@link EventLoop} thread.
+   */
+  private final class EndpointPool {
+
+    private final EventLoop eventLoop;
+    private final Discoverable discoverable;
+    private final Map<Discoverable, EndpointPool> endpointPools;
+    private final Bootstrap bootstrap;
+    private final Deque<Channel> idleChannels;
+    private final Queue<Promise<Channel>> waiters;
+    private int connections;
+
+    private EndpointPool(EventLoop eventLoop, Discoverable discoverable,
+        Map<Discoverable, EndpointPool> endpointPools) {
+      this.eventLoop = eventLoop;
+      this.discoverable = discoverable;
+      this.endpointPools = endpointPools;
+      this.idleChannels = new ArrayDeque<>();
+      this.waiters = new ArrayDeque<>();
+      this.bootstrap = new Bootstrap()
+          .group(eventLoop)
+          .channel(NioSocketChannel.class)
+          .option(ChannelOption.SO_KEEPALIVE, true)
+          .handler(new ChannelInitializer<SocketChannel>() {
+            @Override
+            protected void initChannel(SocketChannel ch) throws Exception {
+              ChannelPipeline pipeline = ch.pipeline();
+
+              SslHandler sslHandler = getSslHandler(discoverable, ch.alloc());
+              if (sslHandler != null) {
+                pipeline.addLast("ssl", sslHandler);
+              }
+              pipeline.addLast("idle-state-handler", new IdleStateHandler(0, 0, idleTimeoutSecs));
+              pipeline.addLast("codec", new HttpClientCodec());
+              pipeline.addLast("forwarder", new InternalServiceRequestHandler());
+            }
+          });
+    }
+
+    Future<Channel> acquire() {
+      Promise<Channel> promise = eventLoop.newPromise();
+
+      // Reuse the most recently released connection, evicting the ones that are no longer active
+      // or were idle for too long
+      long now = System.nanoTime();
+      Channel channel = idleChannels.pollLast();
+      while (channel != null) {
+        idleConnections.decrementAndGet();
+        Long idleSince = channel.attr(IDLE_SINCE).getAndSet(null);
+        if (channel.isActive()
+            && (idleSince == null || now - idleSince < poolIdleTimeoutNanos)) {
+          reusedConnections.incrementAndGet();
+          LOG.trace("Reuse connection {} to {}", channel, discoverable);
+          return promise.setSuccess(channel);
+        }
+        channel.close();
+        channel = idleChannels.pollLast();
+      }
+
+      if (maxConnections <= 0 || connections < maxConnections) {
+        connect(promise);
+        return promise;
+      }
+
+      // Wait for a connection to be released
+      waiters.add(promise);
+      eventLoop.schedule(() -> {
+        if (waiters.remove(promise)) {
+          promise.tryFailure(new TimeoutException(
+              "Timeout in acquiring connection to " + discoverable.getSocketAddress()));
+        }
+      }, acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+      return promise;
+    }
+
+    void release(Channel channel) {
+      if (!channel.isActive()) {
+        channel.close();
+        return;
+      }
+      Promise<Channel> waiter = waiters.poll();
+      while (waiter != null) {
+        if (waiter.trySuccess(channel)) {
+          reusedConnections.incrementAndGet();
+          return;
+        }
+        waiter = waiters.poll();
+      }
+      if (idleChannels.size() >= maxIdle) {
+        channel.close();
+        return;
+      }
+      Long idleSince = System.nanoTime();
+      channel.attr(IDLE_SINCE).set(idleSince);
+      idleChannels.addLast(channel);
+      idleConnections.incrementAndGet();
+
+      // Close the connection if it is still idle in the pool after the pool idle timeout
+      eventLoop.schedule(() -> {
+        if (idleSince.equals(channel.attr(IDLE_SINCE).get())) {
+          LOG.trace("Close idle connection {} to {}", channel, discoverable);
+          channel.close();
+        }
+      }, poolIdleTimeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void closeIdle() {
+      for (Channel channel : new ArrayList<>(idleChannels)) {
+        channel.close();
+      }
+    }
+
+    private void connect(Promise<Channel> promise) {
+      connections++;
+      openConnections.incrementAndGet();
+      ChannelFuture connectFuture = bootstrap.connect(discoverable.getSocketAddress());
+      Channel channel = connectFuture.channel();
+      channel.attr(ENDPOINT_POOL).set(this);
+      channel.closeFuture().addListener(future -> onClose(channel));
+
+      connectFuture.addListener(future -> {
+        if (future.isSuccess()) {
+          createdConnections.incrementAndGet();
+          LOG.trace("Created connection {} to {}", channel, discoverable);
+          if (!promise.trySuccess(channel)) {
+            release(channel);
+          }
+        } else {
+          promise.tryFailure(future.cause());
+        }
+      });
+    }
+
+    private void onClose(Channel channel) {
+      connections--;
+      openConnections.decrementAndGet();
+      if (idleChannels.remove(channel)) {
+        idleConnections.decrementAndGet();
+      }
+
+      // Make a new connection for the next waiting request
+      Promise<Channel> waiter = waiters.poll();
+      while (waiter != null && waiter.isDone()) {
+        waiter = waiters.poll();
+      }
+      if (waiter != null) {
+        connect(waiter);
+      } else if (connections == 0) {
+        endpointPools.remove(discoverable, this);
+      }
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.gateway.router;
+
+import io.netty.handler.codec.http.HttpMethod;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link RouteTable}.
+ */
+public class RouteTableTest {
+
+  private static final String ANY = RouteTable.ANY;
+  private static final RouteDestination A = new RouteDestination("a");
+  private static final RouteDestination B = new RouteDestination("b");
+  private static final RouteDestination C = new RouteDestination("c");
+  private static final RouteDestination DEFAULT = new RouteDestination("default");
+
+  @Test
+  public void testOrder() {
+    RouteTable table = RouteTable.builder()
+        .route("v3", ANY, "x").to(A)
+        .route("v3", "n", "x", "y").to(B)
+        .route("v3", "n").to(C)
+        .build(DEFAULT);
+
+    // The first matching route wins, even if a later one has a longer prefix
+    Assert.assertEquals(A, table.lookup("/v3/n/x/y", HttpMethod.GET));
+    Assert.assertEquals(C, table.lookup("/v3/n/y", HttpMethod.GET));
+    Assert.assertEquals(C, table.lookup("/v3/n", HttpMethod.GET));
+    Assert.assertEquals(A, table.lookup("/v3/m/x", HttpMethod.GET));
+    Assert.assertEquals(DEFAULT, table.lookup("/v3/m/y", HttpMethod.GET));
+    Assert.assertEquals(DEFAULT, table.lookup("/v3", HttpMethod.GET));
+    Assert.assertEquals(DEFAULT, table.lookup("/", HttpMethod.GET));
+    Assert.assertEquals(DEFAULT, table.lookup("", HttpMethod.GET));
+  }
+
+  @Test
+  public void testConditions() {
+    RouteTable table = RouteTable.builder()
+        .route("v3").endsWith("meta", ANY).unless("v3", "keys").to(A)
+        .route("v3", "n").length(2).to(B)
+        .route("v3", "n").method(HttpMethod.PUT).to(C)
+        .route("v3", "none").unrouted()
+        .build(DEFAULT);
+
+    Assert.assertEquals(A, table.lookup("/v3/n/meta/x", HttpMethod.GET));
+    Assert.assertEquals(DEFAULT, table.lookup("/v3/keys/meta/x", HttpMethod.GET));
+    Assert.assertEquals(B, table.lookup("/v3/n", HttpMethod.GET));
+    Assert.assertEquals(DEFAULT, table.lookup("/v3/n/x", HttpMethod.GET));
+    Assert.assertEquals(C, table.lookup("/v3/n/x", HttpMethod.PUT));
+    Assert.assertNull(table.lookup("/v3/none", HttpMethod.GET));
+  }
+
+  @Test
+  public void testSegments() {
+    RouteTable table = RouteTable.builder()
+        .route("v3", ANY, "apps", ANY)
+        .to(path -> new RouteDestination(path.get(1) + "." + path.get(3)))
+        .build(DEFAULT);
+
+    // Empty segments are ignored
+    Assert.assertEquals(new RouteDestination("ns.app"),
+        table.lookup("//v3/ns//apps/app/", HttpMethod.GET));
+    Assert.assertEquals(DEFAULT, table.lookup("/v3/ns/apps", HttpMethod.GET));
+    Assert.assertEquals(DEFAULT, table.lookup("/v3/ns/app/x", HttpMethod.GET));
+
+    // Paths with many segments
+    StringBuilder path = new StringBuilder("/v3/ns/apps/app");
+    for (int i = 0; i < 100; i++) {
+      path.append("/s").append(i);
+    }
+    Assert.assertEquals(new RouteDestination("ns.app"),
+        table.lookup(path.toString(), HttpMethod.GET));
+  }
+}
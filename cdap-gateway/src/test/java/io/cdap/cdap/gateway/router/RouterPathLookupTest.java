@@ -51,6 +51,19 @@ public class RouterPathLookupTest {
     Assert.assertEquals(RouterPathLookup.APP_FABRIC_PROCESSOR, result);
   }
 
+  @Test
+  public void testUnsupportedMethod() {
+    // Requests with methods other than GET, PUT, POST and DELETE are routed to app-fabric
+    String path = "/v3/namespaces/n1/previews";
+    HttpRequest httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("HEAD"), path);
+    RouteDestination result = pathLookup.getRoutingService(path, httpRequest);
+    Assert.assertEquals(RouterPathLookup.APP_FABRIC_HTTP, result);
+
+    httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("GET"), path);
+    result = pathLookup.getRoutingService(path, httpRequest);
+    Assert.assertEquals(RouterPathLookup.PREVIEW_HTTP, result);
+  }
+
   @Test
   public void testBatchRunsPath() {
     String path = "/v3/namespaces/n1/runs";
@@ -0,0 +1,202 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.gateway.router.handlers;
+
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoop;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.Future;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.twill.discovery.Discoverable;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link UpstreamConnectionPool}.
+ */
+public class UpstreamConnectionPoolTest {
+
+  private static final AtomicInteger ACCEPTED = new AtomicInteger();
+
+  private static NioEventLoopGroup eventLoopGroup;
+  private static Channel serverChannel;
+  private static Discoverable discoverable;
+
+  @BeforeClass
+  public static void init() throws Exception {
+    eventLoopGroup = new NioEventLoopGroup(1);
+    serverChannel = new ServerBootstrap()
+        .group(eventLoopGroup)
+        .channel(NioServerSocketChannel.class)
+        .childHandler(new ChannelInitializer<SocketChannel>() {
+          @Override
+          protected void initChannel(SocketChannel ch) {
+            ACCEPTED.incrementAndGet();
+            ch.pipeline().addLast(new ChannelInboundHandlerAdapter());
+          }
+        })
+        .bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)).sync().channel();
+    discoverable = new Discoverable("test", (InetSocketAddress) serverChannel.localAddress());
+  }
+
+  @AfterClass
+  public static void finish() throws Exception {
+    serverChannel.close().sync();
+    eventLoopGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS).sync();
+  }
+
+  @Test
+  public void testReuse() throws Exception {
+    UpstreamConnectionPool pool = createPool(0, 1);
+    EventLoop eventLoop = eventLoopGroup.next();
+    int accepted = ACCEPTED.get();
+
+    Channel channel = acquire(pool, eventLoop);
+    runInEventLoop(eventLoop, () -> pool.release(channel));
+    Assert.assertEquals(1, pool.getIdleConnections());
+
+    // The released connection should be reused
+    Assert.assertSame(channel, acquire(pool, eventLoop));
+    Assert.assertEquals(1, pool.getCreatedConnections());
+    Assert.assertEquals(1, pool.getReusedConnections());
+
+    // A new connection is made while the pooled one is in use
+    Channel channel2 = acquire(pool, eventLoop);
+    Assert.assertNotSame(channel, channel2);
+    Assert.assertEquals(2, pool.getOpenConnections());
+
+    // Only one idle connection is kept
+    runInEventLoop(eventLoop, () -> pool.release(channel));
+    runInEventLoop(eventLoop, () -> pool.release(channel2));
+    channel2.closeFuture().await(5, TimeUnit.SECONDS);
+    Assert.assertFalse(channel2.isOpen());
+    Assert.assertEquals(1, pool.getIdleConnections());
+    Assert.assertEquals(accepted + 2, ACCEPTED.get());
+
+    // A closed connection should be evicted
+    channel.close().sync();
+    // Wait for the close listeners to complete
+    runInEventLoop(eventLoop, () -> { });
+    Assert.assertEquals(0, pool.getIdleConnections());
+    Assert.assertEquals(0, pool.getOpenConnections());
+    Channel channel3 = acquire(pool, eventLoop);
+    Assert.assertNotSame(channel, channel3);
+    Assert.assertEquals(3, pool.getCreatedConnections());
+
+    pool.close();
+    channel3.close().sync();
+  }
+
+  @Test
+  public void testMaxConnections() throws Exception {
+    UpstreamConnectionPool pool = createPool(1, 1);
+    EventLoop eventLoop = eventLoopGroup.next();
+
+    Channel channel = acquire(pool, eventLoop);
+
+    // The second acquire should wait for the connection to be released
+    Future<Channel> future = callInEventLoop(eventLoop,
+        () -> pool.acquire(eventLoop, discoverable));
+    Assert.assertFalse(future.isDone());
+    runInEventLoop(eventLoop, () -> pool.release(channel));
+    Assert.assertSame(channel, future.get(5, TimeUnit.SECONDS));
+    Assert.assertEquals(1, pool.getCreatedConnections());
+
+    // Acquire should timeout if there is no connection released
+    future = callInEventLoop(eventLoop, () -> pool.acquire(eventLoop, discoverable));
+    Assert.assertTrue(future.await(5, TimeUnit.SECONDS));
+    Assert.assertTrue(future.cause() instanceof TimeoutException);
+
+    // Closing of the connection should let a waiting acquire make a new connection
+    future = callInEventLoop(eventLoop, () -> pool.acquire(eventLoop, discoverable));
+    channel.close();
+    Channel channel2 = future.get(5, TimeUnit.SECONDS);
+    Assert.assertNotSame(channel, channel2);
+    Assert.assertEquals(1, pool.getOpenConnections());
+
+    pool.close();
+    channel2.close().sync();
+  }
+
+  @Test
+  public void testIdleTimeout() throws Exception {
+    UpstreamConnectionPool pool = createPool(0, 1, 200L);
+    EventLoop eventLoop = eventLoopGroup.next();
+
+    Channel channel = acquire(pool, eventLoop);
+    runInEventLoop(eventLoop, () -> pool.release(channel));
+    Assert.assertEquals(1, pool.getIdleConnections());
+
+    // The idle connection should be closed by the pool after the pool idle timeout
+    Assert.assertTrue(channel.closeFuture().await(5, TimeUnit.SECONDS));
+    runInEventLoop(eventLoop, () -> { });
+    Assert.assertEquals(0, pool.getIdleConnections());
+    Assert.assertEquals(0, pool.getOpenConnections());
+
+    // A connection reused before the timeout should not be closed
+    Channel channel2 = acquire(pool, eventLoop);
+    Assert.assertNotSame(channel, channel2);
+    runInEventLoop(eventLoop, () -> pool.release(channel2));
+    Assert.assertSame(channel2, acquire(pool, eventLoop));
+    TimeUnit.MILLISECONDS.sleep(400);
+    Assert.assertTrue(channel2.isActive());
+
+    pool.close();
+    channel2.close().sync();
+  }
+
+  private UpstreamConnectionPool createPool(int maxConnections, int maxIdle) {
+    return createPool(maxConnections, maxIdle, 60000L);
+  }
+
+  private UpstreamConnectionPool createPool(int maxConnections, int maxIdle,
+      long idleTimeoutMillis) {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setInt(Constants.Router.UPSTREAM_POOL_MAX_CONNECTIONS, maxConnections);
+    cConf.setInt(Constants.Router.UPSTREAM_POOL_MAX_IDLE, maxIdle);
+    cConf.setLong(Constants.Router.UPSTREAM_POOL_ACQUIRE_TIMEOUT_MS, 500L);
+    cConf.setLong(Constants.Router.UPSTREAM_POOL_IDLE_TIMEOUT_MS, idleTimeoutMillis);
+    return new UpstreamConnectionPool(cConf);
+  }
+
+  private Channel acquire(UpstreamConnectionPool pool, EventLoop eventLoop) throws Exception {
+    return callInEventLoop(eventLoop, () -> pool.acquire(eventLoop, discoverable))
+        .get(5, TimeUnit.SECONDS);
+  }
+
+  private void runInEventLoop(EventLoop eventLoop, Runnable runnable) throws Exception {
+    eventLoop.submit(runnable).get(5, TimeUnit.SECONDS);
+  }
+
+  private <T> T callInEventLoop(EventLoop eventLoop, Callable<T> callable) throws Exception {
+    return eventLoop.submit(callable).get(5, TimeUnit.SECONDS);
+  }
+}
@@ -20,17 +20,18 @@ package io.cdap.cdap.security.auth;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
 import com.google.common.util.concurrent.AbstractIdleService;
-import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.io.Codec;
 import java.io.IOException;
 import java.security.InvalidKeyException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Random;
 import javax.crypto.KeyGenerator;
 import javax.crypto.Mac;
 import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,7 +45,7 @@ public abstract class AbstractKeyManager extends AbstractIdleService implements
 
   private static final Logger LOG = LoggerFactory.getLogger(AbstractKeyManager.class);
 
-  protected ThreadLocal<Mac> threadLocalMac;
+  private ThreadLocal<ReusableMac> threadLocalMac;
   protected KeyGenerator keyGenerator;
   protected volatile KeyIdentifier currentKey;
   protected final String keyAlgo;
@@ -72,11 +73,11 @@ public abstract class AbstractKeyManager extends AbstractIdleService implements
   @Override
   public final void startUp() throws NoSuchAlgorithmException, IOException {
     keyGenerator = createKeyGenerator();
-    threadLocalMac = new ThreadLocal<Mac>() {
+    threadLocalMac = new ThreadLocal<ReusableMac>() {
       @Override
-      public Mac initialValue() {
+      public ReusableMac initialValue() {
         try {
-          return Mac.getInstance(keyAlgo);
+          return new ReusableMac(Mac.getInstance(keyAlgo));
         } catch (NoSuchAlgorithmException nsae) {
           throw new IllegalArgumentException("Unknown algorithm for secret keys: " + keyAlgo);
         }
@@ -150,17 +151,34 @@ public abstract class AbstractKeyManager extends AbstractIdleService implements
   @Override
   public final <T> void validateMAC(Codec<T> codec, Signed<T> signedMessage)
       throws InvalidDigestException, InvalidKeyException {
+    KeyIdentifier key = getKey(signedMessage.getKeyId());
+    if (key == null) {
+      throw new InvalidKeyException("No key found for ID " + signedMessage.getKeyId());
+    }
     try {
-      byte[] newDigest = generateMAC(signedMessage.getKeyId(),
-          codec.encode(signedMessage.getMessage()));
-      if (!Bytes.equals(signedMessage.getDigestBytes(), newDigest)) {
+      byte[] message = codec.encode(signedMessage.getMessage());
+      // Computes the digest into the reusable buffer of the thread, and compares it in constant time
+      ReusableMac reusableMac = threadLocalMac.get();
+      Mac mac = reusableMac.init(key.getKey());
+      mac.update(message);
+      byte[] newDigest = reusableMac.getBuffer();
+      mac.doFinal(newDigest, 0);
+      if (!MessageDigest.isEqual(signedMessage.getDigestBytes(), newDigest)) {
         throw new InvalidDigestException("Token signature is not valid!");
       }
     } catch (IOException ioe) {
       throw Throwables.propagate(ioe);
+    } catch (ShortBufferException e) {
+      // This shouldn't happen as the buffer is sized by the Mac length
+      throw new IllegalStateException(e);
     }
   }
 
+  @Override
+  public final boolean isKeyAvailable(int keyId) {
+    return hasKey(keyId);
+  }
+
   @Override
   public final DigestId generateMAC(byte[] message) throws InvalidKeyException {
     KeyIdentifier signingKey = currentKey;
@@ -186,9 +204,40 @@ public abstract class AbstractKeyManager extends AbstractIdleService implements
   }
 
   protected final byte[] generateMAC(SecretKey key, byte[] message) throws InvalidKeyException {
-    Mac mac = threadLocalMac.get();
-    // TODO: should we only initialize when the key changes?
-    mac.init(key);
-    return mac.doFinal(message);
+    return threadLocalMac.get().init(key).doFinal(message);
+  }
+
+  /**
+   * A {@link Mac} of a thread that is only initialized when the key changes, together with a buffer
+   * for computing digests.
+   */
+  private static final class ReusableMac {
+
+    private final Mac mac;
+    private final byte[] buffer;
+    private SecretKey key;
+
+    private ReusableMac(Mac mac) {
+      this.mac = mac;
+      this.buffer = new byte[mac.getMacLength()];
+    }
+
+    /**
+     * Returns the {@link Mac} initialized with the given key. Since {@link Mac#doFinal()} resets the
+     * {@link Mac} to the initialized state, it only needs to be initialized again for a different
+     * key.
+     */
+    Mac init(SecretKey key) throws InvalidKeyException {
+      if (this.key != key) {
+        this.key = null;
+        mac.init(key);
+        this.key = key;
+      }
+      return mac;
+    }
+
+    byte[] getBuffer() {
+      return buffer;
+    }
   }
 }
@@ -16,27 +16,57 @@
 
 package io.cdap.cdap.security.auth;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.inject.Inject;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.io.Codec;
 import java.io.IOException;
 import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * This class validates the accessToken and returns the different states of accessToken validation.
+ * Tokens that are validated successfully are cached, so that repeated validations of the same token
+ * only need to check the token expiration and whether the secret key used to sign the token is still
+ * available, without decoding the token and recomputing its digest.
  */
 public class AccessTokenValidator extends AbstractIdleService implements TokenValidator {
 
   private static final Logger LOG = LoggerFactory.getLogger(AccessTokenValidator.class);
   private final TokenManager tokenManager;
   private final Codec<AccessToken> accessTokenCodec;
+  // Cache of validated tokens, keyed by the encoded token. It is null if the cache is disabled.
+  @Nullable
+  private final Cache<String, ValidatedToken> validatedTokens;
 
   @Inject
+  public AccessTokenValidator(CConfiguration cConf, TokenManager tokenManager,
+      Codec<AccessToken> accessTokenCodec) {
+    this(tokenManager, accessTokenCodec,
+        cConf.getInt(Constants.Security.TOKEN_VALIDATION_CACHE_MAX_SIZE),
+        cConf.getLong(Constants.Security.TOKEN_VALIDATION_CACHE_EXPIRATION_SECS));
+  }
+
   public AccessTokenValidator(TokenManager tokenManager, Codec<AccessToken> accessTokenCodec) {
+    this(tokenManager, accessTokenCodec, 0, 0L);
+  }
+
+  @VisibleForTesting
+  AccessTokenValidator(TokenManager tokenManager, Codec<AccessToken> accessTokenCodec,
+      int cacheMaxSize, long cacheExpirationSecs) {
     this.tokenManager = tokenManager;
     this.accessTokenCodec = accessTokenCodec;
+    this.validatedTokens = cacheMaxSize <= 0 ? null : CacheBuilder.newBuilder()
+        .maximumSize(cacheMaxSize)
+        .expireAfterWrite(cacheExpirationSecs, TimeUnit.SECONDS)
+        .build();
   }
 
   @Override
@@ -53,12 +83,27 @@ public class AccessTokenValidator extends AbstractIdleService implements TokenVa
 
   @Override
   public TokenState validate(String token) {
-    AccessToken accessToken;
+    AccessToken accessToken = null;
     TokenState state = TokenState.VALID;
     if (token == null) {
       LOG.debug("Token is missing");
       return TokenState.MISSING;
     }
+    if (validatedTokens != null) {
+      ValidatedToken validatedToken = validatedTokens.getIfPresent(token);
+      if (validatedToken != null) {
+        if (validatedToken.expireTimestamp < System.currentTimeMillis()) {
+          validatedTokens.invalidate(token);
+          LOG.debug("Token is expired.");
+          return TokenState.EXPIRED;
+        }
+        if (tokenManager.isKeyAvailable(validatedToken.keyId)) {
+          return TokenState.VALID;
+        }
+        // The key was removed, validate the token again to find out the reason
+        validatedTokens.invalidate(token);
+      }
+    }
     byte[] decodedToken = Base64.getDecoder().decode(token);
 
     try {
@@ -71,6 +116,24 @@ public class AccessTokenValidator extends AbstractIdleService implements TokenVa
       state = ite.getReason();
       LOG.debug("{} {}", state, ite);
     }
+    if (state == TokenState.VALID && validatedTokens != null) {
+      validatedTokens.put(token, new ValidatedToken(accessToken.getKeyId(),
+          accessToken.getIdentifier().getExpireTimestamp()));
+    }
     return state;
   }
+
+  /**
+   * The information of a validated token needed to validate it again.
+   */
+  private static final class ValidatedToken {
+
+    private final int keyId;
+    private final long expireTimestamp;
+
+    private ValidatedToken(int keyId, long expireTimestamp) {
+      this.keyId = keyId;
+      this.expireTimestamp = expireTimestamp;
+    }
+  }
 }
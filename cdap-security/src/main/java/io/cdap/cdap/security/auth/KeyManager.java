@@ -69,4 +69,12 @@ public interface KeyManager extends Service {
   <T> void validateMAC(Codec<T> codec, Signed<T> signedMessage)
       throws InvalidDigestException, InvalidKeyException;
 
+  /**
+   * Returns whether the secret key with the given ID is available for validating digests. A key is
+   * no longer available once it is removed, for example after it expires.
+   *
+   * @param keyId Identifier of the secret key
+   */
+  boolean isKeyAvailable(int keyId);
+
 }
@@ -93,4 +93,11 @@ public class TokenManager extends AbstractIdleService {
       throw new InvalidTokenException(TokenState.INTERNAL, "Invalid key for token.", ike);
     }
   }
+
+  /**
+   * Returns whether the secret key with the given ID is still available for validating tokens.
+   */
+  public boolean isKeyAvailable(int keyId) {
+    return keyManager.isKeyAvailable(keyId);
+  }
 }
@@ -0,0 +1,228 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.security.authorization;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads values of keys with a bulk loader, coalescing concurrent loads of the same key into one
+ * and gathering the loads of different keys requested within a short window into one bulk load.
+ *
+ * <p>There is no background thread. The first caller that adds keys to an empty batch becomes
+ * the leader of the batch. The leader waits for the batch window, or until the batch is full, and
+ * then performs the bulk load for all keys in the batch in its own thread. Other callers wait for
+ * the results of their keys. If there is no other caller when the batch is created, the leader
+ * performs the bulk load right away, so that a lookup without concurrency is not delayed.</p>
+ *
+ * @param <K> type of the key
+ * @param <V> type of the value
+ */
+final class CoalescingBatchLoader<K, V> {
+
+  /**
+   * Loads values for a list of keys.
+   */
+  interface BulkLoader<K, V> {
+
+    /**
+     * Returns the values of the given keys. The returned map must contain all the keys.
+     */
+    Map<K, V> load(List<K> keys) throws Exception;
+  }
+
+  private final BulkLoader<K, V> loader;
+  private final long batchWindowNanos;
+  private final int maxBatchSize;
+  private final ConcurrentMap<K, CompletableFuture<V>> inFlight;
+  // Number of callers currently in loadAll
+  private final AtomicInteger callers;
+  private final Object lock;
+  // The batch that is accepting keys, guarded by lock
+  private List<K> pendingBatch;
+
+  /**
+   * Creates a loader.
+   *
+   * @param loader the bulk loader to load values
+   * @param batchWindowMillis the time to wait for more keys before performing a bulk load. If it
+   *     is not positive, a bulk load is performed immediately with the keys of each call
+   * @param maxBatchSize the number of keys that causes a bulk load without waiting for the end of
+   *     the batch window
+   */
+  CoalescingBatchLoader(BulkLoader<K, V> loader, long batchWindowMillis, int maxBatchSize) {
+    this.loader = loader;
+    this.batchWindowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, batchWindowMillis));
+    this.maxBatchSize = Math.max(1, maxBatchSize);
+    this.inFlight = new ConcurrentHashMap<>();
+    this.callers = new AtomicInteger();
+    this.lock = new Object();
+  }
+
+  /**
+   * Returns the value of the given key.
+   */
+  V load(K key) throws Exception {
+    return loadAll(Collections.singleton(key)).get(key);
+  }
+
+  /**
+   * Returns the values of the given keys, in the iteration order of the keys.
+   */
+  Map<K, V> loadAll(Iterable<? extends K> keys) throws Exception {
+    callers.incrementAndGet();
+    try {
+      return doLoadAll(keys);
+    } finally {
+      callers.decrementAndGet();
+    }
+  }
+
+  private Map<K, V> doLoadAll(Iterable<? extends K> keys) throws Exception {
+    Map<K, CompletableFuture<V>> futures = new LinkedHashMap<>();
+    List<K> newKeys = new ArrayList<>();
+    for (K key : keys) {
+      if (futures.containsKey(key)) {
+        continue;
+      }
+      CompletableFuture<V> future = new CompletableFuture<>();
+      CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+      if (existing == null) {
+        newKeys.add(key);
+        futures.put(key, future);
+      } else {
+        futures.put(key, existing);
+      }
+    }
+
+    if (!newKeys.isEmpty()) {
+      if (batchWindowNanos <= 0L) {
+        execute(newKeys);
+      } else {
+        List<K> batch = enqueue(newKeys);
+        if (batch != null) {
+          execute(batch);
+        }
+      }
+    }
+
+    Map<K, V> result = new LinkedHashMap<>();
+    for (Map.Entry<K, CompletableFuture<V>> entry : futures.entrySet()) {
+      try {
+        result.put(entry.getKey(), Uninterruptibles.getUninterruptibly(entry.getValue()));
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Exception) {
+          throw (Exception) cause;
+        }
+        throw new RuntimeException(cause);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the number of keys that are being loaded.
+   */
+  int getInFlightCount() {
+    return inFlight.size();
+  }
+
+  /**
+   * Adds keys to the pending batch. If the caller is the leader of the batch, waits until the
+   * batch is closed and returns it. Otherwise, returns {@code null}.
+   */
+  private List<K> enqueue(Collection<K> keys) {
+    synchronized (lock) {
+      boolean leader = pendingBatch == null;
+      if (leader) {
+        pendingBatch = new ArrayList<>();
+      }
+      List<K> batch = pendingBatch;
+      batch.addAll(keys);
+      if (batch.size() >= maxBatchSize) {
+        pendingBatch = null;
+        lock.notifyAll();
+      }
+      if (!leader) {
+        return null;
+      }
+      if (callers.get() <= 1) {
+        // No other lookup that could join the batch
+        if (pendingBatch == batch) {
+          pendingBatch = null;
+        }
+        return batch;
+      }
+
+      long deadline = System.nanoTime() + batchWindowNanos;
+      long remaining = batchWindowNanos;
+      while (pendingBatch == batch && remaining > 0L) {
+        try {
+          TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+        } catch (InterruptedException e) {
+          // Other callers are waiting for this batch, hence complete it before returning
+          Thread.currentThread().interrupt();
+          break;
+        }
+        remaining = deadline - System.nanoTime();
+      }
+      if (pendingBatch == batch) {
+        pendingBatch = null;
+      }
+      return batch;
+    }
+  }
+
+  /**
+   * Loads the given keys and completes the futures of them.
+   */
+  private void execute(List<K> keys) {
+    Map<K, V> values = null;
+    Throwable failure = null;
+    try {
+      values = loader.load(keys);
+    } catch (Throwable t) {
+      failure = t;
+    }
+
+    for (K key : keys) {
+      CompletableFuture<V> future = inFlight.remove(key);
+      if (future == null) {
+        continue;
+      }
+      if (failure != null) {
+        future.completeExceptionally(failure);
+      } else if (!values.containsKey(key)) {
+        future.completeExceptionally(new IllegalStateException("No value loaded for " + key));
+      } else {
+        future.complete(values.get(key));
+      }
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.security.authorization;
+
+import io.cdap.cdap.security.spi.authorization.AuditLogContext;
+import java.net.HttpURLConnection;
+import java.util.Queue;
+import javax.annotation.Nullable;
+
+/**
+ * The result of enforcing one {@link io.cdap.cdap.proto.security.AuthorizationPrivilege} in a
+ * batch enforcement request to the master.
+ */
+public class EnforcementResult {
+
+  private final int statusCode;
+  private final String message;
+  private final Queue<AuditLogContext> auditLogContexts;
+
+  public EnforcementResult(int statusCode, @Nullable String message,
+      @Nullable Queue<AuditLogContext> auditLogContexts) {
+    this.statusCode = statusCode;
+    this.message = message;
+    this.auditLogContexts = auditLogContexts;
+  }
+
+  /**
+   * Returns the HTTP status code that the enforcement would have if it was requested alone.
+   */
+  public int getStatusCode() {
+    return statusCode;
+  }
+
+  /**
+   * Returns {@code true} if the enforcement succeeded.
+   */
+  public boolean isSuccess() {
+    return statusCode == HttpURLConnection.HTTP_OK;
+  }
+
+  /**
+   * Returns the error message if the enforcement did not succeed.
+   */
+  @Nullable
+  public String getMessage() {
+    return message;
+  }
+
+  @Nullable
+  public Queue<AuditLogContext> getAuditLogContexts() {
+    return auditLogContexts;
+  }
+}
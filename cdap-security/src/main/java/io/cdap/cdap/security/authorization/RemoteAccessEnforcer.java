@@ -23,6 +23,7 @@ import com.google.common.base.Predicate;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
@@ -31,6 +32,9 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 import com.google.inject.Inject;
+import io.cdap.cdap.api.metrics.MetricsCollectionService;
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.api.metrics.NoopMetricsContext;
 import io.cdap.cdap.api.security.AccessException;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
@@ -56,10 +60,13 @@ import io.cdap.common.http.HttpResponse;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Queue;
@@ -89,6 +96,9 @@ public class RemoteAccessEnforcer extends AbstractAccessEnforcer {
   private static final Type MAP_ENTITY_TYPE = new TypeToken<Map<EntityId, AuthorizationResponse>>() {
   }.getType();
 
+  private static final Type LIST_ENFORCEMENT_RESULT_TYPE = new TypeToken<List<EnforcementResult>>() {
+  }.getType();
+
   private static final Function<VisibilityKey, EntityId> VISIBILITY_KEY_ENTITY_ID_FUNCTION =
       new Function<VisibilityKey, EntityId>() {
         @Override
@@ -107,6 +117,11 @@ public class RemoteAccessEnforcer extends AbstractAccessEnforcer {
 
   private final RemoteClient remoteClient;
   private final boolean cacheEnabled;
+  private final CoalescingBatchLoader<AuthorizationPrivilege, EnforcementResponse> enforceLoader;
+  private final CoalescingBatchLoader<VisibilityKey, VisibilityValue> visibilityLoader;
+  // Set to false if the master does not support batch enforcement
+  private volatile boolean batchEnforceSupported = true;
+  private MetricsContext metricsContext = new NoopMetricsContext();
 
   private class EnforcementResponse {
 
@@ -162,6 +177,14 @@ public class RemoteAccessEnforcer extends AbstractAccessEnforcer {
     // Cache can be disabled by setting the number of entries to <= 0
     this.cacheEnabled = cacheMaxEntries > 0;
 
+    // Misses are coalesced and batched into bulk requests to the master
+    long batchWindowMs = cConf.getLong(Constants.Security.Authorization.REMOTE_BATCH_WINDOW_MS, 0L);
+    int batchMaxSize = cConf.getInt(Constants.Security.Authorization.REMOTE_BATCH_MAX_SIZE, 100);
+    this.enforceLoader = new CoalescingBatchLoader<>(this::loadEnforcements, batchWindowMs,
+        batchMaxSize);
+    this.visibilityLoader = new CoalescingBatchLoader<>(this::loadVisibilities, batchWindowMs,
+        batchMaxSize);
+
     int perCacheSize = cacheMaxEntries / 3 + 1;
     authPolicyCache = CacheBuilder.newBuilder()
         .expireAfterWrite(cacheTTLSecs, TimeUnit.SECONDS)
@@ -172,7 +195,7 @@ public class RemoteAccessEnforcer extends AbstractAccessEnforcer {
           public EnforcementResponse load(AuthorizationPrivilege authorizationPrivilege)
               throws Exception {
             LOG.trace("Cache miss for {}", authorizationPrivilege);
-            return doEnforce(authorizationPrivilege);
+            return enforceLoader.load(authorizationPrivilege);
           }
         });
 
@@ -184,18 +207,27 @@ public class RemoteAccessEnforcer extends AbstractAccessEnforcer {
           @ParametersAreNonnullByDefault
           public VisibilityValue load(VisibilityKey key) throws Exception {
             LOG.trace("Cache miss for {}", key);
-            return loadVisibility(Collections.singleton(key)).get(key);
+            return visibilityLoader.load(key);
           }
 
           @Override
           public Map<VisibilityKey, VisibilityValue> loadAll(Iterable<? extends VisibilityKey> keys)
               throws Exception {
             LOG.trace("Cache miss for {}", keys);
-            return loadVisibility(keys);
+            return visibilityLoader.loadAll(keys);
           }
         });
   }
 
+  /**
+   * Sets the {@link MetricsCollectionService} for emitting cache and remote call metrics.
+   */
+  @SuppressWarnings("unused")
+  @Inject(optional = true)
+  public void setMetricsCollectionService(MetricsCollectionService metricsCollectionService) {
+    this.metricsContext = metricsCollectionService.getContext(Collections.emptyMap());
+  }
+
   @Override
   public void enforce(EntityId entity, Principal principal, Set<? extends Permission> permissions)
       throws AccessException {
@@ -206,8 +238,7 @@ public class RemoteAccessEnforcer extends AbstractAccessEnforcer {
         permissions, null);
 
     try {
-      EnforcementResponse res = cacheEnabled
-          ? authPolicyCache.get(authorizationPrivilege) : doEnforce(authorizationPrivilege);
+      EnforcementResponse res = getEnforcementResponse(authorizationPrivilege);
 
       if (res.getAuditLogContexts() != null && !res.getAuditLogContexts().isEmpty()) {
         SecurityRequestContext.enqueueAuditLogContext(res.getAuditLogContexts());
@@ -233,8 +264,7 @@ public class RemoteAccessEnforcer extends AbstractAccessEnforcer {
         entityType);
 
     try {
-      EnforcementResponse res = cacheEnabled
-          ? authPolicyCache.get(authorizationPrivilege) : doEnforce(authorizationPrivilege);
+      EnforcementResponse res = getEnforcementResponse(authorizationPrivilege);
 
       if (res.getAuditLogContexts() != null && !res.getAuditLogContexts().isEmpty()) {
         SecurityRequestContext.enqueueAuditLogContext(res.getAuditLogContexts());
@@ -259,7 +289,12 @@ public class RemoteAccessEnforcer extends AbstractAccessEnforcer {
 
     try {
       if (cacheEnabled) {
-        Iterable<VisibilityKey> visibilityKeys = toVisibilityKeys(principal, entityIds);
+        List<VisibilityKey> visibilityKeys = ImmutableList.copyOf(
+            toVisibilityKeys(principal, entityIds));
+        int hits = visibilityCache.getAllPresent(visibilityKeys).size();
+        metricsContext.increment(Constants.Metrics.Authorization.REMOTE_CACHE_HIT_COUNT, hits);
+        metricsContext.increment(Constants.Metrics.Authorization.REMOTE_CACHE_MISS_COUNT,
+            visibilityKeys.size() - hits);
         ImmutableMap<VisibilityKey, VisibilityValue> visibilityMap = visibilityCache.getAll(visibilityKeys);
 
         visibilityMap.values().forEach(visibilityValue -> {
@@ -297,6 +332,97 @@ public class RemoteAccessEnforcer extends AbstractAccessEnforcer {
     visibilityCache.invalidateAll();
   }
 
+  private EnforcementResponse getEnforcementResponse(AuthorizationPrivilege authorizationPrivilege)
+      throws Exception {
+    if (!cacheEnabled) {
+      return enforceLoader.load(authorizationPrivilege);
+    }
+    EnforcementResponse res = authPolicyCache.getIfPresent(authorizationPrivilege);
+    if (res != null) {
+      metricsContext.increment(Constants.Metrics.Authorization.REMOTE_CACHE_HIT_COUNT, 1);
+      return res;
+    }
+    metricsContext.increment(Constants.Metrics.Authorization.REMOTE_CACHE_MISS_COUNT, 1);
+    return authPolicyCache.get(authorizationPrivilege);
+  }
+
+  /**
+   * Enforces a batch of {@link AuthorizationPrivilege} with one remote call if possible.
+   */
+  private Map<AuthorizationPrivilege, EnforcementResponse> loadEnforcements(
+      List<AuthorizationPrivilege> authorizationPrivileges) throws IOException {
+    metricsContext.event(Constants.Metrics.Authorization.REMOTE_BATCH_SIZE,
+        authorizationPrivileges.size());
+    long startTime = System.nanoTime();
+    try {
+      if (authorizationPrivileges.size() > 1 && batchEnforceSupported) {
+        Map<AuthorizationPrivilege, EnforcementResponse> result = doEnforceBatch(
+            authorizationPrivileges);
+        if (result != null) {
+          return result;
+        }
+      }
+      Map<AuthorizationPrivilege, EnforcementResponse> result = new HashMap<>();
+      for (AuthorizationPrivilege authorizationPrivilege : authorizationPrivileges) {
+        result.put(authorizationPrivilege, doEnforce(authorizationPrivilege));
+      }
+      return result;
+    } finally {
+      metricsContext.event(Constants.Metrics.Authorization.REMOTE_ENFORCE_MILLIS,
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    }
+  }
+
+  /**
+   * Enforces a list of {@link AuthorizationPrivilege} with one remote call.
+   *
+   * @return the responses of the privileges or {@code null} if the master does not support batch
+   *     enforcement
+   */
+  @Nullable
+  private Map<AuthorizationPrivilege, EnforcementResponse> doEnforceBatch(
+      List<AuthorizationPrivilege> authorizationPrivileges) throws IOException {
+    HttpRequest request = remoteClient.requestBuilder(HttpMethod.POST, "enforceBatch")
+        .withBody(GSON.toJson(authorizationPrivileges))
+        .build();
+    LOG.trace("Remotely enforcing on authorization privileges {}", authorizationPrivileges);
+    HttpResponse response = remoteClient.execute(request);
+    if (response.getResponseCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+      LOG.debug("Batch enforcement is not supported, falling back to individual enforcement");
+      batchEnforceSupported = false;
+      return null;
+    }
+    if (response.getResponseCode() != HttpURLConnection.HTTP_OK) {
+      throw new IOException(String.format("Failed to enforce with code %d: %s",
+          response.getResponseCode(), response.getResponseBodyAsString()));
+    }
+    List<EnforcementResult> results = GSON.fromJson(response.getResponseBodyAsString(),
+        LIST_ENFORCEMENT_RESULT_TYPE);
+    if (results == null || results.size() != authorizationPrivileges.size()) {
+      throw new IOException(String.format("Expected %d enforcement results, but got %s",
+          authorizationPrivileges.size(), results == null ? null : results.size()));
+    }
+
+    Map<AuthorizationPrivilege, EnforcementResponse> responses = new HashMap<>();
+    Iterator<EnforcementResult> resultIterator = results.iterator();
+    for (AuthorizationPrivilege authorizationPrivilege : authorizationPrivileges) {
+      EnforcementResult result = resultIterator.next();
+      if (result.isSuccess()) {
+        responses.put(authorizationPrivilege,
+            new EnforcementResponse(true, result.getAuditLogContexts(), null));
+      } else if (result.getStatusCode() == HttpURLConnection.HTTP_FORBIDDEN) {
+        responses.put(authorizationPrivilege, new EnforcementResponse(false, null,
+            new UnauthorizedException(result.getMessage())));
+      } else {
+        responses.put(authorizationPrivilege, new EnforcementResponse(false,
+            result.getAuditLogContexts(),
+            new IOException(String.format("Failed to enforce with code %d: %s",
+                result.getStatusCode(), result.getMessage()))));
+      }
+    }
+    return responses;
+  }
+
   private EnforcementResponse doEnforce(AuthorizationPrivilege authorizationPrivilege)
       throws IOException {
     HttpRequest request = remoteClient.requestBuilder(HttpMethod.POST, "enforce")
@@ -328,7 +454,33 @@ public class RemoteAccessEnforcer extends AbstractAccessEnforcer {
         .withBody(GSON.toJson(visibilityRequest))
         .build();
     LOG.trace("Remotely checking visibility on authorization privilege {}", visibilityRequest);
-    return GSON.fromJson(remoteClient.execute(request).getResponseBodyAsString(), MAP_ENTITY_TYPE);
+    long startTime = System.nanoTime();
+    try {
+      return GSON.fromJson(remoteClient.execute(request).getResponseBodyAsString(),
+          MAP_ENTITY_TYPE);
+    } finally {
+      metricsContext.event(Constants.Metrics.Authorization.REMOTE_VISIBILITY_MILLIS,
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    }
+  }
+
+  /**
+   * Loads the visibility of a batch of keys, with one remote call for each principal.
+   */
+  private Map<VisibilityKey, VisibilityValue> loadVisibilities(List<VisibilityKey> keys)
+      throws IOException, UnauthorizedException {
+    Map<Principal, List<VisibilityKey>> keysByPrincipal = new LinkedHashMap<>();
+    for (VisibilityKey key : keys) {
+      keysByPrincipal.computeIfAbsent(key.getPrincipal(), k -> new ArrayList<>()).add(key);
+    }
+    if (keysByPrincipal.size() == 1) {
+      return loadVisibility(keys);
+    }
+    Map<VisibilityKey, VisibilityValue> result = new HashMap<>();
+    for (List<VisibilityKey> principalKeys : keysByPrincipal.values()) {
+      result.putAll(loadVisibility(principalKeys));
+    }
+    return result;
   }
 
   private Map<VisibilityKey, VisibilityValue> loadVisibility(Iterable<? extends VisibilityKey> keys)
@@ -0,0 +1,109 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.security.auth;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import io.cdap.cdap.common.guice.ConfigModule;
+import io.cdap.cdap.common.guice.IOModule;
+import io.cdap.cdap.common.guice.InMemoryDiscoveryModule;
+import io.cdap.cdap.security.guice.CoreSecurityRuntimeModule;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link AccessTokenValidator}.
+ */
+public class AccessTokenValidatorTest {
+
+  private TokenManager tokenManager;
+  private AccessTokenCodec tokenCodec;
+
+  @Before
+  public void setUp() {
+    Injector injector = Guice.createInjector(new IOModule(),
+        new CoreSecurityRuntimeModule().getStandaloneModules(), new ConfigModule(),
+        new InMemoryDiscoveryModule());
+    tokenManager = injector.getInstance(TokenManager.class);
+    tokenManager.startAndWait();
+    tokenCodec = injector.getInstance(AccessTokenCodec.class);
+  }
+
+  @After
+  public void tearDown() {
+    tokenManager.stopAndWait();
+  }
+
+  @Test
+  public void testValidate() throws Exception {
+    AccessTokenValidator validator = new AccessTokenValidator(tokenManager, tokenCodec, 100, 60);
+    long now = System.currentTimeMillis();
+    String token = createToken(now + TimeUnit.HOURS.toMillis(1));
+
+    // Validate multiple times to use the cached validation
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals(TokenState.VALID, validator.validate(token));
+    }
+    Assert.assertEquals(TokenState.MISSING, validator.validate(null));
+
+    // A token with a modified digest is not valid
+    AccessToken accessToken = tokenCodec.decode(Base64.getDecoder().decode(token));
+    byte[] digest = accessToken.getDigestBytes().clone();
+    digest[0]++;
+    String invalidToken = Base64.getEncoder().encodeToString(tokenCodec.encode(
+        new AccessToken(accessToken.getIdentifier(), accessToken.getKeyId(), digest)));
+    Assert.assertEquals(TokenState.INVALID, validator.validate(invalidToken));
+    Assert.assertEquals(TokenState.INVALID, validator.validate(invalidToken));
+    Assert.assertEquals(TokenState.VALID, validator.validate(token));
+  }
+
+  @Test
+  public void testExpiration() throws Exception {
+    AccessTokenValidator validator = new AccessTokenValidator(tokenManager, tokenCodec, 100, 60);
+    String token = createToken(System.currentTimeMillis() + 2000);
+    Assert.assertEquals(TokenState.VALID, validator.validate(token));
+
+    // The cached token should be checked for expiration
+    TimeUnit.MILLISECONDS.sleep(2500);
+    Assert.assertEquals(TokenState.EXPIRED, validator.validate(token));
+    Assert.assertEquals(TokenState.EXPIRED, validator.validate(token));
+  }
+
+  @Test
+  public void testKeyRemoval() throws Exception {
+    AccessTokenValidator validator = new AccessTokenValidator(tokenManager, tokenCodec, 100, 60);
+    String token = createToken(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+    Assert.assertEquals(TokenState.VALID, validator.validate(token));
+
+    // Removing the key used to sign the token should invalidate the cached token
+    AccessToken accessToken = tokenCodec.decode(Base64.getDecoder().decode(token));
+    ((MapBackedKeyManager) tokenManager.keyManager).allKeys.remove(accessToken.getKeyId());
+    Assert.assertEquals(TokenState.INTERNAL, validator.validate(token));
+  }
+
+  private String createToken(long expireTimestamp) throws Exception {
+    UserIdentity identity = new UserIdentity("user", UserIdentity.IdentifierType.EXTERNAL,
+        Collections.singletonList("users"), System.currentTimeMillis(), expireTimestamp);
+    return Base64.getEncoder().encodeToString(
+        tokenCodec.encode(tokenManager.signIdentifier(identity)));
+  }
+}
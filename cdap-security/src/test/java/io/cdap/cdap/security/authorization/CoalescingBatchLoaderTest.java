@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.security.authorization;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CoalescingBatchLoader}.
+ */
+public class CoalescingBatchLoaderTest {
+
+  @Test
+  public void testCoalescing() throws Exception {
+    CountDownLatch loadStarted = new CountDownLatch(1);
+    CountDownLatch loadBlocked = new CountDownLatch(1);
+    List<List<String>> batches = new CopyOnWriteArrayList<>();
+    CoalescingBatchLoader<String, Integer> loader = new CoalescingBatchLoader<>(keys -> {
+      batches.add(keys);
+      loadStarted.countDown();
+      loadBlocked.await();
+      return toLengths(keys);
+    }, 0L, 10);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      Future<Integer> first = executor.submit(() -> loader.load("abc"));
+      Assert.assertTrue(loadStarted.await(10, TimeUnit.SECONDS));
+
+      // Identical loads wait for the in-flight load
+      List<Future<Integer>> futures = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        futures.add(executor.submit(() -> loader.load("abc")));
+      }
+      // Give the loads time to join the in-flight load
+      TimeUnit.MILLISECONDS.sleep(500);
+      Assert.assertEquals(1, loader.getInFlightCount());
+      loadBlocked.countDown();
+
+      Assert.assertEquals(3, first.get(10, TimeUnit.SECONDS).intValue());
+      for (Future<Integer> future : futures) {
+        Assert.assertEquals(3, future.get(10, TimeUnit.SECONDS).intValue());
+      }
+      Assert.assertEquals(1, batches.size());
+      Assert.assertEquals(0, loader.getInFlightCount());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testBatching() throws Exception {
+    CountDownLatch slowStarted = new CountDownLatch(1);
+    CountDownLatch slowBlocked = new CountDownLatch(1);
+    List<List<String>> batches = new CopyOnWriteArrayList<>();
+    CoalescingBatchLoader<String, Integer> loader = new CoalescingBatchLoader<>(keys -> {
+      if (keys.contains("slow")) {
+        slowStarted.countDown();
+        slowBlocked.await();
+      } else {
+        batches.add(keys);
+      }
+      return toLengths(keys);
+    }, 500L, 4);
+
+    // Loads within the batch window are gathered into one bulk load while another lookup is pending
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      Future<Integer> slow = executor.submit(() -> loader.load("slow"));
+      Assert.assertTrue(slowStarted.await(10, TimeUnit.SECONDS));
+      List<Future<Integer>> futures = new ArrayList<>();
+      for (String key : Arrays.asList("a", "bb", "ccc")) {
+        futures.add(executor.submit(() -> loader.load(key)));
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        Assert.assertEquals(i + 1, futures.get(i).get(10, TimeUnit.SECONDS).intValue());
+      }
+      slowBlocked.countDown();
+      Assert.assertEquals(4, slow.get(10, TimeUnit.SECONDS).intValue());
+    } finally {
+      executor.shutdownNow();
+    }
+    Assert.assertEquals(1, batches.size());
+    Assert.assertEquals(3, batches.get(0).size());
+
+    // A full batch is loaded without waiting for the end of the window
+    batches.clear();
+    long startTime = System.nanoTime();
+    Map<String, Integer> values = loader.loadAll(Arrays.asList("a", "bb", "a", "ccc", "dddd"));
+    Assert.assertTrue(System.nanoTime() - startTime < TimeUnit.MILLISECONDS.toNanos(500));
+    Assert.assertEquals(ImmutableMap.of("a", 1, "bb", 2, "ccc", 3, "dddd", 4), values);
+    Assert.assertEquals(1, batches.size());
+  }
+
+  @Test
+  public void testNoWaitWithoutConcurrency() throws Exception {
+    CoalescingBatchLoader<String, Integer> loader =
+        new CoalescingBatchLoader<>(CoalescingBatchLoaderTest::toLengths, 10000L, 10);
+
+    // A lookup without any other pending lookup doesn't wait for the batch window
+    long startTime = System.nanoTime();
+    Assert.assertEquals(3, loader.load("abc").intValue());
+    Assert.assertTrue(System.nanoTime() - startTime < TimeUnit.SECONDS.toNanos(5));
+  }
+
+  @Test
+  public void testFailure() throws Exception {
+    CoalescingBatchLoader<String, Integer> loader = new CoalescingBatchLoader<>(keys -> {
+      if (keys.contains("fail")) {
+        throw new IOException("Failed");
+      }
+      Map<String, Integer> result = toLengths(keys);
+      result.remove("missing");
+      return result;
+    }, 0L, 10);
+
+    try {
+      loader.load("fail");
+      Assert.fail("Expected IOException");
+    } catch (IOException e) {
+      // expected
+    }
+    try {
+      loader.load("missing");
+      Assert.fail("Expected IllegalStateException");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+
+    // Failed loads are not retained
+    Assert.assertEquals(0, loader.getInFlightCount());
+    Assert.assertEquals(2, loader.load("ok").intValue());
+  }
+
+  private static Map<String, Integer> toLengths(List<String> keys) {
+    Map<String, Integer> result = new HashMap<>();
+    for (String key : keys) {
+      result.put(key, key.length());
+    }
+    return result;
+  }
+}
@@ -35,6 +35,10 @@ import java.util.List;
  */
 public class SparkClassLoader extends CombineClassLoader {
 
+  static {
+    ClassLoader.registerAsParallelCapable();
+  }
+
   private final SparkRuntimeContext runtimeContext;
   private DefaultSparkExecutionContext sparkExecutionContext;
 
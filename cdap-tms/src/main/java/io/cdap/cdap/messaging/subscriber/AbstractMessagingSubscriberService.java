@@ -28,9 +28,18 @@ import io.cdap.cdap.spi.data.transaction.TransactionRunner;
 import io.cdap.cdap.spi.data.transaction.TransactionRunners;
 import io.cdap.cdap.spi.data.transaction.TxCallable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.annotation.Nullable;
+import org.apache.twill.common.Threads;
+import org.apache.twill.internal.ServiceListenerAdapter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,6 +70,21 @@ public abstract class AbstractMessagingSubscriberService<T> extends
    */
   private final long timeBoundMillis;
 
+  private final MetricsContext metricsContext;
+
+  /**
+   * Executor for running processing lanes. It is only created when {@link #getProcessingLanes()}
+   * returns a value larger than one.
+   */
+  private volatile ExecutorService laneExecutor;
+
+  /**
+   * Ids of the messages after the stored message id that were already processed by a lane. They
+   * are skipped when they are fetched again, so that a failure in one lane doesn't replay the
+   * messages committed by the other lanes. It is only accessed from the processing thread.
+   */
+  private Set<String> laneProcessedMessageIds = Collections.emptySet();
+
   /**
    * Constructor with txSize being identical to fetchSize.
    *
@@ -91,7 +115,18 @@ public abstract class AbstractMessagingSubscriberService<T> extends
     // Process the notifications and record the message id of where the processing is up to.
     // 90% of the tx timeout is .9 * 1000 * txTimeoutSeconds = 900 * txTimeoutSeconds
     this.timeBoundMillis = 900L * txTimeoutSeconds;
+    this.metricsContext = metricsContext;
+    addListener(new ServiceListenerAdapter() {
+      @Override
+      public void terminated(State from) {
+        shutdownLaneExecutor();
+      }
 
+      @Override
+      public void failed(State from, Throwable failure) {
+        shutdownLaneExecutor();
+      }
+    }, Threads.SAME_THREAD_EXECUTOR);
   }
 
   /**
@@ -135,6 +170,37 @@ public abstract class AbstractMessagingSubscriberService<T> extends
     return false;
   }
 
+  /**
+   * Returns the number of lanes for processing a fetched batch of messages concurrently. By default
+   * it returns {@code 1}, which processes messages serially in the fetched order. When a value larger
+   * than one is returned, messages are assigned to lanes based on the
+   * {@link #getPartitionKey(ImmutablePair)} such that messages with the same key are always
+   * processed in the fetched order by the same lane. Each lane processes its messages in its own
+   * transactions, hence the {@link #processMessages(StructuredTableContext, Iterator)} method must
+   * be thread-safe. The stored message id only advances to the end of the longest prefix of the
+   * batch processed by all lanes. Messages committed by a lane beyond that point are remembered
+   * and are not processed again when they are fetched again, but they are replayed if the service
+   * restarts before the stored message id passes them. Hence only return a value larger than one if
+   * processing the same message again, including any side effects performed after the
+   * transaction, is harmless.
+   */
+  protected int getProcessingLanes() {
+    return 1;
+  }
+
+  /**
+   * Returns the partition key of the given message. Messages with equal keys are processed in the
+   * fetched order. This method is only used when {@link #getProcessingLanes()} returns a value
+   * larger than one.
+   *
+   * @param message the message to process
+   * @return the partition key or {@code null} to have the message processed by the first lane
+   */
+  @Nullable
+  protected Object getPartitionKey(ImmutablePair<String, T> message) {
+    return null;
+  }
+
   /**
    * Processes the give list of messages. This method will be called from the same transaction as
    * the {@link #storeMessageId(StructuredTableContext, String)} call. If {@link Exception} is
@@ -182,29 +248,19 @@ public abstract class AbstractMessagingSubscriberService<T> extends
   @Nullable
   @Override
   protected String processMessages(Iterable<ImmutablePair<String, T>> messages) throws Exception {
-    List<ImmutablePair<String, T>> currentTxMessages;
+    int lanes = getProcessingLanes();
+    if (lanes > 1) {
+      return processMessagesInLanes(messages, lanes);
+    }
+
     String lastMessageId = null;
     MessageTrackingIterator iterator = new MessageTrackingIterator(messages.iterator());
     Stopwatch stopwatch = new Stopwatch();
     while (iterator.hasNext()) {
-      currentTxMessages = new ArrayList<>();
-
-      while (iterator.hasNext() && currentTxMessages.size() < this.txSize) {
-        if (shouldRunInSeparateTx(iterator.peek())) {
-          // If next message should run in a separate transaction, two cases exist:
-          // 1. if currentTxMessages is empty, we can add next message and go to process it.
-          // 2. If currentTxMessages is not empty, we have to process what is in currentTxMessages,
-          // and process next message in the next round.
-          if (currentTxMessages.isEmpty()) {
-            currentTxMessages.add(iterator.next());
-          }
-          break;
-        }
-        currentTxMessages.add(iterator.next());
-      }
+      List<ImmutablePair<String, T>> currentTxMessages = nextTxMessages(iterator);
 
       try {
-        String result = processSingleTxn(currentTxMessages, stopwatch);
+        String result = processSingleTxn(currentTxMessages, stopwatch, true);
         if (result != null) {
           // we only set lastMessageId if result of current batch is not null
           // in order to avoid setting lastMessageId to null in case current batch returned null
@@ -226,6 +282,191 @@ public abstract class AbstractMessagingSubscriberService<T> extends
     return lastMessageId;
   }
 
+  /**
+   * Collects messages to be processed in the next transaction, which has at most {@link #txSize}
+   * messages, or only one message if {@link #shouldRunInSeparateTx(ImmutablePair)} returns true.
+   */
+  private List<ImmutablePair<String, T>> nextTxMessages(MessageTrackingIterator iterator) {
+    List<ImmutablePair<String, T>> currentTxMessages = new ArrayList<>();
+    while (iterator.hasNext() && currentTxMessages.size() < this.txSize) {
+      if (shouldRunInSeparateTx(iterator.peek())) {
+        // If next message should run in a separate transaction, two cases exist:
+        // 1. if currentTxMessages is empty, we can add next message and go to process it.
+        // 2. If currentTxMessages is not empty, we have to process what is in currentTxMessages,
+        // and process next message in the next round.
+        if (currentTxMessages.isEmpty()) {
+          currentTxMessages.add(iterator.next());
+        }
+        break;
+      }
+      currentTxMessages.add(iterator.next());
+    }
+    return currentTxMessages;
+  }
+
+  /**
+   * Process messages by fanning them out to multiple lanes based on the partition key. Each lane
+   * processes its messages serially in its own transactions. After all lanes are done, the message
+   * id of the last message in the longest fully processed prefix of the batch is persisted.
+   *
+   * @param messages the messages to process
+   * @param lanes number of lanes
+   * @return the message id that all messages up to it (inclusive) have been processed, or
+   *     {@code null} if none of the messages was processed
+   */
+  @Nullable
+  private String processMessagesInLanes(Iterable<ImmutablePair<String, T>> messages, int lanes)
+      throws Exception {
+    List<ImmutablePair<String, T>> batch = new ArrayList<>();
+    messages.forEach(batch::add);
+    if (batch.isEmpty()) {
+      return null;
+    }
+
+    // Assign messages to lanes, remembering the position of each message in the batch.
+    // Messages already processed by a lane in a previous round are skipped.
+    boolean[] processed = new boolean[batch.size()];
+    List<List<Integer>> laneIndices = new ArrayList<>();
+    for (int i = 0; i < lanes; i++) {
+      laneIndices.add(new ArrayList<>());
+    }
+    for (int i = 0; i < batch.size(); i++) {
+      if (laneProcessedMessageIds.contains(batch.get(i).getFirst())) {
+        processed[i] = true;
+        continue;
+      }
+      Object key = getPartitionKey(batch.get(i));
+      int lane = key == null ? 0 : Math.floorMod(key.hashCode(), lanes);
+      laneIndices.get(lane).add(i);
+    }
+
+    ExecutorService executor = getLaneExecutor(lanes);
+    long startTime = System.nanoTime();
+    List<Future<Long>> futures = new ArrayList<>();
+    List<LaneProgress> progresses = new ArrayList<>();
+    for (List<Integer> indices : laneIndices) {
+      if (indices.isEmpty()) {
+        continue;
+      }
+      LaneProgress progress = new LaneProgress(indices);
+      progresses.add(progress);
+      futures.add(executor.submit(() -> {
+        long laneStartTime = System.nanoTime();
+        processLane(batch, progress);
+        return System.nanoTime() - laneStartTime;
+      }));
+    }
+
+    // Wait for all lanes to finish. Failure of one lane doesn't affect the other lanes.
+    Exception failure = null;
+    long busyNanos = 0L;
+    for (Future<Long> future : futures) {
+      try {
+        busyNanos += future.get();
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (failure == null) {
+          failure = cause instanceof Exception ? (Exception) cause : new Exception(cause);
+        } else {
+          failure.addSuppressed(cause);
+        }
+      }
+    }
+    long elapsedNanos = Math.max(1L, System.nanoTime() - startTime);
+
+    // The message id can only advance to the message before the first message that is not processed
+    for (LaneProgress progress : progresses) {
+      progress.markProcessed(processed);
+    }
+    int watermark = 0;
+    while (watermark < batch.size() && processed[watermark]) {
+      watermark++;
+    }
+    // Remember all processed messages until the message id is stored
+    Set<String> processedMessageIds = new HashSet<>();
+    for (int i = 0; i < batch.size(); i++) {
+      if (processed[i]) {
+        processedMessageIds.add(batch.get(i).getFirst());
+      }
+    }
+    laneProcessedMessageIds = processedMessageIds;
+
+    metricsContext.gauge("process.lanes.active", progresses.size());
+    metricsContext.gauge("process.lanes.utilization.percent",
+        busyNanos * 100 / (elapsedNanos * lanes));
+    metricsContext.gauge("process.lanes.lag.messages", batch.size() - watermark);
+
+    if (watermark == 0) {
+      if (failure != null) {
+        throw failure;
+      }
+      return null;
+    }
+    if (failure != null) {
+      LOG.debug("Got exception when processing messages in lanes. "
+          + "Last fully processed message Id is {}", batch.get(watermark - 1).getFirst(), failure);
+    }
+
+    String lastMessageId = batch.get(watermark - 1).getFirst();
+    TransactionRunners.run(getTransactionRunner(),
+        context -> {
+          storeMessageId(context, lastMessageId);
+        }, Exception.class);
+    for (int i = 0; i < watermark; i++) {
+      processedMessageIds.remove(batch.get(i).getFirst());
+    }
+    return lastMessageId;
+  }
+
+  /**
+   * Processes messages of a single lane serially in multiple transactions. Processing of the lane
+   * stops at the first failure or when the time bound is reached, so that messages of the same
+   * partition key are never processed out of order.
+   */
+  private void processLane(List<ImmutablePair<String, T>> batch, LaneProgress progress)
+      throws Exception {
+    MessageTrackingIterator iterator = new MessageTrackingIterator(progress.iterator(batch));
+    Stopwatch stopwatch = new Stopwatch();
+    while (iterator.hasNext()) {
+      List<ImmutablePair<String, T>> currentTxMessages = nextTxMessages(iterator);
+      String result = processSingleTxn(currentTxMessages, stopwatch, false);
+      int processed = 0;
+      while (result != null && processed < currentTxMessages.size()) {
+        if (result.equals(currentTxMessages.get(processed++).getFirst())) {
+          break;
+        }
+      }
+      progress.advance(processed);
+      if (processed < currentTxMessages.size()) {
+        // Time bound reached
+        break;
+      }
+    }
+    stopwatch.stop();
+  }
+
+  private ExecutorService getLaneExecutor(int lanes) {
+    ExecutorService executor = laneExecutor;
+    if (executor == null) {
+      synchronized (this) {
+        executor = laneExecutor;
+        if (executor == null) {
+          executor = Executors.newFixedThreadPool(lanes,
+              Threads.createDaemonThreadFactory(getServiceName() + "-lane-%d"));
+          laneExecutor = executor;
+        }
+      }
+    }
+    return executor;
+  }
+
+  private void shutdownLaneExecutor() {
+    ExecutorService executor = laneExecutor;
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
   /**
    * Processes messages in a single transaction. Given that the transaction may be retried due to an
    * exception, messages are of type {@link Iterable} instead of {@link Iterator}. Therefore, inside
@@ -233,8 +474,8 @@ public abstract class AbstractMessagingSubscriberService<T> extends
    * called.
    */
   @Nullable
-  private String processSingleTxn(Iterable<ImmutablePair<String, T>> messages, Stopwatch stopwatch)
-      throws Exception {
+  private String processSingleTxn(Iterable<ImmutablePair<String, T>> messages, Stopwatch stopwatch,
+      boolean storeMessageId) throws Exception {
 
     return TransactionRunners.run(getTransactionRunner(), context -> {
       TimeBoundIterator timeBoundIterator = new TimeBoundIterator<>(messages.iterator(),
@@ -245,13 +486,61 @@ public abstract class AbstractMessagingSubscriberService<T> extends
       String lastMessageId = messageTrackingIterator.getLastMessageId();
 
       // Persist the message id of the last message being consumed from the iterator
-      if (lastMessageId != null) {
+      if (storeMessageId && lastMessageId != null) {
         storeMessageId(context, lastMessageId);
       }
       return lastMessageId;
     }, Exception.class);
   }
 
+  /**
+   * Tracks the progress of a processing lane. A message is only considered as processed after the
+   * transaction that processed it is committed.
+   */
+  private final class LaneProgress {
+
+    private final List<Integer> indices;
+    private int processed;
+
+    LaneProgress(List<Integer> indices) {
+      this.indices = indices;
+    }
+
+    /**
+     * Returns an {@link Iterator} over the messages of this lane.
+     */
+    Iterator<ImmutablePair<String, T>> iterator(List<ImmutablePair<String, T>> batch) {
+      return new AbstractIterator<ImmutablePair<String, T>>() {
+        private int next;
+
+        @Override
+        protected ImmutablePair<String, T> computeNext() {
+          if (next >= indices.size()) {
+            return endOfData();
+          }
+          return batch.get(indices.get(next++));
+        }
+      };
+    }
+
+    /**
+     * Marks the given number of messages as processed after the transaction that processed them
+     * is committed.
+     */
+    void advance(int count) {
+      processed += count;
+    }
+
+    /**
+     * Marks the positions in the batch of the messages processed by this lane.
+     */
+    void markProcessed(boolean[] batchProcessed) {
+      for (int i = 0; i < processed; i++) {
+        batchProcessed[indices.get(i)] = true;
+      }
+    }
+  }
+
   /**
    * An {@link Iterator} that remembers the message id that has been consumed up to.
    */
@@ -17,7 +17,9 @@
 package io.cdap.cdap.messaging.subscriber;
 
 import com.google.common.collect.ImmutableList;
+import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.dataset.lib.AbstractCloseableIterator;
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
 import io.cdap.cdap.api.messaging.Message;
 import io.cdap.cdap.api.messaging.MessageFetcher;
 import io.cdap.cdap.api.messaging.MessagingContext;
@@ -26,6 +28,8 @@ import io.cdap.cdap.api.metrics.MetricsContext;
 import io.cdap.cdap.common.service.RetryStrategies;
 import io.cdap.cdap.common.service.RetryStrategy;
 import io.cdap.cdap.common.utils.ImmutablePair;
+import io.cdap.cdap.common.utils.Tasks;
+import io.cdap.cdap.messaging.data.MessageId;
 import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.TopicId;
 import io.cdap.cdap.spi.data.StructuredTableContext;
@@ -33,7 +37,9 @@ import io.cdap.cdap.spi.data.transaction.TransactionException;
 import io.cdap.cdap.spi.data.transaction.TransactionRunner;
 import io.cdap.cdap.spi.data.transaction.TxRunnable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
@@ -89,7 +95,7 @@ public class AbstractMessagingSubscriberServiceTest {
   @Mock
   private StructuredTableContext structuredTableContext;
 
-  private String storedMessageId = "start";
+  private volatile String storedMessageId = "start";
   private BlockingQueue<List<ImmutablePair<String, Integer>>> processedMessages = new ArrayBlockingQueue<>(10);
 
   @Test
@@ -208,6 +214,86 @@ public class AbstractMessagingSubscriberServiceTest {
     service.stopAndWait();
   }
 
+  @Test
+  public void testLaneProcessing() throws Exception {
+    List<Message> messageList = Arrays.asList(message0, message1, message2, message3, message4);
+    for (int i = 0; i < messageList.size(); i++) {
+      Mockito.when(messageList.get(i).getId()).thenReturn(messageId(i));
+    }
+    Iterator<Message> messages = messageList.iterator();
+    Mockito.when(messagingContext.getMessageFetcher()).thenReturn(messageFetcher);
+    Mockito.when(messageFetcher.fetch(NamespaceId.DEFAULT.getNamespace(), "test", 100, "start"))
+      .thenReturn(new AbstractCloseableIterator<Message>() {
+        @Override
+        protected Message computeNext() {
+          return messages.hasNext() ? messages.next() : endOfData();
+        }
+
+        @Override
+        public void close() {
+
+        }
+      });
+    // The messages after message 2 are fetched again
+    Iterator<Message> refetched = Arrays.asList(message3, message4).iterator();
+    Mockito.when(messageFetcher.fetch(NamespaceId.DEFAULT.getNamespace(), "test", 100, messageId(2)))
+      .thenReturn(new AbstractCloseableIterator<Message>() {
+        @Override
+        protected Message computeNext() {
+          return refetched.hasNext() ? refetched.next() : endOfData();
+        }
+
+        @Override
+        public void close() {
+
+        }
+      });
+    Mockito.when(messageFetcher.fetch(NamespaceId.DEFAULT.getNamespace(), "test", 100, messageId(4)))
+      .thenReturn(CloseableIterator.empty());
+    Mockito.doAnswer(c -> {
+      c.getArgument(0, TxRunnable.class).run(structuredTableContext);
+      return null;
+    }).when(transactionRunner).run(Mockito.any());
+
+    // Message 3 fails, hence the message id can only advance to message 2 and the rest is fetched again
+    LanedTestMessagingSubscriberService service = new LanedTestMessagingSubscriberService(
+      NamespaceId.DEFAULT.topic("test"), 100, 100, 1,
+      RetryStrategies.noRetry(), metricsContext, 1, 2, 3);
+    service.startAndWait();
+    try {
+      List<Integer> lane0 = new ArrayList<>();
+      List<Integer> lane1 = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        List<ImmutablePair<String, Integer>> processed = processedMessages.poll(10, TimeUnit.SECONDS);
+        Assert.assertNotNull(processed);
+        Assert.assertEquals(1, processed.size());
+        int value = processed.get(0).getSecond();
+        (value % 2 == 0 ? lane0 : lane1).add(value);
+      }
+      // Per key ordering must be preserved
+      Assert.assertEquals(Arrays.asList(0, 2, 4), lane0);
+      Assert.assertEquals(Arrays.asList(1), lane1);
+
+      // Only message 3 is processed again, as message 4 was already processed by the other lane.
+      // The refetched message 3 is decoded to 5, which doesn't fail.
+      List<ImmutablePair<String, Integer>> processed = processedMessages.poll(10, TimeUnit.SECONDS);
+      Assert.assertEquals(Collections.singletonList(ImmutablePair.of(messageId(3), 5)), processed);
+      Tasks.waitFor(messageId(4), () -> storedMessageId, 10, TimeUnit.SECONDS);
+      Assert.assertNull(processedMessages.poll(1, TimeUnit.SECONDS));
+    } finally {
+      service.stopAndWait();
+    }
+  }
+
+  /**
+   * Creates a message id in the hex form with the given publish time.
+   */
+  private static String messageId(long publishTime) {
+    byte[] rawId = new byte[MessageId.RAW_ID_SIZE];
+    MessageId.putRawId(publishTime, (short) 0, 0L, (short) 0, rawId, 0);
+    return Bytes.toHexString(rawId);
+  }
+
   class TestMessagingSubscriberService extends AbstractMessagingSubscriberService<Integer> {
     private int counter;
 
@@ -259,4 +345,49 @@ public class AbstractMessagingSubscriberServiceTest {
 
   }
 
+  /**
+   * A {@link TestMessagingSubscriberService} that processes messages in multiple lanes, partitioned
+   * by the message value parity.
+   */
+  class LanedTestMessagingSubscriberService extends TestMessagingSubscriberService {
+
+    private final int lanes;
+    private final int failValue;
+
+    LanedTestMessagingSubscriberService(TopicId topicId, int fetchSize, int txTimeoutSeconds,
+                                        long emptyFetchDelayMillis, RetryStrategy retryStrategy,
+                                        MetricsContext metricsContext, int txSize, int lanes,
+                                        int failValue) {
+      super(topicId, fetchSize, txTimeoutSeconds, emptyFetchDelayMillis, retryStrategy, metricsContext, txSize);
+      this.lanes = lanes;
+      this.failValue = failValue;
+    }
+
+    @Override
+    protected int getProcessingLanes() {
+      return lanes;
+    }
+
+    @Override
+    protected Object getPartitionKey(ImmutablePair<String, Integer> message) {
+      return message.getSecond() % 2;
+    }
+
+    @Override
+    protected void processMessages(StructuredTableContext structuredTableContext,
+                                   Iterator<ImmutablePair<String, Integer>> messages) throws Exception {
+      List<ImmutablePair<String, Integer>> processed = ImmutableList.copyOf(messages);
+      for (ImmutablePair<String, Integer> message : processed) {
+        if (message.getSecond() == failValue) {
+          throw new Exception("Failed to process message " + message.getFirst());
+        }
+      }
+      processedMessages.add(processed);
+    }
+
+    @Override
+    protected boolean shouldRunInSeparateTx(ImmutablePair<String, Integer> message) {
+      return false;
+    }
+  }
 }